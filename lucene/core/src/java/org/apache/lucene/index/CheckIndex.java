@@ -17,9 +17,11 @@
 package org.apache.lucene.index;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.NumberFormat;
@@ -30,6 +32,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.DocValuesProducer;
@@ -61,8 +67,10 @@ import org.apache.lucene.util.CommandLineUtil;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LongBitSet;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.SuppressForbidden;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.lucene.util.Version;
 import org.apache.lucene.util.automaton.Automata;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
@@ -449,6 +457,27 @@ public final class CheckIndex implements Closeable {
   }
 
   private boolean verbose;
+
+  private int threadCount = 1;
+
+  /**
+   * Sets the number of threads used to check the index. With more than one thread, segments
+   * and the independent parts of each segment (e.g. postings, stored fields, doc values, points
+   * and the checksums of each format) are checked concurrently. The output is the same as with a
+   * single thread since the output of each part is buffered and printed in order.
+   * Defaults to 1.
+   */
+  public void setThreadCount(int threadCount) {
+    if (threadCount <= 0) {
+      throw new IllegalArgumentException("threadCount must be positive; got: " + threadCount);
+    }
+    this.threadCount = threadCount;
+  }
+
+  /** See {@link #setThreadCount}. */
+  public int getThreadCount() {
+    return threadCount;
+  }
   
   /** See {@link #getChecksumsOnly}. */
   public boolean getChecksumsOnly() {
@@ -506,7 +535,6 @@ public final class CheckIndex implements Closeable {
   public Status checkIndex(List<String> onlySegments) throws IOException {
     ensureOpen();
     long startNS = System.nanoTime();
-    NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
     SegmentInfos sis = null;
     Status result = new Status();
     result.dir = dir;
@@ -606,206 +634,369 @@ public final class CheckIndex implements Closeable {
     result.newSegments.clear();
     result.maxSegmentName = -1;
 
-    for(int i=0;i<numSegments;i++) {
-      final SegmentCommitInfo info = sis.info(i);
-      long segmentName = Long.parseLong(info.info.name.substring(1), Character.MAX_RADIX);
-      if (segmentName > result.maxSegmentName) {
-        result.maxSegmentName = segmentName;
-      }
-      if (onlySegments != null && !onlySegments.contains(info.info.name)) {
-        continue;
+    // With more than one thread, segments and the independent parts of each segment are
+    // checked concurrently; their output is buffered and printed in order.
+    final ExecutorService executor = threadCount > 1
+        ? Executors.newFixedThreadPool(threadCount, new NamedThreadFactory("CheckIndex"))
+        : null;
+    try {
+      final SegmentInfos commit = sis;
+      final List<SegmentCommitInfo> checkedInfos = new ArrayList<>();
+      final List<CheckTask<SegmentCheck>> segmentChecks = new ArrayList<>();
+      for(int i=0;i<numSegments;i++) {
+        final SegmentCommitInfo info = sis.info(i);
+        long segmentName = Long.parseLong(info.info.name.substring(1), Character.MAX_RADIX);
+        if (segmentName > result.maxSegmentName) {
+          result.maxSegmentName = segmentName;
+        }
+        if (onlySegments != null && !onlySegments.contains(info.info.name)) {
+          continue;
+        }
+        final int segmentIndex = i;
+        checkedInfos.add(info);
+        segmentChecks.add(newCheckTask(executor, infoStream, out -> checkSegment(commit, segmentIndex, info, out, executor)));
+      }
+
+      for (int i = 0; i < segmentChecks.size(); i++) {
+        SegmentCheck segmentCheck = segmentChecks.get(i).get(infoStream);
+        result.segmentInfos.add(segmentCheck.status);
+        if (segmentCheck.failed) {
+          result.totLoseDocCount += segmentCheck.toLoseDocCount;
+          result.numBadSegments++;
+        } else {
+          // Keeper
+          result.newSegments.add(checkedInfos.get(i).clone());
+        }
       }
-      Status.SegmentInfoStatus segInfoStat = new Status.SegmentInfoStatus();
-      result.segmentInfos.add(segInfoStat);
-      msg(infoStream, "  " + (1+i) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
-      segInfoStat.name = info.info.name;
-      segInfoStat.maxDoc = info.info.maxDoc();
-      
-      final Version version = info.info.getVersion();
-      if (info.info.maxDoc() <= 0) {
-        throw new RuntimeException("illegal number of documents: maxDoc=" + info.info.maxDoc());
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
       }
+    }
 
-      int toLoseDocCount = info.info.maxDoc();
+    if (0 == result.numBadSegments) {
+      result.clean = true;
+    } else
+      msg(infoStream, "WARNING: " + result.numBadSegments + " broken segments (containing " + result.totLoseDocCount + " documents) detected");
 
-      SegmentReader reader = null;
-      Sort previousIndexSort = null;
+    if ( ! (result.validCounter = (result.maxSegmentName < sis.counter))) {
+      result.clean = false;
+      result.newSegments.counter = result.maxSegmentName + 1; 
+      msg(infoStream, "ERROR: Next segment name counter " + sis.counter + " is not greater than max segment name " + result.maxSegmentName);
+    }
+    
+    if (result.clean) {
+      msg(infoStream, "No problems were detected with this index.\n");
+    }
 
-      try {
-        msg(infoStream, "    version=" + (version == null ? "3.0" : version));
-        msg(infoStream, "    id=" + StringHelper.idToString(info.info.getId()));
-        final Codec codec = info.info.getCodec();
-        msg(infoStream, "    codec=" + codec);
-        segInfoStat.codec = codec;
-        msg(infoStream, "    compound=" + info.info.getUseCompoundFile());
-        segInfoStat.compound = info.info.getUseCompoundFile();
-        msg(infoStream, "    numFiles=" + info.files().size());
-        Sort indexSort = info.info.getIndexSort();
-        if (indexSort != null) {
-          msg(infoStream, "    sort=" + indexSort);
-          if (previousIndexSort != null) {
-            if (previousIndexSort.equals(indexSort) == false) {
-              throw new RuntimeException("index sort changed from " + previousIndexSort + " to " + indexSort);
-            }
-          } else {
-            previousIndexSort = indexSort;
-          }
-        }
-        segInfoStat.numFiles = info.files().size();
-        segInfoStat.sizeMB = info.sizeInBytes()/(1024.*1024.);
-        msg(infoStream, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
-        Map<String,String> diagnostics = info.info.getDiagnostics();
-        segInfoStat.diagnostics = diagnostics;
-        if (diagnostics.size() > 0) {
-          msg(infoStream, "    diagnostics = " + diagnostics);
-        }
+    msg(infoStream, String.format(Locale.ROOT, "Took %.3f sec total.", nsToSec(System.nanoTime()-startNS)));
+
+    return result;
+  }
+
+  /** The result of checking a single segment. */
+  private static final class SegmentCheck {
+    final Status.SegmentInfoStatus status;
+    boolean failed;
+    int toLoseDocCount;
+
+    SegmentCheck(Status.SegmentInfoStatus status) {
+      this.status = status;
+    }
+  }
+
+  /**
+   * Checks the segment at position <code>i</code> of the commit, printing to the given stream. If
+   * <code>executor</code> is not null, the independent parts of the segment are checked on it.
+   */
+  private SegmentCheck checkSegment(SegmentInfos sis, int i, SegmentCommitInfo info, PrintStream infoStream,
+                                    ExecutorService executor) throws IOException {
+    final int numSegments = sis.size();
+    final NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
+    Status.SegmentInfoStatus segInfoStat = new Status.SegmentInfoStatus();
+    SegmentCheck segmentCheck = new SegmentCheck(segInfoStat);
+    msg(infoStream, "  " + (1+i) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
+    segInfoStat.name = info.info.name;
+    segInfoStat.maxDoc = info.info.maxDoc();
+    
+    final Version version = info.info.getVersion();
+    if (info.info.maxDoc() <= 0) {
+      throw new RuntimeException("illegal number of documents: maxDoc=" + info.info.maxDoc());
+    }
+
+    int toLoseDocCount = info.info.maxDoc();
+
+    SegmentReader reader = null;
+    Sort previousIndexSort = null;
 
-        if (!info.hasDeletions()) {
-          msg(infoStream, "    no deletions");
-          segInfoStat.hasDeletions = false;
+    try {
+      msg(infoStream, "    version=" + (version == null ? "3.0" : version));
+      msg(infoStream, "    id=" + StringHelper.idToString(info.info.getId()));
+      final Codec codec = info.info.getCodec();
+      msg(infoStream, "    codec=" + codec);
+      segInfoStat.codec = codec;
+      msg(infoStream, "    compound=" + info.info.getUseCompoundFile());
+      segInfoStat.compound = info.info.getUseCompoundFile();
+      msg(infoStream, "    numFiles=" + info.files().size());
+      Sort indexSort = info.info.getIndexSort();
+      if (indexSort != null) {
+        msg(infoStream, "    sort=" + indexSort);
+        if (previousIndexSort != null) {
+          if (previousIndexSort.equals(indexSort) == false) {
+            throw new RuntimeException("index sort changed from " + previousIndexSort + " to " + indexSort);
+          }
         } else {
-          msg(infoStream, "    has deletions [delGen=" + info.getDelGen() + "]");
-          segInfoStat.hasDeletions = true;
-          segInfoStat.deletionsGen = info.getDelGen();
+          previousIndexSort = indexSort;
         }
-        
-        long startOpenReaderNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: open reader.........");
-        reader = new SegmentReader(info, sis.getIndexCreatedVersionMajor(), IOContext.DEFAULT);
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
+      }
+      segInfoStat.numFiles = info.files().size();
+      segInfoStat.sizeMB = info.sizeInBytes()/(1024.*1024.);
+      msg(infoStream, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
+      Map<String,String> diagnostics = info.info.getDiagnostics();
+      segInfoStat.diagnostics = diagnostics;
+      if (diagnostics.size() > 0) {
+        msg(infoStream, "    diagnostics = " + diagnostics);
+      }
 
-        segInfoStat.openReaderPassed = true;
-        
-        long startIntegrityNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: check integrity.....");
+      if (!info.hasDeletions()) {
+        msg(infoStream, "    no deletions");
+        segInfoStat.hasDeletions = false;
+      } else {
+        msg(infoStream, "    has deletions [delGen=" + info.getDelGen() + "]");
+        segInfoStat.hasDeletions = true;
+        segInfoStat.deletionsGen = info.getDelGen();
+      }
+      
+      long startOpenReaderNS = System.nanoTime();
+      if (infoStream != null)
+        infoStream.print("    test: open reader.........");
+      reader = new SegmentReader(info, sis.getIndexCreatedVersionMajor(), IOContext.DEFAULT);
+      msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
+
+      segInfoStat.openReaderPassed = true;
+      
+      long startIntegrityNS = System.nanoTime();
+      if (infoStream != null)
+        infoStream.print("    test: check integrity.....");
+      if (executor == null) {
         reader.checkIntegrity();
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
+      } else {
+        checkIntegrity(reader, executor);
+      }
+      msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
 
-        if (reader.maxDoc() != info.info.maxDoc()) {
-          throw new RuntimeException("SegmentReader.maxDoc() " + reader.maxDoc() + " != SegmentInfo.maxDoc " + info.info.maxDoc());
-        }
-        
-        final int numDocs = reader.numDocs();
-        toLoseDocCount = numDocs;
-        
-        if (reader.hasDeletions()) {
-          if (reader.numDocs() != info.info.maxDoc() - info.getDelCount()) {
-            throw new RuntimeException("delete count mismatch: info=" + (info.info.maxDoc() - info.getDelCount()) + " vs reader=" + reader.numDocs());
-          }
-          if ((info.info.maxDoc() - reader.numDocs()) > reader.maxDoc()) {
-            throw new RuntimeException("too many deleted docs: maxDoc()=" + reader.maxDoc() + " vs del count=" + (info.info.maxDoc() - reader.numDocs()));
-          }
-          if (info.info.maxDoc() - reader.numDocs() != info.getDelCount()) {
-            throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
-          }
-        } else {
-          if (info.getDelCount() != 0) {
-            throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
-          }
+      if (reader.maxDoc() != info.info.maxDoc()) {
+        throw new RuntimeException("SegmentReader.maxDoc() " + reader.maxDoc() + " != SegmentInfo.maxDoc " + info.info.maxDoc());
+      }
+      
+      final int numDocs = reader.numDocs();
+      toLoseDocCount = numDocs;
+      
+      if (reader.hasDeletions()) {
+        if (reader.numDocs() != info.info.maxDoc() - info.getDelCount()) {
+          throw new RuntimeException("delete count mismatch: info=" + (info.info.maxDoc() - info.getDelCount()) + " vs reader=" + reader.numDocs());
         }
-        
-        if (checksumsOnly == false) {
-          // Test Livedocs
-          segInfoStat.liveDocStatus = testLiveDocs(reader, infoStream, failFast);
-
-          // Test Fieldinfos
-          segInfoStat.fieldInfoStatus = testFieldInfos(reader, infoStream, failFast);
-
-          // Test Field Norms
-          segInfoStat.fieldNormStatus = testFieldNorms(reader, infoStream, failFast);
-
-          // Test the Term Index
-          segInfoStat.termIndexStatus = testPostings(reader, infoStream, verbose, doSlowChecks, failFast);
-
-          // Test Stored Fields
-          segInfoStat.storedFieldStatus = testStoredFields(reader, infoStream, failFast);
-
-          // Test Term Vectors
-          segInfoStat.termVectorStatus = testTermVectors(reader, infoStream, verbose, doSlowChecks, failFast);
-
-          // Test Docvalues
-          segInfoStat.docValuesStatus = testDocValues(reader, infoStream, failFast);
-
-          // Test PointValues
-          segInfoStat.pointsStatus = testPoints(reader, infoStream, failFast);
-
-          // Test index sort
-          segInfoStat.indexSortStatus = testSort(reader, indexSort, infoStream, failFast);
-
-          // Rethrow the first exception we encountered
-          //  This will cause stats for failed segments to be incremented properly
-          if (segInfoStat.liveDocStatus.error != null) {
-            throw new RuntimeException("Live docs test failed");
-          } else if (segInfoStat.fieldInfoStatus.error != null) {
-            throw new RuntimeException("Field Info test failed");
-          } else if (segInfoStat.fieldNormStatus.error != null) {
-            throw new RuntimeException("Field Norm test failed");
-          } else if (segInfoStat.termIndexStatus.error != null) {
-            throw new RuntimeException("Term Index test failed");
-          } else if (segInfoStat.storedFieldStatus.error != null) {
-            throw new RuntimeException("Stored Field test failed");
-          } else if (segInfoStat.termVectorStatus.error != null) {
-            throw new RuntimeException("Term Vector test failed");
-          } else if (segInfoStat.docValuesStatus.error != null) {
-            throw new RuntimeException("DocValues test failed");
-          } else if (segInfoStat.pointsStatus.error != null) {
-            throw new RuntimeException("Points test failed");
-          }
+        if ((info.info.maxDoc() - reader.numDocs()) > reader.maxDoc()) {
+          throw new RuntimeException("too many deleted docs: maxDoc()=" + reader.maxDoc() + " vs del count=" + (info.info.maxDoc() - reader.numDocs()));
         }
-        final String softDeletesField = reader.getFieldInfos().getSoftDeletesField();
-        if (softDeletesField != null) {
-          checkSoftDeletes(softDeletesField, info, reader, infoStream, failFast);
+        if (info.info.maxDoc() - reader.numDocs() != info.getDelCount()) {
+          throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
         }
-        msg(infoStream, "");
-        
-        if (verbose) {
-          msg(infoStream, "detailed segment RAM usage: ");
-          msg(infoStream, Accountables.toString(reader));
+      } else {
+        if (info.getDelCount() != 0) {
+          throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
         }
-
-      } catch (Throwable t) {
-        if (failFast) {
-          throw IOUtils.rethrowAlways(t);
-        }
-        msg(infoStream, "FAILED");
-        String comment;
-        comment = "exorciseIndex() would remove reference to this segment";
-        msg(infoStream, "    WARNING: " + comment + "; full exception:");
-        if (infoStream != null)
-          t.printStackTrace(infoStream);
-        msg(infoStream, "");
-        result.totLoseDocCount += toLoseDocCount;
-        result.numBadSegments++;
-        continue;
-      } finally {
-        if (reader != null)
-          reader.close();
+      }
+      
+      if (checksumsOnly == false) {
+        // The tests are independent of each other, with an executor they run concurrently
+        final SegmentReader segmentReader = reader;
+        CheckTask<Status.LiveDocStatus> liveDocs = newCheckTask(executor, infoStream,
+            out -> testLiveDocs(segmentReader, out, failFast));
+        CheckTask<Status.FieldInfoStatus> fieldInfos = newCheckTask(executor, infoStream,
+            out -> testFieldInfos(segmentReader, out, failFast));
+        CheckTask<Status.FieldNormStatus> fieldNorms = newCheckTask(executor, infoStream,
+            out -> testFieldNorms(segmentReader, out, failFast));
+        CheckTask<Status.TermIndexStatus> postings = newCheckTask(executor, infoStream,
+            out -> testPostings(segmentReader, out, verbose, doSlowChecks, failFast));
+        CheckTask<Status.StoredFieldStatus> storedFields = newCheckTask(executor, infoStream,
+            out -> testStoredFields(segmentReader, out, failFast));
+        CheckTask<Status.TermVectorStatus> termVectors = newCheckTask(executor, infoStream,
+            out -> testTermVectors(segmentReader, out, verbose, doSlowChecks, failFast));
+        CheckTask<Status.DocValuesStatus> docValues = newCheckTask(executor, infoStream,
+            out -> testDocValues(segmentReader, out, failFast));
+        CheckTask<Status.PointsStatus> points = newCheckTask(executor, infoStream,
+            out -> testPoints(segmentReader, out, failFast));
+        CheckTask<Status.IndexSortStatus> sort = newCheckTask(executor, infoStream,
+            out -> testSort(segmentReader, indexSort, out, failFast));
+
+        // Test Livedocs
+        segInfoStat.liveDocStatus = liveDocs.get(infoStream);
+
+        // Test Fieldinfos
+        segInfoStat.fieldInfoStatus = fieldInfos.get(infoStream);
+
+        // Test Field Norms
+        segInfoStat.fieldNormStatus = fieldNorms.get(infoStream);
+
+        // Test the Term Index
+        segInfoStat.termIndexStatus = postings.get(infoStream);
+
+        // Test Stored Fields
+        segInfoStat.storedFieldStatus = storedFields.get(infoStream);
+
+        // Test Term Vectors
+        segInfoStat.termVectorStatus = termVectors.get(infoStream);
+
+        // Test Docvalues
+        segInfoStat.docValuesStatus = docValues.get(infoStream);
+
+        // Test PointValues
+        segInfoStat.pointsStatus = points.get(infoStream);
+
+        // Test index sort
+        segInfoStat.indexSortStatus = sort.get(infoStream);
+
+        // Rethrow the first exception we encountered
+        //  This will cause stats for failed segments to be incremented properly
+        if (segInfoStat.liveDocStatus.error != null) {
+          throw new RuntimeException("Live docs test failed");
+        } else if (segInfoStat.fieldInfoStatus.error != null) {
+          throw new RuntimeException("Field Info test failed");
+        } else if (segInfoStat.fieldNormStatus.error != null) {
+          throw new RuntimeException("Field Norm test failed");
+        } else if (segInfoStat.termIndexStatus.error != null) {
+          throw new RuntimeException("Term Index test failed");
+        } else if (segInfoStat.storedFieldStatus.error != null) {
+          throw new RuntimeException("Stored Field test failed");
+        } else if (segInfoStat.termVectorStatus.error != null) {
+          throw new RuntimeException("Term Vector test failed");
+        } else if (segInfoStat.docValuesStatus.error != null) {
+          throw new RuntimeException("DocValues test failed");
+        } else if (segInfoStat.pointsStatus.error != null) {
+          throw new RuntimeException("Points test failed");
+        }
+      }
+      final String softDeletesField = reader.getFieldInfos().getSoftDeletesField();
+      if (softDeletesField != null) {
+        checkSoftDeletes(softDeletesField, info, reader, infoStream, failFast);
+      }
+      msg(infoStream, "");
+      
+      if (verbose) {
+        msg(infoStream, "detailed segment RAM usage: ");
+        msg(infoStream, Accountables.toString(reader));
       }
 
-      // Keeper
-      result.newSegments.add(info.clone());
+    } catch (Throwable t) {
+      if (failFast) {
+        throw IOUtils.rethrowAlways(t);
+      }
+      msg(infoStream, "FAILED");
+      String comment;
+      comment = "exorciseIndex() would remove reference to this segment";
+      msg(infoStream, "    WARNING: " + comment + "; full exception:");
+      if (infoStream != null)
+        t.printStackTrace(infoStream);
+      msg(infoStream, "");
+      segmentCheck.failed = true;
+      segmentCheck.toLoseDocCount = toLoseDocCount;
+    } finally {
+      if (reader != null)
+        reader.close();
     }
 
-    if (0 == result.numBadSegments) {
-      result.clean = true;
-    } else
-      msg(infoStream, "WARNING: " + result.numBadSegments + " broken segments (containing " + result.totLoseDocCount + " documents) detected");
+    return segmentCheck;
+  }
 
-    if ( ! (result.validCounter = (result.maxSegmentName < sis.counter))) {
-      result.clean = false;
-      result.newSegments.counter = result.maxSegmentName + 1; 
-      msg(infoStream, "ERROR: Next segment name counter " + sis.counter + " is not greater than max segment name " + result.maxSegmentName);
+  /** Verifies the checksums of all formats of the reader concurrently. */
+  private static void checkIntegrity(CodecReader reader, ExecutorService executor) throws IOException {
+    List<CheckTask<Void>> checks = new ArrayList<>();
+    checks.add(newCheckTask(executor, null, out -> {
+      reader.getPostingsReader().checkIntegrity();
+      return null;
+    }));
+    if (reader.getNormsReader() != null) {
+      checks.add(newCheckTask(executor, null, out -> {
+        reader.getNormsReader().checkIntegrity();
+        return null;
+      }));
+    }
+    if (reader.getDocValuesReader() != null) {
+      checks.add(newCheckTask(executor, null, out -> {
+        reader.getDocValuesReader().checkIntegrity();
+        return null;
+      }));
+    }
+    if (reader.getFieldsReader() != null) {
+      checks.add(newCheckTask(executor, null, out -> {
+        reader.getFieldsReader().checkIntegrity();
+        return null;
+      }));
+    }
+    if (reader.getTermVectorsReader() != null) {
+      checks.add(newCheckTask(executor, null, out -> {
+        reader.getTermVectorsReader().checkIntegrity();
+        return null;
+      }));
+    }
+    if (reader.getPointsReader() != null) {
+      checks.add(newCheckTask(executor, null, out -> {
+        reader.getPointsReader().checkIntegrity();
+        return null;
+      }));
+    }
+    for (CheckTask<Void> check : checks) {
+      check.get(null);
     }
-    
-    if (result.clean) {
-      msg(infoStream, "No problems were detected with this index.\n");
+  }
+
+  @FunctionalInterface
+  private interface CheckFunction<T> {
+    T check(PrintStream infoStream) throws IOException;
+  }
+
+  /**
+   * Creates a check that is submitted to the executor if there is one, in which case its
+   * output is buffered until {@link CheckTask#get} prints it.
+   */
+  private static <T> CheckTask<T> newCheckTask(ExecutorService executor, PrintStream infoStream, CheckFunction<T> function) {
+    CheckTask<T> task = new CheckTask<>(executor != null && infoStream != null, infoStream, function);
+    if (executor != null) {
+      executor.execute(task.future);
     }
+    return task;
+  }
 
-    msg(infoStream, String.format(Locale.ROOT, "Took %.3f sec total.", nsToSec(System.nanoTime()-startNS)));
+  /** A part of the check which may run on another thread. */
+  private static final class CheckTask<T> {
+    private final ByteArrayOutputStream buffer;
+    private final FutureTask<T> future;
 
-    return result;
+    CheckTask(boolean buffered, PrintStream infoStream, CheckFunction<T> function) {
+      buffer = buffered ? new ByteArrayOutputStream() : null;
+      final PrintStream out = buffered ? new PrintStream(buffer, true, StandardCharsets.UTF_8) : infoStream;
+      future = new FutureTask<>(() -> function.check(out));
+    }
+
+    /**
+     * Runs the check on the calling thread unless it was already started elsewhere, waits for it
+     * to complete and then prints its buffered output to the given stream.
+     */
+    T get(PrintStream infoStream) throws IOException {
+      future.run();
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        throw IOUtils.rethrowAlways(e.getCause());
+      } finally {
+        if (buffer != null && infoStream != null) {
+          infoStream.print(buffer.toString(StandardCharsets.UTF_8));
+        }
+      }
+    }
   }
 
   /**
@@ -2802,6 +2993,7 @@ public final class CheckIndex implements Closeable {
     boolean doSlowChecks = false;
     boolean verbose = false;
     boolean doChecksumsOnly = false;
+    int threadCount = 1;
     List<String> onlySegments = new ArrayList<>();
     String indexPath = null;
     String dirImpl = null;
@@ -2898,6 +3090,19 @@ public final class CheckIndex implements Closeable {
         }
         i++;
         opts.onlySegments.add(args[i]);
+      } else if ("-threadCount".equals(arg)) {
+        if (i == args.length - 1) {
+          throw new IllegalArgumentException("ERROR: missing value for -threadCount option");
+        }
+        i++;
+        try {
+          opts.threadCount = Integer.parseInt(args[i]);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("ERROR: invalid value for -threadCount option: " + args[i]);
+        }
+        if (opts.threadCount <= 0) {
+          throw new IllegalArgumentException("ERROR: -threadCount must be positive; got: " + opts.threadCount);
+        }
       } else if ("-dir-impl".equals(arg)) {
         if (i == args.length - 1) {
           throw new IllegalArgumentException("ERROR: missing value for -dir-impl option");
@@ -2915,7 +3120,7 @@ public final class CheckIndex implements Closeable {
 
     if (opts.indexPath == null) {
       throw new IllegalArgumentException("\nERROR: index path not specified" +
-                         "\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-slow] [-segment X] [-segment Y] [-dir-impl X]\n" +
+                         "\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-slow] [-segment X] [-segment Y] [-threadCount X] [-dir-impl X]\n" +
                          "\n" +
                          "  -exorcise: actually write a new segments_N file, removing any problematic segments\n" +
                          "  -fast: just verify file checksums, omitting logical integrity checks\n" + 
@@ -2925,6 +3130,7 @@ public final class CheckIndex implements Closeable {
                          "  -segment X: only check the specified segments.  This can be specified multiple\n" + 
                          "              times, to check more than one segment, eg '-segment _2 -segment _a'.\n" +
                          "              You can't use this with the -exorcise option\n" +
+                         "  -threadCount X: number of threads used to check segments and their parts concurrently (default: 1)\n" +
                          "  -dir-impl X: use a specific " + FSDirectory.class.getSimpleName() + " implementation. " +
                          "If no package is specified the " + FSDirectory.class.getPackage().getName() + " package will be used.\n" +
                          "\n" +
@@ -2964,6 +3170,7 @@ public final class CheckIndex implements Closeable {
   public int doCheck(Options opts) throws IOException, InterruptedException {
     setDoSlowChecks(opts.doSlowChecks);
     setChecksumsOnly(opts.doChecksumsOnly);
+    setThreadCount(opts.threadCount);
     setInfoStream(opts.out, opts.verbose);
 
     Status result = checkIndex(opts.onlySegments);
@@ -22,6 +22,7 @@ import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import org.apache.lucene.index.MergePolicy.OneMerge;
 import org.apache.lucene.store.AlreadyClosedException;
@@ -122,6 +123,8 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
 
   private double forceMergeMBPerSec = Double.POSITIVE_INFINITY;
 
+  private Executor intraMergeExecutor;
+
   /** Sole constructor, with all settings set to default
    *  values. */
   public ConcurrentMergeScheduler() {
@@ -203,6 +206,27 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     return forceMergeMBPerSec;
   }
 
+  /**
+   * Expert: sets the executor used to run independent parts of each merge (stored fields, postings,
+   * doc values, points, term vectors) concurrently, or <code>null</code> (the default) to run them
+   * sequentially on the merge thread. The executor is shared by all running merges, so it should
+   * bound its number of threads; tasks that it rejects run on the merge thread. Writes of the
+   * helper threads count towards the IO rate limit of their merge.
+   */
+  public synchronized void setIntraMergeExecutor(Executor intraMergeExecutor) {
+    this.intraMergeExecutor = intraMergeExecutor;
+  }
+
+  /** Returns the executor set by {@link #setIntraMergeExecutor}, or <code>null</code> if none. */
+  public synchronized Executor getIntraMergeExecutor() {
+    return intraMergeExecutor;
+  }
+
+  @Override
+  public synchronized Executor getIntraMergeExecutor(OneMerge merge) {
+    return intraMergeExecutor;
+  }
+
   /** Turn on dynamic IO throttling, to adaptively rate limit writes
    *  bytes/sec to the minimal rate necessary so merges do not fall behind.
    *  By default this is enabled. */
@@ -282,9 +306,9 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
         assert context.context == IOContext.Context.MERGE: "got context=" + context.context;
         
         // Because rateLimiter is bound to a particular merge thread, this method should
-        // always be called from that context. Verify this.
-        assert mergeThread == Thread.currentThread() : "Not the same merge thread, current="
-          + Thread.currentThread() + ", expected=" + mergeThread;
+        // always be called from that context, or from a thread helping that merge. Verify this.
+        assert mergeThread == Thread.currentThread() || merge.getMergeProgress().isMergeThread(Thread.currentThread())
+          : "Not the same merge thread, current=" + Thread.currentThread() + ", expected=" + mergeThread;
 
         return new RateLimitedIndexOutput(rateLimiter, in.createOutput(name, context));
       }
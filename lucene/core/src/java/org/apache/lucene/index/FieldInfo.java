@@ -17,6 +17,7 @@
 package org.apache.lucene.index;
 
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -44,7 +45,8 @@ public final class FieldInfo {
   private IndexOptions indexOptions = IndexOptions.NONE;
   private boolean storePayloads; // whether this field stores payloads together with term positions
 
-  private final Map<String,String> attributes;
+  // copied on write, since the postings and the doc values of a field may be written concurrently by a merge
+  private volatile Map<String,String> attributes;
 
   private long dvGen;
 
@@ -177,7 +179,11 @@ public final class FieldInfo {
       this.storePayloads = false;
     }
     if (attributes != null) {
-      this.attributes.putAll(attributes);
+      synchronized (this) {
+        Map<String,String> newAttributes = new HashMap<>(this.attributes);
+        newAttributes.putAll(attributes);
+        this.attributes = newAttributes;
+      }
     }
     assert checkConsistency();
   }
@@ -353,12 +359,15 @@ public final class FieldInfo {
    * the new value. If the value of the attributes for a same field is changed between
    * the documents, the behaviour after merge is undefined.
    */
-  public String putAttribute(String key, String value) {
-    return attributes.put(key, value);
+  public synchronized String putAttribute(String key, String value) {
+    Map<String,String> newAttributes = new HashMap<>(attributes);
+    String oldValue = newAttributes.put(key, value);
+    attributes = newAttributes;
+    return oldValue;
   }
   
   /**
-   * Returns internal codec attributes map.
+   * Returns internal codec attributes map. It must not be modified, use {@link #putAttribute(String, String)}.
    */
   public Map<String,String> attributes() {
     return attributes;
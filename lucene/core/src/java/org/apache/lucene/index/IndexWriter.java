@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -4427,10 +4428,15 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
         }
         mergeReaders.add(wrappedReader);
       }
+      Executor intraMergeExecutor = mergeScheduler.getIntraMergeExecutor(merge);
+      if (intraMergeExecutor != null) {
+        // register the executor's threads with the merge so that they may pause for its rate limiter
+        intraMergeExecutor = merge.getMergeProgress().wrapIntraMergeExecutor(intraMergeExecutor);
+      }
       final SegmentMerger merger = new SegmentMerger(mergeReaders,
                                                      merge.info.info, infoStream, dirWrapper,
                                                      globalFieldNumberMap, 
-                                                     context);
+                                                     context, intraMergeExecutor);
       merge.info.setSoftDelCount(Math.toIntExact(softDeleteCount.get()));
       merge.checkAborted();
 
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -102,6 +104,12 @@ public abstract class MergePolicy {
      */
     private Thread owner;
 
+    /**
+     * Threads that currently run parts of this merge on behalf of the owner thread, see
+     * {@link MergeScheduler#getIntraMergeExecutor}. These may pause too.
+     */
+    private final Set<Thread> helpers = ConcurrentHashMap.newKeySet();
+
     /** Creates a new merge progress info. */
     public OneMergeProgress() {
       // Place all the pause reasons in there immediately so that we can simply update values.
@@ -142,8 +150,8 @@ public abstract class MergePolicy {
      *      condition 
      */
     public void pauseNanos(long pauseNanos, PauseReason reason, BooleanSupplier condition) throws InterruptedException {
-      if (Thread.currentThread() != owner) {
-        throw new RuntimeException("Only the merge owner thread can call pauseNanos(). This thread: "
+      if (isMergeThread(Thread.currentThread()) == false) {
+        throw new RuntimeException("Only the merge owner thread or its helpers can call pauseNanos(). This thread: "
             + Thread.currentThread().getName() + ", owner thread: "
             + owner);
       }
@@ -186,6 +194,29 @@ public abstract class MergePolicy {
       assert this.owner == null;
       this.owner = owner;
     }
+
+    /** Returns true if the given thread is the owner of this merge or currently runs a part of it. */
+    final boolean isMergeThread(Thread thread) {
+      return thread == owner || helpers.contains(thread);
+    }
+
+    /**
+     * Wraps the given executor so that the threads running its tasks are registered as helpers
+     * of this merge while they do so.
+     */
+    final Executor wrapIntraMergeExecutor(Executor executor) {
+      return command -> executor.execute(() -> {
+        final Thread thread = Thread.currentThread();
+        final boolean added = thread != owner && helpers.add(thread);
+        try {
+          command.run();
+        } finally {
+          if (added) {
+            helpers.remove(thread);
+          }
+        }
+      });
+    }
   }
 
   /** OneMerge provides the information necessary to perform
@@ -41,6 +41,9 @@ public class MergeRateLimiter extends RateLimiter {
   private volatile double mbPerSec;
   private volatile long minPauseCheckBytes;
 
+  // guards lastNS: a merge may write from several threads, see MergeScheduler#getIntraMergeExecutor
+  private final Object pauseLock = new Object();
+
   private long lastNS;
 
   private AtomicLong totalBytesWritten = new AtomicLong();
@@ -90,9 +93,12 @@ public class MergeRateLimiter extends RateLimiter {
     // is changed while we were pausing:
     long paused = 0;
     long delta;
-    while ((delta = maybePause(bytes, System.nanoTime())) >= 0) {
-      // Keep waiting.
-      paused += delta;
+    // Threads writing for the same merge pause one after the other so that they share its rate:
+    synchronized (pauseLock) {
+      while ((delta = maybePause(bytes, System.nanoTime())) >= 0) {
+        // Keep waiting.
+        paused += delta;
+      }
     }
 
     return paused;
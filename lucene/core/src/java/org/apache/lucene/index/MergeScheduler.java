@@ -19,6 +19,7 @@ package org.apache.lucene.index;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 import org.apache.lucene.index.MergePolicy.OneMerge;
 import org.apache.lucene.store.Directory;
@@ -52,6 +53,17 @@ public abstract class MergeScheduler implements Closeable {
     return in;
   }
 
+  /**
+   * Provides an executor that is used to run independent parts of the given merge, such as
+   * merging postings, doc values and points, concurrently. The calling merge thread waits for
+   * all of them to complete. Tasks may be executed on the calling thread, e.g. if the executor
+   * rejects them. The default returns <code>null</code>, in which case all parts of a merge run
+   * sequentially on the merge thread.
+   */
+  public Executor getIntraMergeExecutor(OneMerge merge) {
+    return null;
+  }
+
   /** Close this MergeScheduler. */
   @Override
   public abstract void close() throws IOException;
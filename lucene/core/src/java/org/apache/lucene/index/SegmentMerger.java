@@ -18,7 +18,13 @@ package org.apache.lucene.index;
 
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.DocValuesConsumer;
@@ -30,7 +36,9 @@ import org.apache.lucene.codecs.StoredFieldsWriter;
 import org.apache.lucene.codecs.TermVectorsWriter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.lucene.util.Version;
 
 /**
@@ -50,9 +58,20 @@ final class SegmentMerger {
   final MergeState mergeState;
   private final FieldInfos.Builder fieldInfosBuilder;
 
+  private final Executor intraMergeExecutor;
+
   // note, just like in codec apis Directory 'dir' is NOT the same as segmentInfo.dir!!
   SegmentMerger(List<CodecReader> readers, SegmentInfo segmentInfo, InfoStream infoStream, Directory dir,
                 FieldInfos.FieldNumbers fieldNumbers, IOContext context) throws IOException {
+    this(readers, segmentInfo, infoStream, dir, fieldNumbers, context, null);
+  }
+
+  /**
+   * @param intraMergeExecutor if not null, independent formats are merged concurrently on this
+   *                           executor, see {@link MergeScheduler#getIntraMergeExecutor}
+   */
+  SegmentMerger(List<CodecReader> readers, SegmentInfo segmentInfo, InfoStream infoStream, Directory dir,
+                FieldInfos.FieldNumbers fieldNumbers, IOContext context, Executor intraMergeExecutor) throws IOException {
     if (context.context != IOContext.Context.MERGE) {
       throw new IllegalArgumentException("IOContext.context should be MERGE; got: " + context.context);
     }
@@ -61,6 +80,7 @@ final class SegmentMerger {
     this.codec = segmentInfo.getCodec();
     this.context = context;
     this.fieldInfosBuilder = new FieldInfos.Builder(fieldNumbers);
+    this.intraMergeExecutor = intraMergeExecutor;
     Version minVersion = Version.LATEST;
     for (CodecReader reader : readers) {
       Version leafMinVersion = reader.getMetaData().getMinVersion();
@@ -98,96 +118,141 @@ final class SegmentMerger {
       throw new IllegalStateException("Merge would result in 0 document segment");
     }
     mergeFieldInfos();
-    long t0 = 0;
-    if (mergeState.infoStream.isEnabled("SM")) {
-      t0 = System.nanoTime();
-    }
-    int numMerged = mergeFields();
-    if (mergeState.infoStream.isEnabled("SM")) {
-      long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge stored fields [" + numMerged + " docs]");
-    }
-    assert numMerged == mergeState.segmentInfo.maxDoc(): "numMerged=" + numMerged + " vs mergeState.segmentInfo.maxDoc()=" + mergeState.segmentInfo.maxDoc();
 
     final SegmentWriteState segmentWriteState = new SegmentWriteState(mergeState.infoStream, directory, mergeState.segmentInfo,
                                                                       mergeState.mergeFieldInfos, null, context);
     final SegmentReadState segmentReadState = new SegmentReadState(directory, mergeState.segmentInfo, mergeState.mergeFieldInfos,
         IOContext.READ, segmentWriteState.segmentSuffix);
 
-    if (mergeState.mergeFieldInfos.hasNorms()) {
-      if (mergeState.infoStream.isEnabled("SM")) {
-        t0 = System.nanoTime();
-      }
-      mergeNorms(segmentWriteState);
-      if (mergeState.infoStream.isEnabled("SM")) {
-        long t1 = System.nanoTime();
-        mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge norms [" + numMerged + " docs]");
+    // The formats are merged independently of each other, except that postings need the merged norms
+    final List<MergeTask> tasks = new ArrayList<>();
+    tasks.add(() -> mergeWithLogging(() -> {
+      int numMerged = mergeFields();
+      assert numMerged == mergeState.segmentInfo.maxDoc(): "numMerged=" + numMerged + " vs mergeState.segmentInfo.maxDoc()=" + mergeState.segmentInfo.maxDoc();
+    }, "stored fields"));
+    tasks.add(() -> {
+      if (mergeState.mergeFieldInfos.hasNorms()) {
+        mergeWithLogging(() -> mergeNorms(segmentWriteState), "norms");
       }
+      mergeWithLogging(() -> {
+        try (NormsProducer norms = mergeState.mergeFieldInfos.hasNorms()
+            ? codec.normsFormat().normsProducer(segmentReadState)
+            : null) {
+          NormsProducer normsMergeInstance = null;
+          if (norms != null) {
+            // Use the merge instance in order to reuse the same IndexInput for all terms
+            normsMergeInstance = norms.getMergeInstance();
+          }
+          mergeTerms(segmentWriteState, normsMergeInstance);
+        }
+      }, "postings");
+    });
+    if (mergeState.mergeFieldInfos.hasDocValues()) {
+      tasks.add(() -> mergeWithLogging(() -> mergeDocValues(segmentWriteState), "doc values"));
     }
-
+    if (mergeState.mergeFieldInfos.hasPointValues()) {
+      tasks.add(() -> mergeWithLogging(() -> mergePoints(segmentWriteState), "points"));
+    }
+    if (mergeState.mergeFieldInfos.hasVectors()) {
+      tasks.add(() -> mergeWithLogging(() -> {
+        int numMerged = mergeVectors();
+        assert numMerged == mergeState.segmentInfo.maxDoc();
+      }, "vectors"));
+    }
+    runMergeTasks(tasks);
+    
+    // write the merged infos
+    long t0 = 0;
     if (mergeState.infoStream.isEnabled("SM")) {
       t0 = System.nanoTime();
     }
-    try (NormsProducer norms = mergeState.mergeFieldInfos.hasNorms()
-        ? codec.normsFormat().normsProducer(segmentReadState)
-        : null) {
-      NormsProducer normsMergeInstance = null;
-      if (norms != null) {
-        // Use the merge instance in order to reuse the same IndexInput for all terms
-        normsMergeInstance = norms.getMergeInstance();
-      }
-      mergeTerms(segmentWriteState, normsMergeInstance);
-    }
+    codec.fieldInfosFormat().write(directory, mergeState.segmentInfo, "", mergeState.mergeFieldInfos, context);
     if (mergeState.infoStream.isEnabled("SM")) {
       long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge postings [" + numMerged + " docs]");
+      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to write field infos [" + mergeState.segmentInfo.maxDoc() + " docs]");
     }
 
+    return mergeState;
+  }
+
+  /** An independent part of a merge. */
+  @FunctionalInterface
+  private interface MergeTask {
+    void merge() throws IOException;
+  }
+
+  private void mergeWithLogging(MergeTask task, String formatName) throws IOException {
+    long t0 = 0;
     if (mergeState.infoStream.isEnabled("SM")) {
       t0 = System.nanoTime();
     }
-    if (mergeState.mergeFieldInfos.hasDocValues()) {
-      mergeDocValues(segmentWriteState);
-    }
+    task.merge();
     if (mergeState.infoStream.isEnabled("SM")) {
       long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge doc values [" + numMerged + " docs]");
+      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge " + formatName + " [" + mergeState.segmentInfo.maxDoc() + " docs]");
     }
+  }
 
-    if (mergeState.infoStream.isEnabled("SM")) {
-      t0 = System.nanoTime();
+  /**
+   * Runs the given tasks, concurrently if an intra-merge executor was provided. In that case the
+   * first task runs on the calling thread. All tasks have finished or been skipped when this method
+   * returns, so that no files are written after a failed merge is cleaned up.
+   */
+  private void runMergeTasks(List<MergeTask> tasks) throws IOException {
+    if (intraMergeExecutor == null || tasks.size() == 1) {
+      for (MergeTask task : tasks) {
+        task.merge();
+      }
+      return;
     }
-    if (mergeState.mergeFieldInfos.hasPointValues()) {
-      mergePoints(segmentWriteState);
+
+    final AtomicBoolean failed = new AtomicBoolean();
+    final List<FutureTask<Void>> futures = new ArrayList<>(tasks.size());
+    for (MergeTask task : tasks) {
+      futures.add(new FutureTask<>(() -> {
+        // no need to start the remaining tasks once the merge failed
+        if (failed.get() == false) {
+          try {
+            task.merge();
+          } catch (Throwable t) {
+            failed.set(true);
+            throw t;
+          }
+        }
+        return null;
+      }));
     }
-    if (mergeState.infoStream.isEnabled("SM")) {
-      long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge points [" + numMerged + " docs]");
+    for (int i = 1; i < futures.size(); i++) {
+      try {
+        intraMergeExecutor.execute(futures.get(i));
+      } catch (RejectedExecutionException e) {
+        futures.get(i).run();
+      }
     }
+    futures.get(0).run();
 
-    if (mergeState.mergeFieldInfos.hasVectors()) {
-      if (mergeState.infoStream.isEnabled("SM")) {
-        t0 = System.nanoTime();
+    Throwable th = null;
+    boolean interrupted = false;
+    for (FutureTask<Void> future : futures) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          // keep waiting, the task may still be writing files
+          interrupted = true;
+        } catch (ExecutionException e) {
+          th = IOUtils.useOrSuppress(th, e.getCause());
+          break;
+        }
       }
-      numMerged = mergeVectors();
-      if (mergeState.infoStream.isEnabled("SM")) {
-        long t1 = System.nanoTime();
-        mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge vectors [" + numMerged + " docs]");
-      }
-      assert numMerged == mergeState.segmentInfo.maxDoc();
     }
-    
-    // write the merged infos
-    if (mergeState.infoStream.isEnabled("SM")) {
-      t0 = System.nanoTime();
+    if (interrupted) {
+      th = IOUtils.useOrSuppress(th, new ThreadInterruptedException(new InterruptedException()));
     }
-    codec.fieldInfosFormat().write(directory, mergeState.segmentInfo, "", mergeState.mergeFieldInfos, context);
-    if (mergeState.infoStream.isEnabled("SM")) {
-      long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to write field infos [" + numMerged + " docs]");
+    if (th != null) {
+      throw IOUtils.rethrowAlways(th);
     }
-
-    return mergeState;
   }
 
   private void mergeDocValues(SegmentWriteState segmentWriteState) throws IOException {
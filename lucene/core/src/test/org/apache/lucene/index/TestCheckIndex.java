@@ -17,9 +17,20 @@
 package org.apache.lucene.index;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.TestUtil;
 import org.junit.Test;
 
 public class TestCheckIndex extends BaseTestCheckIndex {
@@ -56,4 +67,53 @@ public class TestCheckIndex extends BaseTestCheckIndex {
   public void testObtainsLock() throws IOException {
     testObtainsLock(directory);
   }
+
+  @Test
+  public void testThreadCount() throws IOException {
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMaxBufferedDocs(10);
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    try (IndexWriter w = new IndexWriter(directory, iwc)) {
+      for (int i = 0; i < 50; i++) {
+        Document doc = new Document();
+        doc.add(new StringField("id", "" + i, Field.Store.YES));
+        doc.add(new TextField("body", "some text " + i, Field.Store.NO));
+        doc.add(new NumericDocValuesField("dv", i));
+        doc.add(new IntPoint("point", i));
+        w.addDocument(doc);
+      }
+      w.deleteDocuments(new Term("id", "7"));
+    }
+
+    for (boolean checksumsOnly : new boolean[] {false, true}) {
+      String expected = checkIndex(1, checksumsOnly);
+      String actual = checkIndex(TestUtil.nextInt(random(), 2, 8), checksumsOnly);
+      assertEquals(expected, actual);
+    }
+  }
+
+  /** Checks the index and returns its output without timings. */
+  private String checkIndex(int threadCount, boolean checksumsOnly) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+    try (CheckIndex checker = new CheckIndex(directory)) {
+      checker.setThreadCount(threadCount);
+      checker.setChecksumsOnly(checksumsOnly);
+      checker.setInfoStream(new PrintStream(bos, true, StandardCharsets.UTF_8));
+      CheckIndex.Status indexStatus = checker.checkIndex();
+      assertTrue(indexStatus.clean);
+      assertTrue(indexStatus.segmentInfos.size() > 1);
+    }
+    return bos.toString(StandardCharsets.UTF_8).replaceAll("(?i)took [0-9.]+ sec", "took X sec");
+  }
+
+  @Test
+  public void testThreadCountOption() throws IOException {
+    assertEquals(1, CheckIndex.parseOptions(new String[] {"index"}).threadCount);
+    assertEquals(4, CheckIndex.parseOptions(new String[] {"index", "-threadCount", "4"}).threadCount);
+    expectThrows(IllegalArgumentException.class, () -> CheckIndex.parseOptions(new String[] {"index", "-threadCount", "0"}));
+    expectThrows(IllegalArgumentException.class, () -> CheckIndex.parseOptions(new String[] {"index", "-threadCount"}));
+    try (CheckIndex checker = new CheckIndex(directory)) {
+      expectThrows(IllegalArgumentException.class, () -> checker.setThreadCount(0));
+    }
+  }
 }
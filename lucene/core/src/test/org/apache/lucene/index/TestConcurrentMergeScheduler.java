@@ -19,6 +19,8 @@ package org.apache.lucene.index;
 
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -27,14 +29,19 @@ import com.carrotsearch.randomizedtesting.generators.RandomStrings;
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MockDirectoryWrapper;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.TestUtil;
 
 public class TestConcurrentMergeScheduler extends LuceneTestCase {
@@ -382,6 +389,64 @@ public class TestConcurrentMergeScheduler extends LuceneTestCase {
     d.close();
   }
 
+  public void testIntraMergeExecutor() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2, new NamedThreadFactory("testIntraMergeExecutor"));
+    AtomicInteger tasks = new AtomicInteger();
+    try (Directory dir = newDirectory()) {
+      ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
+      cms.setIntraMergeExecutor(command -> {
+        tasks.incrementAndGet();
+        executor.execute(command);
+      });
+      IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+      // per field formats, so that the postings and the doc values of the same fields write field attributes
+      iwc.setCodec(new RandomCodec(random()));
+      iwc.setMergeScheduler(cms);
+      iwc.setMaxBufferedDocs(10);
+      final int numFields = 20;
+      try (IndexWriter w = new IndexWriter(dir, iwc)) {
+        for (int i = 0; i < 100; i++) {
+          Document doc = new Document();
+          doc.add(new StringField("id", "" + i, Field.Store.YES));
+          doc.add(new TextField("body", "the quick brown fox " + i, Field.Store.NO));
+          doc.add(new NumericDocValuesField("dv", i));
+          doc.add(new IntPoint("point", i));
+          for (int f = 0; f < numFields; f++) {
+            doc.add(new StringField("both" + f, "" + i, Field.Store.NO));
+            doc.add(new SortedDocValuesField("both" + f, new BytesRef("" + i)));
+          }
+          w.addDocument(doc);
+        }
+        w.forceMerge(1);
+        assertEquals(1, w.getSegmentCount());
+        try (DirectoryReader reader = DirectoryReader.open(w)) {
+          assertEquals(100, reader.numDocs());
+          assertEquals(100, reader.docFreq(new Term("body", "fox")));
+          LeafReader leaf = reader.leaves().get(0).reader();
+          assertEquals(100, leaf.getPointValues("point").size());
+          for (int f = 0; f < numFields; f++) {
+            assertEquals(1, reader.docFreq(new Term("both" + f, "42")));
+            SortedDocValues values = leaf.getSortedDocValues("both" + f);
+            assertEquals(100, values.getValueCount());
+            assertEquals(new BytesRef("42"), values.lookupOrd(values.lookupTerm(new BytesRef("42"))));
+          }
+        }
+      }
+      // the merged segment must be readable with the per field formats recorded in its field infos
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        for (int f = 0; f < numFields; f++) {
+          assertEquals(1, reader.docFreq(new Term("both" + f, "7")));
+          assertEquals(100, reader.leaves().get(0).reader().getSortedDocValues("both" + f).getValueCount());
+        }
+      }
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+    // stored fields run on the merge thread, postings, doc values and points on the executor
+    assertTrue("tasks=" + tasks.get(), tasks.get() >= 3);
+  }
+
   public void testInvalidMaxMergeCountAndThreads() throws Exception {
     ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
     expectThrows(IllegalArgumentException.class, () -> {
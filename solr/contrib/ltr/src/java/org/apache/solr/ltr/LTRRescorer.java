@@ -17,9 +17,11 @@
 package org.apache.solr.ltr;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
@@ -148,9 +150,18 @@ public class LTRRescorer extends Rescorer {
     int endDoc = 0;
     int docBase = 0;
 
+    final FeatureLogger featureLogger = scoringQuery.getFeatureLogger();
+    if (featureLogger == null) {
+      // nothing to log for the current document, so the features can be
+      // extracted for all documents of a segment at once and then be scored
+      // in one go
+      scoreHits(modelWeight, hits, leaves);
+      selectTopN(hits, topN, reranked);
+      return;
+    }
+
     LTRScoringQuery.ModelWeight.ModelScorer scorer = null;
     int hitUpto = 0;
-    final FeatureLogger featureLogger = scoringQuery.getFeatureLogger();
 
     while (hitUpto < hits.length) {
       final ScoreDoc hit = hits[hitUpto];
@@ -212,6 +223,68 @@ public class LTRRescorer extends Rescorer {
     }
   }
 
+  /**
+   * Extracts the features of all hits, which must be sorted by docID, segment
+   * by segment and then lets the model score them all at once. The segments
+   * are processed in parallel if the query has a thread module.
+   */
+  private void scoreHits(LTRScoringQuery.ModelWeight modelWeight, ScoreDoc[] hits,
+      List<LeafReaderContext> leaves) throws IOException {
+    final float[][] modelFeatureValuesNormalized =
+        new float[hits.length][scoringQuery.getScoringModel().getFeatures().size()];
+    final List<Callable<Void>> tasks = new ArrayList<>();
+    int hitUpto = 0;
+    while (hitUpto < hits.length) {
+      final LeafReaderContext readerContext = leaves.get(ReaderUtil.subIndex(hits[hitUpto].doc, leaves));
+      final int endDoc = readerContext.docBase + readerContext.reader().maxDoc();
+      int hitEnd = hitUpto;
+      while (hitEnd < hits.length && hits[hitEnd].doc < endDoc) {
+        hitEnd++;
+      }
+      final int offset = hitUpto;
+      final int[] docs = new int[hitEnd - hitUpto];
+      final float[] originalDocScores = new float[docs.length];
+      for (int i = 0; i < docs.length; i++) {
+        docs[i] = hits[offset + i].doc - readerContext.docBase;
+        originalDocScores[i] = hits[offset + i].score;
+      }
+      tasks.add(() -> {
+        modelWeight.extractNormalizedFeatures(readerContext, docs, originalDocScores,
+            modelFeatureValuesNormalized, offset);
+        return null;
+      });
+      hitUpto = hitEnd;
+    }
+    scoringQuery.execute(tasks);
+
+    final float[] scores = new float[hits.length];
+    scoringQuery.getScoringModel().score(modelFeatureValuesNormalized, scores);
+    for (hitUpto = 0; hitUpto < hits.length; hitUpto++) {
+      hits[hitUpto].score = scores[hitUpto];
+    }
+  }
+
+  /**
+   * Keeps the topN hits with the highest scores in reranked, the same way
+   * {@link #scoreFeatures} does as it scores the hits one by one.
+   */
+  private void selectTopN(ScoreDoc[] hits, int topN, ScoreDoc[] reranked) {
+    for (int hitUpto = 0; hitUpto < hits.length; hitUpto++) {
+      final ScoreDoc hit = hits[hitUpto];
+      if (hitUpto < topN) {
+        reranked[hitUpto] = hit;
+        continue;
+      }
+      if (hitUpto == topN) {
+        heapify(reranked, topN);
+      }
+      if (hit.score > reranked[0].score) {
+        reranked[0] = hit;
+        heapAdjust(reranked, topN, 0);
+      }
+    }
+  }
+
   @Override
   public Explanation explain(IndexSearcher searcher,
       Explanation firstPassExplanation, int docID) throws IOException {
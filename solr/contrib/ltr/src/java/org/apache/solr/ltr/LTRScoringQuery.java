@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RunnableFuture;
@@ -304,6 +305,49 @@ public class LTRScoringQuery extends Query implements Accountable {
     }
   }
 
+  /**
+   * Runs the tasks and waits for them to complete. If this query has a thread
+   * module the tasks run on its threads, within the same limits as the
+   * creation of the feature weights, otherwise they run one after the other.
+   */
+  void execute(List<Callable<Void>> tasks) throws IOException {
+    try {
+      if (querySemaphore == null || tasks.size() < 2) {
+        for (final Callable<Void> task : tasks) {
+          task.call();
+        }
+        return;
+      }
+      final List<Future<Void>> futures = new ArrayList<>(tasks.size());
+      for (final Callable<Void> task : tasks) {
+        final RunnableFuture<Void> runnableFuture = new FutureTask<>(() -> {
+          try {
+            return task.call();
+          } finally {
+            querySemaphore.release();
+            ltrThreadMgr.releaseLTRSemaphore();
+          }
+        });
+        querySemaphore.acquire(); // see createWeightsParallel
+        ltrThreadMgr.acquireLTRSemaphore();
+        ltrThreadMgr.execute(runnableFuture);
+        futures.add(runnableFuture);
+      }
+      for (final Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException("Error while extracting features in LTR: " + e.getMessage(), e.getCause());
+    } catch (final IOException | RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new RuntimeException("Error while extracting features in LTR: " + e.getMessage(), e);
+    }
+  }
+
   @Override
   public String toString(String field) {
     return field;
@@ -421,6 +465,14 @@ public class LTRScoringQuery extends Query implements Accountable {
      * Then calculate and return the model's score.
      */
     private float makeNormalizedFeaturesAndScore() {
+      return ltrScoringModel.score(makeNormalizedFeatures());
+    }
+
+    /**
+     * Goes through all the stored feature values, and calculates the normalized
+     * values for all the features that will be used for scoring.
+     */
+    private float[] makeNormalizedFeatures() {
       int pos = 0;
       for (final Feature.FeatureWeight feature : modelFeatureWeights) {
         final int featureId = feature.getIndex();
@@ -433,7 +485,36 @@ public class LTRScoringQuery extends Query implements Accountable {
         pos++;
       }
       ltrScoringModel.normalizeFeaturesInPlace(modelFeatureValuesNormalized);
-      return ltrScoringModel.score(modelFeatureValuesNormalized);
+      return modelFeatureValuesNormalized;
+    }
+
+    /**
+     * Extracts the features the model uses for several documents of a
+     * segment, one feature at a time for all of the documents, and stores
+     * their normalized values in the given rows, one row per document.
+     *
+     * @param docs
+     *          the documents, relative to the segment, in increasing order
+     * @param originalDocScores
+     *          the original score of each document
+     * @param modelFeatureValuesNormalized
+     *          the rows of the documents, from offset on
+     */
+    public void extractNormalizedFeatures(LeafReaderContext context, int[] docs,
+        float[] originalDocScores, float[][] modelFeatureValuesNormalized, int offset)
+        throws IOException {
+      final float[] values = new float[docs.length];
+      for (int pos = 0; pos < modelFeatureWeights.length; ++pos) {
+        final Feature.FeatureWeight feature = modelFeatureWeights[pos];
+        Arrays.fill(values, feature.getDefaultValue());
+        feature.extractValues(context, docs, originalDocScores, values);
+        for (int i = 0; i < docs.length; ++i) {
+          modelFeatureValuesNormalized[offset + i][pos] = values[i];
+        }
+      }
+      for (int i = 0; i < docs.length; ++i) {
+        ltrScoringModel.normalizeFeaturesInPlace(modelFeatureValuesNormalized[offset + i]);
+      }
     }
 
     @Override
@@ -496,7 +577,7 @@ public class LTRScoringQuery extends Query implements Accountable {
 
     public class ModelScorer extends Scorer {
       final private DocInfo docInfo;
-      final private Scorer featureTraversalScorer;
+      final private FeatureTraversalScorer featureTraversalScorer;
 
       public DocInfo getDocInfo() {
         return docInfo;
@@ -531,6 +612,16 @@ public class LTRScoringQuery extends Query implements Accountable {
         return featureTraversalScorer.score();
       }
 
+      /**
+       * Extracts the features of the current document and returns their
+       * normalized values, without calculating the model's score. The
+       * returned array is overwritten for the next document.
+       */
+      public float[] getNormalizedFeatures() throws IOException {
+        featureTraversalScorer.extractFeatures();
+        return makeNormalizedFeatures();
+      }
+
       @Override
       public float getMaxScore(int upTo) throws IOException {
         return Float.POSITIVE_INFINITY;
@@ -541,7 +632,23 @@ public class LTRScoringQuery extends Query implements Accountable {
         return featureTraversalScorer.iterator();
       }
 
-      private class SparseModelScorer extends Scorer {
+      private abstract class FeatureTraversalScorer extends Scorer {
+
+        protected FeatureTraversalScorer(Weight weight) {
+          super(weight);
+        }
+
+        /** Stores the values of the features matching the current document in featuresInfo. */
+        abstract void extractFeatures() throws IOException;
+
+        @Override
+        public float score() throws IOException {
+          extractFeatures();
+          return makeNormalizedFeaturesAndScore();
+        }
+      }
+
+      private class SparseModelScorer extends FeatureTraversalScorer {
         final private DisiPriorityQueue subScorers;
         final private ScoringQuerySparseIterator itr;
 
@@ -570,7 +677,7 @@ public class LTRScoringQuery extends Query implements Accountable {
         }
 
         @Override
-        public float score() throws IOException {
+        void extractFeatures() throws IOException {
           final DisiWrapper topList = subScorers.topList();
           // If target doc we wanted to advance to matches the actual doc
           // the underlying features advanced to, perform the feature
@@ -587,7 +694,6 @@ public class LTRScoringQuery extends Query implements Accountable {
               featuresInfo[featureId].setUsed(true);
             }
           }
-          return makeNormalizedFeaturesAndScore();
         }
 
         @Override
@@ -642,7 +748,7 @@ public class LTRScoringQuery extends Query implements Accountable {
 
       }
 
-      private class DenseModelScorer extends Scorer {
+      private class DenseModelScorer extends FeatureTraversalScorer {
         private int activeDoc = -1; // The doc that our scorer's are actually at
         private int targetDoc = -1; // The doc we were most recently told to go to
         private int freq = -1;
@@ -660,7 +766,7 @@ public class LTRScoringQuery extends Query implements Accountable {
         }
 
         @Override
-        public float score() throws IOException {
+        void extractFeatures() throws IOException {
           reset();
           freq = 0;
           if (targetDoc == activeDoc) {
@@ -674,7 +780,6 @@ public class LTRScoringQuery extends Query implements Accountable {
               }
             }
           }
-          return makeNormalizedFeaturesAndScore();
         }
 
         @Override
@@ -271,6 +271,42 @@ public abstract class Feature extends Query implements Accountable {
       return false;
     }
 
+    /**
+     * Computes the values of this feature for several documents of a segment
+     * at once, going over them with a single scorer. Features can override
+     * this when their values can be read more efficiently in bulk.
+     *
+     * @param context
+     *          the segment of the documents
+     * @param docs
+     *          the documents, relative to the segment, in increasing order
+     * @param originalDocScores
+     *          the original score of each document
+     * @param values
+     *          receives the value of each document this feature matches;
+     *          the values of the other documents are left as they are
+     */
+    public void extractValues(LeafReaderContext context, int[] docs,
+        float[] originalDocScores, float[] values) throws IOException {
+      final FeatureScorer scorer = scorer(context);
+      if (scorer == null) {
+        return;
+      }
+      final DocInfo docInfo = new DocInfo();
+      scorer.setDocInfo(docInfo);
+      final DocIdSetIterator iterator = scorer.iterator();
+      for (int i = 0; i < docs.length; ++i) {
+        final int doc = docs[i];
+        if (iterator.docID() < doc) {
+          iterator.advance(doc);
+        }
+        if (iterator.docID() == doc) {
+          docInfo.setOriginalDocScore(originalDocScores[i]);
+          values[i] = scorer.score();
+        }
+      }
+    }
+
     @Override
     public Explanation explain(LeafReaderContext context, int doc)
         throws IOException {
@@ -18,6 +18,7 @@ package org.apache.solr.ltr.feature;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -25,11 +26,14 @@ import java.util.Set;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.BoolField;
+import org.apache.solr.schema.NumberType;
+import org.apache.solr.schema.SchemaField;
 
 /**
  * This feature returns the value of a field in the current document
@@ -95,6 +99,37 @@ public class FieldValueFeature extends Feature {
           DocIdSetIterator.all(DocIdSetIterator.NO_MORE_DOCS));
     }
 
+    /**
+     * Reads the values of single valued numeric fields from their docValues,
+     * which hold the same values as the stored fields, instead of loading the
+     * stored fields of one document after the other.
+     */
+    @Override
+    public void extractValues(LeafReaderContext context, int[] docs,
+        float[] originalDocScores, float[] values) throws IOException {
+      final SchemaField schemaField = (request == null ? null : request.getSchema().getFieldOrNull(field));
+      if (!hasNumericDocValues(schemaField)) {
+        super.extractValues(context, docs, originalDocScores, values);
+        return;
+      }
+      final FunctionValues functionValues = schemaField.getType()
+          .getValueSource(schemaField, null).getValues(new HashMap<>(), context);
+      for (int i = 0; i < docs.length; ++i) {
+        if (functionValues.exists(docs[i])) {
+          values[i] = functionValues.floatVal(docs[i]);
+        }
+      }
+    }
+
+    private boolean hasNumericDocValues(SchemaField schemaField) {
+      if (schemaField == null || !schemaField.stored() || !schemaField.hasDocValues()
+          || schemaField.multiValued()) {
+        return false;
+      }
+      final NumberType numberType = schemaField.getType().getNumberType();
+      return numberType != null && numberType != NumberType.DATE;
+    }
+
     public class FieldValueFeatureScorer extends FeatureScorer {
 
       LeafReaderContext context = null;
@@ -273,6 +273,25 @@ public abstract class LTRScoringModel implements Accountable {
    */
   public abstract float score(float[] modelFeatureValuesNormalized);
 
+  /**
+   * Calculates the scores of several documents at once.
+   *
+   * Models can override this to evaluate all documents in one pass over
+   * their parameters, but must produce the same scores as
+   * {@link #score(float[])}.
+   *
+   * @param modelFeatureValuesNormalized
+   *          the normalized feature values of each document
+   * @param scores
+   *          receives the score of each document, it has as many entries
+   *          as there are documents
+   */
+  public void score(float[][] modelFeatureValuesNormalized, float[] scores) {
+    for (int i = 0; i < scores.length; ++i) {
+      scores[i] = score(modelFeatureValuesNormalized[i]);
+    }
+  }
+
   /**
    * Similar to the score() function, except it returns an explanation of how
    * the features were used to calculate the score.
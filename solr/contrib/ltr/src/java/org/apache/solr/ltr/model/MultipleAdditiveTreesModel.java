@@ -17,6 +17,7 @@
 package org.apache.solr.ltr.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -104,6 +105,22 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
    */
   private List<RegressionTree> trees;
 
+  /**
+   * The trees flattened into arrays when the model is validated, which is
+   * what scoring walks instead of the linked {@link RegressionTreeNode}s.
+   * The nodes of each tree are stored depth first, so that the left child
+   * of a split node always directly follows it. Leaves, and split nodes on
+   * a feature that does not exist (which score zero), have a feature index
+   * of {@link #LEAF}.
+   */
+  private float[] treeWeights;
+  private int[] treeRoots;
+  private int[] nodeFeatureIndexes;
+  private float[] nodeThresholds;
+  private int[] nodeRights;
+  private float[] nodeValues;
+  private static final int LEAF = -1;
+
   private RegressionTree createRegressionTree(Map<String,Object> map) {
     final RegressionTree rt = new RegressionTree();
     if (map != null) {
@@ -330,17 +347,93 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
     for (RegressionTree tree : trees) {
       tree.validate();
     }
+    flattenTrees();
+  }
+
+  private void flattenTrees() {
+    int nodeCount = 0;
+    for (final RegressionTree t : trees) {
+      nodeCount += countNodes(t.root);
+    }
+    treeWeights = new float[trees.size()];
+    treeRoots = new int[trees.size()];
+    nodeFeatureIndexes = new int[nodeCount];
+    nodeThresholds = new float[nodeCount];
+    nodeRights = new int[nodeCount];
+    nodeValues = new float[nodeCount];
+    int next = 0;
+    for (int ii = 0; ii < trees.size(); ++ii) {
+      final RegressionTree t = trees.get(ii);
+      treeWeights[ii] = t.weight.floatValue();
+      treeRoots[ii] = next;
+      next = flattenNode(t.root, next);
+    }
+  }
+
+  private static int countNodes(RegressionTreeNode node) {
+    if (node.isLeaf() || node.featureIndex < 0) {
+      return 1;
+    }
+    return 1 + countNodes(node.left) + countNodes(node.right);
+  }
+
+  /** Stores the node and its children from the given position on and returns the position after them. */
+  private int flattenNode(RegressionTreeNode node, int pos) {
+    if (node.isLeaf() || node.featureIndex < 0) {
+      nodeFeatureIndexes[pos] = LEAF;
+      nodeValues[pos] = node.isLeaf() ? node.value : 0f;
+      return pos + 1;
+    }
+    nodeFeatureIndexes[pos] = node.featureIndex;
+    nodeThresholds[pos] = node.threshold.floatValue();
+    final int right = flattenNode(node.left, pos + 1);
+    nodeRights[pos] = right;
+    return flattenNode(node.right, right);
+  }
+
+  private float scoreTree(int node, float[] featureVector) {
+    int featureIndex;
+    while ((featureIndex = nodeFeatureIndexes[node]) != LEAF) {
+      // unsupported feature (tree is looking for a feature that does not exist)
+      if (featureIndex >= featureVector.length) {
+        return 0f;
+      }
+      if (featureVector[featureIndex] <= nodeThresholds[node]) {
+        node = node + 1;
+      } else {
+        node = nodeRights[node];
+      }
+    }
+    return nodeValues[node];
   }
 
   @Override
   public float score(float[] modelFeatureValuesNormalized) {
     float score = 0;
-    for (final RegressionTree t : trees) {
-      score += t.score(modelFeatureValuesNormalized);
+    for (int ii = 0; ii < treeRoots.length; ++ii) {
+      score += treeWeights[ii] * scoreTree(treeRoots[ii], modelFeatureValuesNormalized);
     }
     return score;
   }
 
+  /**
+   * Scores the documents tree by tree rather than document by document, so
+   * that the nodes of a tree stay in the CPU caches while all documents are
+   * evaluated against it. The trees are summed up in the same order as by
+   * {@link #score(float[])}, so the scores are identical.
+   */
+  @Override
+  public void score(float[][] modelFeatureValuesNormalized, float[] scores) {
+    Arrays.fill(scores, 0f);
+    for (int ii = 0; ii < treeRoots.length; ++ii) {
+      final float weight = treeWeights[ii];
+      final int root = treeRoots[ii];
+      for (int doc = 0; doc < scores.length; ++doc) {
+        scores[doc] += weight * scoreTree(root, modelFeatureValuesNormalized[doc]);
+      }
+    }
+  }
+
   // /////////////////////////////////////////
   // produces a string that looks like:
   // 40.0 = multipleadditivetreesmodel [ org.apache.solr.ltr.model.MultipleAdditiveTreesModel ]
@@ -23,10 +23,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
@@ -42,6 +44,8 @@ import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.core.SolrResourceLoader;
 import org.apache.solr.ltr.feature.Feature;
 import org.apache.solr.ltr.feature.FieldValueFeature;
@@ -163,6 +167,56 @@ public class TestLTRReRankingPipeline extends SolrTestCase {
 
   }
 
+  @Test
+  public void testRescorerWithThreadModule() throws Exception {
+    final Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (int i = 0; i < 6; i++) {
+      final Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.YES));
+      doc.add(newTextField("field", "wizard oz", Field.Store.NO));
+      doc.add(new StoredField("final-score", (float) i));
+      w.addDocument(doc);
+      if (i % 2 == 1) {
+        w.commit(); // several segments, which are extracted in parallel
+      }
+    }
+    final IndexReader r = w.getReader();
+    w.close();
+
+    final IndexSearcher searcher = getSearcher(r);
+    TopDocs hits = searcher.search(new TermQuery(new Term("field", "wizard")), 10);
+    assertEquals(6, hits.totalHits.value);
+
+    final List<Feature> features = makeFieldValueFeatures(new int[] {0, 1, 2},
+        "final-score");
+    final List<Normalizer> norms =
+        new ArrayList<Normalizer>(
+            Collections.nCopies(features.size(),IdentityNormalizer.INSTANCE));
+    final LTRScoringModel ltrScoringModel = new MockModel("test",
+        features, norms, "test", features, null);
+
+    final LTRThreadModule threadModule = new LTRThreadModule(4, 2);
+    final ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool(
+        new SolrNamedThreadFactory("ltrExecutor"));
+    threadModule.setExecutor(executor);
+    try {
+      final LTRRescorer rescorer = new LTRRescorer(new LTRScoringQuery(ltrScoringModel,
+          Collections.<String,String[]>emptyMap(), false, threadModule));
+      hits = rescorer.rescore(searcher, hits, 4);
+      assertEquals(4, hits.scoreDocs.length);
+      for (int j = 0; j < 4; j++) {
+        assertEquals(Integer.toString(5 - j), searcher.doc(hits.scoreDocs[j].doc).get("id"));
+        assertEquals(5 - j, hits.scoreDocs[j].score, 0f);
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+
+    r.close();
+    dir.close();
+  }
+
   @AwaitsFix(bugUrl = "https://issues.apache.org/jira/browse/SOLR-11134")
   @Test
   public void testDifferentTopN() throws IOException {
@@ -118,6 +118,23 @@ public class TestMultipleAdditiveTreesModel extends TestRerankBase {
     assertThat(qryResult, containsString(" Go Left "));
   }
 
+  @Test
+  public void testBatchScoring() throws Exception {
+    final LTRScoringModel model = createModelFromFiles("multipleadditivetreesmodel.json",
+        "multipleadditivetreesmodel_features.json");
+
+    final float[][] featureVectors = new float[][] {
+        {0f, 0f}, {0.5f, 0f}, {1f, 0f}, {1f, 10f}, {1f, 20f}
+    };
+    final float[] expected = new float[] {-120f, -120f, 30f, 30f, 55f};
+    final float[] scores = new float[featureVectors.length];
+    model.score(featureVectors, scores);
+    for (int i = 0; i < featureVectors.length; ++i) {
+      assertEquals(expected[i], model.score(featureVectors[i]), 0f);
+      assertEquals(expected[i], scores[i], 0f);
+    }
+  }
+
   @Test
   public void multipleAdditiveTreesTestNoParams() throws Exception {
     final ModelException expectedException =
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.prometheus.collector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Merges the samples of several sources, e.g. the samples scraped from each host. The scrapers hand out the same
+ * {@link MetricSamples} instance as long as a response did not change, so the previous merge is reused as long as
+ * every source is the instance it was merged from.
+ */
+public class MergedSamples {
+
+  private List<MetricSamples> sources = Collections.emptyList();
+  private MetricSamples merged;
+
+  public synchronized MetricSamples merge(Collection<MetricSamples> samples) {
+    List<MetricSamples> next = new ArrayList<>(samples);
+    if (merged == null || !sameInstances(next)) {
+      MetricSamples result = new MetricSamples();
+      next.forEach(result::addAll);
+      merged = result;
+      sources = next;
+    }
+    return merged;
+  }
+
+  private boolean sameInstances(List<MetricSamples> next) {
+    if (next.size() != sources.size()) {
+      return false;
+    }
+    for (int i = 0; i < next.size(); i++) {
+      if (next.get(i) != sources.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
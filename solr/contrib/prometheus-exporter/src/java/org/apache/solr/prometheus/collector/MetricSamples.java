@@ -17,9 +17,12 @@
 
 package org.apache.solr.prometheus.collector;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import io.prometheus.client.Collector;
@@ -27,6 +30,8 @@ import io.prometheus.client.Collector;
 public class MetricSamples {
 
   private final Map<String, Collector.MetricFamilySamples> samplesByMetricName;
+  // the samples of each metric, so that duplicates are found without scanning the samples lists
+  private final Map<String, Set<Collector.MetricFamilySamples.Sample>> sampleSets = new HashMap<>();
 
   public MetricSamples(Map<String, Collector.MetricFamilySamples> input) {
     samplesByMetricName = input;
@@ -47,7 +52,9 @@ public class MetricSamples {
       return;
     }
 
-    if (!sampleFamily.samples.contains(sample)) {
+    Set<Collector.MetricFamilySamples.Sample> present =
+        sampleSets.computeIfAbsent(metricName, name -> new HashSet<>(sampleFamily.samples));
+    if (present.add(sample)) {
       sampleFamily.samples.add(sample);
     }
   }
@@ -60,7 +67,10 @@ public class MetricSamples {
           addSampleIfMetricExists(key, sample);
         }
       } else {
-        this.samplesByMetricName.put(key, entry.getValue());
+        // copied, samples added later on must not change the other samples, which may be cached
+        Collector.MetricFamilySamples family = entry.getValue();
+        this.samplesByMetricName.put(key, new Collector.MetricFamilySamples(
+            family.name, family.type, family.help, new ArrayList<>(family.samples)));
       }
     }
   }
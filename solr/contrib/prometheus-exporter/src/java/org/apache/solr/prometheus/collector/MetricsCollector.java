@@ -24,6 +24,7 @@ public class MetricsCollector implements MetricCollector {
 
   private final MetricsQuery metricsQuery;
   private final SolrScraper solrClient;
+  private final MergedSamples results = new MergedSamples();
 
   public MetricsCollector(SolrScraper solrClient, MetricsQuery metricsQuery) {
     this.solrClient = solrClient;
@@ -32,12 +33,7 @@ public class MetricsCollector implements MetricCollector {
 
   @Override
   public MetricSamples collect() throws Exception {
-    MetricSamples results = new MetricSamples();
-
-    solrClient.metricsForAllHosts(metricsQuery)
-        .forEach((host, samples) -> results.addAll(samples));
-
-    return results;
+    return results.merge(solrClient.metricsForAllHosts(metricsQuery).values());
   }
 
 
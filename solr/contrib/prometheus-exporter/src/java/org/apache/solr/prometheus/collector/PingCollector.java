@@ -17,6 +17,9 @@
 
 package org.apache.solr.prometheus.collector;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.solr.prometheus.exporter.MetricsQuery;
 import org.apache.solr.prometheus.scraper.SolrScraper;
 
@@ -24,6 +27,7 @@ public class PingCollector implements MetricCollector {
 
   private final SolrScraper solrScraper;
   private final MetricsQuery metricsQuery;
+  private final MergedSamples results = new MergedSamples();
 
   public PingCollector(SolrScraper solrScraper, MetricsQuery metricsQuery) {
     this.solrScraper = solrScraper;
@@ -32,15 +36,9 @@ public class PingCollector implements MetricCollector {
 
   @Override
   public MetricSamples collect() throws Exception {
-    MetricSamples results = new MetricSamples();
-
-    solrScraper.pingAllCollections(metricsQuery)
-        .forEach((collection, metrics) -> results.addAll(metrics));
-
-    solrScraper.pingAllCores(metricsQuery)
-        .forEach((collection, metrics) -> results.addAll(metrics));
-
-    return results;
+    List<MetricSamples> samples = new ArrayList<>(solrScraper.pingAllCollections(metricsQuery).values());
+    samples.addAll(solrScraper.pingAllCores(metricsQuery).values());
+    return results.merge(samples);
   }
 
 }
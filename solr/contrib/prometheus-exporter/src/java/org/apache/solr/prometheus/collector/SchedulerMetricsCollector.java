@@ -29,7 +29,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
-import io.prometheus.client.Collector;
 import io.prometheus.client.Histogram;
 import org.apache.solr.prometheus.exporter.SolrExporter;
 import org.apache.solr.prometheus.scraper.Async;
@@ -42,7 +41,11 @@ public class SchedulerMetricsCollector implements Closeable {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   public interface Observer {
-    void metricsUpdated(List<Collector.MetricFamilySamples> samples);
+    /**
+     * Called after each collection with the samples of the collectors that succeeded. A collector returns the
+     * same samples instance as long as its metrics did not change.
+     */
+    void metricsUpdated(List<MetricSamples> samples);
   }
 
   private final List<MetricCollector> metricCollectors;
@@ -96,12 +99,7 @@ public class SchedulerMetricsCollector implements Closeable {
 
       try {
         CompletableFuture<List<MetricSamples>> sampleFuture = Async.waitForAllSuccessfulResponses(futures);
-        List<MetricSamples> samples = sampleFuture.get();
-
-        MetricSamples metricSamples = new MetricSamples();
-        samples.forEach(metricSamples::addAll);
-
-        notifyObservers(metricSamples.asList());
+        notifyObservers(sampleFuture.get());
 
         log.info("Completed metrics collection");
       } catch (InterruptedException | ExecutionException e) {
@@ -119,7 +117,7 @@ public class SchedulerMetricsCollector implements Closeable {
     this.observers.remove(observer);
   }
 
-  private void notifyObservers(List<Collector.MetricFamilySamples> samples) {
+  private void notifyObservers(List<MetricSamples> samples) {
     observers.forEach(observer -> observer.metricsUpdated(samples));
   }
 
@@ -17,22 +17,39 @@
 
 package org.apache.solr.prometheus.exporter;
 
+import java.util.Collections;
 import java.util.List;
 
 import io.prometheus.client.Collector;
+import org.apache.solr.prometheus.collector.MergedSamples;
+import org.apache.solr.prometheus.collector.MetricSamples;
 import org.apache.solr.prometheus.collector.SchedulerMetricsCollector;
 
+/**
+ * Serves the samples of the last collection. The samples of the collectors are merged when they are first served
+ * after they changed; as long as no collector's samples changed, the previous list is served as it is.
+ */
 public class CachedPrometheusCollector extends Collector implements SchedulerMetricsCollector.Observer {
 
-  private volatile List<MetricFamilySamples> samples;
+  private final MergedSamples merged = new MergedSamples();
+
+  private volatile List<MetricSamples> samples = Collections.emptyList();
+
+  private MetricSamples listed;
+  private List<MetricFamilySamples> list = Collections.emptyList();
 
   @Override
-  public List<MetricFamilySamples> collect() {
-    return samples;
+  public synchronized List<MetricFamilySamples> collect() {
+    MetricSamples current = merged.merge(samples);
+    if (current != listed) {
+      list = current.asList();
+      listed = current;
+    }
+    return list;
   }
 
   @Override
-  public void metricsUpdated(List<MetricFamilySamples> samples) {
+  public void metricsUpdated(List<MetricSamples> samples) {
     this.samples = samples;
   }
 
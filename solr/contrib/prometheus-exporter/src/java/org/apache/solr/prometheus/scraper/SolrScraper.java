@@ -19,19 +19,26 @@ package org.apache.solr.prometheus.scraper;
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.prometheus.client.Collector;
 import io.prometheus.client.Counter;
 import net.thisptr.jackson.jq.JsonQuery;
@@ -61,6 +68,15 @@ public abstract class SolrScraper implements Closeable {
 
   protected final Executor executor;
 
+  /*
+   * The digest of the last response and the samples of each query sent to each host. Responses that did not change
+   * since the last scrape, e.g. of idle cores, are not transformed again, and their samples are handed out as the
+   * same instance. Entries of removed hosts and cores expire.
+   */
+  private final Cache<ResponseKey, CachedResponse> responseCache = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build();
+
   public abstract Map<String, MetricSamples> metricsForAllHosts(MetricsQuery query) throws IOException;
 
   public abstract Map<String, MetricSamples> pingAllCores(MetricsQuery query) throws IOException;
@@ -91,8 +107,6 @@ public abstract class SolrScraper implements Closeable {
   }
 
   protected MetricSamples request(SolrClient client, MetricsQuery query) throws IOException {
-    MetricSamples samples = new MetricSamples();
-
     QueryRequest queryRequest = new QueryRequest(query.getParameters());
     queryRequest.setPath(query.getPath());
 
@@ -109,7 +123,33 @@ public abstract class SolrScraper implements Closeable {
       log.error("failed to request: {} {}", queryRequest.getPath(), e.getMessage());
     }
 
-    JsonNode jsonNode = OBJECT_MAPPER.readTree((String) queryResponse.get("response"));
+    String response = (String) queryResponse.get("response");
+
+    ResponseKey key = new ResponseKey(client, query);
+    byte[] digest = digest(response);
+    CachedResponse cached = responseCache.getIfPresent(key);
+    if (cached != null && MessageDigest.isEqual(cached.digest, digest)) {
+      return cached.samples;
+    }
+
+    return transform(client, query, key, response, digest);
+  }
+
+  private static byte[] digest(String response) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(response.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private MetricSamples transform(SolrClient client, MetricsQuery query, ResponseKey key, String response,
+                                  byte[] digest) throws IOException {
+    MetricSamples samples = new MetricSamples();
+    boolean failed = false;
+
+    JsonNode jsonNode = OBJECT_MAPPER.readTree(response);
 
     for (JsonQuery jsonQuery : query.getJsonQueries()) {
       try {
@@ -166,10 +206,76 @@ public abstract class SolrScraper implements Closeable {
       } catch (JsonQueryException e) {
         log.error("Error apply JSON query={} to result", jsonQuery, e);
         scrapeErrorTotal.inc();
+        failed = true;
       }
     }
 
+    if (!failed) {
+      responseCache.put(key, new CachedResponse(digest, samples));
+    }
     return samples;
   }
 
+  private static String clientLabel(SolrClient client) {
+    if (client instanceof HttpSolrClient) {
+      return ((HttpSolrClient) client).getBaseURL();
+    }
+    if (client instanceof CloudSolrClient) {
+      return ((CloudSolrClient) client).getZkHost();
+    }
+    return String.valueOf(System.identityHashCode(client));
+  }
+
+  /**
+   * Identifies a query sent to a host. The JSON queries are compared by identity: they are compiled once per
+   * configured request and shared by the queries derived from it for each core or collection.
+   */
+  private static final class ResponseKey {
+    private final String client;
+    private final String path;
+    private final String parameters;
+    private final String core;
+    private final String collection;
+    private final List<JsonQuery> jsonQueries;
+    private final int hashCode;
+
+    ResponseKey(SolrClient client, MetricsQuery query) {
+      this.client = clientLabel(client);
+      this.path = query.getPath();
+      this.parameters = query.getParameters().toString();
+      this.core = query.getCore().orElse(null);
+      this.collection = query.getCollection().orElse(null);
+      this.jsonQueries = query.getJsonQueries();
+      this.hashCode = Objects.hash(this.client, path, parameters, core, collection, System.identityHashCode(jsonQueries));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof ResponseKey)) return false;
+      ResponseKey that = (ResponseKey) o;
+      return jsonQueries == that.jsonQueries
+          && client.equals(that.client)
+          && Objects.equals(path, that.path)
+          && parameters.equals(that.parameters)
+          && Objects.equals(core, that.core)
+          && Objects.equals(collection, that.collection);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class CachedResponse {
+    private final byte[] digest;
+    private final MetricSamples samples;
+
+    CachedResponse(byte[] digest, MetricSamples samples) {
+      this.digest = digest;
+      this.samples = samples;
+    }
+  }
+
 }
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.prometheus.collector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import io.prometheus.client.Collector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MergedSamplesTest {
+
+  private MetricSamples samples(String metricName, double value) {
+    MetricSamples samples = new MetricSamples();
+    samples.addSamplesIfNotPresent(metricName, new Collector.MetricFamilySamples(
+        metricName, Collector.Type.GAUGE, "help", new ArrayList<>()));
+    samples.addSampleIfMetricExists(metricName, new Collector.MetricFamilySamples.Sample(
+        metricName, Collections.emptyList(), Collections.emptyList(), value));
+    return samples;
+  }
+
+  @Test
+  public void mergeReusesUnchangedResult() {
+    MetricSamples host1 = samples("test", 1.0);
+    MetricSamples host2 = samples("test", 2.0);
+
+    MergedSamples merged = new MergedSamples();
+    MetricSamples first = merged.merge(Arrays.asList(host1, host2));
+    assertEquals(2, first.asList().get(0).samples.size());
+
+    assertSame(first, merged.merge(Arrays.asList(host1, host2)));
+
+    MetricSamples changed = merged.merge(Arrays.asList(host1, samples("test", 3.0)));
+    assertNotSame(first, changed);
+    assertEquals(2, first.asList().get(0).samples.size());
+    assertEquals(2, changed.asList().get(0).samples.size());
+
+    assertEquals(1, merged.merge(Collections.singletonList(host1)).asList().get(0).samples.size());
+  }
+
+}
@@ -97,4 +97,20 @@ public class MetricSamplesTest {
     validateMetricSamples(output, "diff2", Collections.singletonList(1.0));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void addAllDoesNotChangeTheAddedSamples() {
+    MetricSamples rhs = new MetricSamples(Maps.newHashMap(ImmutableMap.<String, Collector.MetricFamilySamples>builder()
+        .put("test1", samples("test1", Collector.Type.GAUGE, sample("test1", 1.0)))
+        .build()));
+
+    MetricSamples lhs = new MetricSamples();
+    lhs.addAll(rhs);
+    lhs.addAll(new MetricSamples(Maps.newHashMap(ImmutableMap.<String, Collector.MetricFamilySamples>builder()
+        .put("test1", samples("test1", Collector.Type.GAUGE, sample("test1", 1.0), sample("test1", 2.0)))
+        .build())));
+
+    validateMetricSamples(lhs.asList(), "test1", Arrays.asList(1.0, 2.0));
+    validateMetricSamples(rhs.asList(), "test1", Collections.singletonList(1.0));
+  }
+
+}
@@ -112,6 +112,7 @@ import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.pkg.PackageLoader;
 import org.apache.solr.request.SolrRequestHandler;
 import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.search.RequestMemoryTracker;
 import org.apache.solr.search.SolrFieldCacheBean;
 import org.apache.solr.security.AuditLoggerPlugin;
 import org.apache.solr.security.AuthenticationPlugin;
@@ -236,6 +237,8 @@ public class CoreContainer {
 
   private final ObjectCache objectCache = new ObjectCache();
 
+  private final RequestMemoryTracker.NodeMemory requestMemory = new RequestMemoryTracker.NodeMemory();
+
   private PackageStoreAPI packageStoreAPI;
   private PackageLoader packageLoader;
 
@@ -331,6 +334,8 @@ public class CoreContainer {
     if (null != this.cfg.getBooleanQueryMaxClauseCount()) {
       IndexSearcher.setMaxClauseCount(this.cfg.getBooleanQueryMaxClauseCount());
     }
+    requestMemory.setLimit(this.cfg.getMaxRequestMemoryMB() == null
+        ? -1 : this.cfg.getMaxRequestMemoryMB() << 20);
     this.coresLocator = locator;
     this.containerProperties = new Properties(config.getSolrProperties());
     this.asyncSolrCoreLoad = asyncSolrCoreLoad;
@@ -597,6 +602,11 @@ public class CoreContainer {
     return objectCache;
   }
 
+  /** The memory accounted by the requests of the cores of this container together */
+  public RequestMemoryTracker.NodeMemory getRequestMemory() {
+    return requestMemory;
+  }
+
   //-------------------------------------------------------------------
   // Initialization / Cleanup
   //-------------------------------------------------------------------
@@ -767,6 +777,15 @@ public class CoreContainer {
         true, "specification", SolrInfoBean.Category.CONTAINER.toString(), "version");
     solrMetricsContext.gauge(() -> this.getClass().getPackage().getImplementationVersion(),
         true, "implementation", SolrInfoBean.Category.CONTAINER.toString(), "version");
+    // memory tracked for the requests of all cores together
+    solrMetricsContext.gauge(requestMemory::getBytes,
+        true, "bytes", SolrInfoBean.Category.QUERY.toString(), "requestMemory");
+    solrMetricsContext.gauge(requestMemory::getLimit,
+        true, "limit", SolrInfoBean.Category.QUERY.toString(), "requestMemory");
+    solrMetricsContext.gauge(requestMemory::getRequestLimitAborts,
+        true, "requestLimitAborts", SolrInfoBean.Category.QUERY.toString(), "requestMemory");
+    solrMetricsContext.gauge(requestMemory::getNodeLimitAborts,
+        true, "nodeLimitAborts", SolrInfoBean.Category.QUERY.toString(), "requestMemory");
 
     SolrFieldCacheBean fieldCacheBean = new SolrFieldCacheBean();
     fieldCacheBean.initializeMetrics(solrMetricsContext, null);
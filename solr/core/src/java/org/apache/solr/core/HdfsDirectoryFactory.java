@@ -80,6 +80,7 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory implements Sol
   public static final String BLOCKCACHE_GLOBAL = "solr.hdfs.blockcache.global";
   public static final String BLOCKCACHE_READ_ENABLED = "solr.hdfs.blockcache.read.enabled";
   public static final String BLOCKCACHE_WRITE_ENABLED = "solr.hdfs.blockcache.write.enabled"; // currently buggy and disabled
+  public static final String BLOCKCACHE_ADMISSION = "solr.hdfs.blockcache.admission";
   
   public static final String NRTCACHINGDIRECTORY_ENABLE = "solr.hdfs.nrtcachingdirectory.enable";
   public static final String NRTCACHINGDIRECTORY_MAXMERGESIZEMB = "solr.hdfs.nrtcachingdirectory.maxmergesizemb";
@@ -221,6 +222,7 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory implements Sol
       int bankCount = getConfig(BLOCKCACHE_SLAB_COUNT, 1);
       
       boolean directAllocation = getConfig(BLOCKCACHE_DIRECT_MEMORY_ALLOCATION, true);
+      boolean admission = getConfig(BLOCKCACHE_ADMISSION, true);
       
       int slabSize = numberOfBlocksPerBank * blockSize;
       log.info(
@@ -237,7 +239,7 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory implements Sol
       int bsBufferCount = params.getInt("solr.hdfs.blockcache.bufferstore.buffercount", 0); // this is actually total size
       
       BlockCache blockCache = getBlockDirectoryCache(numberOfBlocksPerBank,
-          blockSize, bankCount, directAllocation, slabSize,
+          blockSize, bankCount, directAllocation, admission, slabSize,
           bsBufferSize, bsBufferCount, blockCacheGlobal);
       
       Cache cache = new BlockDirectoryCache(blockCache, path, metrics, blockCacheGlobal);
@@ -293,24 +295,24 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory implements Sol
   }
   
   private BlockCache getBlockDirectoryCache(int numberOfBlocksPerBank, int blockSize, int bankCount,
-      boolean directAllocation, int slabSize, int bufferSize, int bufferCount, boolean staticBlockCache) {
+      boolean directAllocation, boolean admission, int slabSize, int bufferSize, int bufferCount, boolean staticBlockCache) {
     if (!staticBlockCache) {
       log.info("Creating new single instance HDFS BlockCache");
-      return createBlockCache(numberOfBlocksPerBank, blockSize, bankCount, directAllocation, slabSize, bufferSize, bufferCount);
+      return createBlockCache(numberOfBlocksPerBank, blockSize, bankCount, directAllocation, admission, slabSize, bufferSize, bufferCount);
     }
     synchronized (HdfsDirectoryFactory.class) {
       
       if (globalBlockCache == null) {
         log.info("Creating new global HDFS BlockCache");
         globalBlockCache = createBlockCache(numberOfBlocksPerBank, blockSize, bankCount,
-            directAllocation, slabSize, bufferSize, bufferCount);
+            directAllocation, admission, slabSize, bufferSize, bufferCount);
       }
     }
     return globalBlockCache;
   }
 
   private BlockCache createBlockCache(int numberOfBlocksPerBank, int blockSize,
-      int bankCount, boolean directAllocation, int slabSize, int bufferSize,
+      int bankCount, boolean directAllocation, boolean admission, int slabSize, int bufferSize,
       int bufferCount) {
     BufferStore.initNewBuffer(bufferSize, bufferCount, metrics);
     long totalMemory = (long) bankCount * (long) numberOfBlocksPerBank
@@ -318,7 +320,7 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory implements Sol
     
     BlockCache blockCache;
     try {
-      blockCache = new BlockCache(metrics, directAllocation, totalMemory, slabSize, blockSize);
+      blockCache = new BlockCache(metrics, directAllocation, totalMemory, slabSize, blockSize, admission);
     } catch (OutOfMemoryError e) {
       throw new RuntimeException(
           "The max direct memory is likely too low.  Either increase it (by adding -XX:MaxDirectMemorySize=<size>g -XX:+UseLargePages to your containers startup args)"
@@ -38,6 +38,8 @@ public class NodeConfig {
   private final Path solrDataHome;
 
   private final Integer booleanQueryMaxClauseCount;
+
+  private final Long maxRequestMemoryMB;
   
   private final Path configSetBaseDirectory;
 
@@ -86,7 +88,7 @@ public class NodeConfig {
   private final boolean fromZookeeper;
 
   private NodeConfig(String nodeName, Path coreRootDirectory, Path solrDataHome, Integer booleanQueryMaxClauseCount,
-                     Path configSetBaseDirectory, String sharedLibDirectory,
+                     Long maxRequestMemoryMB, Path configSetBaseDirectory, String sharedLibDirectory,
                      PluginInfo shardHandlerFactoryConfig, UpdateShardHandlerConfig updateShardHandlerConfig,
                      String coreAdminHandlerClass, String collectionsAdminHandlerClass,
                      String healthCheckHandlerClass, String infoHandlerClass, String configSetsHandlerClass,
@@ -101,6 +103,7 @@ public class NodeConfig {
     this.coreRootDirectory = coreRootDirectory;
     this.solrDataHome = solrDataHome;
     this.booleanQueryMaxClauseCount = booleanQueryMaxClauseCount;
+    this.maxRequestMemoryMB = maxRequestMemoryMB;
     this.configSetBaseDirectory = configSetBaseDirectory;
     this.sharedLibDirectory = sharedLibDirectory;
     this.shardHandlerFactoryConfig = shardHandlerFactoryConfig;
@@ -154,6 +157,15 @@ public class NodeConfig {
   public Integer getBooleanQueryMaxClauseCount() {
     return booleanQueryMaxClauseCount;
   }
+
+  /**
+   * If null, the memory tracked for all requests of the node together is not limited
+   *
+   * @see org.apache.solr.search.RequestMemoryTracker.NodeMemory#setLimit
+   */
+  public Long getMaxRequestMemoryMB() {
+    return maxRequestMemoryMB;
+  }
   
   public PluginInfo getShardHandlerFactoryPluginInfo() {
     return shardHandlerFactoryConfig;
@@ -269,6 +281,7 @@ public class NodeConfig {
     private Path coreRootDirectory;
     private Path solrDataHome;
     private Integer booleanQueryMaxClauseCount;
+    private Long maxRequestMemoryMB;
     private Path configSetBaseDirectory;
     private String sharedLibDirectory;
     private PluginInfo shardHandlerFactoryConfig;
@@ -345,6 +358,11 @@ public class NodeConfig {
       return this;
     }
 
+    public NodeConfigBuilder setMaxRequestMemoryMB(Long maxRequestMemoryMB) {
+      this.maxRequestMemoryMB = maxRequestMemoryMB;
+      return this;
+    }
+
     public NodeConfigBuilder setConfigSetBaseDirectory(String configSetBaseDirectory) {
       this.configSetBaseDirectory = solrHome.resolve(configSetBaseDirectory);
       return this;
@@ -463,7 +481,7 @@ public class NodeConfig {
         loader = new SolrResourceLoader(solrHome);
       }
       return new NodeConfig(nodeName, coreRootDirectory, solrDataHome, booleanQueryMaxClauseCount,
-                            configSetBaseDirectory, sharedLibDirectory, shardHandlerFactoryConfig,
+                            maxRequestMemoryMB, configSetBaseDirectory, sharedLibDirectory, shardHandlerFactoryConfig,
                             updateShardHandlerConfig, coreAdminHandlerClass, collectionsAdminHandlerClass, healthCheckHandlerClass, infoHandlerClass, configSetsHandlerClass,
                             logWatcherConfig, cloudConfig, coreLoadThreads, replayUpdatesThreads, transientCacheSize, useSchemaCache, managementPath,
                             solrHome, loader, solrProperties,
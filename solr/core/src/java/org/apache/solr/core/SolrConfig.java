@@ -224,6 +224,7 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
     queryResultWindowSize = Math.max(1, getInt("query/queryResultWindowSize", 1));
     queryResultMaxDocsCached = getInt("query/queryResultMaxDocsCached", Integer.MAX_VALUE);
     enableLazyFieldLoading = getBool("query/enableLazyFieldLoading", false);
+    maxRequestMemoryMB = getInt("query/maxRequestMemoryMB", -1);
     
     useRangeVersionsForPeerSync = getBool("peerSync/useRangeVersions", true);
 
@@ -522,6 +523,8 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
   public final int queryResultWindowSize;
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
+  /** the limit in MB of the memory tracked for a single request, or -1 for no limit, see RequestMemoryTracker */
+  public final int maxRequestMemoryMB;
   
   public final boolean useRangeVersionsForPeerSync;
   
@@ -872,6 +875,7 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
+    m.put("maxRequestMemoryMB", maxRequestMemoryMB);
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
     for (SolrPluginInfo plugin : plugins) {
       List<PluginInfo> infos = getPluginInfos(plugin.clazz.getName());
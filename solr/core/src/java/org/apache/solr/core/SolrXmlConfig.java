@@ -239,6 +239,16 @@ public class SolrXmlConfig {
     }
   }
 
+  private static long parseLong(String field, String value) {
+    try {
+      return Long.parseLong(value);
+    }
+    catch (NumberFormatException e) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+          "Error parsing '" + field + "', value '" + value + "' cannot be parsed as long");
+    }
+  }
+
   private static NodeConfig fillSolrSection(NodeConfig.NodeConfigBuilder builder, NamedList<Object> nl) {
 
     for (Map.Entry<String, Object> entry : nl) {
@@ -271,6 +281,9 @@ public class SolrXmlConfig {
         case "maxBooleanClauses":
           builder.setBooleanQueryMaxClauseCount(parseInt(name, value));
           break;
+        case "maxRequestMemoryMB":
+          builder.setMaxRequestMemoryMB(parseLong(name, value));
+          break;
         case "managementPath":
           builder.setManagementPath(value);
           break;
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.LockFactory;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricProducer;
+import org.apache.solr.metrics.SolrMetricsContext;
+import org.apache.solr.store.blockcache.BlockCache;
+import org.apache.solr.store.blockcache.BlockDirectory;
+import org.apache.solr.store.blockcache.BlockDirectoryCache;
+import org.apache.solr.store.blockcache.LocalCacheDirectory;
+import org.apache.solr.store.blockcache.LocalFileCache;
+import org.apache.solr.store.blockcache.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory for directories on slow storage, e.g. network attached storage or large spinning disks, whose files are
+ * served from two tiers of caches: copies of the files on a fast local disk, see {@link LocalCacheDirectory}, and
+ * an off-heap {@link BlockCache} of their blocks on top of them.
+ * <p>
+ * The caches are shared by the cores of the node that use the same <code>localCacheDir</code>. The files of the
+ * index are opened by {@link #createBackingDirectory(String, LockFactory, DirContext)}, which subclasses can
+ * override for stores other than the file system.
+ */
+public class TieredCachingDirectoryFactory extends StandardDirectoryFactory implements SolrMetricProducer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String LOCAL_CACHE_DIR = "localCacheDir";
+  public static final String LOCAL_CACHE_MAX_MB = "localCacheMaxMB";
+  public static final String LOCAL_CACHE_COPY_THREADS = "localCacheCopyThreads";
+  public static final String BLOCKCACHE_ENABLED = "blockCacheEnabled";
+  public static final String BLOCKCACHE_SLAB_COUNT = "blockCacheSlabCount";
+  public static final String BLOCKCACHE_BLOCKS_PER_BANK = "blockCacheBlocksPerBank";
+  public static final String BLOCKCACHE_DIRECT_MEMORY_ALLOCATION = "blockCacheDirectMemoryAllocation";
+
+  public static final long DEFAULT_LOCAL_CACHE_MAX_MB = 10240;
+  public static final int DEFAULT_LOCAL_CACHE_COPY_THREADS = 2;
+
+  private static final Metrics metrics = new Metrics("tieredBlockCache",
+      "Provides metrics for the TieredCachingDirectoryFactory BlockCache.");
+
+  /** The caches of one local cache directory, shared by the factories using it */
+  private static class Tiers {
+    final LocalFileCache files;
+    final BlockCache blocks;
+    int refCount;
+
+    Tiers(LocalFileCache files, BlockCache blocks) {
+      this.files = files;
+      this.blocks = blocks;
+    }
+  }
+
+  // guarded by the class
+  private static final Map<Path,Tiers> sharedTiers = new HashMap<>();
+
+  private Path localCacheDir;
+  private Tiers tiers;
+  private SolrMetricsContext solrMetricsContext;
+
+  @Override
+  @SuppressWarnings({"rawtypes"})
+  public void init(NamedList args) {
+    super.init(args);
+    SolrParams params = args.toSolrParams();
+    String dir = params.get(LOCAL_CACHE_DIR);
+    if (dir == null) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, LOCAL_CACHE_DIR + " is required");
+    }
+    long maxMB = params.getLong(LOCAL_CACHE_MAX_MB, DEFAULT_LOCAL_CACHE_MAX_MB);
+    if (maxMB <= 0) {
+      throw new IllegalArgumentException(LOCAL_CACHE_MAX_MB + " must be greater than 0");
+    }
+    int copyThreads = params.getInt(LOCAL_CACHE_COPY_THREADS, DEFAULT_LOCAL_CACHE_COPY_THREADS);
+    boolean blockCacheEnabled = params.getBool(BLOCKCACHE_ENABLED, true);
+    int slabCount = params.getInt(BLOCKCACHE_SLAB_COUNT, 1);
+    int blocksPerBank = params.getInt(BLOCKCACHE_BLOCKS_PER_BANK, 16384);
+    boolean directAllocation = params.getBool(BLOCKCACHE_DIRECT_MEMORY_ALLOCATION, true);
+
+    localCacheDir = Paths.get(dir).toAbsolutePath().normalize();
+    synchronized (TieredCachingDirectoryFactory.class) {
+      tiers = sharedTiers.get(localCacheDir);
+      if (tiers == null) {
+        log.info("Creating local file cache in {} of {} MB", localCacheDir, maxMB);
+        LocalFileCache files;
+        try {
+          files = new LocalFileCache(localCacheDir, maxMB << 20, copyThreads);
+        } catch (IOException e) {
+          throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+              "Could not create the local file cache in " + localCacheDir, e);
+        }
+        BlockCache blocks = null;
+        if (blockCacheEnabled) {
+          int blockSize = BlockDirectory.BLOCK_SIZE;
+          int slabSize = blocksPerBank * blockSize;
+          blocks = new BlockCache(metrics, directAllocation, (long) slabCount * slabSize, slabSize, blockSize);
+        }
+        tiers = new Tiers(files, blocks);
+        sharedTiers.put(localCacheDir, tiers);
+      }
+      tiers.refCount++;
+    }
+  }
+
+  @Override
+  protected Directory create(String path, LockFactory lockFactory, DirContext dirContext) throws IOException {
+    Directory dir = createBackingDirectory(path, lockFactory, dirContext);
+    if (dirContext == DirContext.META_DATA) {
+      return dir;
+    }
+    dir = new LocalCacheDirectory(path, dir, tiers.files);
+    if (tiers.blocks != null) {
+      // merges and files read once do not take blocks, see BlockDirectory#useCachedBlocks
+      dir = new BlockDirectory(path, dir, new BlockDirectoryCache(tiers.blocks, path, metrics, true),
+          null, true, false, false, false);
+    }
+    return dir;
+  }
+
+  /** Opens the directory holding the files of the index, which are cached. */
+  protected Directory createBackingDirectory(String path, LockFactory lockFactory, DirContext dirContext) throws IOException {
+    // we pass NoLockFactory, because the real lock factory is set later by injectLockFactory:
+    return FSDirectory.open(new File(path).toPath(), lockFactory);
+  }
+
+  @Override
+  protected void removeDirectory(CacheValue cacheValue) throws IOException {
+    tiers.files.invalidateAll(cacheValue.path + "/");
+    super.removeDirectory(cacheValue);
+  }
+
+  @Override
+  public void move(Directory fromDir, Directory toDir, String fileName, IOContext ioContext) throws IOException {
+    super.move(fromDir, toDir, fileName, ioContext);
+    invalidate(fromDir, fileName);
+    invalidate(toDir, fileName);
+  }
+
+  @Override
+  public void renameWithOverwrite(Directory dir, String fileName, String toName) throws IOException {
+    super.renameWithOverwrite(dir, fileName, toName);
+    invalidate(dir, fileName);
+    invalidate(dir, toName);
+  }
+
+  // files moved on the file system bypass the LocalCacheDirectory
+  private static void invalidate(Directory dir, String name) {
+    while (dir instanceof FilterDirectory) {
+      if (dir instanceof LocalCacheDirectory) {
+        ((LocalCacheDirectory) dir).invalidate(name);
+        return;
+      }
+      dir = ((FilterDirectory) dir).getDelegate();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      SolrMetricProducer.super.close();
+      synchronized (TieredCachingDirectoryFactory.class) {
+        if (tiers != null && --tiers.refCount == 0) {
+          sharedTiers.remove(localCacheDir);
+          tiers.files.close();
+        }
+        tiers = null;
+      }
+    }
+  }
+
+  /** The local file cache of this factory, or null once it is closed */
+  LocalFileCache getLocalFileCache() {
+    synchronized (TieredCachingDirectoryFactory.class) {
+      return tiers == null ? null : tiers.files;
+    }
+  }
+
+  @Override
+  public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+    metrics.initializeMetrics(parentContext, scope);
+    solrMetricsContext = parentContext.getChildContext(this);
+    final LocalFileCache files = tiers.files;
+    MetricsMap localCacheMetrics = new MetricsMap((detailed, map) -> {
+      map.put("size", files.size());
+      map.put("hits", files.hits.get());
+      map.put("misses", files.misses.get());
+      map.put("copies", files.copies.get());
+      map.put("evictions", files.evictions.get());
+    });
+    solrMetricsContext.gauge(localCacheMetrics, true, "localFileCache", SolrInfoBean.Category.CACHE.toString(), scope);
+  }
+
+  @Override
+  public SolrMetricsContext getSolrMetricsContext() {
+    return solrMetricsContext;
+  }
+}
@@ -17,11 +17,13 @@
 package org.apache.solr.handler;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.UpdateParams;
 import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.handler.loader.ContentStreamLoader;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.update.processor.ParallelUpdateRequestProcessor;
 import org.apache.solr.update.processor.UpdateRequestProcessor;
 import org.apache.solr.update.processor.UpdateRequestProcessorChain;
 
@@ -51,7 +53,7 @@ public abstract class ContentStreamHandlerBase extends RequestHandlerBase {
     UpdateRequestProcessorChain processorChain =
         req.getCore().getUpdateProcessorChain(params);
 
-    UpdateRequestProcessor processor = processorChain.createProcessor(req, rsp);
+    UpdateRequestProcessor processor = createProcessor(processorChain, req, rsp);
 
     try {
       ContentStreamLoader documentLoader = newLoader(req, processor);
@@ -82,5 +84,15 @@ public abstract class ContentStreamHandlerBase extends RequestHandlerBase {
     }
   }
 
+  private UpdateRequestProcessor createProcessor(UpdateRequestProcessorChain processorChain, SolrQueryRequest req,
+                                                 SolrQueryResponse rsp) {
+    int threads = Math.min(req.getParams().getInt(UpdateParams.UPDATE_THREADS, 1), Runtime.getRuntime().availableProcessors());
+    if (threads > 1) {
+      return new ParallelUpdateRequestProcessor(processorChain, req, rsp, threads,
+          req.getCore().getCoreContainer().getUpdateShardHandler().getUpdateExecutor());
+    }
+    return processorChain.createProcessor(req, rsp);
+  }
+
   protected abstract ContentStreamLoader newLoader(SolrQueryRequest req, UpdateRequestProcessor processor);
 }
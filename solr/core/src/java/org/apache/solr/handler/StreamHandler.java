@@ -36,6 +36,7 @@ import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.DaemonStream;
 import org.apache.solr.client.solrj.io.stream.ExceptionStream;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.TupleBatchWriter;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
@@ -243,7 +244,13 @@ public class StreamHandler extends RequestHandlerBase implements SolrCoreAware,
       daemons.put(daemonStream.getId(), daemonStream);
       rsp.add("result-set", new DaemonResponseStream("Daemon:" + daemonStream.getId() + " started on " + coreName));
     } else {
-      rsp.add("result-set", new TimerStream(new ExceptionStream(tupleStream)));
+      TupleStream resultSet = new TimerStream(new ExceptionStream(tupleStream));
+      int batchSize = TupleBatchWriter.getBatchSize(params, CommonParams.JAVABIN.equals(params.get(CommonParams.WT)));
+      if (batchSize > 0) {
+        rsp.add("result-set", (MapWriter) ew -> resultSet.writeMap(ew, batchSize));
+      } else {
+        rsp.add("result-set", resultSet);
+      }
     }
   }
 
@@ -24,11 +24,13 @@ import java.util.List;
 
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongIntHashMap;
 import com.carrotsearch.hppc.LongHashSet;
 import com.carrotsearch.hppc.LongObjectHashMap;
 import com.carrotsearch.hppc.LongObjectMap;
 import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.carrotsearch.hppc.cursors.LongCursor;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
 import com.carrotsearch.hppc.cursors.LongObjectCursor;
 import com.carrotsearch.hppc.cursors.ObjectCursor;
 import org.apache.commons.lang3.StringUtils;
@@ -78,6 +80,7 @@ import org.apache.solr.search.CollapsingQParserPlugin;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
 import org.apache.solr.search.DocSlice;
+import org.apache.solr.search.PostFilter;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.ReturnFields;
@@ -103,6 +106,8 @@ import org.apache.solr.util.plugin.SolrCoreAware;
  * expand.q=*:* (optional, overrides the main query)<br>
  * expand.fq=type:child (optional, overrides the main filter queries)<br>
  * expand.field=field (mandatory, if the not used with the CollapsingQParserPlugin. This is given higher priority when both are present)<br>
+ * expand.singlePass=true (optional, lets the CollapsingPostFilter retain the expanded documents while it collapses
+ * instead of searching again; only used without expand.q, expand.fq and expand.field)<br>
  */
 public class ExpandComponent extends SearchComponent implements PluginInfoInitialized, SolrCoreAware {
   public static final String COMPONENT_NAME = "expand";
@@ -121,9 +126,57 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
         throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Can not use expand with Grouping enabled");
       }
       rb.doExpand = true;
+      if (rb.req.getParams().getBool(ExpandParams.EXPAND_SINGLE_PASS, false)) {
+        retainExpandedGroups(rb);
+      }
     }
   }
 
+  /**
+   * Asks the collapse filter of the request to retain the expanded documents of each group while it collapses,
+   * if they are the documents it sees: the main query and filters are expanded on the collapse field, and no
+   * other post filter runs after the collapse. Otherwise the groups are expanded with a second search.
+   */
+  private void retainExpandedGroups(ResponseBuilder rb) {
+    SolrParams params = rb.req.getParams();
+    List<Query> filters = rb.getFilters();
+    if (filters == null || rb.getRankQuery() != null || params.get(ExpandParams.EXPAND_FIELD) != null
+        || params.get(ExpandParams.EXPAND_Q) != null || params.getParams(ExpandParams.EXPAND_FQ) != null) {
+      return;
+    }
+
+    CollapsingQParserPlugin.CollapsingPostFilter collapse = null;
+    for (Query q : filters) {
+      if (q instanceof CollapsingQParserPlugin.CollapsingPostFilter) {
+        if (collapse != null) {
+          return;
+        }
+        collapse = (CollapsingQParserPlugin.CollapsingPostFilter) q;
+      }
+    }
+    if (collapse == null) {
+      return;
+    }
+    for (Query q : filters) {
+      if (q instanceof PostFilter && q != collapse) {
+        PostFilter postFilter = (PostFilter) q;
+        if (!postFilter.getCache() && postFilter.getCost() >= collapse.getCost()) {
+          return;
+        }
+      }
+    }
+
+    Sort sort = null;
+    String sortParam = params.get(ExpandParams.EXPAND_SORT);
+    if (sortParam != null) {
+      sort = SortSpecParsing.parseSortSpec(sortParam, rb.req).getSort();
+      if (sort != null) {
+        sort = sort.rewrite(rb.req.getSearcher());
+      }
+    }
+    CollapsingQParserPlugin.ExpandedGroups.retain(rb.req, collapse, params.getInt(ExpandParams.EXPAND_ROWS, 5), sort);
+  }
+
   @Override
   public void inform(SolrCore core) {
 
@@ -256,6 +309,8 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
     LongHashSet groupSet = null;
     DocList docList = rb.getResults().docList;
     IntHashSet collapsedSet = new IntHashSet(docList.size() * 2);
+    // the number of documents of the page in each group
+    LongIntHashMap pageGroups = new LongIntHashMap(docList.size());
 
     //Gather the groups for the current page of documents
     DocIterator idit = docList.iterator();
@@ -322,6 +377,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
               ordBytes.put(ord, BytesRef.deepCopyOf(ref));
             }
             collapsedSet.add(globalDoc);
+            pageGroups.addTo(ord, 1);
           }
         } else {
           if (globalDoc > values.docID()) {
@@ -334,6 +390,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
               ordBytes.put(ord, BytesRef.deepCopyOf(ref));
             }
             collapsedSet.add(globalDoc);
+            pageGroups.addTo(ord, 1);
           }
         }
       }
@@ -367,6 +424,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
         if(value != nullValue) {
           groupSet.add(value);
           collapsedSet.add(globalDoc);
+          pageGroups.addTo(value, 1);
         }
       }
 
@@ -380,11 +438,65 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
       }
     }
 
-    Collector collector;
     if (sort != null)
       sort = sort.rewrite(searcher);
 
+    LongObjectMap<TopDocs> groups = null;
+    CollapsingQParserPlugin.ExpandedGroups expandedGroups = CollapsingQParserPlugin.ExpandedGroups.get(req);
+    if (expandedGroups != null) {
+      groups = getRetainedGroups(expandedGroups, pageGroups, collapsedSet, limit);
+    }
+    if (groups == null) {
+      groups = searchGroups(searcher, reader, query, newFilters, field, hint, values, groupBits, groupSet,
+          nullValue, groupQuery, collapsedSet, limit, sort);
+    }
+
+    ReturnFields returnFields = rb.rsp.getReturnFields();
+
+    @SuppressWarnings({"rawtypes"})
+    NamedList outMap = new SimpleOrderedMap();
+    CharsRefBuilder charsRef = new CharsRefBuilder();
+    for (LongObjectCursor<TopDocs> cursor : groups) {
+      long groupValue = cursor.key;
+      TopDocs topDocs = cursor.value;
+      if (limit > 0) {
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        if (scoreDocs.length > 0) {
+          if (returnFields.wantsScore() && sort != null) {
+            TopFieldCollector.populateScores(scoreDocs, searcher, query);
+          }
+          int[] docs = new int[scoreDocs.length];
+          float[] scores = new float[scoreDocs.length];
+          for (int i = 0; i < docs.length; i++) {
+            ScoreDoc scoreDoc = scoreDocs[i];
+            docs[i] = scoreDoc.doc;
+            scores[i] = scoreDoc.score;
+          }
+          assert topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO;
+          DocSlice slice = new DocSlice(0, docs.length, docs, scores, topDocs.totalHits.value, Float.NaN, TotalHits.Relation.EQUAL_TO);
+          addGroupSliceToOutputMap(fieldType, ordBytes, outMap, charsRef, groupValue, slice);
+        }
+      } else {
+        long totalHits = topDocs.totalHits.value;
+        if (totalHits > 0) {
+          DocSlice slice = new DocSlice(0, 0, null, null, totalHits, 0, TotalHits.Relation.EQUAL_TO);
+          addGroupSliceToOutputMap(fieldType, ordBytes, outMap, charsRef, groupValue, slice);
+        }
+      }
+    }
+
+    rb.rsp.add("expanded", outMap);
+  }
 
+  /**
+   * Expands the groups of the page with a second search, for the documents which are not on the page.
+   */
+  private LongObjectMap<TopDocs> searchGroups(SolrIndexSearcher searcher, LeafReader reader, Query query,
+                                              List<Query> newFilters, String field, String hint,
+                                              SortedDocValues values, FixedBitSet groupBits, LongHashSet groupSet,
+                                              long nullValue, Query groupQuery, IntHashSet collapsedSet,
+                                              int limit, Sort sort) throws IOException {
+    Collector collector;
     Collector groupExpandCollector = null;
 
     if(values != null) {
@@ -417,43 +529,58 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
 
     searcher.search(QueryUtils.combineQueryAndFilter(query, pfilter.filter), collector);
 
-    ReturnFields returnFields = rb.rsp.getReturnFields();
     LongObjectMap<Collector> groups = ((GroupCollector) groupExpandCollector).getGroups();
-
-    @SuppressWarnings({"rawtypes"})
-    NamedList outMap = new SimpleOrderedMap();
-    CharsRefBuilder charsRef = new CharsRefBuilder();
+    LongObjectMap<TopDocs> groupDocs = new LongObjectHashMap<>(groups.size());
     for (LongObjectCursor<Collector> cursor : groups) {
-      long groupValue = cursor.key;
       if (cursor.value instanceof TopDocsCollector) {
-        TopDocsCollector<?> topDocsCollector = TopDocsCollector.class.cast(cursor.value);
-        TopDocs topDocs = topDocsCollector.topDocs();
-        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
-        if (scoreDocs.length > 0) {
-          if (returnFields.wantsScore() && sort != null) {
-            TopFieldCollector.populateScores(scoreDocs, searcher, query);
-          }
-          int[] docs = new int[scoreDocs.length];
-          float[] scores = new float[scoreDocs.length];
-          for (int i = 0; i < docs.length; i++) {
-            ScoreDoc scoreDoc = scoreDocs[i];
-            docs[i] = scoreDoc.doc;
-            scores[i] = scoreDoc.score;
-          }
-          assert topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO;
-          DocSlice slice = new DocSlice(0, docs.length, docs, scores, topDocs.totalHits.value, Float.NaN, TotalHits.Relation.EQUAL_TO);
-          addGroupSliceToOutputMap(fieldType, ordBytes, outMap, charsRef, groupValue, slice);
-        }
+        groupDocs.put(cursor.key, TopDocsCollector.class.cast(cursor.value).topDocs());
       } else {
         int totalHits = ((TotalHitCountCollector) cursor.value).getTotalHits();
-        if (totalHits > 0) {
-          DocSlice slice = new DocSlice(0, 0, null, null, totalHits, 0, TotalHits.Relation.EQUAL_TO);
-          addGroupSliceToOutputMap(fieldType, ordBytes, outMap, charsRef, groupValue, slice);
-        }
+        groupDocs.put(cursor.key, new TopDocs(new TotalHits(totalHits, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]));
       }
     }
+    return groupDocs;
+  }
 
-    rb.rsp.add("expanded", outMap);
+  /**
+   * Expands the groups of the page from the documents the collapse retained, or returns null if it cannot,
+   * because more documents of the page than expected pushed expanded documents out of a retained group.
+   */
+  private LongObjectMap<TopDocs> getRetainedGroups(CollapsingQParserPlugin.ExpandedGroups expandedGroups,
+                                                   LongIntHashMap pageGroups, IntHashSet collapsedSet, int limit)
+      throws IOException {
+    LongObjectMap<TopDocs> groupDocs = new LongObjectHashMap<>(pageGroups.size());
+    for (LongIntCursor cursor : pageGroups) {
+      // the retained documents include the documents of the page in the group
+      TopDocs retained = expandedGroups.getGroup(cursor.key);
+      if (retained == null) {
+        return null;
+      }
+      long totalHits = retained.totalHits.value - cursor.value;
+      if (totalHits < 0) {
+        return null;
+      }
+      if (limit == 0) {
+        groupDocs.put(cursor.key, new TopDocs(new TotalHits(totalHits, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]));
+        continue;
+      }
+
+      ScoreDoc[] scoreDocs = new ScoreDoc[(int) Math.min(limit, totalHits)];
+      int count = 0;
+      for (ScoreDoc scoreDoc : retained.scoreDocs) {
+        if (count == scoreDocs.length) {
+          break;
+        }
+        if (!collapsedSet.contains(scoreDoc.doc)) {
+          scoreDocs[count++] = scoreDoc;
+        }
+      }
+      if (count < scoreDocs.length) {
+        return null;
+      }
+      groupDocs.put(cursor.key, new TopDocs(new TotalHits(totalHits, TotalHits.Relation.EQUAL_TO), scoreDocs));
+    }
+    return groupDocs;
   }
 
 
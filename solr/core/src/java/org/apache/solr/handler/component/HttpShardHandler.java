@@ -16,30 +16,48 @@
  */
 package org.apache.solr.handler.component;
 
-import java.io.IOException;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
 import org.apache.solr.client.solrj.SolrRequest;
-import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.SolrResponse;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.impl.LBSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.routing.ReplicaListTransformer;
+import org.apache.solr.client.solrj.util.AsyncListener;
+import org.apache.solr.client.solrj.util.Cancellable;
 import org.apache.solr.cloud.CloudDescriptor;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.ZkCoreNodeProps;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.CoreDescriptor;
 import org.apache.solr.request.SolrQueryRequest;
-
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.util.tracing.GlobalTracer;
+import org.apache.solr.util.tracing.SolrRequestCarrier;
+import org.slf4j.MDC;
+
+/**
+ * Sends the requests to the shards asynchronously: no thread waits for the response of a shard, and each
+ * response is parsed while it is streamed. The responses are handed to the thread of the request in the order
+ * they arrive, by {@link #takeCompletedOrError()} and {@link #takeCompletedIncludingErrors()}.
+ */
 public class HttpShardHandler extends ShardHandler {
   /**
    * If the request context map has an entry with this key and Boolean.TRUE as value,
@@ -50,32 +68,157 @@ public class HttpShardHandler extends ShardHandler {
   public static String ONLY_NRT_REPLICAS = "distribOnlyRealtime";
 
   final HttpShardHandlerFactory httpShardHandlerFactory;
-  private CompletionService<ShardResponse> completionService;
-  private Set<Future<ShardResponse>> pending;
   private Http2SolrClient httpClient;
 
+  // responses that arrived, but were not taken yet
+  private final BlockingQueue<ShardResponse> responses = new LinkedBlockingQueue<>();
+  // requests that were submitted, and are neither taken nor cancelled
+  private final Set<ShardResponse> inFlight = ConcurrentHashMap.newKeySet();
+  private final Map<ShardResponse,Cancellable> cancellables = new ConcurrentHashMap<>();
+  // only used by the thread of the request
+  private int pending;
+
+  // maps "localhost:8983|localhost:7574" to a shuffled List("http://localhost:8983","http://localhost:7574")
+  // This is primarily to keep track of what order we should use to query the replicas of a shard
+  // so that we use the same replica for all phases of a distributed request.
+  private Map<String, List<String>> shardToURLs = new HashMap<>();
+
   public HttpShardHandler(HttpShardHandlerFactory httpShardHandlerFactory, Http2SolrClient httpClient) {
     this.httpClient = httpClient;
     this.httpShardHandlerFactory = httpShardHandlerFactory;
-    completionService = httpShardHandlerFactory.newCompletionService();
-    pending = new HashSet<>();
   }
 
+  // Not thread safe, only used by the thread of the request.
+  // Don't modify the returned URL list.
+  private List<String> getURLs(String shard) {
+    List<String> urls = shardToURLs.get(shard);
+    if (urls == null) {
+      urls = httpShardHandlerFactory.buildURLList(shard);
+      shardToURLs.put(shard, urls);
+    }
+    return urls;
+  }
 
   @Override
   public void submit(final ShardRequest sreq, final String shard, final ModifiableSolrParams params) {
-    ShardRequestor shardRequestor = new ShardRequestor(sreq, shard, params, this);
+    final List<String> urls = getURLs(shard);
+
+    ShardResponse srsp = new ShardResponse();
+    if (sreq.nodeName != null) {
+      srsp.setNodeName(sreq.nodeName);
+    }
+    srsp.setShardRequest(sreq);
+    srsp.setShard(shard);
+    SimpleSolrResponse ssr = new SimpleSolrResponse();
+    srsp.setSolrResponse(ssr);
+    final long startTime = System.nanoTime();
+
+    pending++;
+    inFlight.add(srsp);
+
+    // if there are no shards available for a slice, urls.size()==0
+    if (urls.isEmpty()) {
+      // TODO: what's the right error code here? We should use the same thing when
+      // all of the servers for a shard are down.
+      SolrException exception = new SolrException(SolrException.ErrorCode.SERVICE_UNAVAILABLE, "no servers hosting shard: " + shard);
+      srsp.setException(exception);
+      srsp.setResponseCode(exception.code());
+      completed(srsp);
+      return;
+    }
+
+    params.remove(CommonParams.WT); // use default (currently javabin)
+    params.remove(CommonParams.VERSION);
+
+    QueryRequest req = makeQueryRequest(sreq, params, shard);
+    // done by the thread of the request, which knows the active span and the principal
+    Tracer tracer = GlobalTracer.getTracer();
+    Span span = tracer != null ? tracer.activeSpan() : null;
+    if (tracer != null && span != null) {
+      tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new SolrRequestCarrier(req));
+    }
+    req.setMethod(SolrRequest.METHOD.POST);
+    SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
+    if (requestInfo != null) req.setUserPrincipal(requestInfo.getReq().getUserPrincipal());
+
+    // no need to set the response parser as binary is the default
+    // req.setResponseParser(new BinaryResponseParser());
+
+    MDC.put("ShardRequest.shards", shard);
+    MDC.put("ShardRequest.urlList", urls.toString());
     try {
-      shardRequestor.init();
-      pending.add(completionService.submit(shardRequestor));
+      Cancellable cancellable;
+      if (urls.size() <= 1) {
+        String url = urls.get(0);
+        srsp.setShardAddress(url);
+        cancellable = request(url, req, new AsyncListener<NamedList<Object>>() {
+          @Override
+          public void onSuccess(NamedList<Object> rsp) {
+            ssr.nl = rsp;
+            completed(sreq, srsp, shard, startTime);
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            failed(sreq, srsp, shard, startTime, throwable);
+          }
+        });
+      } else {
+        cancellable = httpShardHandlerFactory.makeLoadBalancedRequest(req, urls, new AsyncListener<LBSolrClient.Rsp>() {
+          @Override
+          public void onSuccess(LBSolrClient.Rsp rsp) {
+            ssr.nl = rsp.getResponse();
+            srsp.setShardAddress(rsp.getServer());
+            completed(sreq, srsp, shard, startTime);
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            failed(sreq, srsp, shard, startTime, throwable);
+          }
+        });
+      }
+      if (inFlight.contains(srsp)) {
+        cancellables.put(srsp, cancellable);
+      }
     } finally {
-      shardRequestor.end();
+      MDC.remove("ShardRequest.shards");
+      MDC.remove("ShardRequest.urlList");
+    }
+  }
+
+  private void failed(ShardRequest sreq, ShardResponse srsp, String shard, long startTime, Throwable throwable) {
+    srsp.setException(throwable);
+    if (throwable instanceof SolrException) {
+      srsp.setResponseCode(((SolrException) throwable).code());
+    } else {
+      srsp.setResponseCode(-1);
     }
+    completed(sreq, srsp, shard, startTime);
   }
 
-  protected NamedList<Object> request(String url, @SuppressWarnings({"rawtypes"})SolrRequest req) throws IOException, SolrServerException {
+  private void completed(ShardRequest sreq, ShardResponse srsp, String shard, long startTime) {
+    ((SimpleSolrResponse) srsp.getSolrResponse()).elapsedTime =
+        TimeUnit.MILLISECONDS.convert(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    completed(transfomResponse(sreq, srsp, shard));
+  }
+
+  private void completed(ShardResponse srsp) {
+    // unless the request was cancelled meanwhile
+    if (inFlight.remove(srsp)) {
+      responses.add(srsp);
+    }
+  }
+
+  /**
+   * Sends the request to a single url without waiting for the response.
+   *
+   * @param listener called with the response, or the failure of the request
+   * @return cancels the request
+   */
+  protected Cancellable request(String url, QueryRequest req, AsyncListener<NamedList<Object>> listener) {
     req.setBasePath(url);
-    return httpClient.request(req);
+    return httpClient.asyncRequest(req, null, listener);
   }
 
   /**
@@ -87,7 +230,7 @@ public class HttpShardHandler extends ShardHandler {
   }
 
   /**
-   * Subclasses could modify the Response based on the the shard
+   * Subclasses could modify the Response based on the the shard. Called by the thread that received the response.
    */
   protected ShardResponse transfomResponse(final ShardRequest sreq, ShardResponse rsp, String shard) {
     return rsp;
@@ -114,11 +257,11 @@ public class HttpShardHandler extends ShardHandler {
 
   private ShardResponse take(boolean bailOnError) {
 
-    while (pending.size() > 0) {
+    while (pending > 0) {
       try {
-        Future<ShardResponse> future = completionService.take();
-        pending.remove(future);
-        ShardResponse rsp = future.get();
+        ShardResponse rsp = responses.take();
+        cancellables.remove(rsp);
+        pending--;
         if (bailOnError && rsp.getException() != null) return rsp; // if exception, return immediately
         // add response to the response list... we do this after the take() and
         // not after the completion of "call" so we know when the last response
@@ -130,10 +273,6 @@ public class HttpShardHandler extends ShardHandler {
         }
       } catch (InterruptedException e) {
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
-      } catch (ExecutionException e) {
-        // should be impossible... the problem with catching the exception
-        // at this level is we don't know what ShardRequest it applied to
-        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Impossible Exception", e);
       }
     }
     return null;
@@ -142,8 +281,14 @@ public class HttpShardHandler extends ShardHandler {
 
   @Override
   public void cancelAll() {
-    for (Future<ShardResponse> future : pending) {
-      future.cancel(false);
+    for (ShardResponse srsp : inFlight) {
+      if (inFlight.remove(srsp)) {
+        pending--;
+        Cancellable cancellable = cancellables.remove(srsp);
+        if (cancellable != null) {
+          cancellable.cancel();
+        }
+      }
     }
   }
 
@@ -256,4 +401,31 @@ public class HttpShardHandler extends ShardHandler {
     return httpShardHandlerFactory;
   }
 
+  static class SimpleSolrResponse extends SolrResponse {
+
+    volatile long elapsedTime;
+
+    volatile NamedList<Object> nl;
+
+    @Override
+    public long getElapsedTime() {
+      return elapsedTime;
+    }
+
+    @Override
+    public NamedList<Object> getResponse() {
+      return nl;
+    }
+
+    @Override
+    public void setResponse(NamedList<Object> rsp) {
+      nl = rsp;
+    }
+
+    @Override
+    public void setElapsedTime(long elapsedTime) {
+      this.elapsedTime = elapsedTime;
+    }
+  }
+
 }
@@ -28,9 +28,8 @@ import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -39,7 +38,6 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.HttpClient;
 import org.apache.solr.client.solrj.SolrClient;
-import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
@@ -51,6 +49,8 @@ import org.apache.solr.client.solrj.routing.ReplicaListTransformer;
 import org.apache.solr.client.solrj.routing.ReplicaListTransformerFactory;
 import org.apache.solr.client.solrj.routing.RequestReplicaListTransformerGenerator;
 import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.util.AsyncListener;
+import org.apache.solr.client.solrj.util.Cancellable;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
@@ -91,7 +91,8 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   // Consider CallerRuns policy and a lower max threads to throttle
   // requests at some point (or should we simply return failure?)
   //
-  // This executor is initialized in the init method
+  // This executor is initialized in the init method. Requests of the jetty client are asynchronous,
+  // so it only runs the requests of shard handlers using the deprecated apache http client.
   private ExecutorService commExecutor;
 
   protected volatile Http2SolrClient defaultClient;
@@ -166,10 +167,19 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     // a little hack for backward-compatibility when we are moving from apache http client to jetty client
     return new HttpShardHandler(this, null) {
       @Override
-      protected NamedList<Object> request(String url, @SuppressWarnings({"rawtypes"})SolrRequest req) throws IOException, SolrServerException {
-        try (SolrClient client = new HttpSolrClient.Builder(url).withHttpClient(httpClient).build()) {
-          return client.request(req);
-        }
+      protected Cancellable request(String url, QueryRequest req, AsyncListener<NamedList<Object>> listener) {
+        // the apache http client blocks, so the request holds a thread of the executor
+        Future<?> future = commExecutor.submit(() -> {
+          NamedList<Object> rsp;
+          try (SolrClient client = new HttpSolrClient.Builder(url).withHttpClient(httpClient).build()) {
+            rsp = client.request(req);
+          } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+          }
+          listener.onSuccess(rsp);
+        });
+        return () -> future.cancel(false);
       }
     };
   }
@@ -318,7 +328,9 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     this.defaultClient = new Http2SolrClient.Builder()
         .connectionTimeout(connectionTimeout)
         .idleTimeout(soTimeout)
-        .maxConnectionsPerHost(maxConnectionsPerHost).build();
+        .maxConnectionsPerHost(maxConnectionsPerHost)
+        // shard responses are parsed by the threads of the shard handler, not of the http client
+        .withAsyncResponseExecutor(commExecutor).build();
     this.defaultClient.addListenerFactory(this.httpListenerFactory);
     this.loadbalancer = new LBHttp2SolrClient(defaultClient);
 
@@ -383,6 +395,19 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     return loadbalancer.request(newLBHttpSolrClientReq(req, urls));
   }
 
+  /**
+   * Makes a request to one or more of the given urls, using the configured load balancer, without waiting
+   * for the response.
+   *
+   * @param req The solr search request that should be sent through the load balancer
+   * @param urls The list of solr server urls to load balance across
+   * @param listener Called with the response from the request, or its failure
+   * @return Cancels the request
+   */
+  public Cancellable makeLoadBalancedRequest(final QueryRequest req, List<String> urls, AsyncListener<LBSolrClient.Rsp> listener) {
+    return loadbalancer.asyncReq(newLBHttpSolrClientReq(req, urls), listener);
+  }
+
   protected LBSolrClient.Req newLBHttpSolrClientReq(final QueryRequest req, List<String> urls) {
     int numServersToTry = (int)Math.floor(urls.size() * this.permittedLoadBalancerRequestsMaximumFraction);
     if (numServersToTry < this.permittedLoadBalancerRequestsMinimumAbsolute) {
@@ -428,13 +453,6 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     }
   }
 
-  /**
-   * Creates a new completion service for use by a single set of distributed requests.
-   */
-  public CompletionService<ShardResponse> newCompletionService() {
-    return new ExecutorCompletionService<>(commExecutor);
-  }
-
   /**
    * Rebuilds the URL replacing the URL scheme of the passed URL with the
    * configured scheme replacement.If no scheme was configured, the passed URL's
@@ -51,6 +51,7 @@ import org.apache.lucene.search.grouping.TopGroups;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
@@ -84,6 +85,7 @@ import org.apache.solr.search.QueryCommand;
 import org.apache.solr.search.QueryParsing;
 import org.apache.solr.search.QueryResult;
 import org.apache.solr.search.RankQuery;
+import org.apache.solr.search.RequestMemoryTracker;
 import org.apache.solr.search.ReturnFields;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrReturnFields;
@@ -125,6 +127,8 @@ public class QueryComponent extends SearchComponent
 {
   public static final String COMPONENT_NAME = "query";
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long SHARD_DOC_BYTES = RamUsageEstimator.shallowSizeOfInstance(ShardDoc.class)
+      + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
 
   @Override
   public void prepare(ResponseBuilder rb) throws IOException
@@ -842,7 +846,12 @@ public class QueryComponent extends SearchComponent
 
       // Merge the docs via a priority queue so we don't have to sort *all* of the
       // documents... we only need to order the top (rows+start)
-      final ShardFieldSortedHitQueue queue = new ShardFieldSortedHitQueue(sortFields, ss.getOffset() + ss.getCount(), rb.req.getSearcher());
+      int queueSize = ss.getOffset() + ss.getCount();
+      long shardDocBytes = SHARD_DOC_BYTES + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+          + sortFields.length * (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+      RequestMemoryTracker.forRequest(rb.req).updateBytes(queueSize * shardDocBytes,
+          () -> "the queue of the top " + queueSize + " documents of the shards");
+      final ShardFieldSortedHitQueue queue = new ShardFieldSortedHitQueue(sortFields, queueSize, rb.req.getSearcher());
 
       NamedList<Object> shardInfo = null;
       if(rb.req.getParams().getBool(ShardParams.SHARDS_INFO, false)) {
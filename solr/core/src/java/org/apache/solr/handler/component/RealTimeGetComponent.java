@@ -29,6 +29,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.Lists;
@@ -76,6 +77,7 @@ import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.DocList;
+import org.apache.solr.search.IdLookup;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.ReturnFields;
 import org.apache.solr.search.SolrDocumentFetcher;
@@ -627,6 +629,18 @@ public class RealTimeGetComponent extends SearchComponent
    */
   public static SolrInputDocument getInputDocument(SolrCore core, BytesRef idBytes, AtomicLong versionReturned,
       Set<String> onlyTheseNonStoredDVs, Resolution resolveStrategy) throws IOException {
+    return getInputDocument(core, idBytes, versionReturned, onlyTheseNonStoredDVs, resolveStrategy, null);
+  }
+
+  /**
+   * Like {@link #getInputDocument(SolrCore, BytesRef, AtomicLong, Set, Resolution)}, but looks up the document in the
+   * realtime searcher through an {@link IdLookup} obtained from <code>idLookups</code>. Callers looking up many
+   * documents, e.g. for the atomic updates of a request, can thus reuse the per-segment terms enums between lookups.
+   * @param idLookups returns an id lookup for the given searcher, may be null
+   */
+  public static SolrInputDocument getInputDocument(SolrCore core, BytesRef idBytes, AtomicLong versionReturned,
+      Set<String> onlyTheseNonStoredDVs, Resolution resolveStrategy,
+      Function<SolrIndexSearcher, IdLookup> idLookups) throws IOException {
     SolrInputDocument sid = null;
     RefCounted<SolrIndexSearcher> searcherHolder = null;
     try {
@@ -647,7 +661,8 @@ public class RealTimeGetComponent extends SearchComponent
         final IndexSchema schema = core.getLatestSchema();
         SchemaField idField = schema.getUniqueKeyField();
 
-        int docid = searcher.getFirstMatch(new Term(idField.getName(), idBytes));
+        final IdLookup idLookup = idLookups == null ? null : idLookups.apply(searcher);
+        int docid = idLookup != null ? idLookup.getFirstMatch(idBytes) : searcher.getFirstMatch(new Term(idField.getName(), idBytes));
         if (docid < 0) return null;
 
         SolrDocumentFetcher docFetcher = searcher.getDocFetcher();
@@ -669,7 +684,7 @@ public class RealTimeGetComponent extends SearchComponent
               .set("limit", "-1");
           SolrQueryRequest nestedReq = new LocalSolrQueryRequest(core, params);
           final BytesRef rootIdBytes = new BytesRef(id);
-          final int rootDocId = searcher.getFirstMatch(new Term(idField.getName(), rootIdBytes));
+          final int rootDocId = idLookup != null ? idLookup.getFirstMatch(rootIdBytes) : searcher.getFirstMatch(new Term(idField.getName(), rootIdBytes));
           final DocTransformer childDocTransformer = core.getTransformerFactory("child").create("child", params, nestedReq);
           final ResultContext resultContext = new RTGResultContext(new SolrReturnFields(nestedReq), searcher, nestedReq);
           childDocTransformer.setContext(resultContext);
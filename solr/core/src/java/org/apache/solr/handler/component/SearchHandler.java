@@ -23,8 +23,12 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.Timer;
 import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.search.TotalHits;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -41,6 +45,8 @@ import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.handler.RequestHandlerBase;
+import org.apache.solr.metrics.SampledTimer;
+import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.pkg.PackageListeners;
 import org.apache.solr.pkg.PackageLoader;
 import org.apache.solr.request.SolrQueryRequest;
@@ -67,6 +73,14 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
   static final String INIT_COMPONENTS = "components";
   static final String INIT_FIRST_COMPONENTS = "first-components";
   static final String INIT_LAST_COMPONENTS = "last-components";
+  /** Measure the per-component phase times of on average one in this many requests, 0 disables it. */
+  static final String INIT_PHASE_SAMPLE_INTERVAL = "phaseTimesSampleInterval";
+
+  static final String PHASE_PREPARE = "prepare";
+  static final String PHASE_PROCESS = "process";
+  static final String PHASE_DISTRIBUTED_PROCESS = "distributedProcess";
+  static final String PHASE_HANDLE_RESPONSES = "handleResponses";
+  static final String PHASE_FINISH_STAGE = "finishStage";
 
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -75,6 +89,11 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
   private PluginInfo shfInfo;
   private SolrCore core;
 
+  private String metricsScope;
+  private int phaseSampleInterval = SampledTimer.DEFAULT_SAMPLE_INTERVAL;
+  // lazily registered timers keyed by phase and then component name, the phase total uses the key ""
+  private final Map<String, Map<String, Timer>> phaseTimers = new ConcurrentHashMap<>();
+
   protected List<String> getDefaultComponents() {
     ArrayList<String> names = new ArrayList<>(8);
     names.add(QueryComponent.COMPONENT_NAME);
@@ -101,6 +120,37 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
     }
   }
 
+  @Override
+  public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+    super.initializeMetrics(parentContext, scope);
+    metricsScope = scope;
+    phaseTimers.clear();
+    if (initArgs != null) {
+      Object interval = initArgs.get(INIT_PHASE_SAMPLE_INTERVAL);
+      if (interval != null) {
+        phaseSampleInterval = Integer.parseInt(interval.toString());
+      }
+    }
+  }
+
+  /**
+   * Returns the timer for the given phase, registered as
+   * <code>&lt;category&gt;.&lt;scope&gt;.phases.&lt;phase&gt;[.&lt;component&gt;].time</code>.
+   * @param component the name of the component, or "" for the total time of the phase
+   */
+  private Timer getPhaseTimer(String phase, String component) {
+    return phaseTimers.computeIfAbsent(phase, k -> new ConcurrentHashMap<>()).computeIfAbsent(component, k -> {
+      if (component.isEmpty()) {
+        return solrMetricsContext.timer("time", getCategory().toString(), metricsScope, "phases", phase);
+      }
+      return solrMetricsContext.timer("time", getCategory().toString(), metricsScope, "phases", phase, component);
+    });
+  }
+
+  private void recordPhase(String phase, String component, long startNanos) {
+    getPhaseTimer(phase, component).update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
   @Override
   public PermissionNameProvider.Name getPermissionName(AuthorizationContext ctx) {
     return PermissionNameProvider.Name.READ_PERM;
@@ -297,12 +347,25 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
 
     final RTimerTree timer = rb.isDebug() ? req.getRequestTimer() : null;
 
+    // sampled, always-on phase timings (debug requests are timed by the RTimerTree instead)
+    final boolean timePhases = timer == null && solrMetricsContext != null && SampledTimer.sample(phaseSampleInterval);
+
     final ShardHandler shardHandler1 = getAndPrepShardHandler(req, rb); // creates a ShardHandler object only if it's needed
     
     if (timer == null) {
       // non-debugging prepare phase
-      for( SearchComponent c : components ) {
-        c.prepare(rb);
+      long phaseStart = timePhases ? System.nanoTime() : 0L;
+      try {
+        for( SearchComponent c : components ) {
+          long start = timePhases ? System.nanoTime() : 0L;
+          try {
+            c.prepare(rb);
+          } finally {
+            if (timePhases) recordPhase(PHASE_PREPARE, c.getName(), start);
+          }
+        }
+      } finally {
+        if (timePhases) recordPhase(PHASE_PREPARE, "", phaseStart);
       }
     } else {
       // debugging prepare phase
@@ -327,8 +390,18 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
         // it makes sense to have two control loops
         if(!rb.isDebug()) {
           // Process
-          for( SearchComponent c : components ) {
-            c.process(rb);
+          long phaseStart = timePhases ? System.nanoTime() : 0L;
+          try {
+            for( SearchComponent c : components ) {
+              long start = timePhases ? System.nanoTime() : 0L;
+              try {
+                c.process(rb);
+              } finally {
+                if (timePhases) recordPhase(PHASE_PROCESS, c.getName(), start);
+              }
+            }
+          } finally {
+            if (timePhases) recordPhase(PHASE_PROCESS, "", phaseStart);
           }
         }
         else {
@@ -377,7 +450,12 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
         // call all components
         for( SearchComponent c : components ) {
           // the next stage is the minimum of what all components report
-          nextStage = Math.min(nextStage, c.distributedProcess(rb));
+          long start = timePhases ? System.nanoTime() : 0L;
+          try {
+            nextStage = Math.min(nextStage, c.distributedProcess(rb));
+          } finally {
+            if (timePhases) recordPhase(PHASE_DISTRIBUTED_PROCESS, c.getName(), start);
+          }
         }
 
 
@@ -454,13 +532,23 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
 
             // let the components see the responses to the request
             for(SearchComponent c : components) {
-              c.handleResponses(rb, srsp.getShardRequest());
+              long start = timePhases ? System.nanoTime() : 0L;
+              try {
+                c.handleResponses(rb, srsp.getShardRequest());
+              } finally {
+                if (timePhases) recordPhase(PHASE_HANDLE_RESPONSES, c.getName(), start);
+              }
             }
           }
         }
 
         for(SearchComponent c : components) {
-          c.finishStage(rb);
+          long start = timePhases ? System.nanoTime() : 0L;
+          try {
+            c.finishStage(rb);
+          } finally {
+            if (timePhases) recordPhase(PHASE_FINISH_STAGE, c.getName(), start);
+          }
         }
 
         // we are done when the next stage is MAX_VALUE
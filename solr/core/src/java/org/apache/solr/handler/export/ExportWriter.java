@@ -35,6 +35,7 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.client.solrj.impl.BinaryResponseParser;
+import org.apache.solr.client.solrj.io.stream.TupleBatchWriter;
 import org.apache.solr.common.IteratorWriter;
 import org.apache.solr.common.MapWriter;
 import org.apache.solr.common.MapWriter.EntryWriter;
@@ -216,11 +217,20 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       return;
     }
 
+    int batchSize = TupleBatchWriter.getBatchSize(params, writer instanceof JavaBinCodec);
     writer.writeMap(m -> {
       m.put("responseHeader", singletonMap("status", 0));
       m.put("response", (MapWriter) mw -> {
         mw.put("numFound", totalHits);
-        mw.put("docs", (IteratorWriter) iw -> writeDocs(req, iw, sort));
+        mw.put("docs", (IteratorWriter) iw -> {
+          if (batchSize > 0) {
+            TupleBatchWriter batchWriter = new TupleBatchWriter(iw, batchSize);
+            writeDocs(req, batchWriter, sort);
+            batchWriter.flush();
+          } else {
+            writeDocs(req, iw, sort);
+          }
+        });
       });
     });
 
@@ -41,6 +41,9 @@ class SolrAggregate extends Aggregate implements SolrRel {
       SqlStdOperatorTable.AVG
   );
 
+  // the name of the facet function estimating the number of distinct values, see CountDistinctMetric
+  static final String APPROX_COUNT_DISTINCT = "HLL";
+
   SolrAggregate(
       RelOptCluster cluster,
       RelTraitSet traitSet,
@@ -89,6 +92,20 @@ class SolrAggregate extends Aggregate implements SolrRel {
     }
   }
 
+  /**
+   * Whether the aggregate call can be computed by Solr. The only distinct aggregation supported is
+   * APPROX_COUNT_DISTINCT(column), which is estimated with the <code>hll</code> facet function. COUNT(DISTINCT column)
+   * is left to Calcite, which counts the buckets of the column exactly, since the facet functions only estimate it
+   * across shards.
+   */
+  static boolean isSupported(AggregateCall aggCall) {
+    if (aggCall.isDistinct() || aggCall.isApproximate()) {
+      return aggCall.isApproximate() && aggCall.getAggregation().equals(SqlStdOperatorTable.COUNT)
+          && aggCall.getArgList().size() == 1;
+    }
+    return true;
+  }
+
   @SuppressWarnings({"fallthrough"})
   private Pair<String, String> toSolrMetric(Implementor implementor, AggregateCall aggCall, List<String> inNames) {
     SqlAggFunction aggregation = aggCall.getAggregation();
@@ -101,7 +118,11 @@ class SolrAggregate extends Aggregate implements SolrRel {
       case 1:
         String inName = inNames.get(args.get(0));
         String name = implementor.fieldMappings.getOrDefault(inName, inName);
-        if(SUPPORTED_AGGREGATIONS.contains(aggregation)) {
+        if(aggCall.isDistinct() || aggCall.isApproximate()) {
+          if(aggCall.isApproximate() && aggregation.equals(SqlStdOperatorTable.COUNT)) {
+            return new Pair<>(APPROX_COUNT_DISTINCT, name);
+          }
+        } else if(SUPPORTED_AGGREGATIONS.contains(aggregation)) {
           return new Pair<>(aggregation.getName(), name);
         }
       default:
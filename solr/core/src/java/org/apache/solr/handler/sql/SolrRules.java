@@ -21,6 +21,7 @@ import org.apache.calcite.plan.*;
 import org.apache.calcite.rel.RelCollations;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.convert.ConverterRule;
+import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.logical.LogicalAggregate;
 import org.apache.calcite.rel.logical.LogicalFilter;
@@ -234,6 +235,12 @@ class SolrRules {
     @Override
     public RelNode convert(RelNode rel) {
       final LogicalAggregate agg = (LogicalAggregate) rel;
+      for (AggregateCall aggCall : agg.getAggCallList()) {
+        if (!SolrAggregate.isSupported(aggCall)) {
+          // leave it to Calcite, e.g. SUM(DISTINCT x) is rewritten into aggregates we can push down
+          return null;
+        }
+      }
       final RelTraitSet traitSet = agg.getTraitSet().replace(out);
       return new SolrAggregate(
           rel.getCluster(),
@@ -125,7 +125,7 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
     String zk = properties.getProperty("zk");
     try {
       if (metricPairs.isEmpty() && buckets.isEmpty()) {
-        tupleStream = handleSelect(zk, collection, q, fields, orders, limit);
+        tupleStream = handleSelect(zk, collection, properties, q, fields, orders, limit);
       } else {
         if(buckets.isEmpty()) {
           tupleStream = handleStats(zk, collection, q, metricPairs, fields);
@@ -246,6 +246,8 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
         return new MaxMetric(metricPair.getValue());
       case "AVG":
         return new MeanMetric(metricPair.getValue());
+      case SolrAggregate.APPROX_COUNT_DISTINCT:
+        return new CountDistinctMetric(metricPair.getValue(), true);
       default:
         throw new IllegalArgumentException(metricPair.getKey());
     }
@@ -254,6 +256,7 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
   @SuppressWarnings({"rawtypes"})
   private TupleStream handleSelect(String zk,
                                    String collection,
+                                   Properties properties,
                                    String query,
                                    List<Map.Entry<String, Class>> fields,
                                    List<Pair<String, String>> orders,
@@ -292,15 +295,72 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
 
     params.add(CommonParams.FL, fl);
 
-    if (limit != null) {
-      params.add(CommonParams.ROWS, limit);
-      return new LimitStream(new CloudSolrStream(zk, collection, params), Integer.parseInt(limit));
-    } else {
+    if (limit == null) {
       params.add(CommonParams.QT, "/export");
       return new CloudSolrStream(zk, collection, params);
+    } else if (exportLimit(properties, fields, orders, Integer.parseInt(limit))) {
+      params.add(CommonParams.QT, "/export");
+      return new LimitStream(exportStream(zk, collection, properties, params, orders.get(0).getKey()), Integer.parseInt(limit));
+    } else {
+      params.add(CommonParams.ROWS, limit);
+      return new LimitStream(new CloudSolrStream(zk, collection, params), Integer.parseInt(limit));
     }
   }
 
+  /**
+   * Whether a query with a limit should read its results from the /export handler, which streams them instead of
+   * collecting them in a priority queue. This is the case for limits of at least the <code>exportThreshold</code>
+   * connection property, if the results are sorted and scores are not requested.
+   */
+  @SuppressWarnings({"rawtypes"})
+  private boolean exportLimit(Properties properties,
+                              List<Map.Entry<String, Class>> fields,
+                              List<Pair<String, String>> orders,
+                              int limit) {
+    String threshold = properties.getProperty("exportThreshold");
+    if (threshold == null || limit < Integer.parseInt(threshold) || orders.isEmpty()) {
+      return false;
+    }
+    for (Map.Entry<String, Class> field : fields) {
+      if ("score".equals(field.getKey())) {
+        return false;
+      }
+    }
+    for (Pair<String, String> order : orders) {
+      if ("score".equals(order.getKey())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Streams the results of an /export request for a large limit, partitioned over <code>numWorkers</code> workers
+   * by the given field if more than one worker is configured. The workers keep the sort of the results.
+   */
+  private TupleStream exportStream(String zk,
+                                   String collection,
+                                   Properties properties,
+                                   ModifiableSolrParams params,
+                                   String partitionKey) throws IOException {
+    int numWorkers = Integer.parseInt(properties.getProperty("numWorkers", "1"));
+    if (numWorkers > 1) {
+      params.set("partitionKeys", partitionKey);
+    }
+
+    CloudSolrStream cstream = new CloudSolrStream(zk, collection, params);
+    if (numWorkers <= 1) {
+      return cstream;
+    }
+
+    @SuppressWarnings("resource")
+    final ParallelStream parallelStream = new ParallelStream(zk, collection, cstream, numWorkers, cstream.getStreamSort());
+    parallelStream.setStreamFactory(new StreamFactory()
+        .withFunctionName("search", CloudSolrStream.class)
+        .withFunctionName("parallel", ParallelStream.class));
+    return parallelStream;
+  }
+
   private String getSort(List<Pair<String, String>> orders) {
     StringBuilder buf = new StringBuilder();
     for(Pair<String, String> pair : orders) {
@@ -497,6 +557,7 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
         .withFunctionName("max", MaxMetric.class)
         .withFunctionName("avg", MeanMetric.class)
         .withFunctionName("count", CountMetric.class)
+        .withFunctionName(CountDistinctMetric.APPROX_COUNT_DISTINCT, CountDistinctMetric.class)
         .withFunctionName("and", AndEvaluator.class)
         .withFunctionName("or", OrEvaluator.class)
         .withFunctionName("not", NotEvaluator.class)
@@ -616,6 +677,11 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
     }
 
     int overfetch = (int)(limit * 1.25);
+    if(havingPredicate != null) {
+      // The HAVING clause is applied to the buckets after the facet request, so all of them are needed
+      // to be sure that the LIMIT does not cut off buckets which would match it.
+      overfetch = -1;
+    }
 
     TupleStream tupleStream = new FacetStream(zkHost,
                                               collection,
@@ -636,6 +702,7 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
         .withFunctionName("max", MaxMetric.class)
         .withFunctionName("avg", MeanMetric.class)
         .withFunctionName("count", CountMetric.class)
+        .withFunctionName(CountDistinctMetric.APPROX_COUNT_DISTINCT, CountDistinctMetric.class)
         .withFunctionName("and", AndEvaluator.class)
         .withFunctionName("or", OrEvaluator.class)
         .withFunctionName("not", NotEvaluator.class)
@@ -24,6 +24,7 @@ import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.MethodCallExpression;
 import org.apache.calcite.plan.*;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
 import org.apache.calcite.rel.convert.ConverterImpl;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataType;
@@ -54,6 +55,27 @@ class SolrToEnumerableConverter extends ConverterImpl implements EnumerableRel {
     return super.computeSelfCost(planner, mq).multiplyBy(.1);
   }
 
+  /**
+   * Adds what is pushed down to Solr to the plan, so that EXPLAIN shows which parts of the query Solr computes.
+   */
+  @Override
+  public RelWriter explainTerms(RelWriter pw) {
+    super.explainTerms(pw);
+    if (!(getInput() instanceof SolrRel)) {
+      // still planning, the input is not chosen yet
+      return pw;
+    }
+    final SolrRel.Implementor solrImplementor = new SolrRel.Implementor();
+    solrImplementor.visitChild(0, getInput());
+    return pw
+        .itemIf("q", solrImplementor.query, solrImplementor.query != null)
+        .itemIf("buckets", solrImplementor.buckets, !solrImplementor.buckets.isEmpty())
+        .itemIf("metrics", solrImplementor.metricPairs, !solrImplementor.metricPairs.isEmpty())
+        .itemIf("having", solrImplementor.havingPredicate, solrImplementor.havingPredicate != null)
+        .itemIf("sort", solrImplementor.orders, !solrImplementor.orders.isEmpty())
+        .itemIf("limit", solrImplementor.limitValue, solrImplementor.limitValue != null);
+  }
+
   public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     // Generates a call to "query" with the appropriate fields
     final BlockBuilder list = new BlockBuilder();
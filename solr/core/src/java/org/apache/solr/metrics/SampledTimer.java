@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Timer;
+
+/**
+ * Wraps a {@link Timer} so that only a random sample of events is measured. This keeps the cost
+ * of always-on timing of hot code paths (reading the clock and updating the reservoir) negligible,
+ * while the recorded histogram remains representative of the overall latency distribution.
+ * <p>Usage:</p>
+ * <pre>
+ *   long start = sampledTimer.start();
+ *   try {
+ *     ...
+ *   } finally {
+ *     sampledTimer.stop(start);
+ *   }
+ * </pre>
+ */
+public class SampledTimer {
+  /** Measure on average one in this many events unless configured otherwise. */
+  public static final int DEFAULT_SAMPLE_INTERVAL = 10;
+
+  /** A timer that never records anything. */
+  public static final SampledTimer NO_OP = new SampledTimer(null, 0);
+
+  private final Timer timer;
+  private final int sampleInterval;
+
+  /**
+   * @param timer the timer to update, may be null to disable timing
+   * @param sampleInterval measure on average one in this many events; 1 measures every event,
+   *                       0 or less disables timing
+   */
+  public SampledTimer(Timer timer, int sampleInterval) {
+    this.timer = timer;
+    this.sampleInterval = timer == null ? 0 : sampleInterval;
+  }
+
+  /** Returns true if a new event should be measured. */
+  public boolean sample() {
+    return sample(sampleInterval);
+  }
+
+  /**
+   * Returns true with a probability of <code>1/sampleInterval</code>; always true for 1 and never
+   * true for 0 or less.
+   */
+  public static boolean sample(int sampleInterval) {
+    return sampleInterval == 1 || (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) == 0);
+  }
+
+  /**
+   * Starts measuring an event if it is selected by sampling.
+   * @return the start time to pass to {@link #stop(long)}, or 0 if this event is not measured
+   */
+  public long start() {
+    return sample() ? start(true) : 0L;
+  }
+
+  /**
+   * Starts measuring an event if <code>sampled</code> is true. This allows several timers to share
+   * a single sampling decision, e.g. for all phases of a request.
+   */
+  public long start(boolean sampled) {
+    if (!sampled || timer == null) return 0L;
+    long now = System.nanoTime();
+    return now == 0L ? 1L : now;
+  }
+
+  /** Stops measuring an event started by {@link #start()}; a no-op for events that were not sampled. */
+  public void stop(long start) {
+    if (start != 0L) {
+      timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** The underlying timer, or null if timing is disabled. */
+  public Timer getTimer() {
+    return timer;
+  }
+
+  public int getSampleInterval() {
+    return sampleInterval;
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.solr.common.SolrException;
@@ -84,6 +85,26 @@ public class SolrRequestInfo {
     }
   }
 
+  /**
+   * Calls an action for this request on another thread, e.g. in a task of an executor. The request info is set
+   * for the call and removed afterwards, without running the close hooks, which are run by the thread the request
+   * belongs to when it clears its request info.
+   */
+  public <T> T call(Callable<T> action) throws Exception {
+    SolrRequestInfo prev = threadLocal.get();
+    threadLocal.set(this);
+    try {
+      return action.call();
+    } finally {
+      // request info inherited from the submitting thread isn't restored, so that the executor doesn't close it
+      if (prev == null || prev == this) {
+        threadLocal.remove();
+      } else {
+        threadLocal.set(prev);
+      }
+    }
+  }
+
   public SolrRequestInfo(SolrQueryRequest req, SolrQueryResponse rsp) {
     this.req = req;
     this.rsp = rsp;    
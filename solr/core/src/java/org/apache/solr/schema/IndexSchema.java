@@ -39,6 +39,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -159,6 +160,10 @@ public class IndexSchema {
   protected DynamicCopy[] dynamicCopyFields = new DynamicCopy[] {};
   public DynamicCopy[] getDynamicCopyFields() { return dynamicCopyFields; }
 
+  // getCopyFieldsList() is called for every field of every indexed document, see copyFieldsChanged()
+  private static final int MAX_CACHED_COPY_FIELDS_LISTS = 10000;
+  private final Map<String, List<CopyField>> copyFieldsListCache = new ConcurrentHashMap<>();
+
   private Map<FieldType, PayloadDecoder> decoders = new HashMap<>();  // cache to avoid scanning token filters repeatedly, unnecessarily
 
   /**
@@ -620,6 +625,7 @@ public class IndexSchema {
   }
 
   protected void postReadInform() {
+    copyFieldsChanged();
     //Run the callbacks on SchemaAware now that everything else is done
     for (SchemaAware aware : schemaAware) {
       aware.inform(this);
@@ -969,6 +975,7 @@ public class IndexSchema {
     }
     copyFieldList.add(new CopyField(sourceSchemaField, destSchemaField, maxChars));
     incrementCopyFieldTargetCount(destSchemaField);
+    copyFieldsChanged();
   }
   
   private void incrementCopyFieldTargetCount(SchemaField dest) {
@@ -980,6 +987,15 @@ public class IndexSchema {
     System.arraycopy(dynamicCopyFields, 0, temp, 0, dynamicCopyFields.length);
     temp[temp.length - 1] = dcopy;
     dynamicCopyFields = temp;
+    copyFieldsChanged();
+  }
+
+  /**
+   * Must be called when copy field directives were changed after {@link #getCopyFieldsList(String)} may have been
+   * called. Schema modifications end with {@link #postReadInform()}, which calls this.
+   */
+  protected void copyFieldsChanged() {
+    copyFieldsListCache.clear();
   }
 
   static SimilarityFactory readSimilarity(SolrResourceLoader loader, Node node) {
@@ -1354,11 +1370,22 @@ public class IndexSchema {
   /**
    * Get all copy fields for a specified source field, both static
    * and dynamic ones.
-   * @return List of CopyFields to copy to.
+   * @return unmodifiable List of CopyFields to copy to.
    * @since solr 1.4
    */
   // This is useful when we need the maxSize param of each CopyField
   public List<CopyField> getCopyFieldsList(final String sourceField){
+    List<CopyField> result = copyFieldsListCache.get(sourceField);
+    if (result == null) {
+      result = Collections.unmodifiableList(computeCopyFieldsList(sourceField));
+      if (copyFieldsListCache.size() < MAX_CACHED_COPY_FIELDS_LISTS) {
+        copyFieldsListCache.put(sourceField, result);
+      }
+    }
+    return result;
+  }
+
+  private List<CopyField> computeCopyFieldsList(final String sourceField) {
     final List<CopyField> result = new ArrayList<>();
     for (DynamicCopy dynamicCopy : dynamicCopyFields) {
       if (dynamicCopy.matches(sourceField)) {
@@ -30,8 +30,10 @@ import com.carrotsearch.hppc.FloatArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntIntHashMap;
 import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
 import com.carrotsearch.hppc.cursors.IntIntCursor;
 import com.carrotsearch.hppc.cursors.IntLongCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.codecs.DocValuesProducer;
 import org.apache.lucene.index.DocValues;
@@ -45,20 +47,29 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.queries.function.FunctionQuery;
 import org.apache.lucene.queries.function.FunctionValues;
 import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.FieldComparator;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.LeafFieldComparator;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.BytesRef;
@@ -387,6 +398,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
 
         boostDocsMap = QueryElevationComponent.getBoostDocs(searcher, this.boosted, context);
+        ExpandedGroups expandedGroups = ExpandedGroups.forFilter(this, info);
         return collectorFactory.getCollector(this.collapseField,
                                              this.groupHeadSelector,
                                              this.sortSpec,
@@ -396,6 +408,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                              this.needsScores,
                                              this.size,
                                              boostDocsMap,
+                                             expandedGroups,
                                              searcher);
 
       } catch (IOException e) {
@@ -405,6 +418,226 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
   }
 
+  /**
+   * Adds the heap used to find the group heads of a collapse to the debug section
+   * of the response, if debugging is enabled.
+   */
+  private static void addMemoryDebugInfo(long groupHeadBytes) {
+    final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+    final ResponseBuilder rb = info == null ? null : info.getResponseBuilder();
+    if (rb != null && rb.isDebug()) {
+      rb.addDebug(groupHeadBytes, "collapse", "groupHeadBytes");
+    }
+  }
+
+  /**
+   * The top documents of each group, retained by the collapse collector while it collapses so that the
+   * ExpandComponent can expand the groups of a page without searching again. The head of a group is only
+   * known once all documents were collected, so up to one more document than the expanded rows is kept per group.
+   * <p>
+   * The documents of a group are buffered as they are collected, and only a group with more documents than that
+   * gets a queue of its top documents. The heap used is thus bounded by the number of collected documents rather
+   * than by the number of groups times the expanded rows, and the groups are only sorted when they are expanded.
+   * <p>
+   * The ExpandComponent asks for the groups of a request with {@link #retain}; the collapse collectors of the
+   * given filter then fill them each time they run for the request.
+   */
+  public static class ExpandedGroups {
+
+    private static final String CONTEXT_KEY = ExpandedGroups.class.getName();
+
+    private final CollapsingPostFilter filter;
+    private final int limit;
+    private final Sort sort;
+    private LongObjectHashMap<RetainedGroup> groups;
+    private LongObjectHashMap<LeafCollector> leafCollectors;
+    private List<LeafReaderContext> leaves;
+    private LeafReaderContext context;
+    private Scorable scorer;
+    private boolean complete;
+
+    private ExpandedGroups(CollapsingPostFilter filter, int limit, Sort sort) {
+      this.filter = filter;
+      this.limit = limit;
+      this.sort = sort;
+    }
+
+    /**
+     * Asks the collapse collectors of the given filter to retain the top <code>limit</code> documents of each
+     * group, by <code>sort</code> or by score if it is null, for the rest of the request.
+     */
+    public static void retain(SolrQueryRequest req, CollapsingPostFilter filter, int limit, Sort sort) {
+      req.getContext().put(CONTEXT_KEY, new ExpandedGroups(filter, limit, sort));
+    }
+
+    /**
+     * Returns the groups retained by the last collapse of the request, or null if none were asked for or the
+     * collapse did not run, e.g. because its results were taken from the query result cache.
+     */
+    public static ExpandedGroups get(SolrQueryRequest req) {
+      final ExpandedGroups expandedGroups = (ExpandedGroups) req.getContext().get(CONTEXT_KEY);
+      return expandedGroups != null && expandedGroups.complete ? expandedGroups : null;
+    }
+
+    private static ExpandedGroups forFilter(CollapsingPostFilter filter, SolrRequestInfo info) {
+      if (info == null) {
+        return null;
+      }
+      final ExpandedGroups expandedGroups = (ExpandedGroups) info.getReq().getContext().get(CONTEXT_KEY);
+      if (expandedGroups == null || expandedGroups.filter != filter) {
+        return null;
+      }
+      expandedGroups.groups = new LongObjectHashMap<>();
+      expandedGroups.leafCollectors = new LongObjectHashMap<>();
+      expandedGroups.leaves = null;
+      expandedGroups.complete = false;
+      return expandedGroups;
+    }
+
+    /**
+     * Returns the top documents of the given group, at most <code>limit + 1</code> and none if no documents are
+     * expanded, with the number of documents of the group as total hits, or null if no document of the group was
+     * collected.
+     */
+    public TopDocs getGroup(long group) throws IOException {
+      final RetainedGroup retained = groups.get(group);
+      if (retained == null) {
+        return null;
+      }
+      if (retained.collector != null) {
+        return retained.collector.topDocs();
+      }
+      if (limit == 0) {
+        return new TopDocs(new TotalHits(retained.count, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+      }
+      final TopDocsCollector<?> collector = newCollector(retained.count);
+      replay(retained, collector);
+      return collector.topDocs();
+    }
+
+    boolean needsScores() {
+      return limit > 0 && (sort == null || sort.needsScores());
+    }
+
+    void setNextReader(LeafReaderContext context) {
+      if (leaves == null) {
+        leaves = ReaderUtil.getTopLevelContext(context).leaves();
+      }
+      this.context = context;
+      this.scorer = null;
+      leafCollectors.clear();
+    }
+
+    void setScorer(Scorable scorer) throws IOException {
+      this.scorer = scorer;
+      for (ObjectCursor<LeafCollector> c : leafCollectors.values()) {
+        c.value.setScorer(scorer);
+      }
+    }
+
+    void collect(long group, int contextDoc) throws IOException {
+      RetainedGroup retained = groups.get(group);
+      if (retained == null) {
+        retained = new RetainedGroup(limit > 0, needsScores());
+        groups.put(group, retained);
+      }
+      if (retained.collector == null) {
+        if (limit == 0 || retained.count <= limit) {
+          retained.add(context.docBase + contextDoc, needsScores() && scorer != null ? scorer.score() : Float.NaN);
+          return;
+        }
+        // more documents than are expanded and the head: from now on only the top documents are kept
+        retained.collector = newCollector(limit + 1);
+        replay(retained, retained.collector);
+        retained.docs = null;
+        retained.scores = null;
+      }
+      LeafCollector leafCollector = leafCollectors.get(group);
+      if (leafCollector == null) {
+        leafCollector = retained.collector.getLeafCollector(context);
+        if (scorer != null) {
+          leafCollector.setScorer(scorer);
+        }
+        leafCollectors.put(group, leafCollector);
+      }
+      leafCollector.collect(contextDoc);
+    }
+
+    void finish() {
+      leafCollectors.clear();
+      complete = true;
+    }
+
+    private TopDocsCollector<?> newCollector(int numHits) {
+      if (sort == null) {
+        return TopScoreDocCollector.create(numHits, Integer.MAX_VALUE);
+      }
+      return TopFieldCollector.create(sort, numHits, Integer.MAX_VALUE);
+    }
+
+    /** Collects the buffered documents of a group, which are in index order. */
+    private void replay(RetainedGroup retained, Collector collector) throws IOException {
+      final ReplayScorer replayScorer = new ReplayScorer();
+      LeafReaderContext leaf = null;
+      LeafCollector leafCollector = null;
+      for (int i = 0; i < retained.count; i++) {
+        final int doc = retained.docs[i];
+        if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+          leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+          leafCollector = collector.getLeafCollector(leaf);
+          leafCollector.setScorer(replayScorer);
+        }
+        replayScorer.doc = doc - leaf.docBase;
+        replayScorer.score = retained.scores == null ? Float.NaN : retained.scores[i];
+        leafCollector.collect(replayScorer.doc);
+      }
+    }
+  }
+
+  /** The documents collected for a group, or the queue of its top documents once it has too many. */
+  private static final class RetainedGroup {
+    int count;
+    int[] docs;
+    float[] scores;
+    TopDocsCollector<?> collector;
+
+    RetainedGroup(boolean retainsDocs, boolean retainsScores) {
+      this.docs = retainsDocs ? new int[1] : null;
+      this.scores = retainsScores ? new float[1] : null;
+    }
+
+    void add(int doc, float score) {
+      if (docs != null) {
+        if (count == docs.length) {
+          docs = ArrayUtil.grow(docs, count + 1);
+          if (scores != null) {
+            scores = ArrayUtil.grow(scores, count + 1);
+          }
+        }
+        docs[count] = doc;
+        if (scores != null) {
+          scores[count] = score;
+        }
+      }
+      count++;
+    }
+  }
+
+  private static final class ReplayScorer extends Scorable {
+    int doc = -1;
+    float score;
+
+    @Override
+    public float score() {
+      return score;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+  }
+
   /**
    * This forces the use of the top level field cache for String fields.
    * This is VERY fast at query time but slower to warm and causes insanity.
@@ -524,14 +757,18 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private IntArrayList boostDocs;
     private MergeBoost mergeBoost;
     private boolean boosts;
+    private ExpandedGroups expandedGroups;
+    private final long trackedBytes;
 
     public OrdScoreCollector(int maxDoc,
                              int segments,
                              DocValuesProducer collapseValuesProducer,
                              int nullPolicy,
                              IntIntHashMap boostDocsMap,
+                             ExpandedGroups expandedGroups,
                              IndexSearcher searcher) throws IOException {
       this.maxDoc = maxDoc;
+      this.expandedGroups = expandedGroups;
       this.contexts = new LeafReaderContext[segments];
       List<LeafReaderContext> con = searcher.getTopReaderContext().leaves();
       for(int i=0; i<con.size(); i++) {
@@ -547,6 +784,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues)collapseValues;
         this.ordinalMap = multiSortedDocValues.mapping;
       }
+      this.trackedBytes = trackGroupHeads(maxDoc, valueCount, Integer.BYTES + Float.BYTES);
       this.ords = new IntIntDynamicMap(valueCount, -1);
       this.scores = new IntFloatDynamicMap(valueCount, -Float.MAX_VALUE);
       this.nullPolicy = nullPolicy;
@@ -583,6 +821,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       } else {
         this.segmentValues = collapseValues;
       }
+      if(expandedGroups != null) {
+        expandedGroups.setNextReader(context);
+      }
+    }
+
+    @Override
+    public void setScorer(Scorable scorer) throws IOException {
+      super.setScorer(scorer);
+      if(expandedGroups != null) {
+        expandedGroups.setScorer(scorer);
+      }
     }
 
     @Override
@@ -605,6 +854,10 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
       }
 
+      if(expandedGroups != null && ord > -1) {
+        expandedGroups.collect(ord, contextDoc);
+      }
+
       // Check to see if we have documents boosted by the QueryElevationComponent
       if(boosts && mergeBoost.boost(globalDoc)) {
         boostDocs.add(globalDoc);
@@ -632,6 +885,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
     @Override
     public void finish() throws IOException {
+      try {
+        finishCollapse();
+      } finally {
+        RequestMemoryTracker.release(trackedBytes);
+      }
+    }
+
+    private void finishCollapse() throws IOException {
+      if(expandedGroups != null) {
+        expandedGroups.finish();
+      }
       if(contexts.length == 0) {
         return;
       }
@@ -724,6 +988,10 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      addMemoryDebugInfo(collapsedSet.ramBytesUsed() + ords.ramBytesUsed() + scores.ramBytesUsed());
+      ords.release();
+      scores.release();
+
       if(delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).finish();
       }
@@ -751,6 +1019,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private boolean boosts;
     private String field;
     private int nullValue;
+    private ExpandedGroups expandedGroups;
+    private final long trackedBytes;
 
     public IntScoreCollector(int maxDoc,
                              int segments,
@@ -759,14 +1029,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                              int size,
                              String field,
                              IntIntHashMap boostDocsMap,
+                             ExpandedGroups expandedGroups,
                              IndexSearcher searcher) {
       this.maxDoc = maxDoc;
+      this.expandedGroups = expandedGroups;
       this.contexts = new LeafReaderContext[segments];
       List<LeafReaderContext> con = searcher.getTopReaderContext().leaves();
       for(int i=0; i<con.size(); i++) {
         contexts[i] = con.get(i);
       }
 
+      this.trackedBytes = trackGroupHeads(maxDoc, size, Integer.BYTES + Long.BYTES);
       this.collapsedSet = new FixedBitSet(maxDoc);
       this.nullValue = nullValue;
       this.nullPolicy = nullPolicy;
@@ -802,6 +1075,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.contexts[context.ord] = context;
       this.docBase = context.docBase;
       this.collapseValues = DocValues.getNumeric(context.reader(), this.field);
+      if(expandedGroups != null) {
+        expandedGroups.setNextReader(context);
+      }
+    }
+
+    @Override
+    public void setScorer(Scorable scorer) throws IOException {
+      super.setScorer(scorer);
+      if(expandedGroups != null) {
+        expandedGroups.setScorer(scorer);
+      }
     }
 
     @Override
@@ -814,6 +1098,10 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
       int globalDoc = docBase+contextDoc;
 
+      if(expandedGroups != null && collapseValue != nullValue) {
+        expandedGroups.collect(collapseValue, contextDoc);
+      }
+
       // Check to see of we have documents boosted by the QueryElevationComponent
       if(boosts && mergeBoost.boost(globalDoc)) {
         boostDocs.add(globalDoc);
@@ -851,6 +1139,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
     @Override
     public void finish() throws IOException {
+      try {
+        finishCollapse();
+      } finally {
+        RequestMemoryTracker.release(trackedBytes);
+      }
+    }
+
+    private void finishCollapse() throws IOException {
+      if(expandedGroups != null) {
+        expandedGroups.finish();
+      }
       if(contexts.length == 0) {
         return;
       }
@@ -950,6 +1249,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private OrdFieldValueStrategy collapseStrategy;
     private boolean needsScores4Collapsing;
     private boolean needsScores;
+    private ExpandedGroups expandedGroups;
 
     public OrdFieldValueCollector(int maxDoc,
                                   int segments,
@@ -961,11 +1261,14 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                   boolean needsScores,
                                   FieldType fieldType,
                                   IntIntHashMap boostDocs,
-                                  FunctionQuery funcQuery, IndexSearcher searcher) throws IOException{
+                                  FunctionQuery funcQuery,
+                                  ExpandedGroups expandedGroups,
+                                  IndexSearcher searcher) throws IOException{
 
       assert ! GroupHeadSelectorType.SCORE.equals(groupHeadSelector.type);
 
       this.maxDoc = maxDoc;
+      this.expandedGroups = expandedGroups;
       this.contexts = new LeafReaderContext[segments];
       List<LeafReaderContext> con = searcher.getTopReaderContext().leaves();
       for(int i=0; i<con.size(); i++) {
@@ -1011,10 +1314,15 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
-    @Override public ScoreMode scoreMode() { return needsScores ? ScoreMode.COMPLETE : super.scoreMode(); }
+    @Override public ScoreMode scoreMode() {
+      return needsScores || (expandedGroups != null && expandedGroups.needsScores()) ? ScoreMode.COMPLETE : super.scoreMode();
+    }
 
     public void setScorer(Scorable scorer) throws IOException {
       this.collapseStrategy.setScorer(scorer);
+      if(expandedGroups != null) {
+        expandedGroups.setScorer(scorer);
+      }
     }
 
     public void doSetNextReader(LeafReaderContext context) throws IOException {
@@ -1027,6 +1335,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       } else {
         this.segmentValues = collapseValues;
       }
+      if(expandedGroups != null) {
+        expandedGroups.setNextReader(context);
+      }
     }
 
     public void collect(int contextDoc) throws IOException {
@@ -1041,10 +1352,24 @@ public class CollapsingQParserPlugin extends QParserPlugin {
           ord = segmentValues.ordValue();
         }
       }
+      if(expandedGroups != null && ord > -1) {
+        expandedGroups.collect(ord, contextDoc);
+      }
       collapseStrategy.collapse(ord, contextDoc, globalDoc);
     }
 
     public void finish() throws IOException {
+      try {
+        finishCollapse();
+      } finally {
+        RequestMemoryTracker.release(collapseStrategy.trackedBytes);
+      }
+    }
+
+    private void finishCollapse() throws IOException {
+      if(expandedGroups != null) {
+        expandedGroups.finish();
+      }
       if(contexts.length == 0) {
         return;
       }
@@ -1123,6 +1448,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      addMemoryDebugInfo(collapseStrategy.ramBytesUsed());
+      collapseStrategy.release();
+
       if(delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).finish();
       }
@@ -1144,6 +1472,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private boolean needsScores4Collapsing;
     private boolean needsScores;
     private String collapseField;
+    private ExpandedGroups expandedGroups;
 
     public IntFieldValueCollector(int maxDoc,
                                   int size,
@@ -1158,11 +1487,13 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                   FieldType fieldType,
                                   IntIntHashMap boostDocsMap,
                                   FunctionQuery funcQuery,
+                                  ExpandedGroups expandedGroups,
                                   IndexSearcher searcher) throws IOException{
 
       assert ! GroupHeadSelectorType.SCORE.equals(groupHeadSelector.type);
 
       this.maxDoc = maxDoc;
+      this.expandedGroups = expandedGroups;
       this.contexts = new LeafReaderContext[segments];
       List<LeafReaderContext> con = searcher.getTopReaderContext().leaves();
       for(int i=0; i<con.size(); i++) {
@@ -1197,11 +1528,16 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
-    @Override public ScoreMode scoreMode() { return needsScores ? ScoreMode.COMPLETE : super.scoreMode(); }
+    @Override public ScoreMode scoreMode() {
+      return needsScores || (expandedGroups != null && expandedGroups.needsScores()) ? ScoreMode.COMPLETE : super.scoreMode();
+    }
 
     @Override
     public void setScorer(Scorable scorer) throws IOException {
       this.collapseStrategy.setScorer(scorer);
+      if(expandedGroups != null) {
+        expandedGroups.setScorer(scorer);
+      }
     }
 
     public void doSetNextReader(LeafReaderContext context) throws IOException {
@@ -1209,6 +1545,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.docBase = context.docBase;
       this.collapseStrategy.setNextReader(context);
       this.collapseValues = DocValues.getNumeric(context.reader(), this.collapseField);
+      if(expandedGroups != null) {
+        expandedGroups.setNextReader(context);
+      }
     }
 
     public void collect(int contextDoc) throws IOException {
@@ -1220,10 +1559,24 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
 
       int globalDoc = contextDoc+this.docBase;
+      if(expandedGroups != null && collapseKey != nullValue) {
+        expandedGroups.collect(collapseKey, contextDoc);
+      }
       collapseStrategy.collapse(collapseKey, contextDoc, globalDoc);
     }
 
     public void finish() throws IOException {
+      try {
+        finishCollapse();
+      } finally {
+        RequestMemoryTracker.release(collapseStrategy.trackedBytes);
+      }
+    }
+
+    private void finishCollapse() throws IOException {
+      if(expandedGroups != null) {
+        expandedGroups.finish();
+      }
       if(contexts.length == 0) {
         return;
       }
@@ -1288,6 +1641,16 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     }
   }
 
+  /**
+   * Accounts the set of the collapsed documents and the heads of the groups of a collector before they are
+   * allocated, see {@link RequestMemoryTracker}. Returns the bytes accounted, which are released once the collector
+   * finished.
+   */
+  private static long trackGroupHeads(int maxDoc, int numGroups, int bytesPerGroup) {
+    long bytes = FixedBitSet.bits2words(maxDoc) * (long) Long.BYTES + (long) numGroups * bytesPerGroup;
+    return RequestMemoryTracker.track(bytes, () -> "the heads of " + numGroups + " groups of a collapse");
+  }
+
   private static class CollectorFactory {
     /** @see #isNumericCollapsible */
     private final static EnumSet<NumberType> NUMERIC_COLLAPSIBLE_TYPES = EnumSet.of(NumberType.INTEGER,
@@ -1305,6 +1668,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                             boolean needsScores,
                                             int size,
                                             IntIntHashMap boostDocs,
+                                            ExpandedGroups expandedGroups,
                                             SolrIndexSearcher searcher) throws IOException {
 
       DocValuesProducer docValuesProducer = null;
@@ -1362,7 +1726,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
         if (collapseFieldType instanceof StrField) {
 
-          return new OrdScoreCollector(maxDoc, leafCount, docValuesProducer, nullPolicy, boostDocs, searcher);
+          return new OrdScoreCollector(maxDoc, leafCount, docValuesProducer, nullPolicy, boostDocs, expandedGroups, searcher);
 
         } else if (isNumericCollapsible(collapseFieldType)) {
 
@@ -1381,7 +1745,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
             }
           }
 
-          return new IntScoreCollector(maxDoc, leafCount, nullValue, nullPolicy, size, collapseField, boostDocs, searcher);
+          return new IntScoreCollector(maxDoc, leafCount, nullValue, nullPolicy, size, collapseField, boostDocs, expandedGroups, searcher);
 
         } else {
           throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
@@ -1403,6 +1767,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                             minMaxFieldType,
                                             boostDocs,
                                             funcQuery,
+                                            expandedGroups,
                                             searcher);
 
         } else if (isNumericCollapsible(collapseFieldType)) {
@@ -1435,6 +1800,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                             minMaxFieldType,
                                             boostDocs,
                                             funcQuery,
+                                            expandedGroups,
                                             searcher);
         } else {
           throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
@@ -1497,6 +1863,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     protected FixedBitSet collapsedSet;
     protected int nullDoc = -1;
     protected boolean needsScores;
+    protected long trackedBytes;
     protected boolean boosts;
     protected IntArrayList boostOrds;
     protected IntArrayList boostDocs;
@@ -1512,6 +1879,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                  boolean needsScores,
                                  IntIntHashMap boostDocsMap,
                                  SortedDocValues values) {
+      // the head of each group, the value it was selected by and its score
+      this.trackedBytes = trackGroupHeads(maxDoc, valueCount, Integer.BYTES + Long.BYTES + (needsScores ? Float.BYTES : 0));
       this.ords = new IntIntDynamicMap(valueCount, -1);
       this.nullPolicy = nullPolicy;
       this.needsScores = needsScores;
@@ -1583,6 +1952,23 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     public IntFloatDynamicMap getScores() {
       return scores;
     }
+
+    /** The heap used to track the group heads. */
+    public long ramBytesUsed() {
+      long bytes = collapsedSet.ramBytesUsed() + ords.ramBytesUsed();
+      if (scores != null) {
+        bytes += scores.ramBytesUsed();
+      }
+      return bytes;
+    }
+
+    /** Gives the pages of the group head maps back to their pool, once the group heads were collected. */
+    public void release() {
+      ords.release();
+      if (scores != null) {
+        scores.release();
+      }
+    }
   }
 
   /*
@@ -1618,6 +2004,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
+    @Override
+    public void release() {
+      super.release();
+      ordVals.release();
+    }
+
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.minMaxValues = DocValues.getNumeric(context.reader(), this.field);
     }
@@ -1697,6 +2094,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
+    @Override
+    public void release() {
+      super.release();
+      ordVals.release();
+    }
+
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.minMaxValues = DocValues.getNumeric(context.reader(), this.field);
     }
@@ -1777,6 +2185,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
+    @Override
+    public void release() {
+      super.release();
+      ordVals.release();
+    }
+
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.minMaxVals = DocValues.getNumeric(context.reader(), this.field);
     }
@@ -1865,6 +2284,17 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       collapseScore.setupIfNeeded(groupHeadSelector, rcontext);
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
+    @Override
+    public void release() {
+      super.release();
+      ordVals.release();
+    }
+
     public void setNextReader(LeafReaderContext context) throws IOException {
       functionValues = this.valueSource.getValues(rcontext, context);
     }
@@ -2046,6 +2476,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     protected FixedBitSet collapsedSet;
     protected int nullDoc = -1;
     protected boolean needsScores;
+    protected long trackedBytes;
     protected String collapseField;
     protected IntIntDynamicMap docs;
     protected int nullValue;
@@ -2068,6 +2499,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.nullValue = nullValue;
       this.nullPolicy = nullPolicy;
       this.needsScores = needsScores;
+      // the group of each value, the head of each group, the value it was selected by and its score
+      this.trackedBytes = trackGroupHeads(maxDoc, size, 2 * Integer.BYTES + Integer.BYTES + Long.BYTES + (needsScores ? Float.BYTES : 0));
       this.collapsedSet = new FixedBitSet(maxDoc);
       this.cmap = new IntIntHashMap(size);
       this.docs = new IntIntDynamicMap(size, 0);
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Looks up documents by their unique key like {@link SolrIndexSearcher#lookupId(BytesRef)}, but keeps the
+ * per-segment {@link TermsEnum}s between lookups. Successive seeks can then reuse the terms dictionary blocks that
+ * were already loaded, which makes looking up many ids on the same searcher cheaper, in particular when the ids are
+ * close to each other in sort order (e.g. sequential ids).
+ * <p>
+ * Instances are bound to a single searcher and are not thread safe.
+ *
+ * @lucene.internal
+ */
+public class IdLookup {
+  private final SolrIndexSearcher searcher;
+  private final List<LeafReaderContext> leaves;
+  private final String idField;
+  private final TermsEnum[] termsEnums;
+  private final PostingsEnum[] postings;
+  private final boolean[] noTerms;
+
+  public IdLookup(SolrIndexSearcher searcher) {
+    this.searcher = searcher;
+    this.leaves = searcher.getTopReaderContext().leaves();
+    this.idField = searcher.getSchema().getUniqueKeyField().getName();
+    this.termsEnums = new TermsEnum[leaves.size()];
+    this.postings = new PostingsEnum[leaves.size()];
+    this.noTerms = new boolean[leaves.size()];
+  }
+
+  /** The searcher ids are looked up on. */
+  public SolrIndexSearcher getSearcher() {
+    return searcher;
+  }
+
+  /**
+   * Returns the id of the live document with the given unique key within its leaf reader in the low 32 bits, and the
+   * index of the leaf reader in the high 32 bits, or -1 if not found.
+   *
+   * @see SolrIndexSearcher#lookupId(BytesRef)
+   */
+  public long lookupId(BytesRef idBytes) throws IOException {
+    for (int i = 0; i < termsEnums.length; i++) {
+      int doc = lookupId(i, idBytes);
+      if (doc != DocIdSetIterator.NO_MORE_DOCS) {
+        return (((long) i) << 32) | doc;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the global doc id of the live document with the given unique key, or -1 if not found.
+   *
+   * @see SolrIndexSearcher#getFirstMatch(org.apache.lucene.index.Term)
+   */
+  public int getFirstMatch(BytesRef idBytes) throws IOException {
+    long pair = lookupId(idBytes);
+    if (pair == -1) {
+      return -1;
+    }
+    return leaves.get((int) (pair >> 32)).docBase + (int) pair;
+  }
+
+  private int lookupId(int leafIndex, BytesRef idBytes) throws IOException {
+    TermsEnum te = termsEnums[leafIndex];
+    if (te == null) {
+      if (noTerms[leafIndex]) {
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+      Terms terms = leaves.get(leafIndex).reader().terms(idField);
+      if (terms == null) {
+        noTerms[leafIndex] = true;
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+      te = termsEnums[leafIndex] = terms.iterator();
+    }
+    if (te.seekExact(idBytes) == false) {
+      return DocIdSetIterator.NO_MORE_DOCS;
+    }
+    LeafReader reader = leaves.get(leafIndex).reader();
+    Bits liveDocs = reader.getLiveDocs();
+    PostingsEnum docs = postings[leafIndex] = te.postings(postings[leafIndex], PostingsEnum.NONE);
+    for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+      if (liveDocs == null || liveDocs.get(doc)) {
+        return doc;
+      }
+    }
+    return DocIdSetIterator.NO_MORE_DOCS;
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.lucene.util.MemoryTracker;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+
+/**
+ * Accounts for the memory of the data structures a request allocates in proportion to its parameters rather than
+ * to the index alone, e.g. the priority queue of a large <code>rows</code>, the slots of a facet with
+ * <code>limit:-1</code> or the group heads of a collapse. The estimates are taken before the structures are
+ * allocated, so that a request over its limit is aborted before it can exhaust the heap.
+ * <p>
+ * Structures are released once they are no longer used, e.g. the slots of a sub-facet once its bucket was
+ * processed, so a request accounts for the structures it uses at the same time. Whatever a request still
+ * accounts for when it completes is released from the total of the node.
+ * A request is aborted with a <code>400</code> error when it exceeds the <code>maxRequestMemoryMB</code> of the
+ * <code>&lt;query&gt;</code> section of solrconfig.xml, and with a <code>503</code> error when the requests of the
+ * node, i.e. of its {@link CoreContainer}, together exceed the <code>maxRequestMemoryMB</code> of solr.xml, in which
+ * case it may be retried.
+ *
+ * @lucene.experimental
+ */
+public class RequestMemoryTracker implements MemoryTracker, Closeable {
+
+  private static final String CONTEXT_KEY = RequestMemoryTracker.class.getName();
+
+  /** The memory accounted by the requests of a {@link CoreContainer} together. */
+  public static class NodeMemory {
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile long limit = -1;
+    private final LongAdder requestLimitAborts = new LongAdder();
+    private final LongAdder nodeLimitAborts = new LongAdder();
+
+    /** Sets the number of bytes the requests of the node may account together, or -1 for no limit */
+    public void setLimit(long bytes) {
+      limit = bytes;
+    }
+
+    public long getLimit() {
+      return limit;
+    }
+
+    /** The number of bytes accounted by the running requests of the node */
+    public long getBytes() {
+      return bytes.get();
+    }
+
+    public long getRequestLimitAborts() {
+      return requestLimitAborts.sum();
+    }
+
+    public long getNodeLimitAborts() {
+      return nodeLimitAborts.sum();
+    }
+  }
+
+  private final long limit;
+  // null if the request has no core
+  private final NodeMemory node;
+  // requests without request info are never released, so they are not accounted to the node
+  private final boolean nodeTracked;
+  private long bytes;
+  private boolean closed;
+
+  RequestMemoryTracker(long limit, NodeMemory node, boolean nodeTracked) {
+    this.limit = limit;
+    this.node = node;
+    this.nodeTracked = node != null && nodeTracked;
+  }
+
+  /** Returns the tracker of the request of the current thread, or null if there is none. */
+  public static RequestMemoryTracker current() {
+    SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+    return info == null || info.getReq() == null ? null : forRequest(info.getReq());
+  }
+
+  /** Returns the tracker of a request, which is created on first use. */
+  public static RequestMemoryTracker forRequest(SolrQueryRequest req) {
+    Map<Object,Object> context = req.getContext();
+    synchronized (context) {
+      RequestMemoryTracker tracker = (RequestMemoryTracker) context.get(CONTEXT_KEY);
+      if (tracker == null) {
+        SolrCore core = req.getCore();
+        int limitMB = core == null ? -1 : core.getSolrConfig().maxRequestMemoryMB;
+        CoreContainer container = core == null ? null : core.getCoreContainer();
+        SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+        boolean nodeTracked = info != null && info.getReq() == req;
+        tracker = new RequestMemoryTracker(limitMB < 0 ? -1 : (long) limitMB << 20,
+            container == null ? null : container.getRequestMemory(), nodeTracked);
+        if (tracker.nodeTracked) {
+          info.addCloseHook(tracker);
+        }
+        context.put(CONTEXT_KEY, tracker);
+      }
+      return tracker;
+    }
+  }
+
+  /**
+   * Accounts the bytes of a structure of the current request, if any, before it is allocated.
+   *
+   * @param what describes the structure in the error of an aborted request, only called if it is aborted
+   * @return the bytes accounted, 0 without a current request, to {@link #release(long)} once the structure is done
+   */
+  public static long track(long bytes, Supplier<String> what) {
+    RequestMemoryTracker tracker = current();
+    if (tracker == null) {
+      return 0;
+    }
+    tracker.updateBytes(bytes, what);
+    return bytes;
+  }
+
+  /** Releases bytes of the current request returned by {@link #track(long, Supplier)}. */
+  public static void release(long bytes) {
+    RequestMemoryTracker tracker = bytes == 0 ? null : current();
+    if (tracker != null) {
+      tracker.updateBytes(-bytes);
+    }
+  }
+
+  @Override
+  public void updateBytes(long delta) {
+    updateBytes(delta, () -> "request");
+  }
+
+  /**
+   * Accounts bytes allocated, or released if negative, by the request.
+   *
+   * @param what describes the structure in the error of an aborted request, only called if it is aborted
+   * @throws SolrException if the request or the node exceeds its limit, in which case the bytes are not accounted
+   */
+  public synchronized void updateBytes(long delta, Supplier<String> what) {
+    boolean toNode = nodeTracked && !closed;
+    bytes += delta;
+    long total = toNode ? node.bytes.addAndGet(delta) : 0;
+    if (delta <= 0) {
+      return;
+    }
+    if (limit >= 0 && bytes > limit) {
+      long requested = bytes;
+      rollback(delta, toNode);
+      if (node != null) {
+        node.requestLimitAborts.increment();
+      }
+      throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Request memory limit exceeded: " + what.get()
+          + " needs " + delta + " bytes, the request would use " + requested + " of " + limit + " bytes (maxRequestMemoryMB)");
+    }
+    long nodeLimit = toNode ? node.limit : -1;
+    if (nodeLimit >= 0 && total > nodeLimit) {
+      rollback(delta, true);
+      node.nodeLimitAborts.increment();
+      throw new SolrException(SolrException.ErrorCode.SERVICE_UNAVAILABLE, "Node memory limit exceeded: " + what.get()
+          + " needs " + delta + " bytes, the requests of the node would use " + total + " of " + nodeLimit + " bytes (maxRequestMemoryMB)");
+    }
+  }
+
+  private void rollback(long delta, boolean toNode) {
+    bytes -= delta;
+    if (toNode) {
+      node.bytes.addAndGet(-delta);
+    }
+  }
+
+  @Override
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  /** Releases the bytes of the request from the node. */
+  @Override
+  public synchronized void close() {
+    if (nodeTracked && !closed) {
+      node.bytes.addAndGet(-bytes);
+    }
+    closed = true;
+  }
+}
@@ -65,6 +65,7 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentBase;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.core.SolrConfig;
+import org.apache.solr.metrics.SampledTimer;
 import org.apache.solr.response.DocsStreamer;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.schema.AbstractEnumField;
@@ -108,6 +109,8 @@ public class SolrDocumentFetcher {
 
   private Collection<String> storedHighlightFieldNames; // lazy populated; use getter
 
+  private SampledTimer fetchTimer = SampledTimer.NO_OP; // set when the searcher registers its metrics
+
   SolrDocumentFetcher(SolrIndexSearcher searcher, SolrConfig solrConfig, boolean cachingEnabled) {
     this.searcher = searcher;
     this.enableLazyFieldLoading = solrConfig.enableLazyFieldLoading;
@@ -244,10 +247,20 @@ public class SolrDocumentFetcher {
   }
 
   private Document docNC(int i, Set<String> fields) throws IOException {
-    final DirectoryReader reader = searcher.getIndexReader();
-    final SolrDocumentStoredFieldVisitor visitor = new SolrDocumentStoredFieldVisitor(fields, reader, i);
-    reader.document(i, visitor);
-    return visitor.getDocument();
+    final long start = fetchTimer.start();
+    try {
+      final DirectoryReader reader = searcher.getIndexReader();
+      final SolrDocumentStoredFieldVisitor visitor = new SolrDocumentStoredFieldVisitor(fields, reader, i);
+      reader.document(i, visitor);
+      return visitor.getDocument();
+    } finally {
+      fetchTimer.stop(start);
+    }
+  }
+
+  /** Sets the timer measuring a sample of the stored document reads that miss the document cache. */
+  void setFetchTimer(SampledTimer fetchTimer) {
+    this.fetchTimer = fetchTimer;
   }
 
   /**
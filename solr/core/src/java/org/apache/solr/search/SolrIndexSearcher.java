@@ -55,6 +55,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -66,6 +67,7 @@ import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
 import org.apache.solr.index.SlowCompositeReaderWrapper;
 import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SampledTimer;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.request.LocalSolrQueryRequest;
@@ -100,6 +102,11 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private static final Map<String,SolrCache> NO_GENERIC_CACHES = Collections.emptyMap();
   private static final SolrCache[] NO_CACHES = new SolrCache[0];
 
+  private static final long SCORE_DOC_BYTES = RamUsageEstimator.shallowSizeOfInstance(ScoreDoc.class)
+      + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+  private static final long FIELD_DOC_BYTES = RamUsageEstimator.shallowSizeOfInstance(FieldDoc.class)
+      + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
   private final SolrCore core;
   private final IndexSchema schema;
   private final SolrDocumentFetcher docFetcher;
@@ -141,6 +148,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private Set<String> metricNames = ConcurrentHashMap.newKeySet();
   private SolrMetricsContext solrMetricsContext;
 
+  // sampled timings of uncached searches and of building their filters, set on register()
+  private SampledTimer queryTimer = SampledTimer.NO_OP;
+  private SampledTimer filterTimer = SampledTimer.NO_OP;
+
   private static DirectoryReader getReader(SolrCore core, SolrIndexConfig config, DirectoryFactory directoryFactory,
                                            String path) throws IOException {
     final Directory dir = directoryFactory.get(path, DirContext.DEFAULT, config.lockType);
@@ -1393,14 +1404,19 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       sortDocSet(qr, cmd);
     } else {
       // do it the normal way...
-      if ((flags & GET_DOCSET) != 0) {
-        // this currently conflates returning the docset for the base query vs
-        // the base query and all filters.
-        DocSet qDocSet = getDocListAndSetNC(qr, cmd);
-        // cache the docSet matching the query w/o filtering
-        if (qDocSet != null && filterCache != null && !qr.isPartialResults()) filterCache.put(cmd.getQuery(), qDocSet);
-      } else {
-        getDocListNC(qr, cmd);
+      long start = queryTimer.start();
+      try {
+        if ((flags & GET_DOCSET) != 0) {
+          // this currently conflates returning the docset for the base query vs
+          // the base query and all filters.
+          DocSet qDocSet = getDocListAndSetNC(qr, cmd);
+          // cache the docSet matching the query w/o filtering
+          if (qDocSet != null && filterCache != null && !qr.isPartialResults()) filterCache.put(cmd.getQuery(), qDocSet);
+        } else {
+          getDocListNC(qr, cmd);
+        }
+      } finally {
+        queryTimer.stop(start);
       }
       assert null != out.docList : "docList is null";
     }
@@ -1505,6 +1521,26 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
   }
 
+  /**
+   * Accounts the priority queue of a {@link TopDocsCollector} before it is built, see {@link RequestMemoryTracker}.
+   * Returns the bytes accounted, to be released once the top documents were taken from the collector.
+   */
+  private static long trackTopDocs(int len, Sort sort) {
+    return RequestMemoryTracker.track(topDocsBytes(len, sort), () -> "the queue of the top " + len + " documents");
+  }
+
+  /** Estimates the heap used by the priority queue of a {@link TopDocsCollector} */
+  private static long topDocsBytes(int len, Sort sort) {
+    if (sort == null) {
+      return len * SCORE_DOC_BYTES;
+    }
+    // the FieldDoc of each slot and the values of the slot in each comparator
+    int numFields = sort.getSort().length;
+    long perSlot = FIELD_DOC_BYTES + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+        + numFields * (RamUsageEstimator.NUM_BYTES_OBJECT_REF + Long.BYTES);
+    return len * perSlot;
+  }
+
   private void getDocListNC(QueryResult qr, QueryCommand cmd) throws IOException {
     int len = cmd.getSupersetMaxDoc();
     int last = len;
@@ -1518,7 +1554,13 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
     boolean needScores = (cmd.getFlags() & GET_SCORES) != 0;
 
-    ProcessedFilter pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList());
+    long filterStart = filterTimer.start();
+    ProcessedFilter pf;
+    try {
+      pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList());
+    } finally {
+      filterTimer.stop(filterStart);
+    }
     final Query query = QueryUtils.combineQueryAndFilter(QueryUtils.makeQueryable(cmd.getQuery()), pf.filter);
     Relation hitsRelation;
 
@@ -1575,17 +1617,24 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       qr.setNextCursorMark(cmd.getCursorMark());
       hitsRelation = Relation.EQUAL_TO;
     } else {
-      final TopDocsCollector<?> topCollector = buildTopDocsCollector(len, cmd);
+      long queueBytes = trackTopDocs(len, cmd.getSort());
       MaxScoreCollector maxScoreCollector = null;
-      Collector collector = topCollector;
-      if ((cmd.getFlags() & GET_SCORES) != 0) {
-        maxScoreCollector = new MaxScoreCollector();
-        collector = MultiCollector.wrap(topCollector, maxScoreCollector);
-      }
-      ScoreMode scoreModeUsed = buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter).scoreMode();
+      ScoreMode scoreModeUsed;
+      TopDocs topDocs;
+      try {
+        final TopDocsCollector<?> topCollector = buildTopDocsCollector(len, cmd);
+        Collector collector = topCollector;
+        if ((cmd.getFlags() & GET_SCORES) != 0) {
+          maxScoreCollector = new MaxScoreCollector();
+          collector = MultiCollector.wrap(topCollector, maxScoreCollector);
+        }
+        scoreModeUsed = buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter).scoreMode();
 
-      totalHits = topCollector.getTotalHits();
-      TopDocs topDocs = topCollector.topDocs(0, len);
+        totalHits = topCollector.getTotalHits();
+        topDocs = topCollector.topDocs(0, len);
+      } finally {
+        RequestMemoryTracker.release(queueBytes);
+      }
       if (scoreModeUsed == ScoreMode.COMPLETE || scoreModeUsed == ScoreMode.COMPLETE_NO_SCORES) {
         hitsRelation = TotalHits.Relation.EQUAL_TO;
       } else {
@@ -1629,90 +1678,102 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     boolean needScores = (cmd.getFlags() & GET_SCORES) != 0;
     int maxDoc = maxDoc();
     cmd.setMinExactCount(Integer.MAX_VALUE);// We need the full DocSet
+    long trackedBytes = RequestMemoryTracker.track(FixedBitSet.bits2words(maxDoc) * (long) Long.BYTES, () -> "the document set");
+    ProcessedFilter pf;
+    try {
+      long filterStart = filterTimer.start();
+      try {
+        pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList());
+      } finally {
+        filterTimer.stop(filterStart);
+      }
+      final Query query = QueryUtils.combineQueryAndFilter(QueryUtils.makeQueryable(cmd.getQuery()), pf.filter);
 
-    ProcessedFilter pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList());
-    final Query query = QueryUtils.combineQueryAndFilter(QueryUtils.makeQueryable(cmd.getQuery()), pf.filter);
-
-    // handle zero case...
-    if (lastDocRequested <= 0) {
-      final float[] topscore = new float[] {Float.NEGATIVE_INFINITY};
-
-      Collector collector;
-      final DocSetCollector setCollector = new DocSetCollector(maxDoc);
+      // handle zero case...
+      if (lastDocRequested <= 0) {
+        final float[] topscore = new float[] {Float.NEGATIVE_INFINITY};
 
-      if (!needScores) {
-        collector = setCollector;
-      } else {
-        final Collector topScoreCollector = new SimpleCollector() {
+        Collector collector;
+        final DocSetCollector setCollector = new DocSetCollector(maxDoc);
 
-          Scorable scorer;
-
-          @Override
-          public void setScorer(Scorable scorer) throws IOException {
-            this.scorer = scorer;
-          }
+        if (!needScores) {
+          collector = setCollector;
+        } else {
+          final Collector topScoreCollector = new SimpleCollector() {
 
-          @Override
-          public void collect(int doc) throws IOException {
-            float score = scorer.score();
-            if (score > topscore[0]) topscore[0] = score;
-          }
+            Scorable scorer;
 
-          @Override
-          public ScoreMode scoreMode() {
-            return ScoreMode.TOP_SCORES;
-          }
-        };
+            @Override
+            public void setScorer(Scorable scorer) throws IOException {
+              this.scorer = scorer;
+            }
 
-        collector = MultiCollector.wrap(setCollector, topScoreCollector);
-      }
+            @Override
+            public void collect(int doc) throws IOException {
+              float score = scorer.score();
+              if (score > topscore[0]) topscore[0] = score;
+            }
 
-      buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
+            @Override
+            public ScoreMode scoreMode() {
+              return ScoreMode.TOP_SCORES;
+            }
+          };
 
-      set = DocSetUtil.getDocSet(setCollector, this);
+          collector = MultiCollector.wrap(setCollector, topScoreCollector);
+        }
 
-      nDocsReturned = 0;
-      ids = new int[nDocsReturned];
-      scores = new float[nDocsReturned];
-      totalHits = set.size();
-      maxScore = totalHits > 0 ? topscore[0] : 0.0f;
-      // no docs on this page, so cursor doesn't change
-      qr.setNextCursorMark(cmd.getCursorMark());
-    } else {
-      final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
-      DocSetCollector setCollector = new DocSetCollector(maxDoc);
-      MaxScoreCollector maxScoreCollector = null;
-      List<Collector> collectors = new ArrayList<>(Arrays.asList(topCollector, setCollector));
+        buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
 
-      if ((cmd.getFlags() & GET_SCORES) != 0) {
-        maxScoreCollector = new MaxScoreCollector();
-        collectors.add(maxScoreCollector);
-      }
+        set = DocSetUtil.getDocSet(setCollector, this);
 
-      Collector collector = MultiCollector.wrap(collectors);
+        nDocsReturned = 0;
+        ids = new int[nDocsReturned];
+        scores = new float[nDocsReturned];
+        totalHits = set.size();
+        maxScore = totalHits > 0 ? topscore[0] : 0.0f;
+        // no docs on this page, so cursor doesn't change
+        qr.setNextCursorMark(cmd.getCursorMark());
+      } else {
+        trackedBytes += trackTopDocs(len, cmd.getSort());
+        final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
+        DocSetCollector setCollector = new DocSetCollector(maxDoc);
+        MaxScoreCollector maxScoreCollector = null;
+        List<Collector> collectors = new ArrayList<>(Arrays.asList(topCollector, setCollector));
+
+        if ((cmd.getFlags() & GET_SCORES) != 0) {
+          maxScoreCollector = new MaxScoreCollector();
+          collectors.add(maxScoreCollector);
+        }
 
-      buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
+        Collector collector = MultiCollector.wrap(collectors);
 
-      set = DocSetUtil.getDocSet(setCollector, this);
+        buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
 
-      totalHits = topCollector.getTotalHits();
-      assert (totalHits == set.size()) || qr.isPartialResults();
+        set = DocSetUtil.getDocSet(setCollector, this);
 
-      TopDocs topDocs = topCollector.topDocs(0, len);
-      if (cmd.getSort() != null && query instanceof RankQuery == false && (cmd.getFlags() & GET_SCORES) != 0) {
-        TopFieldCollector.populateScores(topDocs.scoreDocs, this, query);
-      }
-      populateNextCursorMarkFromTopDocs(qr, cmd, topDocs);
-      maxScore = totalHits > 0 ? (maxScoreCollector == null ? Float.NaN : maxScoreCollector.getMaxScore()) : 0.0f;
-      nDocsReturned = topDocs.scoreDocs.length;
+        totalHits = topCollector.getTotalHits();
+        assert (totalHits == set.size()) || qr.isPartialResults();
 
-      ids = new int[nDocsReturned];
-      scores = (cmd.getFlags() & GET_SCORES) != 0 ? new float[nDocsReturned] : null;
-      for (int i = 0; i < nDocsReturned; i++) {
-        ScoreDoc scoreDoc = topDocs.scoreDocs[i];
-        ids[i] = scoreDoc.doc;
-        if (scores != null) scores[i] = scoreDoc.score;
+        TopDocs topDocs = topCollector.topDocs(0, len);
+        if (cmd.getSort() != null && query instanceof RankQuery == false && (cmd.getFlags() & GET_SCORES) != 0) {
+          TopFieldCollector.populateScores(topDocs.scoreDocs, this, query);
+        }
+        populateNextCursorMarkFromTopDocs(qr, cmd, topDocs);
+        maxScore = totalHits > 0 ? (maxScoreCollector == null ? Float.NaN : maxScoreCollector.getMaxScore()) : 0.0f;
+        nDocsReturned = topDocs.scoreDocs.length;
+
+        ids = new int[nDocsReturned];
+        scores = (cmd.getFlags() & GET_SCORES) != 0 ? new float[nDocsReturned] : null;
+        for (int i = 0; i < nDocsReturned; i++) {
+          ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+          ids[i] = scoreDoc.doc;
+          if (scores != null) scores[i] = scoreDoc.score;
+        }
       }
+    } finally {
+      // the collectors are done with the set and the queue
+      RequestMemoryTracker.release(trackedBytes);
     }
 
     int sliceLen = Math.min(lastDocRequested, nDocsReturned);
@@ -1999,27 +2060,33 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // bit of a hack to tell if a set is sorted - do it better in the future.
     boolean inOrder = set instanceof BitDocSet || set instanceof SortedIntDocSet;
 
-    TopDocsCollector topCollector = buildTopDocsCollector(nDocs, cmd);
-
-    DocIterator iter = set.iterator();
-    int base = 0;
-    int end = 0;
-    int readerIndex = 0;
-
-    LeafCollector leafCollector = null;
-    while (iter.hasNext()) {
-      int doc = iter.nextDoc();
-      while (doc >= end) {
-        LeafReaderContext leaf = leafContexts.get(readerIndex++);
-        base = leaf.docBase;
-        end = base + leaf.reader().maxDoc();
-        leafCollector = topCollector.getLeafCollector(leaf);
-        // we should never need to set the scorer given the settings for the collector
+    long queueBytes = trackTopDocs(nDocs, cmd.getSort());
+    TopDocs topDocs;
+    try {
+      TopDocsCollector topCollector = buildTopDocsCollector(nDocs, cmd);
+
+      DocIterator iter = set.iterator();
+      int base = 0;
+      int end = 0;
+      int readerIndex = 0;
+
+      LeafCollector leafCollector = null;
+      while (iter.hasNext()) {
+        int doc = iter.nextDoc();
+        while (doc >= end) {
+          LeafReaderContext leaf = leafContexts.get(readerIndex++);
+          base = leaf.docBase;
+          end = base + leaf.reader().maxDoc();
+          leafCollector = topCollector.getLeafCollector(leaf);
+          // we should never need to set the scorer given the settings for the collector
+        }
+        leafCollector.collect(doc - base);
       }
-      leafCollector.collect(doc - base);
-    }
 
-    TopDocs topDocs = topCollector.topDocs(0, nDocs);
+      topDocs = topCollector.topDocs(0, nDocs);
+    } finally {
+      RequestMemoryTracker.release(queueBytes);
+    }
 
     int nDocsReturned = topDocs.scoreDocs.length;
     int[] ids = new int[nDocsReturned];
@@ -2262,6 +2329,13 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     parentContext.gauge(() -> reader.toString(), true, "reader", Category.SEARCHER.toString(), scope);
     parentContext.gauge(() -> reader.directory().toString(), true, "readerDir", Category.SEARCHER.toString(), scope);
     parentContext.gauge(() -> reader.getVersion(), true, "indexVersion", Category.SEARCHER.toString(), scope);
+    // sampled timings, these are not removed with the gauges so they accumulate across searchers
+    queryTimer = new SampledTimer(parentContext.timer("queryTime", Category.SEARCHER.toString(), scope),
+        SampledTimer.DEFAULT_SAMPLE_INTERVAL);
+    filterTimer = new SampledTimer(parentContext.timer("filterTime", Category.SEARCHER.toString(), scope),
+        SampledTimer.DEFAULT_SAMPLE_INTERVAL);
+    docFetcher.setFetchTimer(new SampledTimer(parentContext.timer("docFetchTime", Category.SEARCHER.toString(), scope),
+        SampledTimer.DEFAULT_SAMPLE_INTERVAL));
     // size of the currently opened commit
     parentContext.gauge(() -> {
       try {
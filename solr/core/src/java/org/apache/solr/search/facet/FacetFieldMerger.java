@@ -21,10 +21,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import org.apache.lucene.util.PriorityQueue;
 import org.apache.solr.common.util.SimpleOrderedMap;
 
 
@@ -39,6 +42,9 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
   // List<FacetBucket> sortedBuckets;
   int numReturnedBuckets; // the number of buckets in the bucket lists returned from all of the shards
 
+  @SuppressWarnings({"rawtypes"})
+  List<SimpleOrderedMap>[] shardBucketLists;  // non-null if we are streaming the merged buckets, see canStream
+
 
   public FacetFieldMerger(FacetField freq) {
     super(freq);
@@ -80,7 +86,17 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
     List<SimpleOrderedMap> bucketList = (List<SimpleOrderedMap>) facetResult.get("buckets");
     numReturnedPerShard[mcontext.shardNum] = bucketList.size();
     numReturnedBuckets += bucketList.size();
-    mergeBucketList(bucketList , mcontext);
+    if (shardBucketLists == null && buckets.isEmpty() && canStream(mcontext)) {
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      List<SimpleOrderedMap>[] lists = new List[mcontext.numShards];
+      shardBucketLists = lists;
+    }
+    if (shardBucketLists != null) {
+      // hold on to the shard's list as-is, it will be merged while the response is being written
+      shardBucketLists[mcontext.shardNum] = bucketList;
+    } else {
+      mergeBucketList(bucketList, mcontext);
+    }
 
     if (freq.numBuckets) {
       Object nb = facetResult.get("numBuckets");
@@ -97,6 +113,18 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
 
 
 
+  /**
+   * When the shards return their buckets in index order and nothing needs to be refined, the shard bucket lists
+   * can be merge-sorted lazily as the response is written, instead of building all of the merged buckets in memory.
+   * Like on a single node, this is requested by <code>method:stream</code>.
+   */
+  private boolean canStream(Context mcontext) {
+    return freq.method == FacetField.FacetMethod.STREAM
+        && freq.prelim_sort == null && "index".equals(freq.sort.sortVariable)
+        && !freq.doRefine() && !freq.processEmpty
+        && mcontext.getSubsWithRefinement(freq).isEmpty();
+  }
+
   @Override
   @SuppressWarnings({"unchecked", "rawtypes"})
   public Object getMergedResult() {
@@ -106,6 +134,17 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
       result.add("numBuckets", ((Number)numBuckets.getMergedResult()).longValue());
     }
 
+    if (shardBucketLists != null) {
+      result.add("buckets", new StreamingBucketIterator());
+      if (missingBucket != null) {
+        result.add("missing", missingBucket.getMergedBucket());
+      }
+      if (allBuckets != null) {
+        result.add("allBuckets", allBuckets.getMergedBucket());
+      }
+      return result;
+    }
+
     sortBuckets(freq.sort);
 
     long first = freq.offset;
@@ -196,6 +235,103 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
     return refinement;
   }
 
+  /** A position in one shard's bucket list */
+  private static class ShardCursor {
+    @SuppressWarnings({"rawtypes"})
+    final List<SimpleOrderedMap> buckets;
+    final int shardNum;
+    int pos;
+
+    @SuppressWarnings({"rawtypes"})
+    ShardCursor(List<SimpleOrderedMap> buckets, int shardNum) {
+      this.buckets = buckets;
+      this.shardNum = shardNum;
+    }
+
+    @SuppressWarnings({"rawtypes"})
+    Comparable val() {
+      return (Comparable) buckets.get(pos).get("val");
+    }
+  }
+
+  /**
+   * Merge-sorts the (index ordered) shard bucket lists, merging one bucket at a time and applying mincount,
+   * offset and limit as it goes.
+   */
+  @SuppressWarnings({"rawtypes"})
+  private class StreamingBucketIterator implements Iterator<SimpleOrderedMap> {
+    final int sortMul = freq.sort.sortDirection == FacetRequest.SortDirection.desc ? -1 : 1;
+    final PriorityQueue<ShardCursor> queue;
+    long toSkip = freq.offset;
+    long remaining = freq.limit >= 0 ? freq.limit : Long.MAX_VALUE;
+    SimpleOrderedMap next;
+
+    StreamingBucketIterator() {
+      queue = new PriorityQueue<>(shardBucketLists.length) {
+        @Override
+        @SuppressWarnings({"unchecked"})
+        protected boolean lessThan(ShardCursor a, ShardCursor b) {
+          int cmp = a.val().compareTo(b.val()) * sortMul;
+          return cmp == 0 ? a.shardNum < b.shardNum : cmp < 0;
+        }
+      };
+      for (int shard = 0; shard < shardBucketLists.length; shard++) {
+        if (shardBucketLists[shard] != null && !shardBucketLists[shard].isEmpty()) {
+          queue.add(new ShardCursor(shardBucketLists[shard], shard));
+        }
+      }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private SimpleOrderedMap mergeNext() {
+      while (remaining > 0 && queue.size() > 0) {
+        Comparable val = queue.top().val();
+        // a small private context per bucket, so we don't track shard flags for every bucket we stream
+        Context bucketContext = new Context(shardBucketLists.length);
+        FacetBucket bucket = newBucket(val, bucketContext);
+        while (queue.size() > 0 && val.compareTo(queue.top().val()) == 0) {
+          ShardCursor cursor = queue.top();
+          bucketContext.shardNum = cursor.shardNum;
+          bucket.mergeBucket(cursor.buckets.get(cursor.pos), bucketContext);
+          if (++cursor.pos < cursor.buckets.size()) {
+            queue.updateTop();
+          } else {
+            queue.pop();
+          }
+        }
+
+        if (bucket.getCount() < freq.mincount) {
+          continue;
+        }
+        if (toSkip > 0) {
+          --toSkip;
+          continue;
+        }
+        --remaining;
+        return bucket.getMergedBucket();
+      }
+      return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = mergeNext();
+      }
+      return next != null;
+    }
+
+    @Override
+    public SimpleOrderedMap next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      SimpleOrderedMap result = next;
+      next = null;
+      return result;
+    }
+  }
+
   private static class FacetNumBucketsMerger extends FacetMerger {
     long sumBuckets;
     long shardsMissingSum;
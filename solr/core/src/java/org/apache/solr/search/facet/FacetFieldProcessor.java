@@ -34,6 +34,7 @@ import java.util.function.IntFunction;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.schema.FieldType;
@@ -112,6 +113,9 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
     if (accMap == null) {
       accMap = new LinkedHashMap<>();
     }
+    if (slotCount > 1) {
+      trackSlots(slotCount);
+    }
 
     // allow a custom count acc to be used
     if (countAcc == null) {
@@ -171,6 +175,7 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
   
   void createCollectAcc(int numDocs, int numSlots) throws IOException {
     accMap = new LinkedHashMap<>();
+    trackSlots(numSlots);
     
     // start with the assumption that we're going to defer the computation of all stats
     deferredAggs.putAll(freq.getFacetStats());
@@ -319,8 +324,9 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
 
     final int sortMul = sort.sortDirection.getMultiplier();
 
-    int maxTopVals = (int) (effectiveLimit >= 0 ? Math.min(freq.offset + effectiveLimit, Integer.MAX_VALUE - 1) : Integer.MAX_VALUE - 1);
-    maxTopVals = Math.min(maxTopVals, slotCardinality);
+    final int maxTopVals = Math.min(slotCardinality,
+        (int) (effectiveLimit >= 0 ? Math.min(freq.offset + effectiveLimit, Integer.MAX_VALUE - 1) : Integer.MAX_VALUE - 1));
+    trackMemory(maxTopVals * SLOT_BYTES, () -> "the queue of the top " + maxTopVals + " buckets of a facet");
     final SlotAcc sortAcc = this.sortAcc, indexOrderAcc = this.indexOrderAcc;
     final BiPredicate<Slot,Slot> orderPredicate;
     if (indexOrderAcc != null && indexOrderAcc != sortAcc) {
@@ -488,6 +494,9 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
     acc.setValues(target, 0);
   }
 
+  private static final long SLOT_BYTES = RamUsageEstimator.shallowSizeOfInstance(Slot.class)
+      + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
   private static class Slot {
     /** The Slot number used during collection */
     int slot;
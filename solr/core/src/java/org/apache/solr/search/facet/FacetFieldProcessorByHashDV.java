@@ -18,6 +18,7 @@ package org.apache.solr.search.facet;
 
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.function.IntFunction;
 
 import org.apache.lucene.index.DocValues;
@@ -51,26 +52,31 @@ import org.apache.solr.search.facet.SlotAcc.SlotContext;
 class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
   static int MAXIMUM_STARTING_TABLE_SIZE=1024;  // must be a power of two, non-final to support setting by tests
 
-  /** a hash table with long keys (what we're counting) and integer values (counts) */
+  /**
+   * A hash table with long keys (what we're counting) and counts.  Each distinct key is assigned the next dense
+   * slot number, in the order first seen, so slot numbers don't change when the hash table is grown and accumulators
+   * only need as many slots as there are distinct values.
+   */
   private static class LongCounts {
 
     static final float LOAD_FACTOR = 0.7f;
 
-    long[] vals;
-    long[] counts;  // maintain the counts here since we need them to tell if there was actually a value anyway
-    long[] oldToNewMapping;
+    int[] index;  // open addressing hash table of slot+1, 0 meaning empty
+    long[] vals;  // by slot
+    long[] counts;  // by slot
 
     int cardinality;
     int threshold;
 
     /** sz must be a power of two */
     LongCounts(int sz) {
-      vals = new long[sz];
-      counts = new long[sz];
+      index = new int[sz];
       threshold = (int) (sz * LOAD_FACTOR);
+      vals = new long[threshold];
+      counts = new long[threshold];
     }
 
-    /** Current number of slots in the hash table */
+    /** Current number of slots that may be used before the table is grown */
     int numSlots() {
       return vals.length;
     }
@@ -94,49 +100,38 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
       }
 
       int h = hash(val);
-      for (int slot = h & (vals.length-1);  ;slot = (slot + ((h>>7)|1)) & (vals.length-1)) {
-        long count = counts[slot];
-        if (count == 0) {
+      for (int pos = h & (index.length-1);  ;pos = (pos + ((h>>7)|1)) & (index.length-1)) {
+        int slot = index[pos] - 1;
+        if (slot < 0) {
+          slot = cardinality++;
+          index[pos] = slot + 1;
           counts[slot] = 1;
           vals[slot] = val;
-          cardinality++;
           return slot;
         } else if (vals[slot] == val) {
           // val is already in the set
-          counts[slot] = count + 1;
+          counts[slot]++;
           return slot;
         }
       }
     }
 
     protected void rehash() {
-      long[] oldVals = vals;
-      long[] oldCounts = counts;  // after retrieving the count, this array is reused as a mapping to new array
-      int newCapacity = vals.length << 1;
-      vals = new long[newCapacity];
-      counts = new long[newCapacity];
+      int newCapacity = index.length << 1;
+      index = new int[newCapacity];
       threshold = (int) (newCapacity * LOAD_FACTOR);
-
-      for (int i=0; i<oldVals.length; i++) {
-        long count = oldCounts[i];
-        if (count == 0) {
-          oldCounts[i] = -1;
-          continue;
+      vals = Arrays.copyOf(vals, threshold);
+      counts = Arrays.copyOf(counts, threshold);
+
+      // slots stay where they are, only the hash table needs to be rebuilt
+      for (int slot=0; slot<cardinality; slot++) {
+        int h = hash(vals[slot]);
+        int pos = h & (index.length-1);
+        while (index[pos] != 0) {
+          pos = (pos + ((h>>7)|1)) & (index.length-1);
         }
-
-        long val = oldVals[i];
-
-        int h = hash(val);
-        int slot = h & (vals.length-1);
-        while (counts[slot] != 0) {
-          slot = (slot + ((h>>7)|1)) & (vals.length-1);
-        }
-        counts[slot] = count;
-        vals[slot] = val;
-        oldCounts[i] = slot;
+        index[pos] = slot + 1;
       }
-
-      oldToNewMapping = oldCounts;
     }
 
     int cardinality() {
@@ -239,9 +234,9 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
     table = new LongCounts(currHashSize) {
       @Override
       protected void rehash() {
+        int oldNumSlots = numSlots();
         super.rehash();
-        doRehash(this);
-        oldToNewMapping = null; // allow for gc
+        doRehash(this, oldNumSlots);
       }
     };
 
@@ -251,7 +246,8 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
 
     collectDocs();
 
-    return super.findTopSlots(table.numSlots(), table.cardinality(),
+    // only the first cardinality() slots are in use
+    return super.findTopSlots(table.cardinality(), table.cardinality(),
         slotNum -> calc.bitsToValue(table.vals[slotNum]), // getBucketValFromSlotNum
         val -> calc.formatValue(val)); // getFieldQueryVal
   }
@@ -446,11 +442,12 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
     return new SlotContext(sf.getType().getFieldQuery(null, sf, calc.formatValue(value)));
   };
 
-  private void doRehash(LongCounts table) {
+  private void doRehash(LongCounts table, int oldNumSlots) {
     if (collectAcc == null && allBucketsAcc == null) return;
 
     // Our "count" acc is backed by the hash table and will already be rehashed
     // otherAccs don't need to be rehashed
+    // Slot numbers are unchanged by a rehash, so the accs just grow (and allBuckets moves to the new end)
 
     int newTableSize = table.numSlots();
     int numSlots = newTableSize;
@@ -460,7 +457,6 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
     }
 
     final int finalNumSlots = numSlots;
-    final long[] mapping = table.oldToNewMapping;
 
     SlotAcc.Resizer resizer = new SlotAcc.Resizer() {
       @Override
@@ -470,8 +466,8 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
 
       @Override
       public int getNewSlot(int oldSlot) {
-        if (oldSlot < mapping.length) {
-          return (int) mapping[oldSlot];
+        if (oldSlot < oldNumSlots) {
+          return oldSlot;
         }
         if (oldSlot == oldAllBucketsSlot) {
           return allBucketsSlot;
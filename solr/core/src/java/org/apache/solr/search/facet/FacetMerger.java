@@ -92,6 +92,23 @@ public abstract class FacetMerger {
       return oldVal;
     }
 
+    // statistics on bucket refinement, used for debugging
+    boolean adaptiveRefine;  // some facet requested adaptiveRefine
+    long numRefinedBuckets;  // buckets (over all shards) included in refinement requests
+    long numPrunedBuckets;   // buckets (over all shards) not refined because they could not make the top buckets
+
+    public boolean isAdaptiveRefine() {
+      return adaptiveRefine;
+    }
+
+    public long getNumRefinedBuckets() {
+      return numRefinedBuckets;
+    }
+
+    public long getNumPrunedBuckets() {
+      return numPrunedBuckets;
+    }
+
     private Map<FacetRequest, Collection<String>> refineSubMap = new IdentityHashMap<>(4);
     public Collection<String> getSubsWithRefinement(FacetRequest freq) {
       if (freq.getSubFacets().isEmpty()) return Collections.emptyList();
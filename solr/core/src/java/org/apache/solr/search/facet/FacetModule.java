@@ -251,6 +251,14 @@ public class FacetModule extends SearchComponent {
       }
     }
 
+    if (rb.isDebug() && facetState.mcontext.isAdaptiveRefine()) {
+      // prunedBuckets are the refinement requests adaptiveRefine saved us
+      SimpleOrderedMap<Object> refineInfo = new SimpleOrderedMap<>();
+      refineInfo.add("refinedBuckets", facetState.mcontext.getNumRefinedBuckets());
+      refineInfo.add("prunedBuckets", facetState.mcontext.getNumPrunedBuckets());
+      rb.addDebug(refineInfo, "facet-refinement");
+    }
+
     // clearFaceting(rb.outgoing);
     return ResponseBuilder.STAGE_DONE;
   }
@@ -535,6 +535,7 @@ abstract class FacetParser<FacetRequestT extends FacetRequest> {
         facet.limit = getLong(m, "limit", facet.limit);
         facet.overrequest = (int) getLong(m, "overrequest", facet.overrequest);
         facet.overrefine = (int) getLong(m, "overrefine", facet.overrefine);
+        facet.adaptiveRefine = getBoolean(m, "adaptiveRefine", facet.adaptiveRefine);
         if (facet.limit == 0) facet.offset = 0;  // normalize.  an offset with a limit of non-zero isn't useful.
         facet.mincount = getLong(m, "mincount", facet.mincount);
         facet.missing = getBoolean(m, "missing", facet.missing);
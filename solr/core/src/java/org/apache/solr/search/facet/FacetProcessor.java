@@ -24,13 +24,22 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.request.SolrQueryRequest;
@@ -40,6 +49,8 @@ import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.QParser;
+import org.apache.solr.search.QueryContext;
+import org.apache.solr.search.RequestMemoryTracker;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.facet.SlotAcc.SlotContext;
@@ -54,6 +65,7 @@ public abstract class FacetProcessor<FacetRequestT extends FacetRequest>  {
   LinkedHashMap<String,SlotAcc> accMap;
   SlotAcc[] accs;
   SlotAcc.CountSlotAcc countAcc;
+  long trackedBytes;  // accounted to the request by trackMemory until released
 
   FacetProcessor(FacetContext fcontext, FacetRequestT freq) {
     this.fcontext = fcontext;
@@ -326,6 +338,31 @@ public abstract class FacetProcessor<FacetRequestT extends FacetRequest>  {
     }
   }
 
+  /** Accounts the memory of structures of this facet, see {@link RequestMemoryTracker} */
+  void trackMemory(long bytes, Supplier<String> what) {
+    if (fcontext.req != null) {
+      RequestMemoryTracker.forRequest(fcontext.req).updateBytes(bytes, what);
+      trackedBytes += bytes;
+    }
+  }
+
+  /**
+   * Releases the memory accounted by {@link #trackMemory} once this facet was processed, so that the sub-facets of
+   * each bucket only account for the structures they use at the same time.
+   */
+  void releaseMemory() {
+    if (trackedBytes != 0) {
+      RequestMemoryTracker.forRequest(fcontext.req).updateBytes(-trackedBytes);
+      trackedBytes = 0;
+    }
+  }
+
+  /** Accounts the memory of the count and of the stats of each slot */
+  void trackSlots(int numSlots) {
+    long perSlot = Integer.BYTES + (long) freq.getFacetStats().size() * Long.BYTES;
+    trackMemory(numSlots * perSlot, () -> "the " + numSlots + " slots of a facet");
+  }
+
   // note: only called by enum/stream prior to collect
   void resetStats() throws IOException {
     countAcc.reset();
@@ -445,6 +482,24 @@ public abstract class FacetProcessor<FacetRequestT extends FacetRequest>  {
 
     boolean emptyDomain = domain == null || domain.size() == 0;
 
+    // Sibling facets at the top level can be computed concurrently, see FacetParams.FACET_THREADS.
+    // Passing a negative number implies an unlimited number of threads is acceptable.
+    int maxThreads = 0;
+    if (fcontext.parent == null && freq.getSubFacets().size() > 1 && fcontext.req != null) {
+      maxThreads = fcontext.req.getParams().getInt(FacetParams.FACET_THREADS, 0);
+    }
+    List<String> futureKeys = null;
+    List<Future<Object>> futures = null;
+    Semaphore semaphore = null;
+    if (maxThreads != 0) {
+      futureKeys = new ArrayList<>(freq.getSubFacets().size());
+      futures = new ArrayList<>(freq.getSubFacets().size());
+      semaphore = new Semaphore(maxThreads < 0 ? Integer.MAX_VALUE : maxThreads);
+      if (fcontext.getDebugInfo() != null) {
+        fcontext.getDebugInfo().putInfoItem("maxThreads", maxThreads);
+      }
+    }
+
     for (Map.Entry<String,FacetRequest> sub : freq.getSubFacets().entrySet()) {
       FacetRequest subRequest = sub.getValue();
 
@@ -475,10 +530,74 @@ public abstract class FacetProcessor<FacetRequestT extends FacetRequest>  {
         fcontext.getDebugInfo().addChild(fdebug);
       }
 
+      if (futures != null) {
+        // the domain is shared read-only, but each sibling needs its own QueryContext since that isn't thread safe
+        subContext.qcontext = QueryContext.newContext(fcontext.searcher);
+        futureKeys.add(sub.getKey());
+        futures.add(submitSub(subRequest, subContext, semaphore));
+        continue;
+      }
+
       Object result = subRequest.process(subContext);
 
       response.add( sub.getKey(), result);
     }
+
+    if (futures != null) {
+      // add the results in the same order they would have been computed sequentially
+      for (int i = 0; i < futures.size(); i++) {
+        response.add(futureKeys.get(i), getSubResult(futureKeys.get(i), futures.get(i)));
+      }
+    }
+  }
+
+  private Future<Object> submitSub(FacetRequest subRequest, FacetContext subContext, Semaphore semaphore) {
+    // excluded tags, close hooks and date math need the request info on the executor thread
+    final SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
+    if (requestInfo != null) {
+      requestInfo.getNOW(); // so that the siblings don't race to set it
+    }
+    Callable<Object> callable = () -> {
+      try {
+        if (requestInfo == null) {
+          return subRequest.process(subContext);
+        }
+        return requestInfo.call(() -> subRequest.process(subContext));
+      } finally {
+        semaphore.release();
+      }
+    };
+    RunnableFuture<Object> runnableFuture = new FutureTask<>(callable);
+    try {
+      semaphore.acquire();//may block and/or interrupt
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+          "Error while processing facets: InterruptedException", e);
+    }
+    Executor executor = fcontext.req.getCore().getCoreContainer().getUpdateShardHandler().getUpdateExecutor();
+    executor.execute(runnableFuture);//releases semaphore when done
+    return runnableFuture;
+  }
+
+  private Object getSubResult(String key, Future<Object> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+          "Error while processing facet " + key + ": InterruptedException", e);
+    } catch (ExecutionException ee) {
+      Throwable e = ee.getCause();//unwrap
+      if (e instanceof RuntimeException) {
+        throw (RuntimeException) e;
+      }
+      if (e instanceof IOException) {
+        throw (IOException) e;
+      }
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+          "Error while processing facet " + key + ": " + e.toString(), e);
+    }
   }
 
   @SuppressWarnings("unused")
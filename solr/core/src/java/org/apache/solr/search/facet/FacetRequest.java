@@ -406,21 +406,25 @@ public abstract class FacetRequest {
     FacetProcessor facetProcessor = createFacetProcessor(fcontext);
 
     FacetDebugInfo debugInfo = fcontext.getDebugInfo();
-    if (debugInfo == null) {
-      facetProcessor.process();
-    } else {
-      if (fcontext.filter != null) {
-        debugInfo.setFilter(fcontext.filter.toString());
-      }
-      debugInfo.setReqDescription(getFacetDescription());
-      debugInfo.setProcessor(facetProcessor.getClass().getSimpleName());
-      debugInfo.putInfoItem("domainSize", (long) fcontext.base.size());
-      RTimer timer = new RTimer();
-      try {
+    try {
+      if (debugInfo == null) {
         facetProcessor.process();
-      }finally {
-        debugInfo.setElapse((long) timer.getTime());
+      } else {
+        if (fcontext.filter != null) {
+          debugInfo.setFilter(fcontext.filter.toString());
+        }
+        debugInfo.setReqDescription(getFacetDescription());
+        debugInfo.setProcessor(facetProcessor.getClass().getSimpleName());
+        debugInfo.putInfoItem("domainSize", (long) fcontext.base.size());
+        RTimer timer = new RTimer();
+        try {
+          facetProcessor.process();
+        }finally {
+          debugInfo.setElapse((long) timer.getTime());
+        }
       }
+    } finally {
+      facetProcessor.releaseMemory();
     }
 
     return facetProcessor.getResponse(); 
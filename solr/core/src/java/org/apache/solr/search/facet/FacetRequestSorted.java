@@ -31,6 +31,14 @@ abstract class FacetRequestSorted extends FacetRequest {
    * -1 means default heuristic.
    */
   int overrefine = -1;
+  /**
+   * If true (and no explicit <code>overrefine</code> was specified) the buckets the default heuristic would refine
+   * are pruned using first phase shard statistics: buckets whose best possible count (given the smallest count each
+   * shard returned) can't reach the top buckets or <code>mincount</code> are never refined. It never refines more
+   * buckets than the heuristic, and fewer when the heuristic overrefines, i.e. with <code>mincount</code> &gt; 1.
+   * Only applies when the initial sort is <code>count desc</code>.
+   */
+  boolean adaptiveRefine;
   long mincount;
   /**
    * The basic sorting to do on buckets, defaults to {@link FacetRequest.FacetSort#COUNT_DESC}
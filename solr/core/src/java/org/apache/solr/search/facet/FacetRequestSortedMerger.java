@@ -35,6 +35,7 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
   LinkedHashMap<Object,FacetBucket> buckets = new LinkedHashMap<>();
   List<FacetBucket> sortedBuckets;
   BitSet shardHasMoreBuckets;  // null, or "true" if we saw a result from this shard and it indicated that there are more results
+  long[] shardMinCounts;  // null, or (for adaptiveRefine) the smallest bucket count first returned by each shard, -1 if we never heard from it
   Context mcontext;  // HACK: this should be passed in getMergedResult as well!
 
   public FacetRequestSortedMerger(FacetRequestT freq) {
@@ -54,6 +55,46 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       }
       shardHasMoreBuckets.set(mcontext.shardNum);
     }
+    if (freq.adaptiveRefine) {
+      recordShardMinCount(res, mcontext);
+    }
+  }
+
+  @SuppressWarnings({"rawtypes"})
+  private void recordShardMinCount(SimpleOrderedMap res, Context mcontext) {
+    if (shardMinCounts == null) {
+      shardMinCounts = new long[mcontext.numShards];
+      Arrays.fill(shardMinCounts, -1);
+    }
+    if (shardMinCounts[mcontext.shardNum] >= 0) return;  // only the first phase response bounds the unseen buckets
+    List bucketList = (List) res.get("buckets");
+    if (bucketList == null) return;
+    long minCount = 0;
+    if (!bucketList.isEmpty()) {
+      // buckets come back in the initial sort order, so the last one has the smallest count when sorting by count desc
+      Object count = ((SimpleOrderedMap) bucketList.get(bucketList.size() - 1)).get("count");
+      if (!(count instanceof Number)) return;
+      minCount = ((Number) count).longValue();
+    }
+    shardMinCounts[mcontext.shardNum] = minCount;
+  }
+
+  /**
+   * Returns an upper bound on the count the bucket can have once fully refined, assuming each shard that didn't
+   * return the bucket has at most the smallest count that shard returned.
+   * Returns {@link Long#MAX_VALUE} if the bound is unknown.
+   */
+  private long maxPossibleCount(FacetBucket bucket, Context mcontext) {
+    if (shardMinCounts == null) return Long.MAX_VALUE;
+    long max = bucket.getCount();
+    for (int shard = 0; shard < mcontext.numShards; shard++) {
+      if (mcontext.getShardFlag(bucket.bucketNumber, shard)) continue;
+      if (shardMinCounts[shard] < 0) return Long.MAX_VALUE; // never heard from this shard
+      if (shardHasMoreBuckets != null && shardHasMoreBuckets.get(shard)) {
+        max += shardMinCounts[shard];
+      }
+    }
+    return max;
   }
 
   private static class SortVal implements Comparable<SortVal> {
@@ -208,6 +249,13 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       return null;
     }
 
+    // with adaptive refinement, the buckets the heuristic would check that can't make the top are pruned below
+    if (freq.adaptiveRefine) {
+      mcontext.adaptiveRefine = true;
+    }
+    final boolean boundedRefine = freq.adaptiveRefine && -1 == freq.overrefine && freq.limit >= 0 && !thisMissing
+        && "count".equals(initial_sort.sortVariable) && FacetRequest.SortDirection.desc == initial_sort.sortDirection;
+
     long numBucketsToCheck = Integer.MAX_VALUE; // use max-int instead of max-long to avoid overflow
     if (freq.limit >= 0) {
       numBucketsToCheck = freq.offset + freq.limit; // effective limit
@@ -245,7 +293,20 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
     numBucketsToCheck = Math.min(buckets.size(), numBucketsToCheck);
 
     Collection<FacetBucket> bucketList;
-    if (buckets.size() < numBucketsToCheck) {
+    long minTopCount = 0; // the smallest count a bucket must be able to reach to be in the top buckets
+    if (boundedRefine) {
+      // pruning needs the buckets in order, even if there are fewer than numBucketsToCheck
+      if (sortedBuckets == null) {
+        sortBuckets(initial_sort);
+      }
+      bucketList = sortedBuckets;
+      long numTop = freq.offset + freq.limit;
+      if (numTop > 0 && sortedBuckets.size() >= numTop) {
+        // counts can only go up with refinement, so whatever the last top bucket has so far is a lower bound
+        minTopCount = sortedBuckets.get((int) numTop - 1).getCount();
+      }
+      minTopCount = Math.max(minTopCount, freq.mincount);
+    } else if (buckets.size() < numBucketsToCheck) {
       // no need to sort (yet)
       // todo: but we may need to filter.... simplify by always sorting?
       bucketList = buckets.values();
@@ -263,6 +324,11 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
 
     for (FacetBucket bucket : bucketList) {
       if (numBucketsToCheck-- <= 0) break;
+      if (boundedRefine && maxPossibleCount(bucket, mcontext) < minTopCount) {
+        // even if every shard that didn't return this bucket had it, it couldn't make the top buckets
+        mcontext.numPrunedBuckets++;
+        continue;
+      }
       // if this bucket is missing,
       assert thisMissing == false || thisMissing == true && mcontext.getShardFlag(bucket.bucketNumber) == false;
       boolean saw = !thisMissing && mcontext.getShardFlag(bucket.bucketNumber);
@@ -307,6 +373,9 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       if (leafBuckets != null) refinement.put("_l",leafBuckets);
       if (partialBuckets != null) refinement.put("_p", partialBuckets);
       if (skipBuckets != null) refinement.put("_s", skipBuckets);
+      mcontext.numRefinedBuckets += (leafBuckets == null ? 0 : leafBuckets.size())
+          + (partialBuckets == null ? 0 : partialBuckets.size())
+          + (skipBuckets == null ? 0 : skipBuckets.size());
     }
 
     refinement = getRefinementSpecial(mcontext, refinement, tagsWithPartial);
@@ -47,6 +47,12 @@ public class HLLAgg extends StrAggValueSource {
       return new HLL(log2m, regwidth, -1 /* auto explict threshold */,
           false /* no sparse representation */, HLLType.EMPTY);
     }
+
+    /** Like {@link #getHLL} but only uses memory for the registers set, for when there is one per bucket */
+    public HLL getSparseHLL() {
+      return new HLL(log2m, regwidth, -1 /* auto explict threshold */,
+          true /* sparse representation */, HLLType.EMPTY);
+    }
   }
 
   @Override
@@ -123,10 +129,13 @@ public class HLLAgg extends StrAggValueSource {
 
   abstract class BaseNumericAcc extends DocValuesAcc {
     HLL[] sets;
+    // with many slots (high cardinality facets) most HLLs only see a few values, so don't allocate full register sets
+    final boolean sparse;
 
     public BaseNumericAcc(FacetContext fcontext, String field, int numSlots) throws IOException {
       super(fcontext, fcontext.qcontext.searcher().getSchema().getField(field));
       sets = new HLL[numSlots];
+      sparse = numSlots > 1;
     }
 
     @Override
@@ -143,7 +152,7 @@ public class HLLAgg extends StrAggValueSource {
     protected void collectValues(int doc, int slot) throws IOException {
       HLL hll = sets[slot];
       if (hll == null) {
-        hll = sets[slot] = factory.getHLL();
+        hll = sets[slot] = sparse ? factory.getSparseHLL() : factory.getHLL();
       }
       collectValues(doc, hll);
     }
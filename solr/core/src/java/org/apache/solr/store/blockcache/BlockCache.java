@@ -19,6 +19,7 @@ package org.apache.solr.store.blockcache;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.github.benmanes.caffeine.cache.Cache;
@@ -27,6 +28,11 @@ import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.RemovalListener;
 
 /**
+ * Caches blocks of index files in slabs of memory. Which blocks are kept is decided by the Caffeine map of their
+ * locations, which evicts by frequency and recency (W-TinyLFU). Once the cache is full, a block is moreover only
+ * admitted if it was missed before recently, according to a {@link FrequencySketch}, so that blocks read once by a
+ * scan neither take slots nor push out blocks that are read again and again.
+ *
  * @lucene.experimental
  */
 public class BlockCache {
@@ -37,6 +43,10 @@ public class BlockCache {
   private final ByteBuffer[] banks;
   private final BlockLocks[] locks;
   private final AtomicInteger[] lockCounters;
+  // where the search for a free block of each bank starts, right after the block allocated last
+  private final AtomicInteger[] lockHints;
+  // package-private for tests
+  final FrequencySketch admission;
   private final int blockSize;
   private final int numberOfBlocksPerBank;
   private final int maxEntries;
@@ -58,6 +68,14 @@ public class BlockCache {
   
   public BlockCache(Metrics metrics, boolean directAllocation,
       long totalMemory, int slabSize, int blockSize) {
+    this(metrics, directAllocation, totalMemory, slabSize, blockSize, true);
+  }
+
+  /**
+   * @param admission whether a block is only admitted to a full cache if it was missed before recently
+   */
+  public BlockCache(Metrics metrics, boolean directAllocation,
+      long totalMemory, int slabSize, int blockSize, boolean admission) {
     this.metrics = metrics;
     numberOfBlocksPerBank = slabSize / blockSize;
     int numberOfBanks = (int) (totalMemory / slabSize);
@@ -65,6 +83,7 @@ public class BlockCache {
     banks = new ByteBuffer[numberOfBanks];
     locks = new BlockLocks[numberOfBanks];
     lockCounters = new AtomicInteger[numberOfBanks];
+    lockHints = new AtomicInteger[numberOfBanks];
     maxEntries = (numberOfBlocksPerBank * numberOfBanks) - 1;
     for (int i = 0; i < numberOfBanks; i++) {
       if (directAllocation) {
@@ -74,7 +93,9 @@ public class BlockCache {
       }
       locks[i] = new BlockLocks(numberOfBlocksPerBank);
       lockCounters[i] = new AtomicInteger();
+      lockHints[i] = new AtomicInteger();
     }
+    this.admission = admission ? new FrequencySketch(maxEntries) : null;
 
     RemovalListener<BlockCacheKey,BlockCacheLocation> listener = (blockCacheKey, blockCacheLocation, removalCause) -> releaseLocation(blockCacheKey, blockCacheLocation, removalCause);
 
@@ -106,6 +127,9 @@ public class BlockCache {
     }
     if (removalCause.wasEvicted()) {
       metrics.blockCacheEviction.incrementAndGet();
+      if (location.getFileType() != null) {
+        metrics.getFileTypeMetrics(location.getFileType()).evictions.incrementAndGet();
+      }
     }
     metrics.blockCacheSize.decrementAndGet();
   }
@@ -124,6 +148,17 @@ public class BlockCache {
    */
   public boolean store(BlockCacheKey blockCacheKey, int blockOffset,
       byte[] data, int offset, int length) {
+    return store(blockCacheKey, null, blockOffset, data, offset, length);
+  }
+
+  /**
+   * Like {@link #store(BlockCacheKey, int, byte[], int, int)}, counting evictions of the block for the given type
+   * of file.
+   *
+   * @param fileType the type of the file the block is of, see {@link Metrics#getFileTypeMetrics(String)}, or null
+   */
+  public boolean store(BlockCacheKey blockCacheKey, String fileType, int blockOffset,
+      byte[] data, int offset, int length) {
     if (length + blockOffset > blockSize) {
       throw new RuntimeException("Buffer size exceeded, expecting max ["
           + blockSize + "] got length [" + length + "] with blockOffset ["
@@ -131,7 +166,12 @@ public class BlockCache {
     }
     BlockCacheLocation location = cache.getIfPresent(blockCacheKey);
     if (location == null) {
+      if (!admit(blockCacheKey)) {
+        metrics.blockCacheAdmissionReject.incrementAndGet();
+        return false;
+      }
       location = new BlockCacheLocation();
+      location.setFileType(fileType);
       if (!findEmptyLocation(location)) {
         // YCS: it looks like when the cache is full (a normal scenario), then two concurrent writes will result in one of them failing
         // because no eviction is done first.  The code seems to rely on leaving just a single block empty.
@@ -201,43 +241,62 @@ public class BlockCache {
     return fetch(blockCacheKey, buffer, 0, 0, blockSize);
   }
   
+  /**
+   * Counts a miss of the given block, and returns whether it may take a slot: always while the cache is not full,
+   * and afterwards only if it was missed before since the sketch was last aged.
+   */
+  private boolean admit(BlockCacheKey blockCacheKey) {
+    if (admission == null) {
+      return true;
+    }
+    int frequency = admission.increment(blockCacheKey.hashCode());
+    return frequency > 1 || cache.estimatedSize() < maxEntries;
+  }
+
   private boolean findEmptyLocation(BlockCacheLocation location) {
+    // Threads start at different banks, and in each bank right after the block allocated last rather than at the
+    // first block, so that they neither compete for the same blocks nor scan the allocated ones over and over.
+    int firstBank = banks.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(banks.length);
     // This is a tight loop that will try and find a location to
     // place the block before giving up
     for (int j = 0; j < 10; j++) {
-      OUTER: for (int bankId = 0; bankId < banks.length; bankId++) {
+      for (int i = 0; i < banks.length; i++) {
+        int bankId = (firstBank + i) % banks.length;
         AtomicInteger bitSetCounter = lockCounters[bankId];
         BlockLocks bitSet = locks[bankId];
         if (bitSetCounter.get() == numberOfBlocksPerBank) {
           // if bitset is full
-          continue OUTER;
+          continue;
         }
         // this check needs to spin, if a lock was attempted but not obtained
         // the rest of the bank should not be skipped
-        int bit = bitSet.nextClearBit(0);
-        INNER: while (bit != -1) {
-          if (bit >= numberOfBlocksPerBank) {
-            // bit set is full
-            continue OUTER;
-          }
-          if (!bitSet.set(bit)) {
-            // lock was not obtained
-            // this restarts at 0 because another block could have been unlocked
-            // while this was executing
-            bit = bitSet.nextClearBit(0);
-            continue INNER;
-          } else {
+        int bit = nextClearBit(bitSet, lockHints[bankId].get());
+        while (bit != -1) {
+          if (bitSet.set(bit)) {
             // lock obtained
             location.setBankId(bankId);
             location.setBlock(bit);
             bitSetCounter.incrementAndGet();
+            lockHints[bankId].set(bit + 1);
             return true;
           }
+          // lock was not obtained, another thread took the block; blocks before it could have been
+          // unlocked while this was executing, so the search wraps around
+          bit = nextClearBit(bitSet, bit + 1);
         }
       }
     }
     return false;
   }
+
+  /** Returns the first clear bit at or after the given one, wrapping around to the start of the bank, or -1. */
+  private int nextClearBit(BlockLocks bitSet, int from) {
+    int bit = from < numberOfBlocksPerBank ? bitSet.nextClearBit(from) : -1;
+    if (bit == -1 || bit >= numberOfBlocksPerBank) {
+      bit = bitSet.nextClearBit(0);
+    }
+    return bit >= numberOfBlocksPerBank ? -1 : bit;
+  }
   
   private void checkLength(byte[] buffer) {
     if (buffer.length != blockSize) {
@@ -30,6 +30,7 @@ public class BlockCacheLocation {
   private long lastAccess;
   private long accesses = -1;
   private AtomicBoolean removed = new AtomicBoolean(false);
+  private String fileType;
 
   public BlockCacheLocation() {
     touch();
@@ -67,6 +68,15 @@ public class BlockCacheLocation {
     return accesses;
   }
   
+  /** The type of the file the block is of, for the metrics, or null if unknown */
+  public String getFileType() {
+    return fileType;
+  }
+
+  public void setFileType(String fileType) {
+    this.fileType = fileType;
+  }
+
   public boolean isRemoved() {
     return removed.get();
   }
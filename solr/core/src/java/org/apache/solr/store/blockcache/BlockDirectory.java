@@ -131,7 +131,13 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
     final IndexInput source = super.openInput(name, context);
     if (useReadCache(name, context)) {
       return new CachedIndexInput(source, blockSize, name,
-          getFileCacheName(name), cache, bufferSize);
+          getFileCacheName(name), cache, bufferSize, true);
+    }
+    if (useCachedBlocks(name)) {
+      // e.g. a merge: it benefits from the blocks that are cached, but the blocks it reads once must not push
+      // out the blocks that searches read again and again
+      return new CachedIndexInput(source, blockSize, name,
+          getFileCacheName(name), cache, bufferSize, false);
     }
     return source;
   }
@@ -158,10 +164,21 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
     private final long fileLength;
     private final String cacheName;
     private final Cache cache;
+    private final boolean cacheBlocks;
     
     public CachedIndexInput(IndexInput source, int blockSize, String name,
         String cacheName, Cache cache, int bufferSize) {
+      this(source, blockSize, name, cacheName, cache, bufferSize, true);
+    }
+
+    /**
+     * @param cacheBlocks whether the blocks read from the source are cached, rather than only the blocks that are
+     *                    cached already used
+     */
+    public CachedIndexInput(IndexInput source, int blockSize, String name,
+        String cacheName, Cache cache, int bufferSize, boolean cacheBlocks) {
       super(name, bufferSize);
+      this.cacheBlocks = cacheBlocks;
       this.source = source;
       this.blockSize = blockSize;
       fileLength = source.length();
@@ -220,7 +237,9 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
       byte[] buf = store.takeBuffer(blockSize);
       source.readBytes(buf, 0, length);
       System.arraycopy(buf, blockOffset, b, off, lengthToReadInBlock);
-      cache.update(cacheName, blockId, 0, buf, 0, blockSize);
+      if (cacheBlocks) {
+        cache.update(cacheName, blockId, 0, buf, 0, blockSize);
+      }
       store.putBuffer(buf);
     }
     
@@ -265,17 +284,19 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
   }
   
   private long getFileModified(String name) throws IOException {
-    if (in instanceof FSDirectory) {
-      File directory = ((FSDirectory) in).getDirectory().toFile();
-      File file = new File(directory, name);
+    Directory directory = FilterDirectory.unwrap(in);
+    if (directory instanceof FSDirectory) {
+      File file = new File(((FSDirectory) directory).getDirectory().toFile(), name);
       if (!file.exists()) {
         throw new FileNotFoundException("File [" + name + "] not found");
       }
       return file.lastModified();
-    } else if (in instanceof HdfsDirectory) {
-      return ((HdfsDirectory) in).fileModified(name);
+    } else if (directory instanceof HdfsDirectory) {
+      return ((HdfsDirectory) directory).fileModified(name);
     } else {
-      throw new UnsupportedOperationException();
+      // index files are written once, and the cached blocks of a deleted file are dropped by deleteFile, so the
+      // length tells the versions of a file apart for any other store
+      return in.fileLength(name);
     }
   }
   
@@ -321,6 +342,14 @@ public class BlockDirectory extends FilterDirectory implements ShutdownAwareDire
     }
   }
   
+  /**
+   * Determine whether the blocks that are cached already should be used when reading a particular file in a
+   * context that does not cache its reads, see {@link #useReadCache(String, IOContext)}.
+   */
+  boolean useCachedBlocks(String name) {
+    return blockCacheReadEnabled && (blockCacheFileTypes == null || isCachableFile(name));
+  }
+  
   /**
    * Determine whether write caching should be used for a particular
    * file/context.
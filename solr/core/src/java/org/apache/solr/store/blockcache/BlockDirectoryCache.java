@@ -32,7 +32,7 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 public class BlockDirectoryCache implements Cache {
   private final BlockCache blockCache;
   private final AtomicInteger counter = new AtomicInteger();
-  private final com.github.benmanes.caffeine.cache.Cache<String,Integer> names;
+  private final com.github.benmanes.caffeine.cache.Cache<String,CachedFile> names;
   private Set<BlockCacheKey> keysToRelease;
   private final String path;
   private final Metrics metrics;
@@ -69,6 +69,33 @@ public class BlockDirectoryCache implements Cache {
     return blockCache;
   }
   
+  /** The number identifying a cached file in the block keys, and its type */
+  private static class CachedFile {
+    final int file;
+    final String fileType;
+
+    CachedFile(int file, String fileType) {
+      this.file = file;
+      this.fileType = fileType;
+    }
+  }
+
+  /**
+   * Returns the extension of the file of the given cache name, which is its path followed by <code>:</code> and
+   * its version, or <code>other</code> if it has none, e.g. for <code>segments_N</code>.
+   */
+  static String getFileType(String name) {
+    int end = name.lastIndexOf(':');
+    if (end == -1) {
+      end = name.length();
+    }
+    int dot = name.lastIndexOf('.', end);
+    if (dot == -1 || dot < name.lastIndexOf('/', end)) {
+      return "other";
+    }
+    return name.substring(dot + 1, end).intern();
+  }
+
   @Override
   public void delete(String name) {
     names.invalidate(name);
@@ -77,16 +104,16 @@ public class BlockDirectoryCache implements Cache {
   @Override
   public void update(String name, long blockId, int blockOffset, byte[] buffer,
       int offset, int length) {
-    Integer file = names.getIfPresent(name);
+    CachedFile file = names.getIfPresent(name);
     if (file == null) {
-      file = counter.incrementAndGet();
+      file = new CachedFile(counter.incrementAndGet(), getFileType(name));
       names.put(name, file);
     }
     BlockCacheKey blockCacheKey = new BlockCacheKey();
     blockCacheKey.setPath(path);
     blockCacheKey.setBlock(blockId);
-    blockCacheKey.setFile(file);
-    if (blockCache.store(blockCacheKey, blockOffset, buffer, offset, length) && keysToRelease != null) {
+    blockCacheKey.setFile(file.file);
+    if (blockCache.store(blockCacheKey, file.fileType, blockOffset, buffer, offset, length) && keysToRelease != null) {
       keysToRelease.add(blockCacheKey);
     }
   }
@@ -94,16 +121,23 @@ public class BlockDirectoryCache implements Cache {
   @Override
   public boolean fetch(String name, long blockId, int blockOffset, byte[] b,
       int off, int lengthToReadInBlock) {
-    Integer file = names.getIfPresent(name);
+    CachedFile file = names.getIfPresent(name);
     if (file == null) {
+      metrics.getFileTypeMetrics(getFileType(name)).misses.incrementAndGet();
       return false;
     }
     BlockCacheKey blockCacheKey = new BlockCacheKey();
     blockCacheKey.setPath(path);
     blockCacheKey.setBlock(blockId);
-    blockCacheKey.setFile(file);
+    blockCacheKey.setFile(file.file);
     boolean fetch = blockCache.fetch(blockCacheKey, b, blockOffset, off,
         lengthToReadInBlock);
+    Metrics.FileTypeMetrics fileTypeMetrics = metrics.getFileTypeMetrics(file.fileType);
+    if (fetch) {
+      fileTypeMetrics.hits.incrementAndGet();
+    } else {
+      fileTypeMetrics.misses.incrementAndGet();
+    }
     return fetch;
   }
   
@@ -114,11 +148,11 @@ public class BlockDirectoryCache implements Cache {
   
   @Override
   public void renameCacheFile(String source, String dest) {
-    Integer file = names.getIfPresent(source);
+    CachedFile file = names.getIfPresent(source);
     names.invalidate(source);
     // possible if the file is empty
     if (file != null) {
-      names.put(dest, file);
+      names.put(dest, new CachedFile(file.file, getFileType(dest)));
     }
   }
 
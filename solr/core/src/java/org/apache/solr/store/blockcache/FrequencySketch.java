@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.store.blockcache;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often a block was requested recently, as in TinyLFU. All
+ * counters are halved once as many requests as ten times the number of cache entries were counted, so that the
+ * estimates follow changes of the working set.
+ * <p>
+ * The sketch is only updated on cache misses, which read from the backing store anyway, so it is synchronized.
+ *
+ * @lucene.experimental
+ */
+class FrequencySketch {
+
+  private static final long[] SEED = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int maxEntries) {
+    int length = Integer.highestOneBit(Math.max(2, maxEntries) - 1) << 1;
+    table = new long[length];
+    tableMask = length - 1;
+    sampleSize = (int) Math.min(10L * Math.max(1, maxEntries), Integer.MAX_VALUE);
+  }
+
+  /** Counts a request of the item with the given hash and returns its estimated frequency, including it. */
+  synchronized int increment(int hash) {
+    int item = spread(hash);
+    int start = (item & 3) << 2;
+    int frequency = MAX_COUNT;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(item, i);
+      int offset = (start + i) << 2;
+      int count = (int) ((table[index] >>> offset) & 0xfL);
+      if (count < MAX_COUNT) {
+        table[index] += 1L << offset;
+        count++;
+        added = true;
+      }
+      frequency = Math.min(frequency, count);
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+    return frequency;
+  }
+
+  /** Returns the estimated frequency of the item with the given hash. */
+  synchronized int frequency(int hash) {
+    int item = spread(hash);
+    int start = (item & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < 4; i++) {
+      int count = (int) ((table[indexOf(item, i)] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(int item, int i) {
+    long hash = (item + SEED[i]) * SEED[i];
+    hash += hash >>> 32;
+    return ((int) hash) & tableMask;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
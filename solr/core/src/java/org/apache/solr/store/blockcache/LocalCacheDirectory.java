@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.store.blockcache;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+
+/**
+ * Serves the files of a slow directory, e.g. on network attached storage or large spinning disks, from copies on
+ * local disk kept by a {@link LocalFileCache}.
+ * <p>
+ * A file opened for searching is read from the slow directory until it was copied in the background. Files written
+ * through this directory, e.g. the segments written by merges, are copied while they are written, so that they are
+ * served from local disk as soon as they are searched. Files read by merges or read once are not copied.
+ *
+ * @lucene.experimental
+ */
+public class LocalCacheDirectory extends FilterDirectory {
+
+  private final LocalFileCache cache;
+  private final String keyPrefix;
+
+  /**
+   * @param id identifies the directory among the directories sharing the cache, e.g. its path
+   */
+  public LocalCacheDirectory(String id, Directory in, LocalFileCache cache) {
+    super(in);
+    this.cache = cache;
+    this.keyPrefix = id + "/";
+  }
+
+  private String key(String name) {
+    return keyPrefix + name;
+  }
+
+  private static boolean isCachable(String name) {
+    // segments files are small and read once per commit
+    return !name.startsWith(IndexFileNames.SEGMENTS)
+        && !name.startsWith(IndexFileNames.PENDING_SEGMENTS)
+        && !name.equals(IndexWriter.WRITE_LOCK_NAME);
+  }
+
+  @Override
+  public IndexInput openInput(String name, IOContext context) throws IOException {
+    if (!isCachable(name)) {
+      return in.openInput(name, context);
+    }
+    long length = in.fileLength(name);
+    IndexInput input = cache.openInput(key(name), length, context);
+    if (input != null) {
+      return input;
+    }
+    if (context.context != IOContext.Context.MERGE && !context.readOnce) {
+      cache.copyAsync(key(name), in, name, length);
+    }
+    return in.openInput(name, context);
+  }
+
+  @Override
+  public IndexOutput createOutput(String name, IOContext context) throws IOException {
+    IndexOutput output = in.createOutput(name, context);
+    if (!isCachable(name)) {
+      return output;
+    }
+    return cache.tee(key(name), output);
+  }
+
+  @Override
+  public void deleteFile(String name) throws IOException {
+    in.deleteFile(name);
+    cache.invalidate(key(name));
+  }
+
+  @Override
+  public void rename(String source, String dest) throws IOException {
+    in.rename(source, dest);
+    cache.invalidate(key(source));
+  }
+
+  /** Drops the copy of a file changed bypassing this directory, e.g. by a move. */
+  public void invalidate(String name) {
+    cache.invalidate(key(name));
+  }
+
+  /** Drops the copies of all files of this directory, e.g. because the directory is removed. */
+  public void invalidateAll() {
+    cache.invalidateAll(keyPrefix);
+  }
+
+  public LocalFileCache getCache() {
+    return cache;
+  }
+}
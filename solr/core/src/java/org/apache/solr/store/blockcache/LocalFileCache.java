@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.store.blockcache;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies of the files of slow directories in a directory on local disk, bounded by their total size. Which copies
+ * are kept is decided by Caffeine, by frequency and recency (W-TinyLFU); evicted copies are deleted.
+ * <p>
+ * Index files are written once, so a copy stays valid until the file is deleted. Copies are made in the background,
+ * the first time a file is opened for searching, or while a file is written, see {@link LocalCacheDirectory}. The
+ * copies are kept in a subdirectory of their own, {@value #COPIES_DIR}, whose content of an earlier run is deleted when
+ * the cache is created; nothing else of the local directory is touched.
+ *
+ * @lucene.experimental
+ */
+public class LocalFileCache implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  /** The subdirectory of the local directory holding the copies */
+  public static final String COPIES_DIR = "localFileCache";
+
+  private static class CachedFile {
+    final String localName;
+    final long length;
+
+    CachedFile(String localName, long length) {
+      this.localName = localName;
+      this.length = length;
+    }
+  }
+
+  private final Path root;
+  private final FSDirectory local;
+  private final Cache<String,CachedFile> files;
+  // the copies being made, by the key of their file; a copy is only cached if it is still registered when it is done
+  private final ConcurrentHashMap<String,Object> pending = new ConcurrentHashMap<>();
+  private final ExecutorService copier;
+  private final AtomicLong counter = new AtomicLong();
+
+  public final AtomicLong hits = new AtomicLong();
+  public final AtomicLong misses = new AtomicLong();
+  public final AtomicLong copies = new AtomicLong();
+  public final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param root the local directory, the copies are kept in its subdirectory {@value #COPIES_DIR}
+   * @param maxBytes the maximum total size of the copies
+   * @param copyThreads the number of threads copying files in the background
+   */
+  public LocalFileCache(Path root, long maxBytes, int copyThreads) throws IOException {
+    this.root = root;
+    Path copiesDir = root.resolve(COPIES_DIR);
+    if (Files.exists(copiesDir)) {
+      FileUtils.deleteDirectory(copiesDir.toFile());
+    }
+    Files.createDirectories(copiesDir);
+    this.local = FSDirectory.open(copiesDir);
+    // weighed in KB, so that files of up to 2TB can be weighed
+    this.files = Caffeine.newBuilder()
+        // copies are deleted right away, and never after the cache was closed
+        .executor(Runnable::run)
+        .maximumWeight(Math.max(1, maxBytes >>> 10))
+        .<String,CachedFile>weigher((key, file) -> (int) Math.min(Integer.MAX_VALUE, (file.length >>> 10) + 1))
+        .<String,CachedFile>removalListener((key, file, cause) -> {
+          if (cause.wasEvicted()) {
+            evictions.incrementAndGet();
+          }
+          if (file != null) {
+            deleteCopy(file.localName);
+          }
+        })
+        .build();
+    this.copier = ExecutorUtil.newMDCAwareFixedThreadPool(copyThreads, new SolrNamedThreadFactory("localFileCacheCopier"));
+  }
+
+  /**
+   * Opens the copy of a file, or returns null if there is none.
+   *
+   * @param key identifies the file among the files of all directories
+   * @param length the length of the file, a copy of another length is stale
+   */
+  public IndexInput openInput(String key, long length, IOContext context) throws IOException {
+    CachedFile file = files.getIfPresent(key);
+    if (file != null && file.length == length) {
+      try {
+        IndexInput input = local.openInput(file.localName, context);
+        hits.incrementAndGet();
+        return input;
+      } catch (FileNotFoundException | NoSuchFileException e) {
+        // evicted meanwhile
+      }
+    }
+    if (file != null) {
+      files.asMap().remove(key, file);
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /** Copies the given file in the background, unless it is being copied already. */
+  public void copyAsync(String key, Directory source, String name, long length) {
+    Object token = new Object();
+    if (pending.putIfAbsent(key, token) != null) {
+      return;
+    }
+    try {
+      copier.execute(() -> {
+        try {
+          copy(key, token, source, name, length);
+        } finally {
+          pending.remove(key, token);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // closed
+      pending.remove(key, token);
+    }
+  }
+
+  private void copy(String key, Object token, Directory source, String name, long length) {
+    String localName = localName(name);
+    boolean copied;
+    try (IndexInput in = source.openInput(name, IOContext.READONCE);
+         IndexOutput out = local.createOutput(localName, IOContext.DEFAULT)) {
+      byte[] buffer = new byte[COPY_BUFFER_SIZE];
+      long remaining = in.length();
+      while (remaining > 0) {
+        int chunk = (int) Math.min(buffer.length, remaining);
+        in.readBytes(buffer, 0, chunk);
+        out.writeBytes(buffer, 0, chunk);
+        remaining -= chunk;
+      }
+      copied = in.length() == length;
+    } catch (Exception e) {
+      // the file may have been deleted or its directory closed meanwhile
+      log.debug("Could not copy {} to the local cache", name, e);
+      copied = false;
+    }
+    if (!copied || !put(key, token, localName, length)) {
+      deleteCopy(localName);
+    }
+  }
+
+  /**
+   * Returns an output writing to both the given output and a copy of the file, which is cached once both are
+   * closed. If writing the copy fails, only the given output is written.
+   */
+  public IndexOutput tee(String key, IndexOutput out) {
+    String localName = localName(out.getName());
+    try {
+      IndexOutput copy = local.createOutput(localName, IOContext.DEFAULT);
+      Object token = new Object();
+      pending.put(key, token);
+      return new TeeIndexOutput(key, token, out, localName, copy);
+    } catch (IOException e) {
+      log.warn("Could not create a copy of {} in the local cache", out.getName(), e);
+      return out;
+    }
+  }
+
+  /**
+   * Caches a copy, unless its file was invalidated or copied again since the copy was started, or returns false.
+   * Invalidating a file drops its pending copy under the same lock, so a copy finishing after its file was deleted
+   * is never cached.
+   */
+  private boolean put(String key, Object token, String localName, long length) {
+    boolean[] cached = new boolean[1];
+    pending.computeIfPresent(key, (k, current) -> {
+      if (current != token) {
+        return current;
+      }
+      files.put(key, new CachedFile(localName, length));
+      cached[0] = true;
+      return null;
+    });
+    if (cached[0]) {
+      copies.incrementAndGet();
+    }
+    return cached[0];
+  }
+
+  /** Drops the copy of a file, and the copy being made if any. */
+  public void invalidate(String key) {
+    pending.remove(key);
+    files.invalidate(key);
+  }
+
+  /** Drops the copies of all files whose keys start with the given prefix, and the copies being made of them. */
+  public void invalidateAll(String prefix) {
+    pending.keySet().removeIf(key -> key.startsWith(prefix));
+    files.invalidateAll(files.asMap().keySet().stream()
+        .filter(key -> key.startsWith(prefix))
+        .collect(Collectors.toList()));
+  }
+
+  /** The number of files copied */
+  public long size() {
+    return files.estimatedSize();
+  }
+
+  public Path getRoot() {
+    return root;
+  }
+
+  private String localName(String name) {
+    // unique, a new copy must not be deleted along with an evicted copy of the same file
+    return counter.incrementAndGet() + "_" + name;
+  }
+
+  private void deleteCopy(String localName) {
+    try {
+      local.deleteFile(localName);
+    } catch (NoSuchFileException | FileNotFoundException e) {
+      // never written
+    } catch (IOException e) {
+      log.warn("Could not delete {} from the local cache", localName, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    ExecutorUtil.shutdownAndAwaitTermination(copier);
+    files.invalidateAll();
+    files.cleanUp();
+    local.close();
+  }
+
+  private class TeeIndexOutput extends IndexOutput {
+    private final String key;
+    private final Object token;
+    private final IndexOutput out;
+    private final String localName;
+    private IndexOutput copy;
+
+    TeeIndexOutput(String key, Object token, IndexOutput out, String localName, IndexOutput copy) {
+      super("TeeIndexOutput(" + out + ")", out.getName());
+      this.key = key;
+      this.token = token;
+      this.out = out;
+      this.localName = localName;
+      this.copy = copy;
+    }
+
+    @Override
+    public void writeByte(byte b) throws IOException {
+      out.writeByte(b);
+      if (copy != null) {
+        try {
+          copy.writeByte(b);
+        } catch (IOException e) {
+          dropCopy(e);
+        }
+      }
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int offset, int length) throws IOException {
+      out.writeBytes(b, offset, length);
+      if (copy != null) {
+        try {
+          copy.writeBytes(b, offset, length);
+        } catch (IOException e) {
+          dropCopy(e);
+        }
+      }
+    }
+
+    private void dropCopy(IOException e) {
+      // e.g. the local disk is full: the file is still written
+      log.warn("Could not write the copy of {} in the local cache", out.getName(), e);
+      try {
+        copy.close();
+      } catch (IOException ignored) {
+        // deleted below
+      }
+      copy = null;
+      pending.remove(key, token);
+      deleteCopy(localName);
+    }
+
+    @Override
+    public long getFilePointer() {
+      return out.getFilePointer();
+    }
+
+    @Override
+    public long getChecksum() throws IOException {
+      return out.getChecksum();
+    }
+
+    @Override
+    public void close() throws IOException {
+      boolean success = false;
+      try {
+        out.close();
+        success = true;
+      } finally {
+        if (copy != null) {
+          long length = copy.getFilePointer();
+          try {
+            copy.close();
+          } catch (IOException e) {
+            success = false;
+          }
+          if (!success || !put(key, token, localName, length)) {
+            pending.remove(key, token);
+            deleteCopy(localName);
+          }
+          copy = null;
+        }
+      }
+    }
+  }
+}
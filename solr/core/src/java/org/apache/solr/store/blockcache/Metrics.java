@@ -16,6 +16,7 @@
  */
 package org.apache.solr.store.blockcache;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -38,6 +39,7 @@ public class Metrics extends SolrCacheBase implements SolrInfoBean {
   public AtomicLong blockCacheMiss = new AtomicLong(0);
   public AtomicLong blockCacheEviction = new AtomicLong(0);
   public AtomicLong blockCacheStoreFail = new AtomicLong(0);
+  public AtomicLong blockCacheAdmissionReject = new AtomicLong(0);
 
   // since the last call
   private AtomicLong blockCacheHit_last = new AtomicLong(0);
@@ -51,10 +53,30 @@ public class Metrics extends SolrCacheBase implements SolrInfoBean {
   public AtomicLong shardBuffercacheAllocate = new AtomicLong(0);
   public AtomicLong shardBuffercacheLost = new AtomicLong(0);
 
+  /** Hits, misses and evictions of the blocks of one type of index file, e.g. <code>tip</code> or <code>dvd</code>. */
+  public static class FileTypeMetrics {
+    public final AtomicLong hits = new AtomicLong(0);
+    public final AtomicLong misses = new AtomicLong(0);
+    public final AtomicLong evictions = new AtomicLong(0);
+  }
+
+  private final Map<String, FileTypeMetrics> fileTypes = new ConcurrentHashMap<>();
+
   private MetricsMap metricsMap;
   private Set<String> metricNames = ConcurrentHashMap.newKeySet();
   private SolrMetricsContext solrMetricsContext;
   private long previous = System.nanoTime();
+  private final String name;
+  private final String description;
+
+  public Metrics() {
+    this("hdfsBlockCache", "Provides metrics for the HdfsDirectoryFactory BlockCache.");
+  }
+
+  public Metrics(String name, String description) {
+    this.name = name;
+    this.description = description;
+  }
 
   @Override
   public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
@@ -88,6 +110,7 @@ public class Metrics extends SolrCacheBase implements SolrInfoBean {
       map.put("hits", hits_total);
       map.put("evictions", evict_total);
       map.put("storeFails", storeFail_total);
+      map.put("admissionRejects", blockCacheAdmissionReject.get());
       map.put("hitratio_current", calcHitRatio(lookups_delta, hits_delta));  // hit ratio since the last call
       map.put("lookups_persec", getPerSecond(lookups_delta, seconds)); // lookups per second since the last call
       map.put("hits_persec", getPerSecond(hits_delta, seconds));       // hits per second since the last call
@@ -95,6 +118,12 @@ public class Metrics extends SolrCacheBase implements SolrInfoBean {
       map.put("storeFails_persec", getPerSecond(storeFail_delta, seconds));  // evictions per second since the last call
       map.put("time_delta", seconds);  // seconds since last call
 
+      fileTypes.forEach((fileType, fileTypeMetrics) -> {
+        map.put("fileType." + fileType + ".hits", fileTypeMetrics.hits.get());
+        map.put("fileType." + fileType + ".misses", fileTypeMetrics.misses.get());
+        map.put("fileType." + fileType + ".evictions", fileTypeMetrics.evictions.get());
+      });
+
       // TODO: these aren't really related to the BlockCache
       map.put("buffercache.allocations", getPerSecond(shardBuffercacheAllocate.getAndSet(0), seconds));
       map.put("buffercache.lost", getPerSecond(shardBuffercacheLost.getAndSet(0), seconds));
@@ -105,6 +134,15 @@ public class Metrics extends SolrCacheBase implements SolrInfoBean {
     solrMetricsContext.gauge(metricsMap, true, getName(), getCategory().toString(), scope);
   }
 
+  /** Returns the metrics of the blocks of the given type of file. */
+  public FileTypeMetrics getFileTypeMetrics(String fileType) {
+    FileTypeMetrics fileTypeMetrics = fileTypes.get(fileType);
+    if (fileTypeMetrics == null) {
+      fileTypeMetrics = fileTypes.computeIfAbsent(fileType, type -> new FileTypeMetrics());
+    }
+    return fileTypeMetrics;
+  }
+
   private float getPerSecond(long value, double seconds) {
     return (float) (value / seconds);
   }
@@ -113,12 +151,12 @@ public class Metrics extends SolrCacheBase implements SolrInfoBean {
 
   @Override
   public String getName() {
-    return "hdfsBlockCache";
+    return name;
   }
 
   @Override
   public String getDescription() {
-    return "Provides metrics for the HdfsDirectoryFactory BlockCache.";
+    return description;
   }
 
   @Override
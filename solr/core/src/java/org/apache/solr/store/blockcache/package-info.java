@@ -16,7 +16,7 @@
  */
  
 /** 
- * An HDFS blockcache implementation.
+ * A blockcache for the files of slow directories, e.g. on HDFS, and a cache of copies of such files on local disk.
  */
 package org.apache.solr.store.blockcache;
 
@@ -167,11 +167,13 @@ public class DocumentBuilder {
           }
           hasField = true;
           if (sfield != null) {
-            used = true;
             addField(out, sfield, v,
                      name.equals(uniqueKeyFieldName) ? false : forInPlaceUpdate);
-            // record the field as having a value
-            usedFields.add(sfield.getName());
+            // record the field as having a value, once per field
+            if (!used) {
+              usedFields.add(sfield.getName());
+            }
+            used = true;
           }
   
           // Check if we should copy this field value to any other fields.
@@ -335,16 +335,29 @@ public class SolrCmdDistributor implements Closeable {
         return null;
       }));
     } else {
+      long start = System.nanoTime();
       doRequest(req);
+      clients.recordEnqueueTime(System.nanoTime() - start);
     }
   }
   
   private void doRequest(final Req req) {
+    if (clients.isSlowReplica(req)) {
+      // the replica already failed to keep up with this request and will be put into recovery
+      Error error = new Error();
+      error.e = new IOException("Skipped update to " + req.node.getUrl() + " since the replica could not keep up");
+      error.req = req;
+      errors.add(error);
+      return;
+    }
     try {
       SolrClient solrClient = clients.getSolrClient(req);
       solrClient.request(req.uReq);
     } catch (Exception e) {
-      SolrException.log(log, e);
+      // a replica that could not keep up is logged once when it is marked as slow
+      if (clients.markSlowReplica(req, e) == false) {
+        SolrException.log(log, e);
+      }
       Error error = new Error();
       error.e = e;
       error.req = req;
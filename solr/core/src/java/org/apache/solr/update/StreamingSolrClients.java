@@ -22,11 +22,15 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.ConcurrentUpdateHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.common.SolrException;
@@ -41,6 +45,8 @@ public class StreamingSolrClients {
   private final int runnerCount = Integer.getInteger("solr.cloud.replication.runners", 1);
   // should be less than solr.jetty.http.idleTimeout
   private final int pollQueueTime = Integer.getInteger("solr.cloud.client.pollQueueTime", 10000);
+  // how long to wait for a full replica queue before giving up on the replica for this request, 0 waits until stalled
+  private final int maxQueueWaitTime = Integer.getInteger("solr.cloud.replication.maxQueueWaitMs", 0);
 
   private Http2SolrClient httpClient;
 
@@ -49,9 +55,15 @@ public class StreamingSolrClients {
 
   private ExecutorService updateExecutor;
 
+  private final UpdateShardHandler updateShardHandler;
+  // urls of replicas that could not keep up with this request, see maxQueueWaitTime
+  private final Set<String> slowReplicas = Collections.synchronizedSet(new HashSet<>());
+
   public StreamingSolrClients(UpdateShardHandler updateShardHandler) {
+    this.updateShardHandler = updateShardHandler;
     this.updateExecutor = updateShardHandler.getUpdateExecutor();
     this.httpClient = updateShardHandler.getUpdateOnlyHttpClient();
+    updateShardHandler.registerStreamingClients(this);
   }
 
   public List<Error> getErrors() {
@@ -73,6 +85,8 @@ public class StreamingSolrClients {
           .withQueueSize(100)
           .withThreadCount(runnerCount)
           .withExecutorService(updateExecutor)
+          // forwarded updates must not fail just because the leader is slow
+          .withMaxQueueWaitTime(req.node instanceof SolrCmdDistributor.ForwardNode ? 0 : maxQueueWaitTime)
           .alwaysStreamDeletes()
           .build();
       client.setPollQueueTime(pollQueueTime); // minimize connections created
@@ -89,11 +103,49 @@ public class StreamingSolrClients {
   }
 
   public synchronized void shutdown() {
+    updateShardHandler.unregisterStreamingClients(this);
     for (ConcurrentUpdateHttp2SolrClient client : solrClients.values()) {
       client.close();
     }
   }
 
+  /** Returns the number of updates queued for each replica url. */
+  public synchronized Map<String, Integer> getQueueSizes() {
+    Map<String, Integer> sizes = new HashMap<>();
+    for (Map.Entry<String, ConcurrentUpdateHttp2SolrClient> entry : solrClients.entrySet()) {
+      sizes.put(entry.getKey(), entry.getValue().getQueueSize());
+    }
+    return sizes;
+  }
+
+  /** Records the time an indexing thread spent handing an update to the queue of a replica. */
+  void recordEnqueueTime(long nanos) {
+    updateShardHandler.getReplicationEnqueueTime().update(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns true if an update to the request's node failed because it waited longer than
+   * <code>solr.cloud.replication.maxQueueWaitMs</code> for the replica's queue. Further updates to
+   * that replica then fail right away, so that the leader continues at the pace of the other
+   * replicas; the failed replica is put into recovery like for any other replication error.
+   */
+  boolean markSlowReplica(SolrCmdDistributor.Req req, Exception e) {
+    Throwable cause = e instanceof SolrServerException && e.getCause() != null ? e.getCause() : e;
+    if (!(cause instanceof ConcurrentUpdateHttp2SolrClient.QueueWaitTimeoutException)
+        || req.node instanceof SolrCmdDistributor.ForwardNode) {
+      return false;
+    }
+    if (slowReplicas.add(req.node.getUrl())) {
+      updateShardHandler.getSlowReplicas().mark();
+      log.warn("Replica {} could not keep up, its queue did not drain within {}ms", req.node.getUrl(), maxQueueWaitTime);
+    }
+    return true;
+  }
+
+  boolean isSlowReplica(SolrCmdDistributor.Req req) {
+    return slowReplicas.contains(req.node.getUrl());
+  }
+
   private String getFullUrl(String url) {
     String fullUrl;
     if (!url.startsWith("http://") && !url.startsWith("https://")) {
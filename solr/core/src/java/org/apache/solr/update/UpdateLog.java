@@ -456,6 +456,9 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     replayOpsMeter = solrMetricsContext.meter("ops", scope, "replay");
     copyOverOldUpdatesMeter = solrMetricsContext.meter("ops", scope, "copyOverOldUpdates");
     solrMetricsContext.gauge(() -> state.getValue(), true, "state", scope);
+    if (versionInfo != null) {
+      versionInfo.initializeMetrics(solrMetricsContext, scope);
+    }
   }
 
   @Override
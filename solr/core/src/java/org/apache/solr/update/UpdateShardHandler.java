@@ -18,6 +18,7 @@ package org.apache.solr.update;
 
 import java.lang.invoke.MethodHandles;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -25,6 +26,8 @@ import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -37,6 +40,7 @@ import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.security.HttpClientBuilderPlugin;
@@ -91,6 +95,11 @@ public class UpdateShardHandler implements SolrInfoBean {
   private final Set<String> metricNames = ConcurrentHashMap.newKeySet();
   private SolrMetricsContext solrMetricsContext;
 
+  // clients of the distributed update requests currently in flight, used for the replication queue metrics
+  private final Set<StreamingSolrClients> streamingClients = ConcurrentHashMap.newKeySet();
+  private Timer replicationEnqueueTime = new Timer();
+  private Meter slowReplicas = new Meter();
+
   private int socketTimeout = HttpClientUtil.DEFAULT_SO_TIMEOUT;
   private int connectionTimeout = HttpClientUtil.DEFAULT_CONNECT_TIMEOUT;
 
@@ -189,6 +198,25 @@ public class UpdateShardHandler implements SolrInfoBean {
         SolrMetricManager.mkName("updateOnlyExecutor", expandedScope, "threadPool"));
     recoveryExecutor = MetricUtils.instrumentedExecutorService(recoveryExecutor, this, solrMetricsContext.getMetricRegistry(),
         SolrMetricManager.mkName("recoveryExecutor", expandedScope, "threadPool"));
+    replicationEnqueueTime = solrMetricsContext.timer("enqueueTime", expandedScope, "replication");
+    slowReplicas = solrMetricsContext.meter("slowReplicas", expandedScope, "replication");
+    solrMetricsContext.gauge(() -> {
+      int queued = 0;
+      for (StreamingSolrClients clients : streamingClients) {
+        for (int size : clients.getQueueSizes().values()) {
+          queued += size;
+        }
+      }
+      return queued;
+    }, true, "queuedUpdates", expandedScope, "replication");
+    MetricsMap queues = new MetricsMap((detailed, map) -> {
+      for (StreamingSolrClients clients : streamingClients) {
+        for (Map.Entry<String, Integer> entry : clients.getQueueSizes().entrySet()) {
+          map.merge(entry.getKey(), entry.getValue(), (a, b) -> (Integer) a + (Integer) b);
+        }
+      }
+    });
+    solrMetricsContext.gauge(queues, true, "queues", expandedScope, "replication");
   }
 
   @Override
@@ -231,6 +259,24 @@ public class UpdateShardHandler implements SolrInfoBean {
     return updateExecutor;
   }
 
+  void registerStreamingClients(StreamingSolrClients clients) {
+    streamingClients.add(clients);
+  }
+
+  void unregisterStreamingClients(StreamingSolrClients clients) {
+    streamingClients.remove(clients);
+  }
+
+  /** Time spent by indexing threads handing updates to the queue of a replica, i.e. waiting for slow replicas. */
+  Timer getReplicationEnqueueTime() {
+    return replicationEnqueueTime;
+  }
+
+  /** Replicas that were given up on during an update request because their queue did not drain in time. */
+  Meter getSlowReplicas() {
+    return slowReplicas;
+  }
+
   public PoolingHttpClientConnectionManager getDefaultConnectionManager() {
     return defaultConnectionManager;
   }
@@ -19,9 +19,11 @@ package org.apache.solr.update;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import com.codahale.metrics.Timer;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PointValues;
@@ -35,6 +37,8 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SuppressForbidden;
 import org.apache.solr.index.SlowCompositeReaderWrapper;
+import org.apache.solr.metrics.SampledTimer;
+import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.SolrIndexSearcher;
@@ -55,6 +59,9 @@ public class VersionInfo {
 
   private int versionBucketLockTimeoutMs;
 
+  private SampledTimer bucketLockWaitTimer = SampledTimer.NO_OP;
+  private Timer dependentUpdateWaitTimer = new Timer();
+
   /**
    * Gets and returns the {@link org.apache.solr.common.params.CommonParams#VERSION_FIELD} from the specified
    * schema, after verifying that it is indexed, stored, and single-valued.  
@@ -110,6 +117,47 @@ public class VersionInfo {
     return versionBucketLockTimeoutMs;
   }
 
+  /**
+   * Registers the version bucket metrics: the (sampled) time spent waiting for a bucket lock, and the time
+   * in-place updates spent waiting for the update they depend on.
+   */
+  void initializeMetrics(SolrMetricsContext solrMetricsContext, String scope) {
+    bucketLockWaitTimer = new SampledTimer(solrMetricsContext.timer("lockWaitTime", scope, "versionBucket"),
+        SampledTimer.DEFAULT_SAMPLE_INTERVAL);
+    dependentUpdateWaitTimer = solrMetricsContext.timer("dependentUpdateWaitTime", scope, "versionBucket");
+    solrMetricsContext.gauge(() -> buckets.length, true, "buckets", scope, "versionBucket");
+  }
+
+  /**
+   * Runs the function while holding the lock of the given bucket, see
+   * {@link VersionBucket#runWithLock(int, VersionBucket.CheckedFunction)}, and records the time spent waiting
+   * for the lock.
+   */
+  public <T, R> R runWithBucketLock(VersionBucket bucket, VersionBucket.CheckedFunction<T, R> function) throws IOException {
+    final long start = bucketLockWaitTimer.start();
+    if (start == 0L) {
+      return bucket.runWithLock(versionBucketLockTimeoutMs, function);
+    }
+    final boolean[] locked = new boolean[1];
+    try {
+      return bucket.runWithLock(versionBucketLockTimeoutMs, () -> {
+        locked[0] = true;
+        bucketLockWaitTimer.stop(start);
+        return function.apply();
+      });
+    } finally {
+      if (!locked[0]) {
+        // timed out waiting for the lock
+        bucketLockWaitTimer.stop(start);
+      }
+    }
+  }
+
+  /** Records the time an in-place update waited for the update it depends on. */
+  public void recordDependentUpdateWait(long nanos) {
+    dependentUpdateWaitTimer.update(nanos, TimeUnit.NANOSECONDS);
+  }
+
   public void reload() {
   }
 
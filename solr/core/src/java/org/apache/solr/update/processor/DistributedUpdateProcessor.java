@@ -51,6 +51,8 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.IdLookup;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.CommitUpdateCommand;
 import org.apache.solr.update.DeleteUpdateCommand;
@@ -124,6 +126,8 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
   protected final SolrQueryRequest req;
   protected final SolrQueryResponse rsp;
   private final AtomicUpdateDocumentMerger docMerger;
+  // shared by the atomic updates of this request, see getIdLookup
+  private IdLookup idLookup;
 
   private final UpdateLog ulog;
   @VisibleForTesting
@@ -336,7 +340,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     vinfo.lockForUpdate();
     try {
       long finalVersionOnUpdate = versionOnUpdate;
-      return bucket.runWithLock(vinfo.getVersionBucketLockTimeoutMs(), () -> doVersionAdd(cmd, finalVersionOnUpdate, isReplayOrPeersync, leaderLogic, forwardedFromCollection, bucket));
+      return vinfo.runWithBucketLock(bucket, () -> doVersionAdd(cmd, finalVersionOnUpdate, isReplayOrPeersync, leaderLogic, forwardedFromCollection, bucket));
     } finally {
       vinfo.unlockForUpdate();
     }
@@ -548,7 +552,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
     vinfo.lockForUpdate();
     try {
-      lastFoundVersion = bucket.runWithLock(vinfo.getVersionBucketLockTimeoutMs(), () -> doWaitForDependentUpdates(cmd, versionOnUpdate, isReplayOrPeersync, bucket, waitTimeout));
+      lastFoundVersion = vinfo.runWithBucketLock(bucket, () -> doWaitForDependentUpdates(cmd, versionOnUpdate, isReplayOrPeersync, bucket, waitTimeout));
     } finally {
       vinfo.unlockForUpdate();
     }
@@ -613,7 +617,10 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
         }
       }
 
+      long waitStart = System.nanoTime();
+      boolean waited = false;
       while (Math.abs(lastFoundVersion) < cmd.prevVersion && !waitTimeout.hasTimedOut()) {
+        waited = true;
         long timeLeftInNanos = waitTimeout.timeLeft(TimeUnit.NANOSECONDS);
         if(timeLeftInNanos > 0) { // 0 means: wait forever until notified, but we don't want that.
           bucket.awaitNanos(timeLeftInNanos);
@@ -621,6 +628,9 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
         lookedUpVersion = vinfo.lookupVersion(cmd.getIndexedId());
         lastFoundVersion = lookedUpVersion == null ? 0L : lookedUpVersion;
       }
+      if (waited) {
+        vinfo.recordDependentUpdateWait(System.nanoTime() - waitStart);
+      }
     } finally {
       bucket.unlock();
     }
@@ -692,7 +702,8 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     SolrInputDocument sdoc = cmd.getSolrInputDocument();
     BytesRef idBytes = cmd.getIndexedId();
     String idString = cmd.getPrintableId();
-    SolrInputDocument oldRootDocWithChildren = RealTimeGetComponent.getInputDocument(cmd.getReq().getCore(), idBytes, RealTimeGetComponent.Resolution.ROOT_WITH_CHILDREN);
+    SolrInputDocument oldRootDocWithChildren = RealTimeGetComponent.getInputDocument(cmd.getReq().getCore(), idBytes,
+        null, null, RealTimeGetComponent.Resolution.ROOT_WITH_CHILDREN, this::getIdLookup);
 
     if (oldRootDocWithChildren == null) {
       if (versionOnUpdate > 0) {
@@ -727,7 +738,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
           !idString.equals(oldRootDocRootFieldVal)) {
         // this is an update where the updated doc is not the root document
         SolrInputDocument sdocWithChildren = RealTimeGetComponent.getInputDocument(cmd.getReq().getCore(),
-            idBytes, RealTimeGetComponent.Resolution.DOC_WITH_CHILDREN);
+            idBytes, null, null, RealTimeGetComponent.Resolution.DOC_WITH_CHILDREN, this::getIdLookup);
         mergedDoc = docMerger.mergeChildDoc(sdoc, oldRootDocWithChildren, sdocWithChildren);
       } else {
         mergedDoc = docMerger.merge(sdoc, oldRootDocWithChildren);
@@ -737,6 +748,17 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     return true;
   }
 
+  /**
+   * Returns the id lookup used to find the existing documents of atomic updates, so that all atomic updates of this
+   * request that are resolved against the same realtime searcher share its per-segment terms enums.
+   */
+  private IdLookup getIdLookup(SolrIndexSearcher searcher) {
+    if (idLookup == null || idLookup.getSearcher() != searcher) {
+      idLookup = new IdLookup(searcher);
+    }
+    return idLookup;
+  }
+
   @Override
   public void processDelete(DeleteUpdateCommand cmd) throws IOException {
     
@@ -985,7 +1007,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     vinfo.lockForUpdate();
     try {
       long finalVersionOnUpdate = versionOnUpdate;
-      return bucket.runWithLock(vinfo.getVersionBucketLockTimeoutMs(), () -> doVersionDelete(cmd, finalVersionOnUpdate, signedVersionOnUpdate, isReplayOrPeersync, leaderLogic,
+      return vinfo.runWithBucketLock(bucket, () -> doVersionDelete(cmd, finalVersionOnUpdate, signedVersionOnUpdate, isReplayOrPeersync, leaderLogic,
           forwardedFromCollection, bucket));
     } finally {
       vinfo.unlockForUpdate();
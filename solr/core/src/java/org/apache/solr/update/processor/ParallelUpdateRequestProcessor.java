@@ -0,0 +1,394 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrException.ErrorCode;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.MergeIndexesCommand;
+import org.apache.solr.update.RollbackUpdateCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the commands of a single update request with several instances of an {@link UpdateRequestProcessorChain},
+ * each on its own thread, so that a large stream of documents sent in one request is not limited to the request
+ * thread. The loader still parses the request on the request thread and hands the commands to this processor.
+ * <p>
+ * Adds and deletes by id are dispatched by the hash of their id, or of the <code>_route_</code> parameter if present,
+ * so that the updates to a document are applied in the order of the request. Other commands wait until all commands
+ * dispatched before them have been applied and are then applied by the first chain.
+ * <p>
+ * Since commands are applied concurrently, an error does not stop the commands that were already dispatched to other
+ * threads, and processors that keep state for the request, like {@link TolerantUpdateProcessor}, do so per thread.
+ * The responses of the chains are merged into the response of the request when the request is finished.
+ *
+ * @see org.apache.solr.common.params.UpdateParams#UPDATE_THREADS
+ * @lucene.experimental
+ */
+public class ParallelUpdateRequestProcessor extends UpdateRequestProcessor {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Number of commands queued per thread before the request thread has to wait. */
+  static final int QUEUE_SIZE = 100;
+
+  @FunctionalInterface
+  private interface Command {
+    void apply(UpdateRequestProcessor processor) throws IOException;
+  }
+
+  /** Completes once all commands queued before it have been applied. */
+  private static class Barrier implements Command {
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    @Override
+    public void apply(UpdateRequestProcessor processor) {
+      latch.countDown();
+    }
+  }
+
+  private static final Command STOP = processor -> {};
+
+  private class Worker implements Runnable {
+    final UpdateRequestProcessor processor;
+    final SolrQueryResponse rsp;
+    final BlockingQueue<Command> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    Future<?> future;
+
+    Worker(UpdateRequestProcessor processor, SolrQueryResponse rsp) {
+      this.processor = processor;
+      this.rsp = rsp;
+    }
+
+    @Override
+    public void run() {
+      if (requestInfo == null) {
+        applyCommands();
+        return;
+      }
+      // processors like TimestampUpdateProcessorFactory and the distribution of updates need the request info
+      try {
+        requestInfo.call(() -> {
+          applyCommands();
+          return null;
+        });
+      } catch (Exception e) {
+        fail(e);
+      }
+    }
+
+    private void applyCommands() {
+      try {
+        for (;;) {
+          Command command = queue.take();
+          if (command == STOP) {
+            return;
+          }
+          // once a command failed, only barriers are still passed so that the request thread does not wait forever
+          if (failure == null || command instanceof Barrier) {
+            try {
+              command.apply(processor);
+            } catch (Throwable t) {
+              fail(t);
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(e);
+      }
+    }
+
+    void enqueue(Command command) throws IOException {
+      try {
+        while (!queue.offer(command, 100, TimeUnit.MILLISECONDS)) {
+          if (future.isDone()) {
+            checkFailure();
+            throw new SolrException(ErrorCode.SERVER_ERROR, "Update thread stopped unexpectedly");
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SolrException(ErrorCode.SERVER_ERROR, "Interrupted while queueing update", e);
+      }
+    }
+  }
+
+  private final SolrQueryRequest req;
+  private final SolrQueryResponse rsp;
+  private final SolrRequestInfo requestInfo;
+  private final SchemaField uniqueKeyField;
+  private final String route;
+  private final List<Worker> workers = new ArrayList<>();
+
+  private volatile Throwable failure;
+  private boolean failureReported;
+  private boolean stopped;
+  private int nextWorker;
+
+  /**
+   * @param threads the number of chains and threads to use
+   * @param executor the executor to run the chains on, must be able to run <code>threads</code> tasks concurrently
+   */
+  public ParallelUpdateRequestProcessor(UpdateRequestProcessorChain chain, SolrQueryRequest req, SolrQueryResponse rsp,
+                                        int threads, ExecutorService executor) {
+    super(null);
+    this.req = req;
+    this.rsp = rsp;
+    this.requestInfo = SolrRequestInfo.getRequestInfo();
+    if (requestInfo != null) {
+      // NOW is otherwise set lazily by the first thread asking for it
+      requestInfo.getNOW();
+    }
+    this.uniqueKeyField = req.getSchema().getUniqueKeyField();
+    this.route = req.getParams().get(ShardParams._ROUTE_);
+    // the searcher of the request is otherwise opened lazily by the first processor needing it, which is not thread safe
+    req.getSearcher();
+
+    try {
+      for (int i = 0; i < threads; i++) {
+        SolrQueryResponse workerRsp = new SolrQueryResponse();
+        workerRsp.addResponseHeader(new SimpleOrderedMap<>());
+        workers.add(new Worker(chain.createProcessor(req, workerRsp), workerRsp));
+      }
+      for (Worker worker : workers) {
+        worker.future = executor.submit(worker);
+      }
+    } catch (RuntimeException e) {
+      doClose();
+      throw e;
+    }
+  }
+
+  @Override
+  public void processAdd(AddUpdateCommand cmd) throws IOException {
+    // loaders may reuse the command once this returns
+    AddUpdateCommand copy = (AddUpdateCommand) cmd.clone();
+    String id = null;
+    if (uniqueKeyField != null && cmd.solrDoc != null) {
+      SolrInputField field = cmd.solrDoc.getField(uniqueKeyField.getName());
+      if (field != null && field.getValueCount() == 1) {
+        id = field.getFirstValue().toString();
+      }
+    }
+    dispatch(id, processor -> processor.processAdd(copy));
+  }
+
+  @Override
+  public void processDelete(DeleteUpdateCommand cmd) throws IOException {
+    if (cmd.isDeleteById()) {
+      DeleteUpdateCommand copy = (DeleteUpdateCommand) cmd.clone();
+      dispatch(cmd.getId(), processor -> processor.processDelete(copy));
+    } else {
+      awaitPending();
+      workers.get(0).processor.processDelete(cmd);
+    }
+  }
+
+  @Override
+  public void processMergeIndexes(MergeIndexesCommand cmd) throws IOException {
+    awaitPending();
+    workers.get(0).processor.processMergeIndexes(cmd);
+  }
+
+  @Override
+  public void processCommit(CommitUpdateCommand cmd) throws IOException {
+    awaitPending();
+    workers.get(0).processor.processCommit(cmd);
+  }
+
+  @Override
+  public void processRollback(RollbackUpdateCommand cmd) throws IOException {
+    awaitPending();
+    workers.get(0).processor.processRollback(cmd);
+  }
+
+  @Override
+  public void finish() throws IOException {
+    stopWorkers();
+    Throwable finishFailure = null;
+    for (Worker worker : workers) {
+      try {
+        worker.processor.finish();
+      } catch (Throwable t) {
+        if (finishFailure == null) {
+          finishFailure = t;
+        } else {
+          finishFailure.addSuppressed(t);
+        }
+      }
+      mergeResponse(worker.rsp);
+    }
+    checkFailure();
+    if (finishFailure != null) {
+      throw rethrow(finishFailure);
+    }
+  }
+
+  @Override
+  protected void doClose() {
+    stopWorkers();
+    for (Worker worker : workers) {
+      try {
+        worker.processor.close();
+      } catch (Exception e) {
+        SolrException.log(log, "Exception closing processor", e);
+      }
+    }
+  }
+
+  private void dispatch(String id, Command command) throws IOException {
+    checkFailure();
+    String key = route != null ? route : id;
+    int worker;
+    if (key == null) {
+      // no id to keep in order, e.g. if it is generated by a later processor
+      worker = nextWorker;
+      nextWorker = (nextWorker + 1) % workers.size();
+    } else {
+      worker = Math.floorMod(key.hashCode(), workers.size());
+    }
+    workers.get(worker).enqueue(command);
+  }
+
+  /** Waits until all commands dispatched so far have been applied. */
+  private void awaitPending() throws IOException {
+    checkFailure();
+    List<Barrier> barriers = new ArrayList<>(workers.size());
+    for (Worker worker : workers) {
+      Barrier barrier = new Barrier();
+      worker.enqueue(barrier);
+      barriers.add(barrier);
+    }
+    try {
+      for (Barrier barrier : barriers) {
+        barrier.latch.await();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(ErrorCode.SERVER_ERROR, "Interrupted while waiting for updates", e);
+    }
+    checkFailure();
+  }
+
+  private void stopWorkers() {
+    if (stopped) {
+      return;
+    }
+    stopped = true;
+    for (Worker worker : workers) {
+      if (worker.future == null) {
+        continue;
+      }
+      try {
+        worker.enqueue(STOP);
+        worker.future.get();
+      } catch (Exception e) {
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        worker.future.cancel(true);
+        fail(e);
+      }
+    }
+  }
+
+  private void fail(Throwable t) {
+    synchronized (this) {
+      if (failure == null) {
+        failure = t;
+        return;
+      }
+    }
+    log.debug("Ignoring subsequent update failure", t);
+  }
+
+  /** Throws the first failure of a thread, once. */
+  private void checkFailure() throws IOException {
+    Throwable t = failure;
+    if (t != null && !failureReported) {
+      failureReported = true;
+      throw rethrow(t);
+    }
+  }
+
+  private static IOException rethrow(Throwable t) {
+    if (t instanceof IOException) {
+      return (IOException) t;
+    } else if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new SolrException(ErrorCode.SERVER_ERROR, t);
+  }
+
+  private void mergeResponse(SolrQueryResponse workerRsp) {
+    merge(rsp.getValues(), workerRsp.getValues());
+    merge(rsp.getToLog(), workerRsp.getToLog());
+    if (rsp.getException() == null && workerRsp.getException() != null) {
+      rsp.setException(workerRsp.getException());
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static void merge(NamedList target, NamedList source) {
+    for (int i = 0; i < source.size(); i++) {
+      String name = source.getName(i);
+      Object val = source.getVal(i);
+      int idx = name == null ? -1 : target.indexOf(name, 0);
+      Object existing = idx < 0 ? null : target.getVal(idx);
+      if (existing instanceof NamedList && val instanceof NamedList) {
+        merge((NamedList) existing, (NamedList) val);
+      } else if (existing instanceof Collection && val instanceof Collection) {
+        List combined = new ArrayList((Collection) existing);
+        combined.addAll((Collection) val);
+        target.setVal(idx, combined);
+      } else if (UpdateRequest.REPFACT.equals(name) && existing instanceof Integer && val instanceof Integer) {
+        // the achieved replication factor of the request is the lowest of all chains
+        target.setVal(idx, Math.min((Integer) existing, (Integer) val));
+      } else if (idx >= 0 && ("min_rf".equals(name) || "maxErrors".equals(name))) {
+        // parameters of the request that every chain reports alike
+      } else {
+        target.add(name, val);
+      }
+    }
+  }
+}
@@ -17,13 +17,22 @@
 
 package org.apache.solr.util;
 
+import org.apache.lucene.util.Accountable;
+
 /**
  * An efficient map for storing keys as integer in range from 0..n with n can be estimated up-front.
  * By automatically switching from a hashMap (which is memory efficient) to an array (which is faster)
  * on increasing number of keys.
  * So it SHOULD not be used for other cases where key can be any arbitrary integer.
+ * The array is split in pages which are only allocated once a key falls in them, and which are
+ * taken from a {@link PagePool} shared by all maps.
  */
-public interface DynamicMap {
+public interface DynamicMap extends Accountable {
+
+  /**
+   * Gives the pages of the map back to the {@link PagePool}. The map must not be used afterwards.
+   */
+  void release();
 
   default boolean useArrayBased(int expectedKeyMax) {
     boolean assertsEnabled = false;
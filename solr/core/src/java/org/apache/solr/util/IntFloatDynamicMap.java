@@ -23,11 +23,13 @@ import com.carrotsearch.hppc.IntFloatHashMap;
 import com.carrotsearch.hppc.cursors.FloatCursor;
 import com.carrotsearch.hppc.procedures.IntFloatProcedure;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
 
 public class IntFloatDynamicMap implements DynamicMap {
   private int maxSize;
   private IntFloatHashMap hashMap;
-  private float[] keyValues;
+  private float[][] pages;
+  private int allocatedPages;
   private float emptyValue;
   private int threshold;
 
@@ -48,36 +50,34 @@ public class IntFloatDynamicMap implements DynamicMap {
   }
 
   private void upgradeToArray() {
-    keyValues = new float[maxSize];
-    if (emptyValue != 0.0f) {
-      Arrays.fill(keyValues, emptyValue);
-    }
+    pages = new float[PagePool.numPages(maxSize)][];
     if (hashMap != null) {
-      hashMap.forEach((IntFloatProcedure) (key, value) -> keyValues[key] = value);
+      hashMap.forEach((IntFloatProcedure) (key, value) -> putInPage(key, value));
       hashMap = null;
     }
   }
 
-  private void growBuffer(int minSize) {
-    assert keyValues != null;
-    int size = keyValues.length;
-    keyValues = ArrayUtil.grow(keyValues, minSize);
-    if (emptyValue != 0.0f) {
-      for (int i = size; i < keyValues.length; i++) {
-        keyValues[i] = emptyValue;
-      }
+  private void putInPage(int key, float value) {
+    final int pageIndex = PagePool.page(key);
+    if (pageIndex >= pages.length) {
+      pages = ArrayUtil.grow(pages, pageIndex + 1);
     }
+    float[] page = pages[pageIndex];
+    if (page == null) {
+      page = PagePool.FLOATS.acquire();
+      Arrays.fill(page, emptyValue);
+      pages[pageIndex] = page;
+      allocatedPages++;
+    }
+    page[key & PagePool.PAGE_MASK] = value;
   }
 
   public void put(int key, float value) {
-    if (keyValues != null) {
-      if (key >= keyValues.length) {
-        growBuffer(key + 1);
-      }
-      keyValues[key] = value;
+    if (pages != null) {
+      putInPage(key, value);
     } else {
+      this.maxSize = Math.max(key + 1, maxSize);
       this.hashMap.put(key, value);
-      this.maxSize = Math.max(key+1, maxSize);
       if (this.hashMap.size() >= threshold) {
         upgradeToArray();
       }
@@ -85,20 +85,25 @@ public class IntFloatDynamicMap implements DynamicMap {
   }
 
   public float get(int key) {
-    if (keyValues != null) {
-      if (key >= keyValues.length) {
+    if (pages != null) {
+      final int pageIndex = PagePool.page(key);
+      if (pageIndex >= pages.length || pages[pageIndex] == null) {
         return emptyValue;
       }
-      return keyValues[key];
+      return pages[pageIndex][key & PagePool.PAGE_MASK];
     } else {
       return this.hashMap.getOrDefault(key, emptyValue);
     }
   }
 
   public void forEachValue(FloatConsumer consumer) {
-    if (keyValues != null) {
-      for (float val : keyValues) {
-        if (val != emptyValue) consumer.accept(val);
+    if (pages != null) {
+      for (float[] page : pages) {
+        if (page != null) {
+          for (float val : page) {
+            if (val != emptyValue) consumer.accept(val);
+          }
+        }
       }
     } else {
       for (FloatCursor ord : hashMap.values()) {
@@ -108,11 +113,38 @@ public class IntFloatDynamicMap implements DynamicMap {
   }
 
   public void remove(int key) {
-    if (keyValues != null) {
-      if (key < keyValues.length)
-        keyValues[key] = emptyValue;
+    if (pages != null) {
+      final int pageIndex = PagePool.page(key);
+      if (pageIndex < pages.length && pages[pageIndex] != null) {
+        pages[pageIndex][key & PagePool.PAGE_MASK] = emptyValue;
+      }
     } else {
       hashMap.remove(key);
     }
   }
+
+  @Override
+  public long ramBytesUsed() {
+    if (pages != null) {
+      return RamUsageEstimator.shallowSizeOf(pages) + allocatedPages * PagePool.FLOATS.pageBytes();
+    } else if (hashMap != null) {
+      return RamUsageEstimator.sizeOf(hashMap.keys) + RamUsageEstimator.sizeOf(hashMap.values);
+    }
+    return 0L;
+  }
+
+  @Override
+  public void release() {
+    if (pages != null) {
+      for (float[] page : pages) {
+        if (page != null) {
+          PagePool.FLOATS.release(page);
+        }
+      }
+    }
+    pages = null;
+    allocatedPages = 0;
+    hashMap = null;
+  }
+
 }
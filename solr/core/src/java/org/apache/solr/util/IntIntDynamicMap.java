@@ -24,11 +24,13 @@ import com.carrotsearch.hppc.IntIntHashMap;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.procedures.IntIntProcedure;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
 
 public class IntIntDynamicMap implements DynamicMap {
   private int maxSize;
   private IntIntHashMap hashMap;
-  private int[] keyValues;
+  private int[][] pages;
+  private int allocatedPages;
   private int emptyValue;
   private int threshold;
 
@@ -49,33 +51,31 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   private void upgradeToArray() {
-    keyValues = new int[maxSize];
-    if (emptyValue != 0) {
-      Arrays.fill(keyValues, emptyValue);
-    }
+    pages = new int[PagePool.numPages(maxSize)][];
     if (hashMap != null) {
-      hashMap.forEach((IntIntProcedure) (key, value) -> keyValues[key] = value);
+      hashMap.forEach((IntIntProcedure) (key, value) -> putInPage(key, value));
       hashMap = null;
     }
   }
 
-  private void growBuffer(int minSize) {
-    assert keyValues != null;
-    int size = keyValues.length;
-    keyValues = ArrayUtil.grow(keyValues, minSize);
-    if (emptyValue != 0) {
-      for (int i = size; i < keyValues.length; i++) {
-        keyValues[i] = emptyValue;
-      }
+  private void putInPage(int key, int value) {
+    final int pageIndex = PagePool.page(key);
+    if (pageIndex >= pages.length) {
+      pages = ArrayUtil.grow(pages, pageIndex + 1);
+    }
+    int[] page = pages[pageIndex];
+    if (page == null) {
+      page = PagePool.INTS.acquire();
+      Arrays.fill(page, emptyValue);
+      pages[pageIndex] = page;
+      allocatedPages++;
     }
+    page[key & PagePool.PAGE_MASK] = value;
   }
 
   public void put(int key, int value) {
-    if (keyValues != null) {
-      if (key >= keyValues.length) {
-        growBuffer(key + 1);
-      }
-      keyValues[key] = value;
+    if (pages != null) {
+      putInPage(key, value);
     } else {
       this.maxSize = Math.max(key + 1, maxSize);
       this.hashMap.put(key, value);
@@ -86,20 +86,25 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   public int get(int key) {
-    if (keyValues != null) {
-      if (key >= keyValues.length) {
+    if (pages != null) {
+      final int pageIndex = PagePool.page(key);
+      if (pageIndex >= pages.length || pages[pageIndex] == null) {
         return emptyValue;
       }
-      return keyValues[key];
+      return pages[pageIndex][key & PagePool.PAGE_MASK];
     } else {
       return this.hashMap.getOrDefault(key, emptyValue);
     }
   }
 
   public void forEachValue(IntConsumer consumer) {
-    if (keyValues != null) {
-      for (int val : keyValues) {
-        if (val != emptyValue) consumer.accept(val);
+    if (pages != null) {
+      for (int[] page : pages) {
+        if (page != null) {
+          for (int val : page) {
+            if (val != emptyValue) consumer.accept(val);
+          }
+        }
       }
     } else {
       for (IntCursor ord : hashMap.values()) {
@@ -109,12 +114,38 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   public void remove(int key) {
-    if (keyValues != null) {
-      if (key < keyValues.length)
-        keyValues[key] = emptyValue;
+    if (pages != null) {
+      final int pageIndex = PagePool.page(key);
+      if (pageIndex < pages.length && pages[pageIndex] != null) {
+        pages[pageIndex][key & PagePool.PAGE_MASK] = emptyValue;
+      }
     } else {
       hashMap.remove(key);
     }
   }
 
+  @Override
+  public long ramBytesUsed() {
+    if (pages != null) {
+      return RamUsageEstimator.shallowSizeOf(pages) + allocatedPages * PagePool.INTS.pageBytes();
+    } else if (hashMap != null) {
+      return RamUsageEstimator.sizeOf(hashMap.keys) + RamUsageEstimator.sizeOf(hashMap.values);
+    }
+    return 0L;
+  }
+
+  @Override
+  public void release() {
+    if (pages != null) {
+      for (int[] page : pages) {
+        if (page != null) {
+          PagePool.INTS.release(page);
+        }
+      }
+    }
+    pages = null;
+    allocatedPages = 0;
+    hashMap = null;
+  }
+
 }
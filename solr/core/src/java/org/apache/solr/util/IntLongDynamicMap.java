@@ -24,17 +24,19 @@ import com.carrotsearch.hppc.IntLongHashMap;
 import com.carrotsearch.hppc.cursors.LongCursor;
 import com.carrotsearch.hppc.procedures.IntLongProcedure;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
 
 public class IntLongDynamicMap implements DynamicMap {
   private int maxSize;
   private IntLongHashMap hashMap;
-  private long[] keyValues;
+  private long[][] pages;
+  private int allocatedPages;
   private long emptyValue;
   private int threshold;
 
   /**
    * Create map with expected max value of key.
-   * Although the map will automatically do resizing to be able to hold key {@code >=g expectedKeyMax}.
+   * Although the map will automatically do resizing to be able to hold key {@code >= expectedKeyMax}.
    * But putting key much larger than {@code expectedKeyMax} is discourage since it can leads to use LOT OF memory.
    */
   public IntLongDynamicMap(int expectedKeyMax, long emptyValue) {
@@ -49,33 +51,31 @@ public class IntLongDynamicMap implements DynamicMap {
   }
 
   private void upgradeToArray() {
-    keyValues = new long[maxSize];
-    if (emptyValue != 0) {
-      Arrays.fill(keyValues, emptyValue);
-    }
+    pages = new long[PagePool.numPages(maxSize)][];
     if (hashMap != null) {
-      hashMap.forEach((IntLongProcedure) (key, value) -> keyValues[key] = value);
+      hashMap.forEach((IntLongProcedure) (key, value) -> putInPage(key, value));
       hashMap = null;
     }
   }
 
-  private void growBuffer(int minSize) {
-    assert keyValues != null;
-    int size = keyValues.length;
-    keyValues = ArrayUtil.grow(keyValues, minSize);
-    if (emptyValue != 0) {
-      for (int i = size; i < keyValues.length; i++) {
-        keyValues[i] = emptyValue;
-      }
+  private void putInPage(int key, long value) {
+    final int pageIndex = PagePool.page(key);
+    if (pageIndex >= pages.length) {
+      pages = ArrayUtil.grow(pages, pageIndex + 1);
+    }
+    long[] page = pages[pageIndex];
+    if (page == null) {
+      page = PagePool.LONGS.acquire();
+      Arrays.fill(page, emptyValue);
+      pages[pageIndex] = page;
+      allocatedPages++;
     }
+    page[key & PagePool.PAGE_MASK] = value;
   }
 
   public void put(int key, long value) {
-    if (keyValues != null) {
-      if (key >= keyValues.length) {
-        growBuffer(key + 1);
-      }
-      keyValues[key] = value;
+    if (pages != null) {
+      putInPage(key, value);
     } else {
       this.maxSize = Math.max(key + 1, maxSize);
       this.hashMap.put(key, value);
@@ -86,20 +86,25 @@ public class IntLongDynamicMap implements DynamicMap {
   }
 
   public long get(int key) {
-    if (keyValues != null) {
-      if (key >= keyValues.length) {
+    if (pages != null) {
+      final int pageIndex = PagePool.page(key);
+      if (pageIndex >= pages.length || pages[pageIndex] == null) {
         return emptyValue;
       }
-      return keyValues[key];
+      return pages[pageIndex][key & PagePool.PAGE_MASK];
     } else {
       return this.hashMap.getOrDefault(key, emptyValue);
     }
   }
 
   public void forEachValue(LongConsumer consumer) {
-    if (keyValues != null) {
-      for (long val : keyValues) {
-        if (val != emptyValue) consumer.accept(val);
+    if (pages != null) {
+      for (long[] page : pages) {
+        if (page != null) {
+          for (long val : page) {
+            if (val != emptyValue) consumer.accept(val);
+          }
+        }
       }
     } else {
       for (LongCursor ord : hashMap.values()) {
@@ -109,12 +114,38 @@ public class IntLongDynamicMap implements DynamicMap {
   }
 
   public void remove(int key) {
-    if (keyValues != null) {
-      if (key < keyValues.length)
-        keyValues[key] = emptyValue;
+    if (pages != null) {
+      final int pageIndex = PagePool.page(key);
+      if (pageIndex < pages.length && pages[pageIndex] != null) {
+        pages[pageIndex][key & PagePool.PAGE_MASK] = emptyValue;
+      }
     } else {
       hashMap.remove(key);
     }
   }
 
+  @Override
+  public long ramBytesUsed() {
+    if (pages != null) {
+      return RamUsageEstimator.shallowSizeOf(pages) + allocatedPages * PagePool.LONGS.pageBytes();
+    } else if (hashMap != null) {
+      return RamUsageEstimator.sizeOf(hashMap.keys) + RamUsageEstimator.sizeOf(hashMap.values);
+    }
+    return 0L;
+  }
+
+  @Override
+  public void release() {
+    if (pages != null) {
+      for (long[] page : pages) {
+        if (page != null) {
+          PagePool.LONGS.release(page);
+        }
+      }
+    }
+    pages = null;
+    allocatedPages = 0;
+    hashMap = null;
+  }
+
 }
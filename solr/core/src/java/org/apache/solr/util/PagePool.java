@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A bounded pool of fixed size primitive arrays, the pages of the array based representation of the
+ * {@link DynamicMap}s. Maps take their pages from the pool and give them back once they are released, so that
+ * queries which need large maps, like collapsing on a field with many values, reuse the pages of earlier queries
+ * instead of allocating them anew.
+ * <p>
+ * Pages are handed out with whatever values they had when they were given back. The number of pooled bytes per
+ * page type is limited by the <code>solr.dynamicMap.maxPooledBytes</code> system property (16MB by default);
+ * pages given back while the pool is full are left to the garbage collector.
+ */
+public final class PagePool<T> {
+
+  public static final int PAGE_SHIFT = 12;
+  public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  public static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private static final long MAX_POOLED_BYTES = Long.getLong("solr.dynamicMap.maxPooledBytes", 16L << 20);
+
+  public static final PagePool<int[]> INTS = new PagePool<>(() -> new int[PAGE_SIZE], Integer.BYTES);
+  public static final PagePool<long[]> LONGS = new PagePool<>(() -> new long[PAGE_SIZE], Long.BYTES);
+  public static final PagePool<float[]> FLOATS = new PagePool<>(() -> new float[PAGE_SIZE], Float.BYTES);
+
+  private final Supplier<T> factory;
+  private final ArrayBlockingQueue<T> pages;
+  private final long pageBytes;
+
+  private PagePool(Supplier<T> factory, int valueBytes) {
+    this.factory = factory;
+    this.pageBytes = RamUsageEstimator.alignObjectSize(
+        (long) RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) valueBytes * PAGE_SIZE);
+    this.pages = new ArrayBlockingQueue<>((int) Math.max(1, MAX_POOLED_BYTES / pageBytes));
+  }
+
+  /** Returns the index of the page holding the given key. */
+  public static int page(int key) {
+    return key >>> PAGE_SHIFT;
+  }
+
+  /** Returns the number of pages needed for the keys from 0 to maxKey, exclusive. */
+  public static int numPages(int maxKey) {
+    return (maxKey + PAGE_MASK) >>> PAGE_SHIFT;
+  }
+
+  /** Takes a page from the pool, or allocates one if the pool is empty. */
+  public T acquire() {
+    final T page = pages.poll();
+    return page != null ? page : factory.get();
+  }
+
+  /** Gives a page back to the pool. It must not be used by the caller anymore. */
+  public void release(T page) {
+    pages.offer(page);
+  }
+
+  /** The heap used by one page. */
+  public long pageBytes() {
+    return pageBytes;
+  }
+
+  /** The number of pages currently in the pool. */
+  public int size() {
+    return pages.size();
+  }
+}
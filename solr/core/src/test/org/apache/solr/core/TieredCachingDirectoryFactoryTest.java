@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.DirectoryFactory.DirContext;
+import org.apache.solr.store.blockcache.BlockDirectory;
+import org.apache.solr.store.blockcache.LocalCacheDirectory;
+import org.apache.solr.store.blockcache.LocalFileCache;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TieredCachingDirectoryFactoryTest extends SolrTestCaseJ4 {
+
+  private Path localCacheDir;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    localCacheDir = createTempDir("localCache");
+  }
+
+  @Test
+  public void testSharedTiersAreRefCounted() throws Exception {
+    TieredCachingDirectoryFactory first = newFactory(false);
+    TieredCachingDirectoryFactory second = newFactory(false);
+    LocalFileCache cache = first.getLocalFileCache();
+    assertSame(cache, second.getLocalFileCache());
+
+    first.close();
+    assertNull(first.getLocalFileCache());
+
+    // the cache is still used by the other factory
+    String path = createTempDir("index").toString();
+    Directory dir = second.get(path, DirContext.DEFAULT, DirectoryFactory.LOCK_TYPE_SINGLE);
+    try {
+      byte[] data = write(dir, "_0.cfs", 1000);
+      assertEquals(1, cache.size());
+      assertContent(data, dir, "_0.cfs");
+      assertEquals(1, cache.hits.get());
+    } finally {
+      second.release(dir);
+    }
+
+    // the last factory closes the cache, which deletes its copies
+    second.close();
+    assertNull(second.getLocalFileCache());
+    assertEquals(0, cache.size());
+    try (Stream<Path> copies = Files.list(localCacheDir)) {
+      assertEquals(0, copies.count());
+    }
+
+    TieredCachingDirectoryFactory third = newFactory(false);
+    try {
+      assertNotSame(cache, third.getLocalFileCache());
+    } finally {
+      third.close();
+    }
+  }
+
+  @Test
+  public void testMoveAndRenameInvalidateCopies() throws Exception {
+    TieredCachingDirectoryFactory factory = newFactory(false);
+    LocalFileCache cache = factory.getLocalFileCache();
+    Directory from = factory.get(createTempDir("from").toString(), DirContext.DEFAULT, DirectoryFactory.LOCK_TYPE_SINGLE);
+    Directory to = factory.get(createTempDir("to").toString(), DirContext.DEFAULT, DirectoryFactory.LOCK_TYPE_SINGLE);
+    try {
+      byte[] data = write(from, "_0.cfs", 1000);
+      write(to, "_0.cfs", 2000);
+      assertEquals(2, cache.size());
+
+      // the copy of the overwritten file must not be served for the moved one
+      factory.move(from, to, "_0.cfs", IOContext.DEFAULT);
+      assertEquals(0, cache.size());
+      assertContent(data, to, "_0.cfs");
+
+      byte[] renamed = write(to, "_1.cfs", 3000);
+      assertEquals(1, cache.size());
+      factory.renameWithOverwrite(to, "_1.cfs", "_0.cfs");
+      assertEquals(0, cache.size());
+      assertContent(renamed, to, "_0.cfs");
+    } finally {
+      factory.release(from);
+      factory.release(to);
+      factory.close();
+    }
+  }
+
+  @Test
+  public void testDirectoriesAreWrapped() throws Exception {
+    TieredCachingDirectoryFactory factory = newFactory(true);
+    String path = createTempDir("index").toString();
+    Directory dir = factory.get(path, DirContext.DEFAULT, DirectoryFactory.LOCK_TYPE_SINGLE);
+    Directory metaData = factory.get(createTempDir("meta").toString(), DirContext.META_DATA, DirectoryFactory.LOCK_TYPE_SINGLE);
+    try {
+      assertTrue(dir instanceof BlockDirectory);
+      assertTrue(((BlockDirectory) dir).getDelegate() instanceof LocalCacheDirectory);
+      assertTrue(metaData instanceof FSDirectory);
+    } finally {
+      factory.release(dir);
+      factory.release(metaData);
+      factory.close();
+    }
+
+    factory = newFactory(false);
+    dir = factory.get(path, DirContext.DEFAULT, DirectoryFactory.LOCK_TYPE_SINGLE);
+    try {
+      assertTrue(dir instanceof LocalCacheDirectory);
+    } finally {
+      factory.release(dir);
+      factory.close();
+    }
+  }
+
+  private TieredCachingDirectoryFactory newFactory(boolean blockCacheEnabled) {
+    NamedList<Object> args = new NamedList<>();
+    args.add(TieredCachingDirectoryFactory.LOCAL_CACHE_DIR, localCacheDir.toString());
+    args.add(TieredCachingDirectoryFactory.LOCAL_CACHE_MAX_MB, 10);
+    args.add(TieredCachingDirectoryFactory.BLOCKCACHE_ENABLED, blockCacheEnabled);
+    args.add(TieredCachingDirectoryFactory.BLOCKCACHE_BLOCKS_PER_BANK, 64);
+    args.add(TieredCachingDirectoryFactory.BLOCKCACHE_DIRECT_MEMORY_ALLOCATION, false);
+    TieredCachingDirectoryFactory factory = new TieredCachingDirectoryFactory();
+    factory.init(args);
+    return factory;
+  }
+
+  private static byte[] write(Directory dir, String name, int length) throws IOException {
+    byte[] data = new byte[length];
+    random().nextBytes(data);
+    try (IndexOutput out = dir.createOutput(name, IOContext.DEFAULT)) {
+      out.writeBytes(data, data.length);
+    }
+    return data;
+  }
+
+  private static void assertContent(byte[] expected, Directory dir, String name) throws IOException {
+    try (IndexInput in = dir.openInput(name, IOContext.DEFAULT)) {
+      assertEquals(expected.length, in.length());
+      byte[] actual = new byte[expected.length];
+      in.readBytes(actual, 0, actual.length);
+      assertArrayEquals(expected, actual);
+    }
+  }
+}
@@ -1285,6 +1285,83 @@ public class TestSQLHandler extends SolrCloudTestCase {
 
   }
 
+  @Test
+  public void testCountDistinctAndHavingWithLimit() throws Exception {
+
+    new UpdateRequest()
+        .add("id", "1", "text_t", "XXXX XXXX", "str_s", "a", "field_i", "7")
+        .add("id", "2", "text_t", "XXXX XXXX", "str_s", "b", "field_i", "8")
+        .add("id", "3", "text_t", "XXXX XXXX", "str_s", "a", "field_i", "20")
+        .add("id", "4", "text_t", "XXXX XXXX", "str_s", "b", "field_i", "8")
+        .add("id", "5", "text_t", "XXXX XXXX", "str_s", "c", "field_i", "30")
+        .add("id", "6", "text_t", "XXXX XXXX", "str_s", "c", "field_i", "40")
+        .add("id", "7", "text_t", "XXXX XXXX", "str_s", "c", "field_i", "30")
+        .add("id", "8", "text_t", "XXXX XXXX", "str_s", "c", "field_i", "60")
+        .add("id", "9", "text_t", "XXXX XXXY", "str_s", "d", "field_i", "70")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    String baseUrl = cluster.getJettySolrRunners().get(0).getBaseUrl().toString()+"/"+COLLECTIONORALIAS;
+
+    // count(distinct) is counted exactly over the buckets of the column
+    SolrParams sParams = mapParams(CommonParams.QT, "/sql", "aggregationMode", "facet",
+        "stmt", "select str_s, count(distinct field_i) from collection1 where text_t='XXXX' group by str_s " +
+            "order by str_s asc");
+
+    List<Tuple> tuples = getTuples(sParams, baseUrl);
+
+    assert (tuples.size() == 3);
+    assert (tuples.get(0).get("str_s").equals("a"));
+    assert (tuples.get(0).getLong("EXPR$1") == 2);
+    assert (tuples.get(1).get("str_s").equals("b"));
+    assert (tuples.get(1).getLong("EXPR$1") == 1);
+    assert (tuples.get(2).get("str_s").equals("c"));
+    assert (tuples.get(2).getLong("EXPR$1") == 3);
+
+    // also in map_reduce mode
+    sParams = mapParams(CommonParams.QT, "/sql", "aggregationMode", "map_reduce",
+        "stmt", "select str_s, count(distinct field_i) from collection1 where text_t='XXXX' group by str_s " +
+            "order by str_s asc");
+
+    tuples = getTuples(sParams, baseUrl);
+
+    assert (tuples.size() == 3);
+    assert (tuples.get(0).getLong("EXPR$1") == 2);
+    assert (tuples.get(1).getLong("EXPR$1") == 1);
+    assert (tuples.get(2).getLong("EXPR$1") == 3);
+
+    // approx_count_distinct is estimated by the hll facet function, which is exact for so few values
+    sParams = mapParams(CommonParams.QT, "/sql", "aggregationMode", "facet",
+        "stmt", "select str_s, approx_count_distinct(field_i) from collection1 where text_t='XXXX' group by str_s " +
+            "order by str_s asc");
+
+    tuples = getTuples(sParams, baseUrl);
+
+    assert (tuples.size() == 3);
+    assert (tuples.get(0).getLong("EXPR$1") == 2);
+    assert (tuples.get(1).getLong("EXPR$1") == 1);
+    assert (tuples.get(2).getLong("EXPR$1") == 3);
+
+    // without grouping
+    sParams = mapParams(CommonParams.QT, "/sql", "aggregationMode", "facet",
+        "stmt", "select count(distinct str_s) from collection1");
+
+    tuples = getTuples(sParams, baseUrl);
+
+    assert (tuples.size() == 1);
+    assert (tuples.get(0).getLong("EXPR$0") == 4);
+
+    // the limit applies to the buckets matching the having clause, not to the buckets fetched before it
+    sParams = mapParams(CommonParams.QT, "/sql", "aggregationMode", "facet",
+        "stmt", "select str_s, sum(field_i) from collection1 where text_t='XXXX' group by str_s " +
+            "having sum(field_i) > 100 order by sum(field_i) asc limit 1");
+
+    tuples = getTuples(sParams, baseUrl);
+
+    assert (tuples.size() == 1);
+    assert (tuples.get(0).get("str_s").equals("c"));
+    assert (tuples.get(0).getDouble("EXPR$1") == 160);
+  }
+
   @Test
   public void testAggregatesWithoutGrouping() throws Exception {
 
@@ -21,7 +21,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.embedded.JettySolrRunner;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
@@ -36,6 +39,8 @@ import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -120,6 +125,41 @@ public class SearchHandlerTest extends SolrTestCaseJ4
     }
   }
   
+  @Test
+  public void testPhaseTimes() throws Exception {
+    SolrCore core = h.getCore();
+    assertU(adoc("id", "1"));
+    assertU(commit());
+
+    NamedList<Object> args = new NamedList<>();
+    args.add(SearchHandler.INIT_PHASE_SAMPLE_INTERVAL, "1");
+    try (SearchHandler handler = new SearchHandler()) {
+      handler.init(args);
+      handler.inform(core);
+      handler.initializeMetrics(core.getSolrMetricsContext(), "/phases");
+
+      SolrQueryResponse rsp = new SolrQueryResponse();
+      try (SolrQueryRequest req = req("q", "*:*")) {
+        handler.handleRequest(req, rsp);
+      }
+      assertNull(rsp.getException());
+
+      Map<String, Metric> metrics = core.getCoreMetricManager().getRegistry().getMetrics();
+      String prefix = "QUERY./phases.phases.";
+      for (String name : new String[] {"prepare.time", "process.time", "prepare.query.time", "process.query.time"}) {
+        Metric timer = metrics.get(prefix + name);
+        assertTrue(prefix + name + " is not registered: " + metrics.keySet(), timer instanceof Timer);
+        assertEquals(prefix + name, 1, ((Timer) timer).getCount());
+      }
+    }
+
+    // the searcher samples its own timings, so they may not have recorded this query
+    Map<String, Metric> metrics = core.getCoreMetricManager().getRegistry().getMetrics();
+    for (String name : new String[] {"queryTime", "filterTime", "docFetchTime"}) {
+      assertTrue(name + " is not registered", metrics.get("SEARCHER.searcher." + name) instanceof Timer);
+    }
+  }
+
   @Test
   public void testZkConnected() throws Exception{
     MiniSolrCloudCluster miniCluster = new MiniSolrCloudCluster(5, createTempDir(), buildJettyConfig("/solr"));
@@ -80,7 +80,20 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     _testExpand(groups.get(0), floatAppend, hint);
   }
 
+  @Test
+  public void testExpandSinglePass() throws Exception {
+    // the groups are expanded from the documents retained by the collapse, or with a second search when the
+    // expand.q or expand.fq of a request ask for other documents
+    _testExpand("group_s", "", "", true);
+    clearIndex();
+    _testExpand("group_i", "", "", true);
+  }
+
   private void _testExpand(String group, String floatAppend, String hint) throws Exception {
+    _testExpand(group, floatAppend, hint, random().nextBoolean());
+  }
+
+  private void _testExpand(String group, String floatAppend, String hint, boolean singlePass) throws Exception {
     String[][] docs = {
         {"id","1", "term_s", "YYYY", group, "1"+floatAppend, "test_i", "5", "test_l", "10", "test_f", "2000", "type_s", "parent"},
         {"id","2", "term_s","YYYY", group, "1"+floatAppend, "test_i", "50", "test_l", "100", "test_f", "200", "type_s", "child"},
@@ -99,6 +112,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
 
     //First basic test case.
     assertQ(req(params), "*[count(/response/result/doc)=2]",
@@ -120,6 +134,19 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
         "/response/lst[@name='expanded']/result[@name='2"+floatAppend+"']/doc[2]/str[@name='id'][.='8']"
     );
 
+    //Test groups with more documents than are retained for expand.rows
+    assertQ(req(params, "expand.rows", "1"), "*[count(/response/result/doc)=2]",
+        "*[count(/response/lst[@name='expanded']/result)=2]",
+        "*[count(/response/lst[@name='expanded']/result/doc)=2]",
+        "/response/lst[@name='expanded']/result[@name='1"+floatAppend+"'][@numFound='2']/doc[1]/str[@name='id'][.='1']",
+        "/response/lst[@name='expanded']/result[@name='2"+floatAppend+"'][@numFound='2']/doc[1]/str[@name='id'][.='5']"
+    );
+    assertQ(req(params, "expand.rows", "1", "expand.sort", "test_l desc"),
+        "*[count(/response/lst[@name='expanded']/result/doc)=2]",
+        "/response/lst[@name='expanded']/result[@name='1"+floatAppend+"']/doc[1]/str[@name='id'][.='7']",
+        "/response/lst[@name='expanded']/result[@name='2"+floatAppend+"']/doc[1]/str[@name='id'][.='8']"
+    );
+
     //Test expand.sort
     //the "sub()" just testing function queries
     assertQ(req(params,"expand.sort", "test_l desc, sub(1,1) asc"),
@@ -141,6 +168,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.sort", "test_l desc");
     assertQ(req(params), "*[count(/response/result/doc)=3]",
         "*[count(/response/lst[@name='expanded']/result)=2]",
@@ -160,6 +188,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.q", "type_s:child");
     params.add("expand.field", group);
     params.add("expand.sort", "test_l desc");
@@ -181,6 +210,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.fq", "type_s:child");
     params.add("expand.field", group);
     params.add("expand.sort", "test_l desc");
@@ -201,6 +231,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.q", "type_s:child");
     params.add("expand.fq", "*:*");
     params.add("expand.field", group);
@@ -222,6 +253,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.sort", "test_l desc");
     params.add("expand.rows", "1");
     assertQ(req(params), "*[count(/response/result/doc)=2]",
@@ -241,6 +273,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.rows", "0");
     assertQ(req(params), "*[count(/response/result/doc)=2]",
             "*[count(/response/lst[@name='expanded']/result)=2]",
@@ -257,6 +290,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.fq", "type_s:child");
     params.add("expand.field", group);
     params.add("expand.rows", "0");
@@ -275,6 +309,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.fq", "*:*");
     params.add("expand.field", group);
     params.add("expand.rows", "0");
@@ -296,6 +331,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.sort", "test_l desc");
     params.add("expand.rows", "1");
     assertQ(req(params), "*[count(/response/result/doc)=1]",
@@ -309,6 +345,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
     params.add("expand.sort", "test_l desc");
     params.add("expand.rows", "1");
     assertQ(req(params), "*[count(/response/result/doc)=0]",
@@ -322,6 +359,7 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     params.add("defType", "edismax");
     params.add("bf", "field(test_i)");
     params.add("expand", "true");
+    params.add("expand.singlePass", Boolean.toString(singlePass));
 
     assertQ(req(params, "fl", "id"),
         "*[count(/response/result/doc)=2]",
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.metrics;
+
+import com.codahale.metrics.Timer;
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.Test;
+
+public class SampledTimerTest extends SolrTestCaseJ4 {
+
+  @Test
+  public void testSampling() {
+    Timer timer = new Timer();
+    SampledTimer always = new SampledTimer(timer, 1);
+    for (int i = 0; i < 10; i++) {
+      always.stop(always.start());
+    }
+    assertEquals(10, timer.getCount());
+
+    SampledTimer never = new SampledTimer(timer, 0);
+    for (int i = 0; i < 10; i++) {
+      never.stop(never.start());
+    }
+    assertEquals(10, timer.getCount());
+
+    int iters = 10000;
+    SampledTimer sampled = new SampledTimer(timer, 10);
+    for (int i = 0; i < iters; i++) {
+      sampled.stop(sampled.start());
+    }
+    long count = timer.getCount() - 10;
+    assertTrue("unexpected number of samples: " + count, count > 0 && count < iters / 2);
+  }
+
+  @Test
+  public void testNoOp() {
+    assertNull(SampledTimer.NO_OP.getTimer());
+    assertFalse(SampledTimer.NO_OP.sample());
+    assertEquals(0L, SampledTimer.NO_OP.start());
+    assertEquals(0L, SampledTimer.NO_OP.start(true));
+    SampledTimer.NO_OP.stop(0L);
+  }
+}
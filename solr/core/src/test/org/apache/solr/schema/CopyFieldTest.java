@@ -17,6 +17,7 @@
 package org.apache.solr.schema;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.solr.SolrTestCaseJ4;
@@ -235,6 +236,15 @@ public class CopyFieldTest extends SolrTestCaseJ4 {
     );
   }
 
+  public void testCopyFieldsListIsCached() {
+    IndexSchema schema = h.getCore().getLatestSchema();
+    List<CopyField> copyFields = schema.getCopyFieldsList("sku1");
+    assertFalse(copyFields.isEmpty());
+    assertSame(copyFields, schema.getCopyFieldsList("sku1"));
+    expectThrows(UnsupportedOperationException.class, () -> copyFields.add(copyFields.get(0)));
+    assertTrue(schema.getCopyFieldsList("sku1").stream().anyMatch(cf -> cf.getDestination().getName().equals("1_s")));
+  }
+
   public void testCatchAllCopyField() {
     IndexSchema schema = h.getCore().getLatestSchema();
 
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RequestMemoryTrackerTest extends SolrTestCaseJ4 {
+
+  private static final int NUM_DOCS = 1000;
+  private static final int NUM_CATS = 20;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig.xml", "schema.xml");
+    // a value per document, so that facets and collapses on val_s1 need structures sized by NUM_DOCS
+    for (int i = 0; i < NUM_DOCS; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", "c" + (i % NUM_CATS), "val_s1", "v" + i));
+    }
+    assertU(commit());
+  }
+
+  @After
+  public void resetNodeLimit() {
+    h.getCoreContainer().getRequestMemory().setLimit(-1);
+  }
+
+  @Test
+  public void testRequestLimit() {
+    RequestMemoryTracker.NodeMemory node = new RequestMemoryTracker.NodeMemory();
+    RequestMemoryTracker tracker = new RequestMemoryTracker(1000, node, false);
+    tracker.updateBytes(600);
+    SolrException e = expectThrows(SolrException.class, () -> tracker.updateBytes(600, () -> "test"));
+    assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, e.code());
+    assertTrue(e.getMessage().contains("test needs 600 bytes"));
+    assertEquals(600, tracker.getBytes());
+    assertEquals(1, node.getRequestLimitAborts());
+    assertEquals(0, node.getBytes());
+
+    tracker.updateBytes(-600);
+    tracker.updateBytes(1000);
+    assertEquals(1000, tracker.getBytes());
+  }
+
+  @Test
+  public void testNodeLimit() {
+    RequestMemoryTracker.NodeMemory node = new RequestMemoryTracker.NodeMemory();
+    node.setLimit(1000);
+    RequestMemoryTracker first = new RequestMemoryTracker(-1, node, true);
+    RequestMemoryTracker second = new RequestMemoryTracker(-1, node, true);
+
+    first.updateBytes(600);
+    SolrException e = expectThrows(SolrException.class, () -> second.updateBytes(600));
+    assertEquals(SolrException.ErrorCode.SERVICE_UNAVAILABLE.code, e.code());
+    assertEquals(0, second.getBytes());
+    assertEquals(600, node.getBytes());
+    assertEquals(1, node.getNodeLimitAborts());
+
+    // the requests of another node are accounted apart
+    RequestMemoryTracker.NodeMemory other = new RequestMemoryTracker.NodeMemory();
+    RequestMemoryTracker third = new RequestMemoryTracker(-1, other, true);
+    third.updateBytes(600);
+    assertEquals(600, other.getBytes());
+    assertEquals(600, node.getBytes());
+    third.close();
+
+    first.close();
+    assertEquals(0, node.getBytes());
+    second.updateBytes(600);
+    second.close();
+    second.close();
+    assertEquals(0, node.getBytes());
+  }
+
+  @Test
+  public void testQueriesAreTracked() throws Exception {
+    RequestMemoryTracker.NodeMemory node = h.getCoreContainer().getRequestMemory();
+    long before = node.getBytes();
+    node.setLimit(before + 1024);
+    // the queue of the top documents is sized by rows, not by the number of matches
+    assertQEx("large rows should exceed the node limit", req("q", "*:*", "rows", "100000"),
+        SolrException.ErrorCode.SERVICE_UNAVAILABLE);
+    assertEquals(before, node.getBytes());
+
+    assertQ(req("q", "*:*", "rows", "10"), "//result[@numFound='" + NUM_DOCS + "']");
+    assertEquals(before, node.getBytes());
+
+    node.setLimit(-1);
+    assertQ(req("q", "*:*", "rows", "100000"), "//result[@numFound='" + NUM_DOCS + "']");
+    assertEquals(before, node.getBytes());
+  }
+
+  @Test
+  public void testFacetLimit() throws Exception {
+    RequestMemoryTracker.NodeMemory node = h.getCoreContainer().getRequestMemory();
+    long before = node.getBytes();
+    long aborts = node.getNodeLimitAborts();
+    node.setLimit(before + 10 * 1024);
+    // the slots and the queue of NUM_DOCS buckets
+    assertQEx("a facet with a bucket per document should exceed the node limit",
+        req("q", "*:*", "rows", "0", "json.facet", "{vals:{type:terms, field:val_s1, limit:-1}}"),
+        SolrException.ErrorCode.SERVICE_UNAVAILABLE);
+    assertEquals(aborts + 1, node.getNodeLimitAborts());
+    assertEquals(before, node.getBytes());
+
+    assertJQ(req("q", "*:*", "rows", "0", "json.facet", "{cats:{type:terms, field:cat_s, limit:-1}}"),
+        "facets/cats/buckets/[" + (NUM_CATS - 1) + "]/count==" + (NUM_DOCS / NUM_CATS));
+    assertEquals(before, node.getBytes());
+  }
+
+  @Test
+  public void testNestedFacetReleasesSubFacets() throws Exception {
+    RequestMemoryTracker.NodeMemory node = h.getCoreContainer().getRequestMemory();
+    long before = node.getBytes();
+    String json = "{cats:{type:terms, field:cat_s, limit:-1, facet:{vals:{type:terms, field:val_s1, limit:-1}}}}";
+
+    // the sub-facet of each category needs the slots and the queue of NUM_DOCS buckets, once at a time
+    node.setLimit(before + 10 * 1024);
+    assertQEx("a single sub-facet should exceed the node limit", req("q", "*:*", "rows", "0", "json.facet", json),
+        SolrException.ErrorCode.SERVICE_UNAVAILABLE);
+
+    // the sub-facets of all categories together would need more than NUM_CATS times that
+    node.setLimit(before + 200 * 1024);
+    assertJQ(req("q", "*:*", "rows", "0", "json.facet", json),
+        "facets/cats/buckets/[0]/vals/buckets/[" + (NUM_DOCS / NUM_CATS - 1) + "]/count==1");
+    assertEquals(before, node.getBytes());
+  }
+
+  @Test
+  public void testCollapseLimit() throws Exception {
+    RequestMemoryTracker.NodeMemory node = h.getCoreContainer().getRequestMemory();
+    long before = node.getBytes();
+    long aborts = node.getNodeLimitAborts();
+    node.setLimit(before + 4 * 1024);
+    assertQ(req("q", "*:*", "rows", "10"), "//result[@numFound='" + NUM_DOCS + "']");
+
+    // the heads of NUM_DOCS groups
+    assertQEx("a collapse with a group per document should exceed the node limit",
+        req("q", "*:*", "rows", "10", "fq", "{!collapse field=val_s1}"),
+        SolrException.ErrorCode.SERVICE_UNAVAILABLE);
+    assertEquals(aborts + 1, node.getNodeLimitAborts());
+    assertEquals(before, node.getBytes());
+
+    node.setLimit(-1);
+    assertQ(req("q", "*:*", "rows", "10", "fq", "{!collapse field=val_s1}"), "//result[@numFound='" + NUM_DOCS + "']");
+    assertEquals(before, node.getBytes());
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCaseJ4;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -108,6 +109,21 @@ public class SolrIndexSearcherTest extends SolrTestCaseJ4 {
     return qr;
   }
   
+  public void testIdLookup() throws IOException {
+    h.getCore().withSearcher(searcher -> {
+      IdLookup idLookup = new IdLookup(searcher);
+      assertSame(searcher, idLookup.getSearcher());
+      // look up in random order, including unknown ids and the doc "1" that was re-added and thus also deleted
+      for (int iter = 0; iter < 3 * NUM_DOCS; iter++) {
+        BytesRef id = new BytesRef(String.valueOf(random().nextInt(NUM_DOCS + 5)));
+        assertEquals(searcher.lookupId(id), idLookup.lookupId(id));
+        assertEquals(searcher.getFirstMatch(new Term("id", id)), idLookup.getFirstMatch(id));
+      }
+      assertEquals(-1, idLookup.getFirstMatch(new BytesRef("unknown")));
+      return null;
+    });
+  }
+
   public void testLowMinExactCountGeneratesApproximation() throws IOException {
     h.getCore().withSearcher(searcher -> {
       QueryCommand cmd = createBasicQueryCommand(NUM_DOCS / 2, 10, "field1_s", "foo");
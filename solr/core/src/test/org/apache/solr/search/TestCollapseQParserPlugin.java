@@ -280,6 +280,23 @@ public class TestCollapseQParserPlugin extends SolrTestCaseJ4 {
     assertQ(req(params)); // fails *second* time!
   }
 
+  @Test
+  public void testGroupHeadMemoryInDebug() throws Exception {
+    assertU(adoc("id", "1", "group_s", "a", "test_i", "5"));
+    assertU(adoc("id", "2", "group_s", "a", "test_i", "50"));
+    assertU(adoc("id", "3", "group_s", "b", "test_i", "1"));
+    assertU(commit());
+
+    for (String collapse : new String[] {"{!collapse field=group_s}", "{!collapse field=group_s max=test_i}"}) {
+      assertQ(req("q", "*:*", "fq", collapse, "debugQuery", "true"),
+          "*[count(//doc)=2]",
+          "//lst[@name='debug']/lst[@name='collapse']/long[@name='groupHeadBytes'][.>0]");
+      assertQ(req("q", "*:*", "fq", collapse),
+          "*[count(//doc)=2]",
+          "count(//lst[@name='debug'])=0");
+    }
+  }
+
   @Test
   public void testMergeBoost() throws Exception {
 
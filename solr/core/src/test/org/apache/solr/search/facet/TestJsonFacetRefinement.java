@@ -18,7 +18,9 @@
 package org.apache.solr.search.facet;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.lucene.util.TestUtil;
@@ -26,6 +28,7 @@ import org.apache.lucene.util.TestUtil;
 import org.apache.solr.JSONTestUtil;
 import org.apache.solr.SolrTestCaseHS;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.common.util.Utils;
@@ -462,6 +465,110 @@ public class TestJsonFacetRefinement extends SolrTestCaseHS {
     
   }
 
+  @Test
+  public void testMergeWithAdaptiveRefine() throws Exception {
+    // with mincount:2 the default hueristic refines everything (limit=2 + 10% + 4 =~ 6 total),
+    // but the smallest count returned by each shard bounds what the unseen buckets can reach:
+    // x4 can be at most 10+2 and x5 at most 1+2, neither of which can beat x1's 20
+    doTestRefine("{x : {type:terms, field:X, limit:2, mincount:2, refine:true} }",
+                 //
+                 "{x: {buckets:[{val:x1, count:20}, {val:x2, count:15}, {val:x3, count:2}], more:true } }",
+                 "{x: {buckets:[{val:x2, count:18}, {val:x4, count:10}, {val:x5, count:1}], more:true } }",
+                 //
+                 "=={x:{_l:[x4,x5]}}",
+                 "=={x:{_l:[x1,x3]}}");
+    doTestRefine("{x : {type:terms, field:X, limit:2, mincount:2, refine:true, adaptiveRefine:true} }",
+                 //
+                 "{x: {buckets:[{val:x1, count:20}, {val:x2, count:15}, {val:x3, count:2}], more:true } }",
+                 "{x: {buckets:[{val:x2, count:18}, {val:x4, count:10}, {val:x5, count:1}], more:true } }",
+                 //
+                 null,
+                 "=={x:{_l:[x1]}}");
+
+    // the same with an explicit overrequest, which the heuristic also refines
+    doTestRefine("{x : {type:terms, field:X, limit:2, mincount:2, overrequest:3, refine:true} }",
+                 //
+                 "{x: {buckets:[{val:x1, count:20}, {val:x2, count:15}, {val:x3, count:2}], more:true } }",
+                 "{x: {buckets:[{val:x2, count:18}, {val:x4, count:10}, {val:x5, count:1}], more:true } }",
+                 //
+                 "=={x:{_l:[x4,x5]}}",
+                 "=={x:{_l:[x1,x3]}}");
+    doTestRefine("{x : {type:terms, field:X, limit:2, mincount:2, overrequest:3, refine:true, adaptiveRefine:true} }",
+                 //
+                 "{x: {buckets:[{val:x1, count:20}, {val:x2, count:15}, {val:x3, count:2}], more:true } }",
+                 "{x: {buckets:[{val:x2, count:18}, {val:x4, count:10}, {val:x5, count:1}], more:true } }",
+                 //
+                 null,
+                 "=={x:{_l:[x1]}}");
+
+    // adaptiveRefine never refines more than the heuristic: count desc w/o mincount doesn't overrefine at all,
+    // so x4 (which may still reach 19+2) isn't refined either way
+    doTestRefine("{x : {type:terms, field:X, limit:2, refine:true} }",
+                 //
+                 "{x: {buckets:[{val:x1, count:20}, {val:x2, count:15}, {val:x3, count:2}], more:true } }",
+                 "{x: {buckets:[{val:x4, count:19}, {val:x2, count:18}, {val:x5, count:1}], more:true } }",
+                 //
+                 null,
+                 "=={x:{_l:[x1]}}");
+    doTestRefine("{x : {type:terms, field:X, limit:2, refine:true, adaptiveRefine:true} }",
+                 //
+                 "{x: {buckets:[{val:x1, count:20}, {val:x2, count:15}, {val:x3, count:2}], more:true } }",
+                 "{x: {buckets:[{val:x4, count:19}, {val:x2, count:18}, {val:x5, count:1}], more:true } }",
+                 //
+                 null,
+                 "=={x:{_l:[x1]}}");
+
+    // an explicit overrefine takes precedence over adaptiveRefine
+    doTestRefine("{x : {type:terms, field:X, limit:2, overrefine:0, refine:true, adaptiveRefine:true} }",
+                 //
+                 "{x: {buckets:[{val:x1, count:20}, {val:x2, count:15}, {val:x3, count:2}], more:true } }",
+                 "{x: {buckets:[{val:x4, count:19}, {val:x2, count:18}, {val:x5, count:1}], more:true } }",
+                 //
+                 null,
+                 "=={x:{_l:[x1]}}");
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void testStreamingMerge() throws Exception {
+    SolrQueryRequest req = req();
+    try {
+      FacetRequest facetRequest = new FacetParser.FacetTopParser(req).parse(Utils.fromJSONString(
+          "{x : {type:terms, field:X, method:stream, sort:'index asc', offset:1, limit:3, mincount:2} }"));
+      String[] responses = {
+          "{x: {buckets:[{val:a, count:1}, {val:b, count:1}, {val:d, count:2}, {val:f, count:1}] } }",
+          "{x: {buckets:[{val:b, count:3}, {val:c, count:1}, {val:d, count:1}, {val:e, count:2}, {val:f, count:1}] } }"
+      };
+
+      FacetMerger merger = null;
+      FacetMerger.Context ctx = new FacetMerger.Context(responses.length);
+      for (int i = 0; i < responses.length; i++) {
+        Object response = fromJSON(responses[i]);
+        if (i == 0) {
+          merger = facetRequest.createFacetMerger(response);
+        }
+        ctx.newShard("s" + i);
+        merger.merge(response, ctx);
+      }
+
+      // merged: a:1, b:4, c:1, d:3, e:2, f:2 -- and after mincount & offset, the first 3 of those are returned
+      SimpleOrderedMap x = (SimpleOrderedMap) ((SimpleOrderedMap) merger.getMergedResult()).get("x");
+      Object buckets = x.get("buckets");
+      assertTrue("buckets should be streamed: " + buckets, buckets instanceof Iterator);
+      List<SimpleOrderedMap> bucketList = new ArrayList<>();
+      ((Iterator<SimpleOrderedMap>) buckets).forEachRemaining(bucketList::add);
+      assertEquals(3, bucketList.size());
+      assertEquals("d", bucketList.get(0).get("val"));
+      assertEquals(3L, bucketList.get(0).get("count"));
+      assertEquals("e", bucketList.get(1).get("val"));
+      assertEquals(2L, bucketList.get(1).get("count"));
+      assertEquals("f", bucketList.get(2).get("val"));
+      assertEquals(2L, bucketList.get(2).get("count"));
+    } finally {
+      req.close();
+    }
+  }
+
   /** 
    * When <code>prelim_sort</code> is used, all 'top bucket' choices for refinement should still be based on
    * it, not the <code>sort</code> param, so this test is just some sanity checks that the presence of the 
@@ -1110,6 +1217,13 @@ public class TestJsonFacetRefinement extends SolrTestCaseHS {
               "}"
       );
 
+      // the refinement statistics are only reported if adaptiveRefine was requested
+      for (boolean adaptiveRefine : new boolean[] {false, true}) {
+        QueryResponse rsp = clients.get(0).query(params("q", "*:*", "shards", servers.getShards(), "debugQuery", "true",
+            "json.facet", "{cat0:{type:terms, field:" + cat_s + ", limit:1, overrequest:0, refine:true, adaptiveRefine:" + adaptiveRefine + "}}"));
+        assertEquals(adaptiveRefine, rsp.getDebugMap().containsKey("facet-refinement"));
+      }
+
       // same as above, but with an integer field instead of a string
       client.testJQ(params(p, "q", "*:*",
           "json.facet", "{" +
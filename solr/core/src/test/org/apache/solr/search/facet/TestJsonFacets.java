@@ -239,6 +239,51 @@ public class TestJsonFacets extends SolrTestCaseHS {
     client.commit();
   }
 
+  public void testConcurrentSiblingFacets() throws Exception {
+    Client client = Client.localClient();
+    indexSimple(client);
+
+    // the same results regardless of how many threads the top level facets are computed with
+    for (String threads : new String[] {"0", "1", "2", "-1"}) {
+      assertJQ(req("q", "*:*", "rows", "0", "facet.threads", threads, "json.facet"
+                   , "{ cats:{type:terms, field:cat_s, facet:{s:'sum(num_i)'}}, "
+                   + "  wheres:{type:terms, field:where_s}, "
+                   + "  a:{type:query, q:'cat_s:A'}, "
+                   + "  x:'sum(num_i)' }")
+               , "facets=={ count:6, x:2.0, "
+               + "  cats:{buckets:[{val:B, count:3, s:-3.0}, {val:A, count:2, s:5.0}]}, "
+               + "  wheres:{buckets:[{val:NJ, count:3}, {val:NY, count:2}]}, "
+               + "  a:{count:2} }"
+               );
+    }
+  }
+
+  public void testConcurrentSiblingFacetsUseRequestInfo() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    client.add(sdoc("id", "1", "cat_s", "A", "tags_ss", "x", "tags_ss", "y"), null);
+    client.add(sdoc("id", "2", "cat_s", "B", "tags_ss", "y"), null);
+    client.add(sdoc("id", "3", "cat_s", "B", "tags_ss", "x", "tags_ss", "z"), null);
+    client.add(sdoc("id", "4", "cat_s", "A"), null);
+    client.commit();
+
+    // excluded tags look up the filters of the request, while streamed terms and unique() of an uninverted
+    // field register close hooks with it
+    for (String threads : new String[] {"0", "2", "-1"}) {
+      assertJQ(req("q", "*:*", "rows", "0", "fq", "{!tag=c}cat_s:A", "facet.threads", threads, "json.facet"
+                   , "{ all:{type:terms, field:cat_s, domain:{excludeTags:c}}, "
+                   + "  streamed:{type:terms, field:tags_ss, method:stream, sort:'index asc'}, "
+                   + "  cats:{type:terms, field:cat_s, facet:{u:'unique(tags_ss)'}}, "
+                   + "  tags:{type:terms, field:tags_ss, facet:{u:'unique(tags_ss)'}} }")
+               , "facets=={ count:2, "
+               + "  all:{buckets:[{val:A, count:2}, {val:B, count:2}]}, "
+               + "  streamed:{buckets:[{val:x, count:1}, {val:y, count:1}]}, "
+               + "  cats:{buckets:[{val:A, count:2, u:2}]}, "
+               + "  tags:{buckets:[{val:x, count:1, u:2}, {val:y, count:1, u:2}]} }"
+               );
+    }
+  }
+
   public void testMultiValuedBucketReHashing() throws Exception {
     Client client = Client.localClient();
     client.deleteByQuery("*:*", null);
@@ -270,6 +315,15 @@ public class TestJsonFacets extends SolrTestCaseHS {
              , "facets/count==2"
              , "facets/f=={buckets:[{ val:999, count:2, x:180.0, z:42 }]}"
              );
+
+    // ...and on a per-bucket hll, which uses a sparse HLL for each slot
+    assertJQ(req("rows", "0", "q", "id:[1 TO 3]", "json.facet"
+                 , "{ f : { type: terms, field: f_ids, limit: 1, sort: 'x desc', "
+                 + "        facet: { x : 'hll(x_ids)' } } }")
+             , "response/numFound==3"
+             , "facets/count==3"
+             , "facets/f=={buckets:[{ val:999, count:3, x:9 }]}"
+             );
   }
 
   public void testBehaviorEquivilenceOfUninvertibleFalse() throws Exception {
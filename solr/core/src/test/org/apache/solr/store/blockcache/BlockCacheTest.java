@@ -92,6 +92,53 @@ public class BlockCacheTest extends SolrTestCase {
     System.out.println("# of Elements = " + blockCache.getSize());
   }
 
+  @Test
+  public void testAdmission() {
+    int blockSize = 64;
+    int slabSize = blockSize * 64;
+    Metrics metrics = new Metrics();
+    BlockCache blockCache = new BlockCache(metrics, false, slabSize, slabSize, blockSize, true);
+    byte[] data = new byte[blockSize];
+
+    BlockCacheKey blockCacheKey = new BlockCacheKey();
+    blockCacheKey.setPath("/");
+    // blocks are admitted while the cache is not full
+    for (int block = 0; block < 63; block++) {
+      blockCacheKey.setBlock(block);
+      assertTrue(blockCache.store(blockCacheKey, "dvd", 0, data, 0, blockSize));
+    }
+    assertEquals(0, metrics.blockCacheAdmissionReject.get());
+
+    // a block missed for the first time is not admitted to the full cache, but it is the next time
+    blockCacheKey.setBlock(1000);
+    assertFalse(blockCache.store(blockCacheKey, "dvd", 0, data, 0, blockSize));
+    assertEquals(1, metrics.blockCacheAdmissionReject.get());
+    assertTrue(blockCache.store(blockCacheKey, "dvd", 0, data, 0, blockSize));
+
+    // the counts are halved once the misses reach ten times the number of entries, so old misses are forgotten
+    int hash = blockCacheKey.hashCode();
+    boolean aged = false;
+    for (int block = 2000; block < 12000 && !aged; block++) {
+      int before = blockCache.admission.frequency(hash);
+      blockCacheKey.setBlock(block);
+      blockCache.store(blockCacheKey, "dvd", 0, data, 0, blockSize);
+      int after = blockCache.admission.frequency(hash);
+      if (after < before) {
+        // the miss just counted may have shared a counter with the block before the counts were halved
+        assertTrue(after + " of " + before, after <= (before + 1) / 2);
+        aged = true;
+      }
+    }
+    assertTrue("the counts were never halved", aged);
+  }
+
+  @Test
+  public void testFileType() {
+    assertEquals("tip", BlockDirectoryCache.getFileType("hdfs://host:8020/solr/core/data/index/_0_Lucene50_0.tip:1234"));
+    assertEquals("dvd", BlockDirectoryCache.getFileType("/solr/core.1/data/index/_1.dvd:5678"));
+    assertEquals("other", BlockDirectoryCache.getFileType("/solr/core.1/data/index/segments_2:5678"));
+  }
+
   private static byte[] testData(Random random, int size, byte[] buf) {
     random.nextBytes(buf);
     return buf;
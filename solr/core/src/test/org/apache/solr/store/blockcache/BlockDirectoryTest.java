@@ -18,6 +18,7 @@ package org.apache.solr.store.blockcache;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Random;
 
@@ -261,6 +262,37 @@ public class BlockDirectoryTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testMergeReadsCachedBlocksOnly() throws IOException {
+    FSDirectory fsDir = FSDirectory.open(new File(file, "merge").toPath());
+    byte[] data = new byte[2 * BlockDirectory.BLOCK_SIZE];
+    random.nextBytes(data);
+    try (IndexOutput output = fsDir.createOutput("_0.fdt", IOContext.DEFAULT)) {
+      output.writeBytes(data, data.length);
+    }
+    MapperCache cache = new MapperCache();
+    BlockDirectory d = new BlockDirectory("test", fsDir, cache, null, true, false, false, false);
+    // the cached first block differs from the file, so that it is told apart from the block read from the file
+    byte[] cached = new byte[BlockDirectory.BLOCK_SIZE];
+    random.nextBytes(cached);
+    cache.update(d.getFileCacheName("_0.fdt"), 0, 0, cached, 0, cached.length);
+
+    IOContext mergeContext = new IOContext(new MergeInfo(1, data.length, false, 1));
+    for (IOContext context : new IOContext[] {mergeContext, IOContext.READONCE}) {
+      try (IndexInput input = d.openInput("_0.fdt", context)) {
+        byte[] buf = new byte[16];
+        input.readBytes(buf, 0, buf.length);
+        assertArrayEquals(Arrays.copyOf(cached, buf.length), buf);
+        input.seek(BlockDirectory.BLOCK_SIZE);
+        input.readBytes(buf, 0, buf.length);
+        assertArrayEquals(Arrays.copyOfRange(data, BlockDirectory.BLOCK_SIZE, BlockDirectory.BLOCK_SIZE + buf.length), buf);
+      }
+      // the second block was not admitted
+      assertEquals(1, cache.size());
+    }
+    d.close();
+  }
+
   /**
    * Verify the configuration options for the block cache are handled
    * appropriately.
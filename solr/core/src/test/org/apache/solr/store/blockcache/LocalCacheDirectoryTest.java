@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.store.blockcache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MergeInfo;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.util.TimeOut;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalCacheDirectoryTest extends SolrTestCaseJ4 {
+
+  private LocalFileCache cache;
+  private LocalCacheDirectory directory;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    cache = new LocalFileCache(createTempDir("localCache"), 1 << 20, 1);
+    Directory slow = FSDirectory.open(createTempDir("index"));
+    directory = new LocalCacheDirectory("index", slow, cache);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    IOUtils.close(directory, cache);
+    super.tearDown();
+  }
+
+  @Test
+  public void testWrittenFileIsServedFromCopy() throws IOException {
+    byte[] data = write("_0.cfs", 10000);
+    assertEquals(1, cache.size());
+
+    assertContent(data, "_0.cfs", IOContext.DEFAULT);
+    assertEquals(1, cache.hits.get());
+    assertEquals(0, cache.misses.get());
+
+    directory.deleteFile("_0.cfs");
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testOpenedFileIsCopied() throws Exception {
+    byte[] data = new byte[5000];
+    random().nextBytes(data);
+    try (IndexOutput out = directory.getDelegate().createOutput("_1.fdt", IOContext.DEFAULT)) {
+      out.writeBytes(data, data.length);
+    }
+
+    assertContent(data, "_1.fdt", IOContext.DEFAULT);
+    assertEquals(1, cache.misses.get());
+    TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+    timeOut.waitFor("the file was not copied", () -> cache.size() == 1);
+
+    assertContent(data, "_1.fdt", IOContext.DEFAULT);
+    assertEquals(1, cache.hits.get());
+  }
+
+  @Test
+  public void testFileDeletedWhileCopiedIsNotCached() throws Exception {
+    byte[] data = new byte[5000];
+    random().nextBytes(data);
+    for (String name : new String[] {"_3.fdt", "_4.fdt"}) {
+      try (IndexOutput out = directory.getDelegate().createOutput(name, IOContext.DEFAULT)) {
+        out.writeBytes(data, data.length);
+      }
+    }
+    CountDownLatch copying = new CountDownLatch(1);
+    CountDownLatch deleted = new CountDownLatch(1);
+    Directory slow = new FilterDirectory(directory.getDelegate()) {
+      @Override
+      public IndexInput openInput(String name, IOContext context) throws IOException {
+        if (name.equals("_3.fdt")) {
+          copying.countDown();
+          try {
+            deleted.await();
+          } catch (InterruptedException e) {
+            throw new ThreadInterruptedException(e);
+          }
+        }
+        return super.openInput(name, context);
+      }
+    };
+
+    cache.copyAsync("index/_3.fdt", slow, "_3.fdt", data.length);
+    copying.await();
+    cache.invalidate("index/_3.fdt");
+    deleted.countDown();
+
+    // copies are made one after the other
+    cache.copyAsync("index/_4.fdt", slow, "_4.fdt", data.length);
+    TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+    timeOut.waitFor("the file was not copied", () -> cache.size() == 1);
+    assertNull(cache.openInput("index/_3.fdt", data.length, IOContext.DEFAULT));
+    try (IndexInput in = cache.openInput("index/_4.fdt", data.length, IOContext.DEFAULT)) {
+      assertNotNull(in);
+    }
+  }
+
+  @Test
+  public void testMergeReadsAreNotCopied() throws IOException {
+    byte[] data = new byte[100];
+    random().nextBytes(data);
+    try (IndexOutput out = directory.getDelegate().createOutput("_2.doc", IOContext.DEFAULT)) {
+      out.writeBytes(data, data.length);
+    }
+    assertContent(data, "_2.doc", new IOContext(new MergeInfo(1, data.length, false, 1)));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testReadOnceReadsAreNotCopied() throws IOException {
+    byte[] data = new byte[100];
+    random().nextBytes(data);
+    try (IndexOutput out = directory.getDelegate().createOutput("_2.doc", IOContext.DEFAULT)) {
+      out.writeBytes(data, data.length);
+    }
+    assertContent(data, "_2.doc", IOContext.READONCE);
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testOnlyCopiesAreDeletedOnCreation() throws IOException {
+    Path root = createTempDir("localCacheRoot");
+    Files.write(root.resolve("other"), new byte[] {1});
+    Files.createDirectories(root.resolve(LocalFileCache.COPIES_DIR));
+    Files.write(root.resolve(LocalFileCache.COPIES_DIR).resolve("1_old.cfs"), new byte[] {1});
+
+    new LocalFileCache(root, 1 << 20, 1).close();
+    assertTrue(Files.exists(root.resolve("other")));
+    assertFalse(Files.exists(root.resolve(LocalFileCache.COPIES_DIR).resolve("1_old.cfs")));
+  }
+
+  @Test
+  public void testSegmentsFilesAreNotCached() throws IOException {
+    write("segments_1", 100);
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    for (int i = 0; i < 8; i++) {
+      write("_" + i + ".cfs", 200 * 1024);
+    }
+    assertTrue(cache.size() < 8);
+    assertTrue(cache.evictions.get() > 0);
+  }
+
+  private byte[] write(String name, int length) throws IOException {
+    byte[] data = new byte[length];
+    random().nextBytes(data);
+    try (IndexOutput out = directory.createOutput(name, IOContext.DEFAULT)) {
+      out.writeBytes(data, data.length);
+    }
+    return data;
+  }
+
+  private void assertContent(byte[] expected, String name, IOContext context) throws IOException {
+    try (IndexInput in = directory.openInput(name, context)) {
+      assertEquals(expected.length, in.length());
+      byte[] actual = new byte[expected.length];
+      in.readBytes(actual, 0, actual.length);
+      assertArrayEquals(expected, actual);
+    }
+  }
+}
@@ -23,12 +23,13 @@ import org.apache.lucene.util.LuceneTestCase;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateHttp2SolrClient;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.NamedList;
 
 public class MockStreamingSolrClients extends StreamingSolrClients {
   
-  public enum Exp {CONNECT_EXCEPTION, SOCKET_EXCEPTION, BAD_REQUEST};
+  public enum Exp {CONNECT_EXCEPTION, SOCKET_EXCEPTION, BAD_REQUEST, QUEUE_WAIT_TIMEOUT};
   
   private volatile Exp exp = null;
   
@@ -54,6 +55,8 @@ public class MockStreamingSolrClients extends StreamingSolrClients {
         return new SocketException();
       case BAD_REQUEST:
         return new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Bad Request");
+      case QUEUE_WAIT_TIMEOUT:
+        return new ConcurrentUpdateHttp2SolrClient.QueueWaitTimeoutException("Request could not be queued");
       default:
         break;
     }
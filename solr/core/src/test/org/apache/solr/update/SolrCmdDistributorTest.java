@@ -33,6 +33,7 @@ import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.JettySolrRunner;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.request.UpdateRequest;
@@ -340,6 +341,7 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     
     testMaxRetries(NodeType.FORWARD);
     testMaxRetries(NodeType.STANDARD);
+    testSlowReplica();
     testOneRetry(NodeType.FORWARD);
     testOneRetry(NodeType.STANDARD);
     testRetryNodeAgainstBadAddress();
@@ -482,6 +484,47 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     }
   }
 
+  private void testSlowReplica() throws IOException {
+    final MockStreamingSolrClients streamingClients;
+    System.setProperty("solr.cloud.replication.maxQueueWaitMs", "100");
+    try {
+      streamingClients = new MockStreamingSolrClients(updateShardHandler);
+    } finally {
+      System.clearProperty("solr.cloud.replication.maxQueueWaitMs");
+    }
+    long slowReplicas = updateShardHandler.getSlowReplicas().getCount();
+    long enqueued = updateShardHandler.getReplicationEnqueueTime().getCount();
+    final HttpSolrClient solrclient1 = (HttpSolrClient) clients.get(0);
+    ZkNodeProps nodeProps = new ZkNodeProps(ZkStateReader.BASE_URL_PROP, solrclient1.getBaseURL(), ZkStateReader.CORE_NAME_PROP, "");
+    List<Node> nodes = Collections.singletonList(new StdNode(new ZkCoreNodeProps(nodeProps), "collection1", "shard1", 0));
+
+    try (SolrCmdDistributor cmdDistrib = new SolrCmdDistributor(streamingClients, 0)) {
+      // other failures don't make a slow replica, whatever time they take
+      streamingClients.setExp(Exp.SOCKET_EXCEPTION);
+      AddUpdateCommand cmd = new AddUpdateCommand(null);
+      cmd.solrDoc = sdoc("id", id.incrementAndGet());
+      cmdDistrib.distribAdd(cmd, nodes, new ModifiableSolrParams());
+      assertEquals(slowReplicas, updateShardHandler.getSlowReplicas().getCount());
+
+      streamingClients.setExp(Exp.QUEUE_WAIT_TIMEOUT);
+      for (int i = 0; i < 2; i++) {
+        cmd = new AddUpdateCommand(null);
+        cmd.solrDoc = sdoc("id", id.incrementAndGet());
+        cmdDistrib.distribAdd(cmd, nodes, new ModifiableSolrParams());
+      }
+      cmdDistrib.finish();
+
+      List<Error> errors = cmdDistrib.getErrors();
+      assertEquals(3, errors.size());
+      Throwable timeout = errors.get(1).e instanceof SolrServerException ? errors.get(1).e.getCause() : errors.get(1).e;
+      assertTrue(timeout.toString(), timeout instanceof ConcurrentUpdateHttp2SolrClient.QueueWaitTimeoutException);
+      // the replica is given up on for the rest of the request
+      assertTrue(errors.get(2).e.getMessage(), errors.get(2).e.getMessage().contains("could not keep up"));
+      assertEquals(slowReplicas + 1, updateShardHandler.getSlowReplicas().getCount());
+      assertEquals(enqueued + 3, updateShardHandler.getReplicationEnqueueTime().getCount());
+    }
+  }
+
   private void testMaxRetries(NodeType nodeType) throws IOException {
     final MockStreamingSolrClients streamingClients = new MockStreamingSolrClients(updateShardHandler);
     try (SolrCmdDistributor cmdDistrib = new SolrCmdDistributor(streamingClients, 0)) {
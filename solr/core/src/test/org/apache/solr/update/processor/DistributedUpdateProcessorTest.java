@@ -20,12 +20,16 @@ package org.apache.solr.update.processor;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.function.Function;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -135,6 +139,29 @@ public class DistributedUpdateProcessorTest extends SolrTestCaseJ4 {
     assertThat(succeeded, is(threads));
   }
   
+  @Test
+  @SuppressWarnings({"unchecked"})
+  public void testVersionBucketMetrics() throws IOException {
+    SolrQueryRequest req = new LocalSolrQueryRequest(h.getCore(), new ModifiableSolrParams());
+    try (DistributedUpdateProcessor processor = new DistributedUpdateProcessor(req, null, null, null)) {
+      for (int i = 0; i < 100; i++) {
+        AddUpdateCommand cmd = new AddUpdateCommand(req);
+        cmd.solrDoc = new SolrInputDocument();
+        cmd.solrDoc.setField("notid", String.valueOf(i));
+        processor.versionAdd(cmd);
+      }
+    }
+    Map<String, Metric> metrics = h.getCoreContainer().getMetricManager()
+        .registry(h.getCore().getCoreMetricManager().getRegistryName()).getMetrics();
+    Gauge<Integer> buckets = (Gauge<Integer>) metrics.get("TLOG.versionBucket.buckets");
+    assertNotNull(buckets);
+    assertTrue(buckets.getValue() > 0);
+    Timer lockWaitTime = (Timer) metrics.get("TLOG.versionBucket.lockWaitTime");
+    assertNotNull(lockWaitTime);
+    assertTrue("no lock waits sampled", lockWaitTime.getCount() > 0);
+    assertNotNull(metrics.get("TLOG.versionBucket.dependentUpdateWaitTime"));
+  }
+
   /**
    * @return how many requests succeeded
    */
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelUpdateRequestProcessorTest extends SolrTestCaseJ4 {
+
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void beforeTests() throws Exception {
+    System.setProperty("enable.update.log", "true");
+    initCore("solrconfig.xml", "schema.xml");
+    executor = ExecutorUtil.newMDCAwareCachedThreadPool(getClassName());
+  }
+
+  @AfterClass
+  public static void afterTests() {
+    if (executor != null) {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      executor = null;
+    }
+    System.clearProperty("enable.update.log");
+  }
+
+  @Before
+  public void before() {
+    h.update("<delete><query>*:*</query></delete>");
+    assertU(commit());
+  }
+
+  @Test
+  public void testUpdatesInOrderPerId() throws Exception {
+    int numDocs = atLeast(100);
+    int rounds = 5;
+    SolrQueryRequest req = req();
+    try (ParallelUpdateRequestProcessor processor = new ParallelUpdateRequestProcessor(
+        h.getCore().getUpdateProcessingChain(null), req, new SolrQueryResponse(), 4, executor)) {
+      // loaders reuse their commands
+      AddUpdateCommand add = new AddUpdateCommand(req);
+      for (int i = 0; i < numDocs; i++) {
+        add.solrDoc = sdoc("id", String.valueOf(i), "val_i", 0);
+        processor.processAdd(add);
+        add.clear();
+      }
+      for (int round = 1; round <= rounds; round++) {
+        for (int i = 0; i < numDocs; i++) {
+          SolrInputDocument doc = sdoc("id", String.valueOf(i));
+          doc.setField("val_i", ImmutableMap.of("set", round));
+          doc.setField("count_i", ImmutableMap.of("inc", 1));
+          add.solrDoc = doc;
+          processor.processAdd(add);
+          add.clear();
+        }
+      }
+      DeleteUpdateCommand delete = new DeleteUpdateCommand(req);
+      delete.setId("0");
+      processor.processDelete(delete);
+      delete.clear();
+      delete.setQuery("id:1");
+      processor.processDelete(delete);
+      processor.processCommit(new CommitUpdateCommand(req, false));
+      processor.finish();
+    } finally {
+      req.close();
+    }
+
+    assertQ(req("q", "*:*"), "//result[@numFound='" + (numDocs - 2) + "']");
+    assertQ(req("q", "val_i:" + rounds + " AND count_i:" + rounds), "//result[@numFound='" + (numDocs - 2) + "']");
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    SolrQueryRequest req = req();
+    try (ParallelUpdateRequestProcessor processor = new ParallelUpdateRequestProcessor(
+        h.getCore().getUpdateProcessingChain(null), req, new SolrQueryResponse(), 2, executor)) {
+      AddUpdateCommand add = new AddUpdateCommand(req);
+      add.solrDoc = sdoc("id", "1", "val_i", "not a number");
+      processor.processAdd(add);
+      // the failure is reported by a subsequent command or at the latest when finishing
+      expectThrows(SolrException.class, () -> {
+        processor.processCommit(new CommitUpdateCommand(req, false));
+        processor.finish();
+      });
+    } finally {
+      req.close();
+    }
+  }
+
+  @Test
+  public void testUpdateThreadsParam() throws Exception {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 50; i++) {
+      if (i > 0) json.append(',');
+      json.append("{\"id\":\"").append(i).append("\"}");
+    }
+    json.append(']');
+    updateJ(json.toString(), params("update.threads", "4", "commit", "true"));
+    assertQ(req("q", "*:*"), "//result[@numFound='50']");
+  }
+
+  @Test
+  public void testRequestInfoOfChains() throws Exception {
+    TimestampUpdateProcessorFactory timestamps = new TimestampUpdateProcessorFactory();
+    NamedList<Object> args = new NamedList<>();
+    args.add("fieldName", "timestamp");
+    timestamps.init(args);
+    UpdateRequestProcessorChain chain = new UpdateRequestProcessorChain(
+        Arrays.asList(timestamps, new RunUpdateProcessorFactory()), h.getCore());
+
+    int numDocs = atLeast(20);
+    SolrQueryRequest req = req();
+    SolrQueryResponse rsp = new SolrQueryResponse();
+    SolrRequestInfo requestInfo = new SolrRequestInfo(req, rsp);
+    SolrRequestInfo.setRequestInfo(requestInfo);
+    try (ParallelUpdateRequestProcessor processor = new ParallelUpdateRequestProcessor(chain, req, rsp, 4, executor)) {
+      AddUpdateCommand add = new AddUpdateCommand(req);
+      for (int i = 0; i < numDocs; i++) {
+        add.solrDoc = sdoc("id", String.valueOf(i));
+        processor.processAdd(add);
+        add.clear();
+      }
+      processor.processCommit(new CommitUpdateCommand(req, false));
+      processor.finish();
+    } finally {
+      SolrRequestInfo.clearRequestInfo();
+      req.close();
+    }
+
+    // all chains use the NOW of the request
+    String now = requestInfo.getNOW().toInstant().toString();
+    assertQ(req("q", "timestamp:\"" + now + "\""), "//result[@numFound='" + numDocs + "']");
+  }
+}
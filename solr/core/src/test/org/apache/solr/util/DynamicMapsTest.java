@@ -87,4 +87,48 @@ public class DynamicMapsTest extends SolrTestCase {
     assertEquals(-1, map.get(101));
     assertEquals(-1, map.get(0));
   }
+
+  public void testPagedArray() {
+    int expectedKeyMax = 1 << 18;
+    IntIntDynamicMap map = new IntIntDynamicMap(expectedKeyMax, -1);
+    long hashBytes = map.ramBytesUsed();
+    // enough keys to switch to the array based representation, all in the first two pages
+    int numKeys = (expectedKeyMax >>> 6) + 1;
+    assertTrue(numKeys < 2 * PagePool.PAGE_SIZE);
+    for (int key = 0; key < numKeys; key++) {
+      map.put(key, key * 2);
+    }
+    map.put(expectedKeyMax + 10, 7); // beyond the expected max, grows the pages
+    map.remove(1);
+
+    assertEquals(0, map.get(0));
+    assertEquals(-1, map.get(1));
+    assertEquals(2 * (numKeys - 1), map.get(numKeys - 1));
+    assertEquals(-1, map.get(numKeys));
+    assertEquals(-1, map.get(expectedKeyMax / 2));
+    assertEquals(7, map.get(expectedKeyMax + 10));
+    assertEquals(-1, map.get(Integer.MAX_VALUE));
+    AtomicInteger size = new AtomicInteger(0);
+    map.forEachValue(i -> size.incrementAndGet());
+    assertEquals(numKeys, size.get());
+
+    // only the pages holding keys are allocated
+    long pagesBytes = 3 * PagePool.INTS.pageBytes();
+    assertTrue(map.ramBytesUsed() >= pagesBytes);
+    assertTrue(map.ramBytesUsed() < pagesBytes + expectedKeyMax);
+    assertTrue(hashBytes > 0);
+
+    int pooled = PagePool.INTS.size();
+    map.release();
+    assertTrue(PagePool.INTS.size() >= pooled);
+
+    // pages taken from the pool start out empty
+    IntIntDynamicMap other = new IntIntDynamicMap(expectedKeyMax, -2);
+    for (int key = 0; key < numKeys; key += 2) {
+      other.put(key, key);
+    }
+    assertEquals(-2, other.get(1));
+    assertEquals(-2, other.get(numKeys + 1));
+    other.release();
+  }
 }
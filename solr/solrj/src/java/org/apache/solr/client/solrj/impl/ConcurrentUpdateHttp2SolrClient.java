@@ -67,6 +67,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
   private boolean shutdownExecutor;
   private int pollQueueTime = 250;
   private int stallTime;
+  private final int maxQueueWaitTime;
   private final boolean streamDeletes;
   private volatile boolean closed;
   private volatile CountDownLatch lock = null; // used to block everything
@@ -150,6 +151,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     this.queue = new CustomBlockingQueue<>(builder.queueSize, threadCount, END_UPDATE);
     this.runners = new LinkedList<>();
     this.streamDeletes = builder.streamDeletes;
+    this.maxQueueWaitTime = builder.maxQueueWaitTime;
     this.basePath = builder.baseSolrUrl;
     this.stallTime = Integer.getInteger("solr.cloud.client.stallTime", 15000);
     if (stallTime < pollQueueTime * 2) {
@@ -388,6 +390,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
       }
 
       Update update = new Update(req, collection);
+      final long startWait = System.nanoTime();
       boolean success = queue.offer(update);
 
       long lastStallTime = -1;
@@ -425,6 +428,12 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
         if (!success) {
           success = queue.offer(update, 100, TimeUnit.MILLISECONDS);
         }
+        if (!success && maxQueueWaitTime > 0) {
+          long currentWaitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startWait);
+          if (currentWaitTime > maxQueueWaitTime) {
+            throw new QueueWaitTimeoutException("Request could not be queued within " + currentWaitTime + "ms with " + queue.size() + " remaining elements in the queue.");
+          }
+        }
         if (!success) {
           // stall prevention
           int currentQueueSize = queue.size();
@@ -658,6 +667,23 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     }
   }
 
+  /**
+   * Thrown when a request could not be added to the full queue within the
+   * {@link Builder#withMaxQueueWaitTime(int) maximum queue wait time}.
+   */
+  public static class QueueWaitTimeoutException extends IOException {
+    public QueueWaitTimeoutException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Returns the number of updates waiting in the queue to be sent.
+   */
+  public int getQueueSize() {
+    return queue.size();
+  }
+
   /**
    * @param pollQueueTime time for an open connection to wait for updates when
    * the queue is empty.
@@ -683,6 +709,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     protected ExecutorService executorService;
     protected boolean streamDeletes;
     protected boolean closeHttp2Client;
+    protected int maxQueueWaitTime;
 
     public Builder(String baseSolrUrl, Http2SolrClient client) {
       this(baseSolrUrl, client, false);
@@ -732,6 +759,21 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
       return this;
     }
 
+    /**
+     * The maximum time in milliseconds that {@link ConcurrentUpdateHttp2SolrClient#request(SolrRequest)} blocks
+     * waiting to add a request to a full queue before it fails with a {@link QueueWaitTimeoutException}, even if the queue is
+     * still being processed.
+     *
+     * If not set or 0, requests wait for as long as the queue makes progress.
+     */
+    public Builder withMaxQueueWaitTime(int maxQueueWaitTime) {
+      if (maxQueueWaitTime < 0) {
+        throw new IllegalArgumentException("maxQueueWaitTime must not be negative.");
+      }
+      this.maxQueueWaitTime = maxQueueWaitTime;
+      return this;
+    }
+
     /**
      * Provides the {@link ExecutorService} for the created client to use when servicing the update-request queue.
      */
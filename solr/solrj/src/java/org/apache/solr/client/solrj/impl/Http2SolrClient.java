@@ -38,10 +38,12 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
@@ -55,6 +57,8 @@ import org.apache.solr.client.solrj.embedded.SSLConfig;
 import org.apache.solr.client.solrj.request.RequestWriter;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.request.V2Request;
+import org.apache.solr.client.solrj.util.AsyncListener;
+import org.apache.solr.client.solrj.util.Cancellable;
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.client.solrj.util.Constants;
 import org.apache.solr.common.SolrException;
@@ -120,6 +124,8 @@ public class Http2SolrClient extends SolrClient {
   private static final Charset FALLBACK_CHARSET = StandardCharsets.UTF_8;
   private static final String DEFAULT_PATH = "/select";
   private static final List<String> errPath = Arrays.asList("metadata", "error-class");
+  private static final Exception CANCELLED_EXCEPTION = new Exception("Request cancelled");
+  private static final Cancellable FAILED_MAKING_REQUEST_CANCELLABLE = () -> {};
 
   private HttpClient httpClient;
   private volatile Set<String> queryParams = Collections.emptySet();
@@ -134,6 +140,8 @@ public class Http2SolrClient extends SolrClient {
    */
   private String serverBaseUrl;
   private boolean closeClient;
+  private ExecutorService asyncExecutor;
+  private boolean closeAsyncExecutor;
 
   protected Http2SolrClient(String serverBaseUrl, Builder builder) {
     if (serverBaseUrl != null)  {
@@ -156,6 +164,15 @@ public class Http2SolrClient extends SolrClient {
     } else {
       httpClient = builder.http2SolrClient.httpClient;
     }
+    if (builder.asyncResponseExecutor != null) {
+      asyncExecutor = builder.asyncResponseExecutor;
+    } else if (builder.http2SolrClient != null) {
+      asyncExecutor = builder.http2SolrClient.asyncExecutor;
+    } else {
+      // threads are only started for asynchronous requests
+      asyncExecutor = ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("h2scAsync"));
+      closeAsyncExecutor = true;
+    }
     assert ObjectReleaseTracker.track(this);
   }
 
@@ -229,6 +246,10 @@ public class Http2SolrClient extends SolrClient {
   public void close() {
     // we wait for async requests, so far devs don't want to give sugar for this
     asyncTracker.waitForComplete();
+    if (closeAsyncExecutor) {
+      // before the http client, which delivers the responses being parsed
+      ExecutorUtil.shutdownAndAwaitTermination(asyncExecutor);
+    }
     if (closeClient) {
       try {
         ExecutorService executor = (ExecutorService) httpClient.getExecutor();
@@ -430,6 +451,102 @@ public class Http2SolrClient extends SolrClient {
     }
   }
 
+  /**
+   * Sends a request without waiting for its response. No thread is held while the server handles the request;
+   * the response is parsed while it is streamed, once its headers were received, by a thread of the executor set
+   * with {@link Builder#withAsyncResponseExecutor}, and then passed to the listener, which is called once.
+   * Unlike {@link #request(SolrRequest, String, OnComplete)} the size of the response is not limited, and sending
+   * never blocks for other requests to complete: requests beyond what the client queues for a server fail instead.
+   *
+   * @return cancels the request, e.g. once a request to another shard failed
+   */
+  public Cancellable asyncRequest(@SuppressWarnings({"rawtypes"}) SolrRequest solrRequest, String collection,
+                                  AsyncListener<NamedList<Object>> asyncListener) {
+    Request req;
+    try {
+      req = makeRequest(solrRequest, collection);
+    } catch (SolrServerException | IOException e) {
+      asyncListener.onFailure(e);
+      return FAILED_MAKING_REQUEST_CANCELLABLE;
+    }
+    final ResponseParser parser = solrRequest.getResponseParser() == null
+        ? this.parser: solrRequest.getResponseParser();
+    final AtomicBoolean completed = new AtomicBoolean();
+    // synchronous requests wait as long for the response
+    req.idleTimeout(idleTimeout, TimeUnit.MILLISECONDS)
+        .onRequestQueued(asyncTracker.unlimitedQueuedListener)
+        .onComplete(asyncTracker.unlimitedCompleteListener)
+        .send(new InputStreamResponseListener() {
+          private volatile Throwable responseFailure;
+
+          @Override
+          public void onHeaders(Response response) {
+            super.onHeaders(response);
+            InputStreamResponseListener listener = this;
+            // parsing blocks until the content arrived, so neither on the thread delivering it nor on another
+            // thread of the http client, which may be needed to deliver it
+            try {
+              asyncExecutor.execute(() -> {
+                InputStream is = listener.getInputStream();
+                assert ObjectReleaseTracker.track(is);
+                ContentType contentType = getContentType(response);
+                String mimeType = null;
+                String encoding = null;
+                if (contentType != null) {
+                  mimeType = contentType.getMimeType();
+                  encoding = contentType.getCharset() != null? contentType.getCharset().name() : null;
+                }
+                NamedList<Object> body;
+                try {
+                  body = processErrorsAndResponse(response, parser, is, mimeType, encoding, isV2ApiRequest(solrRequest));
+                } catch (Exception e) {
+                  // the content may be cut off by a failure of the response, which is reported the same either way
+                  Throwable failure = responseFailure;
+                  if (failure == null) {
+                    if (SolrException.getRootCause(e) != CANCELLED_EXCEPTION) {
+                      complete(e);
+                    }
+                  } else if (failure != CANCELLED_EXCEPTION) {
+                    complete(asSolrServerException(failure));
+                  }
+                  return;
+                }
+                if (completed.compareAndSet(false, true)) {
+                  asyncListener.onSuccess(body);
+                }
+              });
+            } catch (RejectedExecutionException e) {
+              // closed
+              response.abort(e);
+            }
+          }
+
+          @Override
+          public void onFailure(Response response, Throwable failure) {
+            // before the parsing thread is woken up
+            responseFailure = failure;
+            super.onFailure(response, failure);
+            if (failure != CANCELLED_EXCEPTION) {
+              complete(asSolrServerException(failure));
+            }
+          }
+
+          private SolrServerException asSolrServerException(Throwable failure) {
+            if (failure instanceof ConnectException) {
+              return new SolrServerException("Server refused connection at: " + req.getURI(), failure);
+            }
+            return new SolrServerException(failure.getMessage(), failure);
+          }
+
+          private void complete(Throwable failure) {
+            if (completed.compareAndSet(false, true)) {
+              asyncListener.onFailure(failure);
+            }
+          }
+        });
+    return () -> req.abort(CANCELLED_EXCEPTION);
+  }
+
   private ContentType getContentType(Response response) {
     String contentType = response.getHeaders().get(HttpHeader.CONTENT_TYPE);
     return StringUtils.isEmpty(contentType)? null : ContentType.parse(contentType);
@@ -767,6 +884,10 @@ public class Http2SolrClient extends SolrClient {
     private final Semaphore available;
     private final Request.QueuedListener queuedListener;
     private final Response.CompleteListener completeListener;
+    // requests of asyncRequest are waited for but not limited: acquiring a permit would block the thread sending
+    // them, which may deliver the response of another request. Their callers, e.g. shard handlers, bound them.
+    private final Request.QueuedListener unlimitedQueuedListener;
+    private final Response.CompleteListener unlimitedCompleteListener;
 
     AsyncTracker() {
       // TODO: what about shared instances?
@@ -784,6 +905,8 @@ public class Http2SolrClient extends SolrClient {
         phaser.arriveAndDeregister();
         available.release();
       };
+      unlimitedQueuedListener = request -> phaser.register();
+      unlimitedCompleteListener = result -> phaser.arriveAndDeregister();
     }
 
     int getMaxRequestsQueuedPerDestination() {
@@ -805,6 +928,7 @@ public class Http2SolrClient extends SolrClient {
     private Integer connectionTimeout;
     private Integer maxConnectionsPerHost;
     private boolean useHttp1_1 = Boolean.getBoolean("solr.http1");
+    private ExecutorService asyncResponseExecutor;
     protected String baseSolrUrl;
 
     public Builder() {
@@ -854,6 +978,15 @@ public class Http2SolrClient extends SolrClient {
       this.connectionTimeout = connectionTimeOut;
       return this;
     }
+
+    /**
+     * Sets the executor parsing the responses of {@link #asyncRequest}, which is not shut down by the client.
+     * By default the client has its own executor, or the one of the client given to {@link #withHttpClient}.
+     */
+    public Builder withAsyncResponseExecutor(ExecutorService executor) {
+      this.asyncResponseExecutor = executor;
+      return this;
+    }
   }
 
   public Set<String> getQueryParams() {
@@ -19,6 +19,10 @@ package org.apache.solr.client.solrj.impl;
 import java.util.Arrays;
 
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.util.AsyncListener;
+import org.apache.solr.client.solrj.util.Cancellable;
+import org.apache.solr.common.util.NamedList;
+import org.slf4j.MDC;
 
 /**
  * LBHttp2SolrClient or "LoadBalanced LBHttp2SolrClient" is a load balancing wrapper around
@@ -66,4 +70,105 @@ public class LBHttp2SolrClient extends LBSolrClient {
   protected SolrClient getClient(String baseUrl) {
     return httpClient;
   }
+
+  /**
+   * Sends a request without waiting for its response, trying the servers of the request in the same order and
+   * with the same failover as {@link #request(Req)}. The next server is tried once a request failed, so no thread
+   * is held while a server handles the request.
+   *
+   * @return cancels the request to the server tried at the moment, and the failover
+   */
+  public Cancellable asyncReq(Req req, AsyncListener<Rsp> asyncListener) {
+    boolean isNonRetryable = isNonRetryable(req);
+    ServerIterator serverIterator = new ServerIterator(req);
+    asyncListener.onStart();
+    AsyncServerRequest request = new AsyncServerRequest(req, serverIterator, isNonRetryable, asyncListener);
+    request.tryNext(null);
+    return request::cancel;
+  }
+
+  private class AsyncServerRequest {
+    private final Req req;
+    private final ServerIterator serverIterator;
+    private final boolean isNonRetryable;
+    private final AsyncListener<Rsp> asyncListener;
+    private final Rsp rsp = new Rsp();
+
+    // guarded by this
+    private boolean cancelled;
+    private Cancellable current;
+    private int attempt;
+
+    AsyncServerRequest(Req req, ServerIterator serverIterator, boolean isNonRetryable, AsyncListener<Rsp> asyncListener) {
+      this.req = req;
+      this.serverIterator = serverIterator;
+      this.isNonRetryable = isNonRetryable;
+      this.asyncListener = asyncListener;
+    }
+
+    void tryNext(Exception previousEx) {
+      String baseUrl;
+      boolean isZombie;
+      int thisAttempt;
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        baseUrl = serverIterator.next();
+        isZombie = serverIterator.isServingZombieServer();
+        thisAttempt = ++attempt;
+      }
+      if (baseUrl == null) {
+        asyncListener.onFailure(serverIterator.noServerLeft(previousEx));
+        return;
+      }
+      rsp.server = baseUrl;
+      req.getRequest().setBasePath(baseUrl);
+      try {
+        MDC.put("LBSolrClient.url", baseUrl);
+        Cancellable cancellable = httpClient.asyncRequest(req.getRequest(), null, new AsyncListener<NamedList<Object>>() {
+          @Override
+          public void onSuccess(NamedList<Object> result) {
+            rsp.rsp = result;
+            onServerSuccess(baseUrl, isZombie);
+            asyncListener.onSuccess(rsp);
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            if (!(throwable instanceof Exception)) {
+              asyncListener.onFailure(throwable);
+              return;
+            }
+            Exception ex;
+            try {
+              ex = onServerFailure(baseUrl, (Exception) throwable, isNonRetryable, isZombie);
+            } catch (Exception e) {
+              asyncListener.onFailure(e);
+              return;
+            }
+            tryNext(ex);
+          }
+        });
+        synchronized (this) {
+          // unless the request failed right away, and the next server is tried already
+          if (thisAttempt == attempt) {
+            current = cancellable;
+          }
+          if (cancelled) {
+            cancellable.cancel();
+          }
+        }
+      } finally {
+        MDC.remove("LBSolrClient.url");
+      }
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      if (current != null) {
+        current.cancel();
+      }
+    }
+  }
 }
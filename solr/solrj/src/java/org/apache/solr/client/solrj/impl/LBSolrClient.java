@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -254,46 +255,13 @@ public abstract class LBSolrClient extends SolrClient {
   public Rsp request(Req req) throws SolrServerException, IOException {
     Rsp rsp = new Rsp();
     Exception ex = null;
-    boolean isNonRetryable = req.request instanceof IsUpdateRequest || ADMIN_PATHS.contains(req.request.getPath());
-    List<ServerWrapper> skipped = null;
-
-    final Integer numServersToTry = req.getNumServersToTry();
-    int numServersTried = 0;
-
-    boolean timeAllowedExceeded = false;
-    long timeAllowedNano = getTimeAllowedInNanos(req.getRequest());
-    long timeOutTime = System.nanoTime() + timeAllowedNano;
-    for (String serverStr : req.getServers()) {
-      if (timeAllowedExceeded = isTimeExceeded(timeAllowedNano, timeOutTime)) {
-        break;
-      }
-
-      serverStr = normalize(serverStr);
-      // if the server is currently a zombie, just skip to the next one
-      ServerWrapper wrapper = zombieServers.get(serverStr);
-      if (wrapper != null) {
-        // System.out.println("ZOMBIE SERVER QUERIED: " + serverStr);
-        final int numDeadServersToTry = req.getNumDeadServersToTry();
-        if (numDeadServersToTry > 0) {
-          if (skipped == null) {
-            skipped = new ArrayList<>(numDeadServersToTry);
-            skipped.add(wrapper);
-          }
-          else if (skipped.size() < numDeadServersToTry) {
-            skipped.add(wrapper);
-          }
-        }
-        continue;
-      }
+    boolean isNonRetryable = isNonRetryable(req);
+    ServerIterator serverIterator = new ServerIterator(req);
+    String serverStr;
+    while ((serverStr = serverIterator.next()) != null) {
       try {
         MDC.put("LBSolrClient.url", serverStr);
-
-        if (numServersToTry != null && numServersTried > numServersToTry.intValue()) {
-          break;
-        }
-
-        ++numServersTried;
-        ex = doRequest(serverStr, req, rsp, isNonRetryable, false);
+        ex = doRequest(serverStr, req, rsp, isNonRetryable, serverIterator.isServingZombieServer());
         if (ex == null) {
           return rsp; // SUCCESS
         }
@@ -301,48 +269,106 @@ public abstract class LBSolrClient extends SolrClient {
         MDC.remove("LBSolrClient.url");
       }
     }
+    throw serverIterator.noServerLeft(ex);
+  }
 
-    // try the servers we previously skipped
-    if (skipped != null) {
-      for (ServerWrapper wrapper : skipped) {
-        if (timeAllowedExceeded = isTimeExceeded(timeAllowedNano, timeOutTime)) {
-          break;
-        }
+  protected static boolean isNonRetryable(Req req) {
+    return req.request instanceof IsUpdateRequest || ADMIN_PATHS.contains(req.request.getPath());
+  }
 
-        if (numServersToTry != null && numServersTried > numServersToTry.intValue()) {
-          break;
-        }
+  /**
+   * Iterates over the servers to try for a request, live servers first, then up to
+   * {@link Req#getNumDeadServersToTry()} zombie servers, as long as neither the time allowed nor
+   * {@link Req#getNumServersToTry()} is exceeded.
+   */
+  protected class ServerIterator {
+    private final Iterator<String> servers;
+    private final int numDeadServersToTry;
+    private final Integer numServersToTry;
+    private final long timeAllowedNano;
+    private final long timeOutTime;
+
+    private List<ServerWrapper> skipped;
+    private int skippedIndex;
+    private int numServersTried;
+    private boolean timeAllowedExceeded;
+    private boolean servingZombieServer;
 
-        try {
-          MDC.put("LBSolrClient.url", wrapper.getBaseUrl());
-          ++numServersTried;
-          ex = doRequest(wrapper.baseUrl, req, rsp, isNonRetryable, true);
-          if (ex == null) {
-            return rsp; // SUCCESS
+    public ServerIterator(Req req) {
+      this.servers = req.getServers().iterator();
+      this.numDeadServersToTry = req.getNumDeadServersToTry();
+      this.numServersToTry = req.getNumServersToTry();
+      this.timeAllowedNano = getTimeAllowedInNanos(req.getRequest());
+      this.timeOutTime = System.nanoTime() + timeAllowedNano;
+    }
+
+    /**
+     * @return the next server to try, or null if there is none left
+     */
+    public String next() {
+      if (timeAllowedExceeded = isTimeExceeded(timeAllowedNano, timeOutTime)) {
+        return null;
+      }
+      if (numServersToTry != null && numServersTried > numServersToTry.intValue()) {
+        return null;
+      }
+      while (servers.hasNext()) {
+        String serverStr = normalize(servers.next());
+        // if the server is currently a zombie, just skip to the next one
+        ServerWrapper wrapper = zombieServers.get(serverStr);
+        if (wrapper != null) {
+          if (numDeadServersToTry > 0) {
+            if (skipped == null) {
+              skipped = new ArrayList<>(numDeadServersToTry);
+              skipped.add(wrapper);
+            } else if (skipped.size() < numDeadServersToTry) {
+              skipped.add(wrapper);
+            }
           }
-        } finally {
-          MDC.remove("LBSolrClient.url");
+          continue;
         }
+        ++numServersTried;
+        servingZombieServer = false;
+        return serverStr;
       }
+      // try the servers we previously skipped
+      if (skipped != null && skippedIndex < skipped.size()) {
+        ++numServersTried;
+        servingZombieServer = true;
+        return skipped.get(skippedIndex++).getBaseUrl();
+      }
+      return null;
     }
 
+    /**
+     * Whether the server last returned by {@link #next()} is a zombie server
+     */
+    public boolean isServingZombieServer() {
+      return servingZombieServer;
+    }
 
-    final String solrServerExceptionMessage;
-    if (timeAllowedExceeded) {
-      solrServerExceptionMessage = "Time allowed to handle this request exceeded";
-    } else {
-      if (numServersToTry != null && numServersTried > numServersToTry.intValue()) {
-        solrServerExceptionMessage = "No live SolrServers available to handle this request:"
-            + " numServersTried="+numServersTried
-            + " numServersToTry="+numServersToTry.intValue();
+    /**
+     * @param ex the failure of the last server tried, if any
+     * @return the exception to fail the request with, once {@link #next()} returned null
+     */
+    public SolrServerException noServerLeft(Exception ex) {
+      final String solrServerExceptionMessage;
+      if (timeAllowedExceeded) {
+        solrServerExceptionMessage = "Time allowed to handle this request exceeded";
       } else {
-        solrServerExceptionMessage = "No live SolrServers available to handle this request";
+        if (numServersToTry != null && numServersTried > numServersToTry.intValue()) {
+          solrServerExceptionMessage = "No live SolrServers available to handle this request:"
+              + " numServersTried="+numServersTried
+              + " numServersToTry="+numServersToTry.intValue();
+        } else {
+          solrServerExceptionMessage = "No live SolrServers available to handle this request";
+        }
+      }
+      if (ex == null) {
+        return new SolrServerException(solrServerExceptionMessage);
+      } else {
+        return new SolrServerException(solrServerExceptionMessage+":" + zombieServers.keySet(), ex);
       }
-    }
-    if (ex == null) {
-      throw new SolrServerException(solrServerExceptionMessage);
-    } else {
-      throw new SolrServerException(solrServerExceptionMessage+":" + zombieServers.keySet(), ex);
     }
   }
 
@@ -361,50 +387,71 @@ public abstract class LBSolrClient extends SolrClient {
 
   protected Exception doRequest(String baseUrl, Req req, Rsp rsp, boolean isNonRetryable,
                                 boolean isZombie) throws SolrServerException, IOException {
-    Exception ex = null;
     try {
       rsp.server = baseUrl;
       req.getRequest().setBasePath(baseUrl);
       rsp.rsp = getClient(baseUrl).request(req.getRequest(), (String) null);
-      if (isZombie) {
-        zombieServers.remove(baseUrl);
-      }
-    } catch (BaseHttpSolrClient.RemoteExecutionException e){
-      throw e;
-    } catch(SolrException e) {
+      onServerSuccess(baseUrl, isZombie);
+      return null;
+    } catch (Exception e) {
+      return onServerFailure(baseUrl, e, isNonRetryable, isZombie);
+    }
+  }
+
+  /**
+   * Called once a server responded to a request.
+   */
+  protected void onServerSuccess(String baseUrl, boolean isZombie) {
+    if (isZombie) {
+      zombieServers.remove(baseUrl);
+    }
+  }
+
+  /**
+   * Called once a request to a server failed. Marks the server as a zombie if another server should be tried.
+   *
+   * @return the failure, if another server should be tried
+   * @throws SolrServerException if the request should fail without trying another server
+   */
+  protected Exception onServerFailure(String baseUrl, Exception e, boolean isNonRetryable,
+                                      boolean isZombie) throws SolrServerException, IOException {
+    Exception ex = null;
+    if (e instanceof BaseHttpSolrClient.RemoteExecutionException) {
+      throw (BaseHttpSolrClient.RemoteExecutionException) e;
+    } else if (e instanceof SolrException) {
       // we retry on 404 or 403 or 503 or 500
       // unless it's an update - then we only retry on connect exception
-      if (!isNonRetryable && RETRY_CODES.contains(e.code())) {
+      if (!isNonRetryable && RETRY_CODES.contains(((SolrException) e).code())) {
         ex = (!isZombie) ? addZombie(baseUrl, e) : e;
       } else {
         // Server is alive but the request was likely malformed or invalid
         if (isZombie) {
           zombieServers.remove(baseUrl);
         }
-        throw e;
+        throw (SolrException) e;
       }
-    } catch (SocketException e) {
+    } else if (e instanceof SocketException) {
       if (!isNonRetryable || e instanceof ConnectException) {
         ex = (!isZombie) ? addZombie(baseUrl, e) : e;
       } else {
-        throw e;
+        throw (SocketException) e;
       }
-    } catch (SocketTimeoutException e) {
+    } else if (e instanceof SocketTimeoutException) {
       if (!isNonRetryable) {
         ex = (!isZombie) ? addZombie(baseUrl, e) : e;
       } else {
-        throw e;
+        throw (SocketTimeoutException) e;
       }
-    } catch (SolrServerException e) {
-      Throwable rootCause = e.getRootCause();
+    } else if (e instanceof SolrServerException) {
+      Throwable rootCause = ((SolrServerException) e).getRootCause();
       if (!isNonRetryable && rootCause instanceof IOException) {
         ex = (!isZombie) ? addZombie(baseUrl, e) : e;
       } else if (isNonRetryable && rootCause instanceof ConnectException) {
         ex = (!isZombie) ? addZombie(baseUrl, e) : e;
       } else {
-        throw e;
+        throw (SolrServerException) e;
       }
-    } catch (Exception e) {
+    } else {
       throw new SolrServerException(e);
     }
 
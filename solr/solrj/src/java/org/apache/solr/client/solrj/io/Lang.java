@@ -24,6 +24,7 @@ import org.apache.solr.client.solrj.io.ops.GroupOperation;
 import org.apache.solr.client.solrj.io.ops.ReplaceOperation;
 import org.apache.solr.client.solrj.io.stream.*;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.CountDistinctMetric;
 import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
 import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
 import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
@@ -108,6 +109,8 @@ public class Lang {
         .withFunctionName("per", PercentileMetric.class)
         .withFunctionName("std", StdMetric.class)
         .withFunctionName("count", CountMetric.class)
+        .withFunctionName(CountDistinctMetric.COUNT_DISTINCT, CountDistinctMetric.class)
+        .withFunctionName(CountDistinctMetric.APPROX_COUNT_DISTINCT, CountDistinctMetric.class)
 
             // tuple manipulation operations
         .withFunctionName("replace", ReplaceOperation.class)
@@ -71,6 +71,9 @@ public class CloudSolrStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  // the number of tuples merged at once when the merged batches are read tuple by tuple
+  private static final int MERGED_BATCH_SIZE = 1000;
+
   protected String zkHost;
   protected String collection;
   protected ModifiableSolrParams params;
@@ -82,6 +85,10 @@ public class CloudSolrStream extends TupleStream implements Expressible {
   protected transient List<TupleStream> solrStreams;
   protected transient TreeSet<TupleWrapper> tuples;
   protected transient StreamContext streamContext;
+  // set when the streams send TupleBatches, which are then merged column by column
+  private transient TupleBatchMerger batchMerger;
+  private transient TupleBatch mergedBatch;
+  private transient int mergedRow;
 
   // Used by parallel stream
   protected CloudSolrStream(){
@@ -275,10 +282,19 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     this.tuples = new TreeSet();
     this.solrStreams = new ArrayList();
     this.eofTuples = Collections.synchronizedMap(new HashMap());
+    this.batchMerger = null;
+    this.mergedBatch = null;
     constructStreams();
     openStreams();
   }
 
+  /**
+   * Whether the streams were asked to send {@link TupleBatch}es with {@link TupleBatchWriter#BATCH_SIZE_PARAM}.
+   */
+  protected boolean requestsBatches() {
+    return params.getInt(TupleBatchWriter.BATCH_SIZE_PARAM, 0) > 0;
+  }
+
 
   public Map getEofTuples() {
     return this.eofTuples;
@@ -397,9 +413,19 @@ public class CloudSolrStream extends TupleStream implements Expressible {
   private void openStreams() throws IOException {
     ExecutorService service = ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("CloudSolrStream"));
     try {
+      // batches are merged without reading tuples, unless tuples are changed by this stream
+      boolean mergeBatches = requestsBatches() && !trace && fieldMappings == null && TupleBatchMerger.canMerge(comp);
       List<Future<TupleWrapper>> futures = new ArrayList();
       for (TupleStream solrStream : solrStreams) {
-        StreamOpener so = new StreamOpener((SolrStream) solrStream, comp);
+        Callable<TupleWrapper> so;
+        if (mergeBatches) {
+          so = () -> {
+            solrStream.open();
+            return null;
+          };
+        } else {
+          so = new StreamOpener((SolrStream) solrStream, comp);
+        }
         Future<TupleWrapper> future = service.submit(so);
         futures.add(future);
       }
@@ -414,6 +440,11 @@ public class CloudSolrStream extends TupleStream implements Expressible {
       } catch (Exception e) {
         throw new IOException(e);
       }
+
+      if (mergeBatches) {
+        batchMerger = new TupleBatchMerger(solrStreams, comp, (stream, eof) -> eofTuples.put(((SolrStream) stream).getBaseUrl(), eof));
+        batchMerger.open();
+      }
     } finally {
       service.shutdown();
     }
@@ -428,6 +459,8 @@ public class CloudSolrStream extends TupleStream implements Expressible {
         solrStream.close();
       }
     }
+    batchMerger = null;
+    mergedBatch = null;
   }
 
   /** Return the stream sort - ie, the order in which records are returned */
@@ -439,7 +472,40 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     return _read();
   }
 
+  /**
+   * Returns the merged batches of the streams if they send {@link TupleBatch}es, see
+   * {@link TupleBatchWriter#BATCH_SIZE_PARAM}. Otherwise the tuples are read one by one.
+   */
+  @Override
+  public TupleBatch readBatch(int maxSize) throws IOException {
+    if (batchMerger != null && (mergedBatch == null || mergedRow == mergedBatch.size())) {
+      if (mergedBatch != null && mergedBatch.getEOF() != null) {
+        return TupleBatch.eof(mergedBatch.getEOF());
+      }
+      mergedBatch = batchMerger.next(maxSize, eofTuple());
+      mergedRow = mergedBatch.size();
+      return mergedBatch;
+    }
+    return super.readBatch(maxSize);
+  }
+
+  @Override
+  public boolean producesBatches() {
+    return batchMerger != null;
+  }
+
   protected Tuple _read() throws IOException {
+    if (batchMerger != null) {
+      while (mergedBatch == null || mergedRow == mergedBatch.size()) {
+        if (mergedBatch != null && mergedBatch.getEOF() != null) {
+          return mergedBatch.getEOF();
+        }
+        mergedBatch = batchMerger.next(MERGED_BATCH_SIZE, eofTuple());
+        mergedRow = 0;
+      }
+      return mergedBatch.getTuple(mergedRow++);
+    }
+
     TupleWrapper tw = tuples.pollFirst();
     if(tw != null) {
       Tuple t = tw.getTuple();
@@ -453,15 +519,19 @@ public class CloudSolrStream extends TupleStream implements Expressible {
       }
       return t;
     } else {
-      Map m = new HashMap();
-      if(trace) {
-        m.put("_COLLECTION_", this.collection);
-      }
-
-      m.put("EOF", true);
+      return eofTuple();
+    }
+  }
 
-      return new Tuple(m);
+  private Tuple eofTuple() {
+    Map m = new HashMap();
+    if(trace) {
+      m.put("_COLLECTION_", this.collection);
     }
+
+    m.put("EOF", true);
+
+    return new Tuple(m);
   }
 
   protected class TupleWrapper implements Comparable<TupleWrapper> {
@@ -17,10 +17,15 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
@@ -32,6 +37,11 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Takes two streams (fullStream and hashStream) and joins them similar to an InnerJoinStream. The difference
@@ -40,11 +50,27 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  * You are expected to provide a set of fields for which the hash will be calculated from. If a tuple does
  * not contain a value (ie, null) for one of the fields the hash is being computed on then that tuple will 
  * not be considered a match to anything. Ie, all fields which are part of the hash must have a non-null value.
+ * <p>
+ * If the hashStream may be too large to keep in memory, a spillThreshold can be given. Once more tuples than that
+ * have been read from the hashStream, both streams are partitioned by their hash into temporary files, and the
+ * partitions are then joined one after the other, or in parallel if more than one thread is given. Since each
+ * partition only holds part of the hashStream, this bounds the memory needed by the join to roughly that of the
+ * largest partition. The tuples of a spilled join are not returned in the order of the fullStream, so no sort is
+ * reported for this stream if a spillThreshold is set.
  * @since 6.0.0
 **/
 public class HashJoinStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1L;
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final int DEFAULT_PARTITIONS = 16;
+
+  /** Number of joined tuples buffered by the threads joining spilled partitions. */
+  private static final int JOINED_QUEUE_SIZE = 1000;
+
+  /** Marks the end of the tuples of a spilled partition. */
+  private static final Tuple PARTITION_DONE = new Tuple();
 
   protected TupleStream hashStream;
   protected TupleStream fullStream;
@@ -55,6 +81,20 @@ public class HashJoinStream extends TupleStream implements Expressible {
   protected Tuple workingFullTuple = null;
   protected String workingFullHash = null;
   protected int workngHashSetIdx = 0;
+
+  protected int spillThreshold = 0;
+  protected int partitions = DEFAULT_PARTITIONS;
+  protected int threads = 1;
+
+  private transient List<TupleSpillFile> hashedPartitions;
+  private transient List<TupleSpillFile> fullPartitions;
+  private transient ExecutorService partitionExecutor;
+  private transient BlockingQueue<Tuple> joinedTuples;
+  private transient volatile Throwable partitionFailure;
+  private transient int pendingPartitions;
+  private transient Tuple fullEOF;
+  private long spilledTuples;
+  private long spilledBytes;
   
   public HashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn) throws IOException {
     init(fullStream, hashStream, hashOn);
@@ -65,9 +105,13 @@ public class HashJoinStream extends TupleStream implements Expressible {
     List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
     StreamExpressionNamedParameter hashStreamExpression = factory.getNamedOperand(expression, "hashed");
     StreamExpressionNamedParameter onExpression = factory.getNamedOperand(expression, "on");
+    StreamExpressionNamedParameter spillThresholdExpression = factory.getNamedOperand(expression, "spillThreshold");
+    StreamExpressionNamedParameter partitionsExpression = factory.getNamedOperand(expression, "partitions");
+    StreamExpressionNamedParameter threadsExpression = factory.getNamedOperand(expression, "threads");
+    int spillParams = (null == spillThresholdExpression ? 0 : 1) + (null == partitionsExpression ? 0 : 1) + (null == threadsExpression ? 0 : 1);
     
     // validate expression contains only what we want.
-    if(expression.getParameters().size() != streamExpressions.size() + 2){
+    if(expression.getParameters().size() != streamExpressions.size() + 2 + spillParams){
       throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
     }
     
@@ -94,6 +138,60 @@ public class HashJoinStream extends TupleStream implements Expressible {
           factory.constructStream((StreamExpression)hashStreamExpression.getParameter()),
           hashOn
         );
+
+    if(0 != spillParams){
+      setSpilling(getIntParameter(expression, spillThresholdExpression, 0),
+          getIntParameter(expression, partitionsExpression, DEFAULT_PARTITIONS),
+          getIntParameter(expression, threadsExpression, 1));
+    }
+  }
+
+  private static int getIntParameter(StreamExpression expression, StreamExpressionNamedParameter param, int defaultValue) throws IOException {
+    if(null == param){
+      return defaultValue;
+    }
+    if(!(param.getParameter() instanceof StreamExpressionValue)){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a number for the '%s' parameter",expression, param.getName()));
+    }
+    String value = ((StreamExpressionValue)param.getParameter()).getValue();
+    try{
+      return Integer.parseInt(value.trim());
+    }
+    catch(NumberFormatException e){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a number for the '%s' parameter but found '%s'",expression, param.getName(), value), e);
+    }
+  }
+
+  /**
+   * Lets the join spill the hashed and full streams to temporary files if the hashed stream has more tuples than
+   * can be kept in memory.
+   * @param spillThreshold the number of tuples of the hashed stream kept in memory before spilling, 0 to never spill
+   * @param partitions the number of partitions, and files per stream, to spill to
+   * @param threads the number of partitions joined in parallel
+   */
+  public void setSpilling(int spillThreshold, int partitions, int threads) throws IOException {
+    if(spillThreshold < 0){
+      throw new IOException(String.format(Locale.ROOT,"Invalid spillThreshold %d - expecting a value >= 0",spillThreshold));
+    }
+    if(partitions < 1){
+      throw new IOException(String.format(Locale.ROOT,"Invalid partitions %d - expecting a value >= 1",partitions));
+    }
+    if(threads < 1){
+      throw new IOException(String.format(Locale.ROOT,"Invalid threads %d - expecting a value >= 1",threads));
+    }
+    this.spillThreshold = spillThreshold;
+    this.partitions = partitions;
+    this.threads = threads;
+  }
+
+  /** The number of tuples of both streams written to temporary files since this stream was opened. */
+  public long getSpilledTupleCount() {
+    return spilledTuples;
+  }
+
+  /** The number of bytes written to temporary files since this stream was opened. */
+  public long getSpilledBytes() {
+    return spilledBytes;
   }
   
   private void init(TupleStream fullStream, TupleStream hashStream, List<String> hashOn) throws IOException {
@@ -164,8 +262,17 @@ public class HashJoinStream extends TupleStream implements Expressible {
     }
     
     expression.addParameter(new StreamExpressionNamedParameter("on",sb.toString()));
+    addSpillParameters(expression);
     return expression;   
   }
+
+  protected void addSpillParameters(StreamExpression expression) {
+    if(spillThreshold > 0){
+      expression.addParameter(new StreamExpressionNamedParameter("spillThreshold", Integer.toString(spillThreshold)));
+      expression.addParameter(new StreamExpressionNamedParameter("partitions", Integer.toString(partitions)));
+      expression.addParameter(new StreamExpressionNamedParameter("threads", Integer.toString(threads)));
+    }
+  }
   
   @Override
   public Explanation toExplanation(StreamFactory factory) throws IOException {
@@ -196,22 +303,198 @@ public class HashJoinStream extends TupleStream implements Expressible {
   public void open() throws IOException {
     hashStream.open();
     fullStream.open();
+    spilledTuples = 0;
+    spilledBytes = 0;
     
+    int hashedCount = 0;
     Tuple tuple = hashStream.read();
     while(!tuple.EOF){
       String hash = computeHash(tuple, rightHashOn);
       if(null != hash){
-        if(hashedTuples.containsKey(hash)){
-          hashedTuples.get(hash).add(tuple);
+        if(null != hashedPartitions){
+          hashedPartitions.get(getPartition(hash)).write(tuple);
         }
         else{
-          ArrayList<Tuple> set = new ArrayList<Tuple>();
-          set.add(tuple);
-          hashedTuples.put(hash, set);
+          if(hashedTuples.containsKey(hash)){
+            hashedTuples.get(hash).add(tuple);
+          }
+          else{
+            ArrayList<Tuple> set = new ArrayList<Tuple>();
+            set.add(tuple);
+            hashedTuples.put(hash, set);
+          }
+          if(spillThreshold > 0 && ++hashedCount > spillThreshold){
+            spillHashedTuples();
+          }
         }
       }
       tuple = hashStream.read();
     }
+
+    if(null != hashedPartitions){
+      spillFullStream();
+      joinPartitions();
+    }
+  }
+
+  private int getPartition(String hash) {
+    return Math.floorMod(hash.hashCode(), partitions);
+  }
+
+  private List<TupleSpillFile> createPartitions(String prefix) throws IOException {
+    List<TupleSpillFile> files = new ArrayList<>(partitions);
+    try{
+      for(int idx = 0; idx < partitions; ++idx){
+        files.add(new TupleSpillFile(prefix));
+      }
+    }
+    catch(IOException e){
+      closePartitions(files);
+      throw e;
+    }
+    return files;
+  }
+
+  private void spillHashedTuples() throws IOException {
+    log.debug("Hashed stream exceeded {} tuples, spilling to {} partitions", spillThreshold, partitions);
+    hashedPartitions = createPartitions("hashJoin-hashed");
+    for(List<Tuple> set : hashedTuples.values()){
+      for(Tuple hashed : set){
+        hashedPartitions.get(getPartition(computeHash(hashed, rightHashOn))).write(hashed);
+      }
+    }
+    hashedTuples.clear();
+  }
+
+  private void spillFullStream() throws IOException {
+    fullPartitions = createPartitions("hashJoin-full");
+    boolean outer = includesUnmatched();
+    Tuple tuple = fullStream.read();
+    while(!tuple.EOF){
+      String hash = computeHash(tuple, leftHashOn);
+      // a tuple without hash can only be returned unmatched, which the first partition does as well as any other
+      int partition = null == hash ? 0 : getPartition(hash);
+      if(outer || (null != hash && hashedPartitions.get(partition).getTupleCount() > 0)){
+        fullPartitions.get(partition).write(tuple);
+      }
+      tuple = fullStream.read();
+    }
+    fullEOF = tuple;
+
+    for(int idx = 0; idx < partitions; ++idx){
+      TupleSpillFile hashed = hashedPartitions.get(idx);
+      TupleSpillFile full = fullPartitions.get(idx);
+      hashed.complete();
+      full.complete();
+      spilledTuples += hashed.getTupleCount() + full.getTupleCount();
+      spilledBytes += hashed.getByteCount() + full.getByteCount();
+    }
+  }
+
+  private void joinPartitions() {
+    joinedTuples = new ArrayBlockingQueue<>(JOINED_QUEUE_SIZE);
+    partitionExecutor = ExecutorUtil.newMDCAwareFixedThreadPool(threads, new SolrNamedThreadFactory("HashJoinStream"));
+    pendingPartitions = partitions;
+    for(int idx = 0; idx < partitions; ++idx){
+      final int partition = idx;
+      partitionExecutor.execute(() -> {
+        try{
+          joinPartition(partition);
+        }
+        catch(InterruptedException e){
+          // closed before all tuples were read
+          Thread.currentThread().interrupt();
+          return;
+        }
+        catch(Throwable t){
+          if(null == partitionFailure){
+            partitionFailure = t;
+          }
+        }
+        try{
+          joinedTuples.put(PARTITION_DONE);
+        }
+        catch(InterruptedException e){
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+  }
+
+  private void joinPartition(int partition) throws IOException, InterruptedException {
+    TupleSpillFile full = fullPartitions.get(partition);
+    if(0 == full.getTupleCount()){
+      return;
+    }
+
+    HashMap<String, List<Tuple>> partitionTuples = new HashMap<>();
+    try(TupleSpillFile.Reader reader = hashedPartitions.get(partition).read()){
+      for(Tuple tuple = reader.next(); null != tuple; tuple = reader.next()){
+        partitionTuples.computeIfAbsent(computeHash(tuple, rightHashOn), k -> new ArrayList<>()).add(tuple);
+      }
+    }
+
+    boolean outer = includesUnmatched();
+    try(TupleSpillFile.Reader reader = full.read()){
+      for(Tuple tuple = reader.next(); null != tuple; tuple = reader.next()){
+        String hash = computeHash(tuple, leftHashOn);
+        List<Tuple> matches = null == hash ? null : partitionTuples.get(hash);
+        if(null == matches){
+          if(outer){
+            joinedTuples.put(tuple);
+          }
+          continue;
+        }
+        for(Tuple match : matches){
+          Tuple returnTuple = tuple.clone();
+          returnTuple.merge(match);
+          joinedTuples.put(returnTuple);
+        }
+      }
+    }
+  }
+
+  /**
+   * Whether tuples of the fullStream without any matching tuples in the hashStream are returned, which is the
+   * case for outer joins.
+   */
+  protected boolean includesUnmatched() {
+    return false;
+  }
+
+  /** Whether the streams were spilled to disk when this stream was opened. */
+  protected boolean isSpilled() {
+    return null != joinedTuples;
+  }
+
+  /** Reads the next tuple of a spilled join, in no particular order. */
+  protected Tuple readSpilled() throws IOException {
+    try{
+      while(pendingPartitions > 0){
+        Tuple tuple = joinedTuples.take();
+        if(PARTITION_DONE == tuple){
+          --pendingPartitions;
+          if(null != partitionFailure){
+            throw new IOException("Unable to join spilled partition", partitionFailure);
+          }
+          continue;
+        }
+        return tuple;
+      }
+    }
+    catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while joining spilled partitions", e);
+    }
+    return fullEOF;
+  }
+
+  private static void closePartitions(List<TupleSpillFile> files) {
+    if(null != files){
+      for(TupleSpillFile file : files){
+        IOUtils.closeQuietly(file);
+      }
+    }
   }
   
   protected String computeHash(Tuple tuple, List<String> hashOn){
@@ -229,11 +512,35 @@ public class HashJoinStream extends TupleStream implements Expressible {
   }
 
   public void close() throws IOException {
+    if(null != partitionExecutor){
+      partitionExecutor.shutdownNow();
+      try{
+        partitionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+      }
+      catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+      }
+      partitionExecutor = null;
+    }
+    if(null != hashedPartitions){
+      log.info("Joined spilled partitions, spilled tuples={} bytes={}", spilledTuples, spilledBytes);
+    }
+    closePartitions(hashedPartitions);
+    closePartitions(fullPartitions);
+    hashedPartitions = null;
+    fullPartitions = null;
+    joinedTuples = null;
+    partitionFailure = null;
+    fullEOF = null;
+
     hashStream.close();
     fullStream.close();
   }
 
   public Tuple read() throws IOException {
+    if(isSpilled()){
+      return readSpilled();
+    }
     
     findNextWorkingFullTuple:
     while(null == workingFullTuple){
@@ -278,6 +585,10 @@ public class HashJoinStream extends TupleStream implements Expressible {
 
   @Override
   public StreamComparator getStreamSort() {
+    if(spillThreshold > 0){
+      // spilled partitions are joined in no particular order
+      return null;
+    }
     return fullStream.getStreamSort();
   }
   
@@ -17,6 +17,7 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -40,17 +41,45 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
-
+import org.apache.solr.common.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rolls up the tuples of an unsorted stream by keeping the metrics of every bucket in memory.
+ * <p>
+ * If a spillThreshold is given, at most that many buckets are kept in memory. Once the limit is reached the tuples
+ * of buckets which are not in memory yet are partitioned by their bucket into temporary files, and each partition is
+ * rolled up after the buckets in memory were returned. Every bucket is then rolled up from a single partition, so
+ * the memory needed is bounded by the number of buckets of the largest partition.
+ * <p>
+ * If the stream produces {@link TupleBatch}es, such as a {@link ParallelStream} with a batchSize, the buckets and
+ * metrics are read from the columns of the batches.
+ */
 public class HashRollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  // the size of the batches read from a stream which produces batches
+  private static final int BATCH_SIZE = 1000;
+
+  public static final int DEFAULT_PARTITIONS = 16;
+  /** Every partition is a file open for writing while the stream is read, so their number is bounded. */
+  public static final int MAX_PARTITIONS = 128;
 
   private PushBackStream tupleStream;
   private Bucket[] buckets;
   private Metric[] metrics;
+  private int spillThreshold;
+  private int partitions = DEFAULT_PARTITIONS;
 
 
   private Iterator<Tuple> tupleIterator;
+  private transient List<TupleSpillFile> spilledPartitions;
+  private transient int partitionIdx;
+  private transient Tuple eofTuple;
+  private long spilledTuples;
+  private long spilledBytes;
 
   public HashRollupStream(TupleStream tupleStream,
                       Bucket[] buckets,
@@ -58,14 +87,31 @@ public class HashRollupStream extends TupleStream implements Expressible {
     init(tupleStream, buckets, metrics);
   }
 
+  /**
+   * @param spillThreshold the number of buckets kept in memory before tuples are written to temporary files,
+   *                       0 to keep all buckets in memory
+   * @param partitions the number of temporary files tuples are partitioned into
+   */
+  public HashRollupStream(TupleStream tupleStream,
+                      Bucket[] buckets,
+                      Metric[] metrics,
+                      int spillThreshold,
+                      int partitions) throws IOException {
+    init(tupleStream, buckets, metrics);
+    setSpilling(spillThreshold, partitions);
+  }
+
   public HashRollupStream(StreamExpression expression, StreamFactory factory) throws IOException {
     // grab all parameters out
     List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
     List<StreamExpression> metricExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
     StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+    StreamExpressionNamedParameter spillThresholdExpression = factory.getNamedOperand(expression, "spillThreshold");
+    StreamExpressionNamedParameter partitionsExpression = factory.getNamedOperand(expression, "partitions");
+    int spillParams = (null == spillThresholdExpression ? 0 : 1) + (null == partitionsExpression ? 0 : 1);
 
     // validate expression contains only what we want.
-    if(expression.getParameters().size() != streamExpressions.size() + metricExpressions.size() + 1){
+    if(expression.getParameters().size() != streamExpressions.size() + metricExpressions.size() + 1 + spillParams){
       throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
     }
 
@@ -95,6 +141,45 @@ public class HashRollupStream extends TupleStream implements Expressible {
     }
 
     init(factory.constructStream(streamExpressions.get(0)), buckets, metrics);
+    setSpilling(getIntParameter(expression, spillThresholdExpression, 0),
+        getIntParameter(expression, partitionsExpression, DEFAULT_PARTITIONS));
+  }
+
+  private static int getIntParameter(StreamExpression expression, StreamExpressionNamedParameter param, int defaultValue) throws IOException {
+    if(null == param){
+      return defaultValue;
+    }
+    if(!(param.getParameter() instanceof StreamExpressionValue)){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a number for the '%s' parameter",expression, param.getName()));
+    }
+    String value = ((StreamExpressionValue)param.getParameter()).getValue();
+    try{
+      return Integer.parseInt(value.trim());
+    }
+    catch(NumberFormatException e){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a number for the '%s' parameter but found '%s'",expression, param.getName(), value), e);
+    }
+  }
+
+  private void setSpilling(int spillThreshold, int partitions) throws IOException {
+    if(spillThreshold < 0){
+      throw new IOException(String.format(Locale.ROOT,"Invalid spillThreshold %d - expecting a value >= 0",spillThreshold));
+    }
+    if(partitions < 1 || partitions > MAX_PARTITIONS){
+      throw new IOException(String.format(Locale.ROOT,"Invalid partitions %d - expecting a value between 1 and %d",partitions,MAX_PARTITIONS));
+    }
+    this.spillThreshold = spillThreshold;
+    this.partitions = partitions;
+  }
+
+  /** The number of tuples written to temporary files since this stream was opened. */
+  public long getSpilledTupleCount() {
+    return spilledTuples;
+  }
+
+  /** The number of bytes written to temporary files since this stream was opened. */
+  public long getSpilledBytes() {
+    return spilledBytes;
   }
 
   private List<FieldEqualitor> flattenEqualitor(StreamEqualitor equalitor){
@@ -144,6 +229,11 @@ public class HashRollupStream extends TupleStream implements Expressible {
     }
     expression.addParameter(new StreamExpressionNamedParameter("over",overBuilder.toString()));
 
+    if(spillThreshold > 0){
+      expression.addParameter(new StreamExpressionNamedParameter("spillThreshold", Integer.toString(spillThreshold)));
+      expression.addParameter(new StreamExpressionNamedParameter("partitions", Integer.toString(partitions)));
+    }
+
     // metrics
     for(Metric metric : metrics){
       expression.addParameter(metric.toExpression(factory));
@@ -183,9 +273,19 @@ public class HashRollupStream extends TupleStream implements Expressible {
 
   public void open() throws IOException {
     tupleStream.open();
+    spilledTuples = 0;
+    spilledBytes = 0;
   }
 
   public void close() throws IOException {
+    if(null != spilledPartitions){
+      log.debug("Rolled up spilled partitions, spilled tuples={} bytes={}", spilledTuples, spilledBytes);
+      for(TupleSpillFile file : spilledPartitions){
+        IOUtils.closeQuietly(file);
+      }
+      spilledPartitions = null;
+    }
+    eofTuple = null;
     tupleStream.close();
     tupleIterator = null;
   }
@@ -193,56 +293,163 @@ public class HashRollupStream extends TupleStream implements Expressible {
   public Tuple read() throws IOException {
     //On the first call to read build the tupleIterator.
     if(tupleIterator == null) {
-      Map<HashKey, Metric[]> metricMap = new HashMap();
-      while (true) {
-        Tuple tuple = tupleStream.read();
-        if (tuple.EOF) {
-          List tuples = new ArrayList();
-          for(Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
-            Map<String, Object> map = new HashMap<String, Object>();
-            Metric[] finishedMetrics = entry.getValue();
-            for (Metric metric : finishedMetrics) {
-              map.put(metric.getIdentifier(), metric.getValue());
-            }
-
-            HashKey hashKey = entry.getKey();
-            for (int i = 0; i < buckets.length; i++) {
-              map.put(buckets[i].toString(), hashKey.getParts()[i]);
-            }
-
-            Tuple t = new Tuple(map);
-            tuples.add(t);
+      if (tupleStream.producesBatches()) {
+        tupleIterator = rollupBatches().iterator();
+      } else {
+        tupleIterator = rollup(() -> {
+          Tuple tuple = tupleStream.read();
+          if (tuple.EOF) {
+            eofTuple = tuple;
+            return null;
           }
-          tuples.add(tuple);
-          this.tupleIterator = tuples.iterator();
-          break;
+          return tuple;
+        }, spillThreshold > 0).iterator();
+      }
+    }
+
+    // Once the buckets in memory are returned, roll up the spilled partitions one after the other
+    while (!tupleIterator.hasNext()) {
+      if (spilledPartitions == null || partitionIdx >= spilledPartitions.size()) {
+        return eofTuple;
+      }
+      TupleSpillFile partition = spilledPartitions.get(partitionIdx++);
+      try (TupleSpillFile.Reader reader = partition.read()) {
+        tupleIterator = rollup(reader::next, false).iterator();
+      } finally {
+        partition.close();
+      }
+    }
+
+    return tupleIterator.next();
+  }
+
+  private interface TupleSource {
+    /** Returns the next tuple, or null at the end. */
+    Tuple next() throws IOException;
+  }
+
+  private List<Tuple> rollup(TupleSource source, boolean spill) throws IOException {
+    Map<HashKey, Metric[]> metricMap = new HashMap();
+    for (Tuple tuple = source.next(); tuple != null; tuple = source.next()) {
+      Object[] bucketValues = new Object[buckets.length];
+      for (int i = 0; i < buckets.length; i++) {
+        bucketValues[i] = buckets[i].getBucketValue(tuple);
+      }
+
+      HashKey hashKey = new HashKey(bucketValues);
+      Metric[] currentMetrics = metricMap.get(hashKey);
+
+      if (currentMetrics == null) {
+        if (spill && metricMap.size() >= spillThreshold) {
+          // no more buckets are added to the map, the tuples of new buckets are rolled up from their partition
+          partition(hashKey).write(tuple);
+          continue;
         }
+        currentMetrics = newMetrics();
+        metricMap.put(hashKey, currentMetrics);
+      }
+      for (Metric bucketMetric : currentMetrics) {
+        bucketMetric.update(tuple);
+      }
+    }
 
+    if (spill) {
+      completeSpill();
+    }
+    return toTuples(metricMap);
+  }
+
+  /**
+   * Rolls up the batches of a stream which produces them, see {@link TupleStream#producesBatches()}. The metrics read
+   * the columns of the batches, tuples are only created for the rows which are spilled.
+   */
+  private List<Tuple> rollupBatches() throws IOException {
+    Map<HashKey, Metric[]> metricMap = new HashMap();
+    boolean spill = spillThreshold > 0;
+    for (;;) {
+      TupleBatch batch = tupleStream.readBatch(BATCH_SIZE);
+      for (int row = 0; row < batch.size(); row++) {
         Object[] bucketValues = new Object[buckets.length];
         for (int i = 0; i < buckets.length; i++) {
-          bucketValues[i] = buckets[i].getBucketValue(tuple);
+          bucketValues[i] = buckets[i].getBucketValue(batch, row);
         }
 
         HashKey hashKey = new HashKey(bucketValues);
         Metric[] currentMetrics = metricMap.get(hashKey);
 
-        if (currentMetrics != null) {
-          for (Metric bucketMetric : currentMetrics) {
-            bucketMetric.update(tuple);
-          }
-        } else {
-          currentMetrics = new Metric[metrics.length];
-          for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
-            bucketMetric.update(tuple);
-            currentMetrics[i] = bucketMetric;
+        if (currentMetrics == null) {
+          if (spill && metricMap.size() >= spillThreshold) {
+            partition(hashKey).write(batch.getTuple(row));
+            continue;
           }
+          currentMetrics = newMetrics();
           metricMap.put(hashKey, currentMetrics);
         }
+        for (Metric bucketMetric : currentMetrics) {
+          bucketMetric.update(batch, row);
+        }
+      }
+      if (batch.getEOF() != null) {
+        eofTuple = batch.getEOF();
+        break;
       }
     }
 
-    return tupleIterator.next();
+    if (spill) {
+      completeSpill();
+    }
+    return toTuples(metricMap);
+  }
+
+  private Metric[] newMetrics() {
+    Metric[] bucketMetrics = new Metric[metrics.length];
+    for (int i = 0; i < metrics.length; i++) {
+      bucketMetrics[i] = metrics[i].newInstance();
+    }
+    return bucketMetrics;
+  }
+
+  /** Returns the partition the tuples of a bucket are spilled to, creating the partitions on the first spill. */
+  private TupleSpillFile partition(HashKey hashKey) throws IOException {
+    if (spilledPartitions == null) {
+      log.debug("Rollup exceeded {} buckets, spilling to {} partitions", spillThreshold, partitions);
+      spilledPartitions = new ArrayList<>(partitions);
+      partitionIdx = 0;
+      for (int i = 0; i < partitions; i++) {
+        spilledPartitions.add(new TupleSpillFile("hashRollup"));
+      }
+    }
+    return spilledPartitions.get(Math.floorMod(hashKey.hashCode(), partitions));
+  }
+
+  private void completeSpill() throws IOException {
+    if (spilledPartitions != null) {
+      for (TupleSpillFile partition : spilledPartitions) {
+        partition.complete();
+        spilledTuples += partition.getTupleCount();
+        spilledBytes += partition.getByteCount();
+      }
+    }
+  }
+
+  private List<Tuple> toTuples(Map<HashKey, Metric[]> metricMap) {
+    List<Tuple> tuples = new ArrayList<>(metricMap.size());
+    for(Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
+      Map<String, Object> map = new HashMap<String, Object>();
+      Metric[] finishedMetrics = entry.getValue();
+      for (Metric metric : finishedMetrics) {
+        map.put(metric.getIdentifier(), metric.getValue());
+      }
+
+      HashKey hashKey = entry.getKey();
+      for (int i = 0; i < buckets.length; i++) {
+        map.put(buckets[i].toString(), hashKey.getParts()[i]);
+      }
+
+      Tuple t = new Tuple(map);
+      tuples.add(t);
+    }
+    return tuples;
   }
 
   public int getCost() {
@@ -175,11 +175,16 @@ public class JavabinTupleStreamParser extends JavaBinCodec implements TupleStrea
 
   @Override
   public Map<String, Object> next() throws IOException {
+    return (Map<String, Object>) nextValue();
+  }
+
+  /** Reads the next item of the docs, which is a map unless the tuples are sent in batches, or null at the end. */
+  Object nextValue() throws IOException {
     if (arraySize == 0) return null;
     Object o = readVal(fis);
     arraySize--;
     if (o == END_OBJ) return null;
-    return (Map<String, Object>) o;
+    return o;
   }
 
   @Override
@@ -83,11 +83,20 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
       }
     }
     expression.addParameter(new StreamExpressionNamedParameter("on",sb.toString()));
+    addSpillParameters(expression);
     
     return expression;   
   }
 
+  @Override
+  protected boolean includesUnmatched() {
+    return true;
+  }
+
   public Tuple read() throws IOException {
+    if(isSpilled()){
+      return readSpilled();
+    }
     
     if(null == workingFullTuple){
       Tuple fullTuple = fullStream.read();
@@ -34,6 +34,7 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 
 import static org.apache.solr.common.params.CommonParams.DISTRIB;
@@ -49,6 +50,7 @@ public class ParallelStream extends CloudSolrStream implements Expressible {
 
   private TupleStream tupleStream;
   private int workers;
+  private int batchSize;
   private transient StreamFactory streamFactory;
 
   public ParallelStream(String zkHost,
@@ -80,10 +82,11 @@ public class ParallelStream extends CloudSolrStream implements Expressible {
     List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
     StreamExpressionNamedParameter sortExpression = factory.getNamedOperand(expression, SORT);
     StreamExpressionNamedParameter zkHostExpression = factory.getNamedOperand(expression, "zkHost");
+    StreamExpressionNamedParameter batchSizeExpression = factory.getNamedOperand(expression, "batchSize");
     
     // validate expression contains only what we want.
 
-    if(expression.getParameters().size() != streamExpressions.size() + 3 + (null != zkHostExpression ? 1 : 0)){
+    if(expression.getParameters().size() != streamExpressions.size() + 3 + (null != zkHostExpression ? 1 : 0) + (null != batchSizeExpression ? 1 : 0)){
       throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
     }
     
@@ -138,6 +141,32 @@ public class ParallelStream extends CloudSolrStream implements Expressible {
     StreamComparator comp = factory.constructComparator(((StreamExpressionValue)sortExpression.getParameter()).getValue(), FieldComparator.class);
     streamFactory = factory;
     init(zkHost,collectionName,stream,workersInt,comp);
+
+    // batchSize, optional - tuples are sent one by one if not provided
+    if(null != batchSizeExpression){
+      String batchSizeStr = batchSizeExpression.getParameter() instanceof StreamExpressionValue ? ((StreamExpressionValue)batchSizeExpression.getParameter()).getValue() : null;
+      try{
+        setBatchSize(Integer.parseInt(batchSizeStr));
+      }
+      catch(NumberFormatException e){
+        throw new IOException(String.format(Locale.ROOT,"invalid expression %s - batchSize '%s' is not a valid integer.",expression, batchSizeStr));
+      }
+    }
+  }
+
+  /**
+   * Lets the workers send their tuples in columnar {@link TupleBatch}es of the given size, 0 to send them one by one.
+   */
+  public void setBatchSize(int batchSize) throws IOException {
+    if(batchSize < 0){
+      throw new IOException(String.format(Locale.ROOT,"batchSize %d must not be negative.", batchSize));
+    }
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  protected boolean requestsBatches() {
+    return batchSize > 0;
   }
 
   private void init(String zkHost,String collection,TupleStream tupleStream,int workers,StreamComparator comp) throws IOException{
@@ -185,6 +214,11 @@ public class ParallelStream extends CloudSolrStream implements Expressible {
     
     // zkHost
     expression.addParameter(new StreamExpressionNamedParameter("zkHost", zkHost));
+
+    // batchSize
+    if(batchSize > 0){
+      expression.addParameter(new StreamExpressionNamedParameter("batchSize", Integer.toString(batchSize)));
+    }
     
     return expression;   
   }
@@ -263,6 +297,10 @@ public class ParallelStream extends CloudSolrStream implements Expressible {
 
         paramsLoc.set("expr", pushStream.toString());
         paramsLoc.set("qt","/stream");
+        if(batchSize > 0){
+          paramsLoc.set(CommonParams.WT, CommonParams.JAVABIN);
+          paramsLoc.set(TupleBatchWriter.BATCH_SIZE_PARAM, batchSize);
+        }
 
         String url = shardUrls.get(w);
         SolrStream solrStream = new SolrStream(url, paramsLoc);
@@ -89,6 +89,17 @@ public class PushBackStream extends TupleStream implements Expressible {
     }
   }
   
+  /** Returns the batches of the substream, once a tuple pushed back was read. */
+  @Override
+  public TupleBatch readBatch(int maxSize) throws IOException {
+    return tuple == null ? stream.readBatch(maxSize) : super.readBatch(maxSize);
+  }
+
+  @Override
+  public boolean producesBatches() {
+    return stream.producesBatches();
+  }
+
   /** Return the stream sort - ie, the order in which records are returned
    *  This returns the streamSort of the substream */
   public StreamComparator getStreamSort(){
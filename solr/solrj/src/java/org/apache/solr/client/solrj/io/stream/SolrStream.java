@@ -233,6 +233,32 @@ public class SolrStream extends TupleStream {
     }
   }
 
+  /**
+   * Returns the batches of tuples as they were sent if the stream was requested with
+   * {@link TupleBatchWriter#BATCH_SIZE_PARAM}, their size is then chosen by the server. Otherwise, or if the tuples
+   * are modified by this stream, the tuples are read one by one.
+   */
+  @Override
+  public TupleBatch readBatch(int maxSize) throws IOException {
+    if (producesBatches()) {
+      TupleBatch batch;
+      try {
+        batch = ((TupleBatchStreamParser) tupleStreamParser).nextBatch();
+      } catch (Exception e) {
+        throw new IOException("--> "+this.baseUrl+": An exception has occurred on the server, refer to server log for details.", e);
+      }
+      if (batch != null) {
+        return batch;
+      }
+    }
+    return super.readBatch(maxSize);
+  }
+
+  @Override
+  public boolean producesBatches() {
+    return tupleStreamParser instanceof TupleBatchStreamParser && !trace && fieldMappings == null;
+  }
+
   public void setDistrib(boolean distrib) {
     this.distrib = distrib;
   }
@@ -291,6 +317,9 @@ public class SolrStream extends TupleStream {
     InputStream stream = (InputStream) genericResponse.get("stream");
     this.closeableHttpResponse = (CloseableHttpResponse)genericResponse.get("closeableResponse");
     if (CommonParams.JAVABIN.equals(wt)) {
+      if (requestParams.getInt(TupleBatchWriter.BATCH_SIZE_PARAM, 0) > 0) {
+        return new TupleBatchStreamParser(new JavabinTupleStreamParser(stream, true));
+      }
       return new JavabinTupleStreamParser(stream, true);
     } else {
       InputStreamReader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
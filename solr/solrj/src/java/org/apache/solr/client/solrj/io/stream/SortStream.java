@@ -17,10 +17,13 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.PriorityQueue;
 
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
@@ -33,32 +36,54 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParamete
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
-
+import org.apache.solr.common.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The SortStream emits a stream of Tuples sorted by a Comparator.
+ * <p>
+ * By default all tuples are sorted in memory. If a spillThreshold is given, at most that many tuples are kept in
+ * memory: whenever the buffer is full it is sorted and written to a temporary file as a sorted run, and the runs
+ * are merged when the tuples are read. At most {@link #MAX_MERGE_RUNS} runs are merged at once; like Lucene's
+ * OfflineSorter, the runs written so far are merged into one whenever there are that many, so that the number of
+ * open files is bounded however many tuples are spilled.
  * @since 6.1.0
  **/
 
 public class SortStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** The maximum number of sorted runs merged at once. */
+  public static final int MAX_MERGE_RUNS = 64;
 
   private TupleStream stream;
   private StreamComparator comparator;
+  private int spillThreshold;
   private Worker worker;
 
   public SortStream(TupleStream stream, StreamComparator comp) throws IOException {
-    init(stream,comp);
+    this(stream, comp, 0);
+  }
+
+  /**
+   * @param spillThreshold the number of tuples sorted in memory before they are written to a temporary file,
+   *                       0 to sort all tuples in memory
+   */
+  public SortStream(TupleStream stream, StreamComparator comp, int spillThreshold) throws IOException {
+    init(stream,comp,spillThreshold);
   }
   
   public SortStream(StreamExpression expression,StreamFactory factory) throws IOException {
     // grab all parameters out
     List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
     StreamExpressionNamedParameter byExpression = factory.getNamedOperand(expression, "by");
+    StreamExpressionNamedParameter spillThresholdExpression = factory.getNamedOperand(expression, "spillThreshold");
     
     // validate expression contains only what we want.
-    if(expression.getParameters().size() != streamExpressions.size() + 1){
+    if(expression.getParameters().size() != streamExpressions.size() + 1 + (null == spillThresholdExpression ? 0 : 1)){
       throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
     }
     
@@ -69,16 +94,40 @@ public class SortStream extends TupleStream implements Expressible {
     if(null == byExpression || !(byExpression.getParameter() instanceof StreamExpressionValue)){
       throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting single 'by' parameter listing fields to sort over but didn't find one",expression));
     }
+
+    int spillThreshold = 0;
+    if(null != spillThresholdExpression){
+      if(!(spillThresholdExpression.getParameter() instanceof StreamExpressionValue)){
+        throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a number for the 'spillThreshold' parameter",expression));
+      }
+      String value = ((StreamExpressionValue)spillThresholdExpression.getParameter()).getValue();
+      try{
+        spillThreshold = Integer.parseInt(value.trim());
+      }
+      catch(NumberFormatException e){
+        throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a number for the 'spillThreshold' parameter but found '%s'",expression,value), e);
+      }
+    }
     
     init(
           factory.constructStream(streamExpressions.get(0)),
-          factory.constructComparator(((StreamExpressionValue)byExpression.getParameter()).getValue(), FieldComparator.class)
+          factory.constructComparator(((StreamExpressionValue)byExpression.getParameter()).getValue(), FieldComparator.class),
+          spillThreshold
         );
   }
   
-  private void init(TupleStream stream, StreamComparator comp) throws IOException{
+  private void init(TupleStream stream, StreamComparator comp, int spillThreshold) throws IOException{
     this.stream = stream;
     this.comparator = comp;
+    if(spillThreshold < 0){
+      throw new IOException(String.format(Locale.ROOT,"Invalid spillThreshold %d - expecting a value >= 0",spillThreshold));
+    }
+    this.spillThreshold = spillThreshold;
+
+    if(spillThreshold > 0){
+      worker = new SpillingWorker();
+      return;
+    }
     
     // standard java modified merge sort
     worker = new Worker() {
@@ -105,10 +154,27 @@ public class SortStream extends TupleStream implements Expressible {
         }
         return tuples.removeFirst();
       }
+
+      public void close() {
+        tuples.clear();
+      }
     };
     
   }
 
+  /**
+   * The number of tuples written to temporary files since this stream was opened, including the tuples written
+   * again when runs are merged into one.
+   */
+  public long getSpilledTupleCount() {
+    return worker instanceof SpillingWorker ? ((SpillingWorker)worker).spilledTuples : 0;
+  }
+
+  /** The number of bytes written to temporary files since this stream was opened. */
+  public long getSpilledBytes() {
+    return worker instanceof SpillingWorker ? ((SpillingWorker)worker).spilledBytes : 0;
+  }
+
   @Override
   public StreamExpression toExpression(StreamFactory factory) throws IOException{
     return toExpression(factory, true);
@@ -138,6 +204,10 @@ public class SortStream extends TupleStream implements Expressible {
     else{
       throw new IOException("This SortStream contains a non-expressible equalitor - it cannot be converted to an expression");
     }
+
+    if(spillThreshold > 0){
+      expression.addParameter(new StreamExpressionNamedParameter("spillThreshold", Integer.toString(spillThreshold)));
+    }
     
     return expression;   
   }
@@ -174,7 +244,12 @@ public class SortStream extends TupleStream implements Expressible {
   }
 
   public void close() throws IOException {
-    stream.close();
+    try{
+      worker.close();
+    }
+    finally{
+      stream.close();
+    }
   }
 
   public Tuple read() throws IOException {
@@ -193,8 +268,160 @@ public class SortStream extends TupleStream implements Expressible {
 
   private interface Worker {
     public void readStream(TupleStream stream) throws IOException;
-    public void sort();
-    public Tuple read();
+    public void sort() throws IOException;
+    public Tuple read() throws IOException;
+    public void close() throws IOException;
+  }
+
+  /** A sorted sequence of tuples being merged. */
+  private interface Run {
+    /** Returns the next tuple, or null once all tuples were returned. */
+    Tuple next() throws IOException;
+  }
+
+  /** A run and its smallest tuple not returned yet. */
+  private static class RunHead {
+    final Run run;
+    Tuple tuple;
+
+    RunHead(Run run, Tuple tuple) {
+      this.run = run;
+      this.tuple = tuple;
+    }
+  }
+
+  /** External merge sort, which sorts runs of spillThreshold tuples in memory and merges them. */
+  private class SpillingWorker implements Worker {
+
+    private List<Tuple> tuples = new ArrayList<>();
+    private List<TupleSpillFile> runFiles = new ArrayList<>();
+    private List<TupleSpillFile.Reader> readers = new ArrayList<>();
+    private PriorityQueue<RunHead> heads;
+    private Tuple eofTuple;
+    private long spilledTuples;
+    private long spilledBytes;
+
+    public void readStream(TupleStream stream) throws IOException {
+      spilledTuples = 0;
+      spilledBytes = 0;
+      Tuple tuple = stream.read();
+      while(!tuple.EOF){
+        tuples.add(tuple);
+        if(tuples.size() >= spillThreshold){
+          spill();
+        }
+        tuple = stream.read();
+      }
+      eofTuple = tuple;
+    }
+
+    private void spill() throws IOException {
+      tuples.sort(comparator);
+      TupleSpillFile file = new TupleSpillFile("sortStream");
+      runFiles.add(file);
+      for(Tuple tuple : tuples){
+        file.write(tuple);
+      }
+      file.complete();
+      spilledTuples += file.getTupleCount();
+      spilledBytes += file.getByteCount();
+      tuples.clear();
+      if(runFiles.size() >= MAX_MERGE_RUNS){
+        mergeRuns();
+      }
+    }
+
+    /** Merges the runs written so far into a single run, which keeps the number of runs below MAX_MERGE_RUNS. */
+    private void mergeRuns() throws IOException {
+      log.debug("Merging {} sorted runs into one", runFiles.size());
+      TupleSpillFile merged = new TupleSpillFile("sortStream");
+      List<TupleSpillFile.Reader> mergeReaders = new ArrayList<>(runFiles.size());
+      try {
+        PriorityQueue<RunHead> mergeHeads = newHeads(runFiles.size());
+        for(TupleSpillFile file : runFiles){
+          TupleSpillFile.Reader reader = file.read();
+          mergeReaders.add(reader);
+          addRun(mergeHeads, reader::next);
+        }
+        for(Tuple tuple = next(mergeHeads); null != tuple; tuple = next(mergeHeads)){
+          merged.write(tuple);
+        }
+        merged.complete();
+      } catch (IOException | RuntimeException e) {
+        IOUtils.closeQuietly(merged);
+        throw e;
+      } finally {
+        for(TupleSpillFile.Reader reader : mergeReaders){
+          IOUtils.closeQuietly(reader);
+        }
+      }
+      for(TupleSpillFile file : runFiles){
+        IOUtils.closeQuietly(file);
+      }
+      runFiles.clear();
+      runFiles.add(merged);
+      spilledTuples += merged.getTupleCount();
+      spilledBytes += merged.getByteCount();
+    }
+
+    public void sort() throws IOException {
+      // the tuples left in memory are merged as one more run
+      tuples.sort(comparator);
+      heads = newHeads(runFiles.size() + 1);
+      for(TupleSpillFile file : runFiles){
+        TupleSpillFile.Reader reader = file.read();
+        readers.add(reader);
+        addRun(heads, reader::next);
+      }
+      Iterator<Tuple> it = tuples.iterator();
+      addRun(heads, () -> it.hasNext() ? it.next() : null);
+      if(!runFiles.isEmpty()){
+        log.debug("Merging {} sorted runs, spilled tuples={} bytes={}", runFiles.size(), spilledTuples, spilledBytes);
+      }
+    }
+
+    private PriorityQueue<RunHead> newHeads(int numRuns) {
+      return new PriorityQueue<>(numRuns, (a, b) -> comparator.compare(a.tuple, b.tuple));
+    }
+
+    private void addRun(PriorityQueue<RunHead> heads, Run run) throws IOException {
+      Tuple tuple = run.next();
+      if(null != tuple){
+        heads.add(new RunHead(run, tuple));
+      }
+    }
+
+    /** Returns the smallest tuple of the runs, or null once all tuples were returned. */
+    private Tuple next(PriorityQueue<RunHead> heads) throws IOException {
+      RunHead head = heads.poll();
+      if(null == head){
+        return null;
+      }
+      Tuple tuple = head.tuple;
+      head.tuple = head.run.next();
+      if(null != head.tuple){
+        heads.add(head);
+      }
+      return tuple;
+    }
+
+    public Tuple read() throws IOException {
+      Tuple tuple = next(heads);
+      return null == tuple ? eofTuple : tuple;
+    }
+
+    public void close() {
+      for(TupleSpillFile.Reader reader : readers){
+        IOUtils.closeQuietly(reader);
+      }
+      for(TupleSpillFile file : runFiles){
+        IOUtils.closeQuietly(file);
+      }
+      readers.clear();
+      runFiles.clear();
+      tuples.clear();
+      heads = null;
+    }
   }
   
 }
@@ -0,0 +1,711 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * A batch of tuples stored column by column. Each column holds the values of one field for all tuples of the batch,
+ * in a typed array when all values of the field have the same JSON type (long, double, boolean or string). Strings
+ * are dictionary encoded, so a value repeated within the batch is stored and decoded once.
+ * <p>
+ * Batches are the unit of the columnar transport between streaming workers: they are built from the tuples or
+ * documents written by <code>/stream</code> and <code>/export</code>, serialized with {@link #write()} and read
+ * back with {@link #read(byte[])}. Consumers can use the typed accessors, or {@link #getTuple(int)} to get the
+ * tuples back one by one. Like the per-tuple javabin transport of {@link SolrStream}, values are reduced to JSON
+ * types: integral numbers are longs, floating point numbers are doubles and dates are ISO-8601 strings.
+ * <p>
+ * The batch that ends a stream also holds the tuple that ended it, see {@link #getEOF()}.
+ */
+public final class TupleBatch {
+
+  static final int VERSION = 1;
+
+  static final byte LONG = 1;
+  static final byte DOUBLE = 2;
+  static final byte BOOLEAN = 3;
+  static final byte STRING = 4;
+  static final byte OBJECT = 5;
+
+  private final int size;
+  private final String[] names;
+  private final Column[] columns;
+  private final Tuple eof;
+  // the number of tuples created from the rows of this batch
+  private int createdTuples;
+
+  private TupleBatch(int size, String[] names, Column[] columns, Tuple eof) {
+    this.size = size;
+    this.names = names;
+    this.columns = columns;
+    this.eof = eof;
+  }
+
+  /** The number of tuples in this batch, not counting the EOF tuple. */
+  public int size() {
+    return size;
+  }
+
+  /** The names of the fields of the tuples in this batch, in the order of the columns. */
+  public List<String> getFieldNames() {
+    return Collections.unmodifiableList(Arrays.asList(names));
+  }
+
+  /** The index of the column of the given field, or -1 if no tuple of this batch has the field. */
+  public int getColumn(String field) {
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(field)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The tuple that ended the stream, either an EOF tuple or a tuple carrying an EXCEPTION, if this is the last batch
+   * of the stream, otherwise null.
+   */
+  public Tuple getEOF() {
+    return eof;
+  }
+
+  public boolean isNull(int column, int row) {
+    return columns[column].isNull(row);
+  }
+
+  /** Whether all values of the column are longs, which can be read with {@link #getLong(int, int)}. */
+  public boolean isLong(int column) {
+    return columns[column].type == LONG;
+  }
+
+  /** Whether all values of the column are doubles, which can be read with {@link #getDouble(int, int)}. */
+  public boolean isDouble(int column) {
+    return columns[column].type == DOUBLE;
+  }
+
+  /** The value of a long column, or 0 if the value is null. */
+  public long getLong(int column, int row) {
+    Column c = columns[column];
+    if (c.type != LONG) {
+      throw new IllegalStateException("Column " + names[column] + " is not a long column");
+    }
+    return c.longs[row];
+  }
+
+  /** The value of a double column, or 0 if the value is null. */
+  public double getDouble(int column, int row) {
+    Column c = columns[column];
+    if (c.type != DOUBLE) {
+      throw new IllegalStateException("Column " + names[column] + " is not a double column");
+    }
+    return c.doubles[row];
+  }
+
+  /** The value of a column as an object, or null. */
+  public Object getValue(int column, int row) {
+    return columns[column].get(row);
+  }
+
+  /** Creates the tuple at the given row. */
+  public Tuple getTuple(int row) {
+    Tuple tuple = new Tuple();
+    putFields(row, tuple.fields);
+    return tuple;
+  }
+
+  /** Creates a new map holding the fields of the tuple at the given row. */
+  public Map<String, Object> getFields(int row) {
+    Map<String, Object> fields = new HashMap<>();
+    putFields(row, fields);
+    return fields;
+  }
+
+  /** The number of tuples, or maps of fields, created from the rows of this batch so far. */
+  int getCreatedTupleCount() {
+    return createdTuples;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void putFields(int row, Map fields) {
+    ++createdTuples;
+    for (int i = 0; i < columns.length; i++) {
+      Column c = columns[i];
+      if (!c.isNull(row)) {
+        fields.put(names[i], c.get(row));
+      }
+    }
+  }
+
+  /**
+   * Reads up to <code>maxSize</code> tuples of a stream into a batch. This is the fallback for streams that can not
+   * return batches themselves, see {@link TupleStream#readBatch(int)}.
+   */
+  static TupleBatch read(TupleStream stream, int maxSize) throws IOException {
+    Builder builder = new Builder();
+    while (builder.size() < maxSize) {
+      Tuple tuple = stream.read();
+      if (tuple.EOF || tuple.EXCEPTION) {
+        return builder.build(tuple);
+      }
+      builder.add(tuple);
+    }
+    return builder.build(null);
+  }
+
+  /** Serializes the tuples of this batch. The EOF tuple is not part of the serialized batch. */
+  public byte[] write() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    FastOutputStream out = new FastOutputStream(bytes);
+    JavaBinCodec.writeVInt(VERSION, out);
+    JavaBinCodec.writeVInt(size, out);
+    JavaBinCodec.writeVInt(columns.length, out);
+    for (int i = 0; i < columns.length; i++) {
+      writeString(names[i], out);
+      columns[i].write(size, out);
+    }
+    out.flushBuffer();
+    return bytes.toByteArray();
+  }
+
+  /** Reads a batch serialized with {@link #write()}. */
+  public static TupleBatch read(byte[] bytes) throws IOException {
+    return read(bytes, null);
+  }
+
+  /** Reads a batch serialized with {@link #write()}, ending the stream with the given tuple if not null. */
+  static TupleBatch read(byte[] bytes, Tuple eof) throws IOException {
+    FastInputStream in = new FastInputStream(null, bytes, 0, bytes.length);
+    int version = JavaBinCodec.readVInt(in);
+    if (version != VERSION) {
+      throw new IOException("Unsupported tuple batch version " + version + ", expected " + VERSION);
+    }
+    int size = JavaBinCodec.readVInt(in);
+    int numColumns = JavaBinCodec.readVInt(in);
+    String[] names = new String[numColumns];
+    Column[] columns = new Column[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      names[i] = readString(in);
+      columns[i] = Column.read(size, in);
+    }
+    return new TupleBatch(size, names, columns, eof);
+  }
+
+  /**
+   * Creates a batch from rows of other batches, column by column without creating their tuples: row <code>i</code>
+   * of the new batch is row <code>rows[i]</code> of <code>sources.get(sourceOf[i])</code>. A column stays typed if
+   * the columns of the field have the same type in all sources, and strings are encoded with a new dictionary.
+   */
+  static TupleBatch gather(List<TupleBatch> sources, int[] sourceOf, int[] rows, int size, Tuple eof) {
+    Map<String, Integer> fields = new LinkedHashMap<>();
+    for (TupleBatch source : sources) {
+      for (String name : source.names) {
+        fields.putIfAbsent(name, fields.size());
+      }
+    }
+    // the column of each field in each source, or -1
+    int[][] sourceColumns = new int[sources.size()][];
+    for (int s = 0; s < sources.size(); s++) {
+      TupleBatch source = sources.get(s);
+      sourceColumns[s] = new int[fields.size()];
+      Arrays.fill(sourceColumns[s], -1);
+      for (int c = 0; c < source.names.length; c++) {
+        sourceColumns[s][fields.get(source.names[c])] = c;
+      }
+    }
+
+    String[] names = fields.keySet().toArray(new String[0]);
+    Column[] columns = new Column[names.length];
+    for (int f = 0; f < names.length; f++) {
+      byte type = 0;
+      boolean[] nulls = null;
+      for (int row = 0; row < size; row++) {
+        int c = sourceColumns[sourceOf[row]][f];
+        Column source = c < 0 ? null : sources.get(sourceOf[row]).columns[c];
+        if (source == null || source.isNull(rows[row])) {
+          if (nulls == null) {
+            nulls = new boolean[size];
+          }
+          nulls[row] = true;
+        } else if (type == 0) {
+          type = source.type;
+        } else if (type != source.type) {
+          type = OBJECT;
+        }
+      }
+      if (type == 0) {
+        type = OBJECT;
+      }
+
+      Column column = new Column(type, nulls);
+      switch (type) {
+        case LONG:
+        case BOOLEAN:
+          column.longs = new long[size];
+          for (int row = 0; row < size; row++) {
+            if (!column.isNull(row)) {
+              column.longs[row] = sources.get(sourceOf[row]).columns[sourceColumns[sourceOf[row]][f]].longs[rows[row]];
+            }
+          }
+          break;
+        case DOUBLE:
+          column.doubles = new double[size];
+          for (int row = 0; row < size; row++) {
+            if (!column.isNull(row)) {
+              column.doubles[row] = sources.get(sourceOf[row]).columns[sourceColumns[sourceOf[row]][f]].doubles[rows[row]];
+            }
+          }
+          break;
+        case STRING:
+          // the ordinals of the dictionary of each source in the new dictionary, assigned on first use
+          int[][] remap = new int[sources.size()][];
+          Map<String, Integer> ords = new HashMap<>();
+          List<String> dictionary = new ArrayList<>();
+          column.ords = new int[size];
+          for (int row = 0; row < size; row++) {
+            if (column.isNull(row)) {
+              continue;
+            }
+            int s = sourceOf[row];
+            Column source = sources.get(s).columns[sourceColumns[s][f]];
+            if (remap[s] == null) {
+              remap[s] = new int[source.dictionary.length];
+              Arrays.fill(remap[s], -1);
+            }
+            int sourceOrd = source.ords[rows[row]];
+            if (remap[s][sourceOrd] < 0) {
+              String value = source.dictionary[sourceOrd];
+              Integer ord = ords.get(value);
+              if (ord == null) {
+                ord = dictionary.size();
+                ords.put(value, ord);
+                dictionary.add(value);
+              }
+              remap[s][sourceOrd] = ord;
+            }
+            column.ords[row] = remap[s][sourceOrd];
+          }
+          column.dictionary = dictionary.toArray(new String[0]);
+          break;
+        default:
+          column.objects = new Object[size];
+          for (int row = 0; row < size; row++) {
+            if (!column.isNull(row)) {
+              column.objects[row] = sources.get(sourceOf[row]).columns[sourceColumns[sourceOf[row]][f]].get(rows[row]);
+            }
+          }
+      }
+      columns[f] = column;
+    }
+    return new TupleBatch(size, names, columns, eof);
+  }
+
+  /** Returns a batch with no tuples, which ends the stream with the given tuple. */
+  static TupleBatch eof(Tuple eof) {
+    return new TupleBatch(0, new String[0], new Column[0], eof);
+  }
+
+  private static void writeString(String s, FastOutputStream out) throws IOException {
+    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+    JavaBinCodec.writeVInt(utf8.length, out);
+    out.write(utf8);
+  }
+
+  private static String readString(FastInputStream in) throws IOException {
+    byte[] utf8 = new byte[JavaBinCodec.readVInt(in)];
+    in.readFully(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reduces a value to the JSON types the columnar transport supports, like the per-tuple javabin transport of
+   * {@link SolrStream} does.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static Object normalize(Object v) {
+    if (v == null || v instanceof String || v instanceof Long || v instanceof Double || v instanceof Boolean) {
+      return v;
+    } else if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+      return ((Number) v).longValue();
+    } else if (v instanceof Float) {
+      return ((Float) v).doubleValue();
+    } else if (v instanceof CharSequence) {
+      return v.toString();
+    } else if (v instanceof Date) {
+      return ((Date) v).toInstant().toString();
+    } else if (v instanceof MapWriter) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      try {
+        ((MapWriter) v).writeMap(new MapWriter.EntryWriter() {
+          @Override
+          public MapWriter.EntryWriter put(CharSequence k, Object val) {
+            map.put(k.toString(), normalize(val));
+            return this;
+          }
+        });
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      return map;
+    } else if (v instanceof Map) {
+      Map<Object, Object> map = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) v).entrySet()) {
+        map.put(entry.getKey(), normalize(entry.getValue()));
+      }
+      return map;
+    } else if (v instanceof IteratorWriter) {
+      return normalize(((IteratorWriter) v).toList(new ArrayList<>()));
+    } else if (v instanceof Iterable) {
+      List list = new ArrayList();
+      for (Object o : (Iterable) v) {
+        list.add(normalize(o));
+      }
+      return list;
+    } else if (v instanceof Object[]) {
+      return normalize(Arrays.asList((Object[]) v));
+    }
+    return v;
+  }
+
+  /** Collects tuples, or documents, row by row and creates the columns once the batch is complete. */
+  static final class Builder {
+    private final Map<String, ColumnBuilder> columns = new LinkedHashMap<>();
+    private int size;
+
+    int size() {
+      return size;
+    }
+
+    void add(Tuple tuple) {
+      for (Object entry : tuple.fields.entrySet()) {
+        Map.Entry<?, ?> e = (Map.Entry<?, ?>) entry;
+        put(String.valueOf(e.getKey()), e.getValue());
+      }
+      ++size;
+    }
+
+    void add(Map<?, ?> fields) {
+      for (Map.Entry<?, ?> e : fields.entrySet()) {
+        put(String.valueOf(e.getKey()), e.getValue());
+      }
+      ++size;
+    }
+
+    void add(MapWriter doc) throws IOException {
+      doc.writeMap(new MapWriter.EntryWriter() {
+        @Override
+        public MapWriter.EntryWriter put(CharSequence k, Object v) {
+          Builder.this.put(k.toString(), v);
+          return this;
+        }
+      });
+      ++size;
+    }
+
+    private void put(String name, Object value) {
+      ColumnBuilder column = columns.get(name);
+      if (column == null) {
+        column = new ColumnBuilder();
+        columns.put(name, column);
+      }
+      column.set(size, normalize(value));
+    }
+
+    TupleBatch build(Tuple eof) {
+      String[] names = new String[columns.size()];
+      Column[] built = new Column[columns.size()];
+      int i = 0;
+      for (Map.Entry<String, ColumnBuilder> entry : columns.entrySet()) {
+        names[i] = entry.getKey();
+        built[i] = entry.getValue().build(size);
+        ++i;
+      }
+      return new TupleBatch(size, names, built, eof);
+    }
+  }
+
+  private static final class ColumnBuilder {
+    private final List<Object> values = new ArrayList<>();
+
+    void set(int row, Object value) {
+      while (values.size() < row) {
+        values.add(null);
+      }
+      if (values.size() == row) {
+        values.add(value);
+      } else {
+        values.set(row, value);
+      }
+    }
+
+    Column build(int size) {
+      byte type = 0;
+      boolean[] nulls = null;
+      for (int row = 0; row < size; row++) {
+        Object value = row < values.size() ? values.get(row) : null;
+        if (value == null) {
+          if (nulls == null) {
+            nulls = new boolean[size];
+          }
+          nulls[row] = true;
+          continue;
+        }
+        byte valueType = typeOf(value);
+        if (type == 0) {
+          type = valueType;
+        } else if (type != valueType) {
+          type = OBJECT;
+        }
+      }
+      if (type == 0) {
+        type = OBJECT;
+      }
+
+      Column column = new Column(type, nulls);
+      switch (type) {
+        case LONG:
+          column.longs = new long[size];
+          for (int row = 0; row < values.size(); row++) {
+            Object value = values.get(row);
+            if (value != null) column.longs[row] = (Long) value;
+          }
+          break;
+        case DOUBLE:
+          column.doubles = new double[size];
+          for (int row = 0; row < values.size(); row++) {
+            Object value = values.get(row);
+            if (value != null) column.doubles[row] = (Double) value;
+          }
+          break;
+        case BOOLEAN:
+          column.longs = new long[size];
+          for (int row = 0; row < values.size(); row++) {
+            Object value = values.get(row);
+            if (value != null && (Boolean) value) column.longs[row] = 1;
+          }
+          break;
+        case STRING:
+          Map<String, Integer> ords = new HashMap<>();
+          List<String> dictionary = new ArrayList<>();
+          column.ords = new int[size];
+          for (int row = 0; row < values.size(); row++) {
+            Object value = values.get(row);
+            if (value != null) {
+              Integer ord = ords.get(value);
+              if (ord == null) {
+                ord = dictionary.size();
+                ords.put((String) value, ord);
+                dictionary.add((String) value);
+              }
+              column.ords[row] = ord;
+            }
+          }
+          column.dictionary = dictionary.toArray(new String[0]);
+          break;
+        default:
+          column.objects = values.toArray(new Object[size]);
+      }
+      return column;
+    }
+
+    private static byte typeOf(Object value) {
+      if (value instanceof Long) {
+        return LONG;
+      } else if (value instanceof Double) {
+        return DOUBLE;
+      } else if (value instanceof Boolean) {
+        return BOOLEAN;
+      } else if (value instanceof String) {
+        return STRING;
+      }
+      return OBJECT;
+    }
+  }
+
+  private static final class Column {
+    final byte type;
+    final boolean[] nulls;
+    long[] longs;
+    double[] doubles;
+    int[] ords;
+    String[] dictionary;
+    Object[] objects;
+
+    Column(byte type, boolean[] nulls) {
+      this.type = type;
+      this.nulls = nulls;
+    }
+
+    boolean isNull(int row) {
+      return nulls != null && nulls[row];
+    }
+
+    Object get(int row) {
+      if (isNull(row)) {
+        return null;
+      }
+      switch (type) {
+        case LONG:
+          return longs[row];
+        case DOUBLE:
+          return doubles[row];
+        case BOOLEAN:
+          return longs[row] != 0;
+        case STRING:
+          return dictionary[ords[row]];
+        default:
+          return objects[row];
+      }
+    }
+
+    void write(int size, FastOutputStream out) throws IOException {
+      out.writeByte(type);
+      if (nulls == null) {
+        out.writeByte(0);
+      } else {
+        out.writeByte(1);
+        writeBits(nulls, size, out);
+      }
+      switch (type) {
+        case LONG:
+          for (int row = 0; row < size; row++) {
+            if (!isNull(row)) {
+              long v = longs[row];
+              // zig-zag encoding keeps small negative values small
+              JavaBinCodec.writeVLong((v << 1) ^ (v >> 63), out);
+            }
+          }
+          break;
+        case DOUBLE:
+          for (int row = 0; row < size; row++) {
+            if (!isNull(row)) out.writeDouble(doubles[row]);
+          }
+          break;
+        case BOOLEAN:
+          boolean[] bits = new boolean[size];
+          for (int row = 0; row < size; row++) {
+            bits[row] = longs[row] != 0;
+          }
+          writeBits(bits, size, out);
+          break;
+        case STRING:
+          JavaBinCodec.writeVInt(dictionary.length, out);
+          for (String s : dictionary) {
+            writeString(s, out);
+          }
+          for (int row = 0; row < size; row++) {
+            if (!isNull(row)) JavaBinCodec.writeVInt(ords[row], out);
+          }
+          break;
+        default:
+          JavaBinCodec codec = new JavaBinCodec();
+          codec.init(out);
+          for (int row = 0; row < size; row++) {
+            if (!isNull(row)) codec.writeVal(objects[row]);
+          }
+      }
+    }
+
+    static Column read(int size, FastInputStream in) throws IOException {
+      byte type = in.readByte();
+      boolean[] nulls = in.readByte() == 0 ? null : readBits(size, in);
+      Column column = new Column(type, nulls);
+      switch (type) {
+        case LONG:
+          column.longs = new long[size];
+          for (int row = 0; row < size; row++) {
+            if (!column.isNull(row)) {
+              long v = JavaBinCodec.readVLong(in);
+              column.longs[row] = (v >>> 1) ^ -(v & 1);
+            }
+          }
+          break;
+        case DOUBLE:
+          column.doubles = new double[size];
+          for (int row = 0; row < size; row++) {
+            if (!column.isNull(row)) column.doubles[row] = in.readDouble();
+          }
+          break;
+        case BOOLEAN:
+          boolean[] bits = readBits(size, in);
+          column.longs = new long[size];
+          for (int row = 0; row < size; row++) {
+            if (bits[row]) column.longs[row] = 1;
+          }
+          break;
+        case STRING:
+          String[] dictionary = new String[JavaBinCodec.readVInt(in)];
+          for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+          }
+          column.dictionary = dictionary;
+          column.ords = new int[size];
+          for (int row = 0; row < size; row++) {
+            if (!column.isNull(row)) column.ords[row] = JavaBinCodec.readVInt(in);
+          }
+          break;
+        case OBJECT:
+          JavaBinCodec codec = new JavaBinCodec();
+          column.objects = new Object[size];
+          for (int row = 0; row < size; row++) {
+            if (!column.isNull(row)) column.objects[row] = codec.readVal(in);
+          }
+          break;
+        default:
+          throw new IOException("Unknown column type " + type);
+      }
+      return column;
+    }
+
+    private static void writeBits(boolean[] bits, int size, FastOutputStream out) throws IOException {
+      for (int i = 0; i < size; i += 8) {
+        int b = 0;
+        for (int j = 0; j < 8 && i + j < size; j++) {
+          if (bits[i + j]) b |= 1 << j;
+        }
+        out.writeByte(b);
+      }
+    }
+
+    private static boolean[] readBits(int size, FastInputStream in) throws IOException {
+      boolean[] bits = new boolean[size];
+      for (int i = 0; i < size; i += 8) {
+        int b = in.readUnsignedByte();
+        for (int j = 0; j < 8 && i + j < size; j++) {
+          bits[i + j] = (b & (1 << j)) != 0;
+        }
+      }
+      return bits;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+
+/**
+ * Merges the {@link TupleBatch}es of streams sorted by the same fields into batches in that order. Rows are compared
+ * and copied column by column, so no tuple is created. Used by {@link CloudSolrStream} when its shards or workers
+ * send batches.
+ */
+class TupleBatchMerger {
+
+  // the size of the batches read from streams which don't produce batches themselves
+  private static final int READ_SIZE = 1000;
+
+  private final List<? extends TupleStream> streams;
+  private final String[] fields;
+  private final boolean[] descending;
+  private final BiConsumer<TupleStream, Tuple> eofListener;
+  private final List<Source> sources = new ArrayList<>();
+  private final PriorityQueue<Source> queue;
+
+  /**
+   * @param eofListener receives each stream with the tuple that ended it
+   */
+  TupleBatchMerger(List<? extends TupleStream> streams, StreamComparator comp, BiConsumer<TupleStream, Tuple> eofListener) {
+    List<FieldComparator> comps = fieldComparators(comp);
+    if (comps == null) {
+      throw new IllegalArgumentException("Batches can only be merged by fields, not by " + comp);
+    }
+    this.streams = streams;
+    this.eofListener = eofListener;
+    this.fields = new String[comps.size()];
+    this.descending = new boolean[comps.size()];
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = comps.get(i).getLeftFieldName();
+      descending[i] = comps.get(i).getOrder() == ComparatorOrder.DESCENDING;
+    }
+    this.queue = new PriorityQueue<>(Math.max(1, streams.size()), this::compare);
+  }
+
+  /** Whether tuples sorted by the comparator can be merged by this class. */
+  static boolean canMerge(StreamComparator comp) {
+    return fieldComparators(comp) != null;
+  }
+
+  private static List<FieldComparator> fieldComparators(StreamComparator comp) {
+    List<FieldComparator> comps = new ArrayList<>();
+    if (comp instanceof FieldComparator) {
+      comps.add((FieldComparator) comp);
+    } else if (comp instanceof MultipleFieldComparator) {
+      for (StreamComparator c : ((MultipleFieldComparator) comp).getComps()) {
+        if (!(c instanceof FieldComparator)) {
+          return null;
+        }
+        comps.add((FieldComparator) c);
+      }
+    } else {
+      return null;
+    }
+    for (FieldComparator c : comps) {
+      if (c.hasDifferentFieldNames()) {
+        return null;
+      }
+    }
+    return comps;
+  }
+
+  /** Reads the first batch of each stream, which must be open. */
+  void open() throws IOException {
+    for (TupleStream stream : streams) {
+      Source source = new Source(stream);
+      sources.add(source);
+      if (source.advance()) {
+        queue.add(source);
+      }
+    }
+  }
+
+  /**
+   * Returns the next batch of up to <code>maxSize</code> tuples in the order of the comparator. Once all streams
+   * ended, the batch holds the given EOF tuple.
+   */
+  TupleBatch next(int maxSize, Tuple eof) throws IOException {
+    List<TupleBatch> gathered = new ArrayList<>();
+    for (Source source : sources) {
+      source.gatherId = -1;
+    }
+    int[] sourceOf = new int[Math.min(maxSize, READ_SIZE)];
+    int[] rows = new int[sourceOf.length];
+    int size = 0;
+    while (size < maxSize && !queue.isEmpty()) {
+      if (size == rows.length) {
+        int length = (int) Math.min(maxSize, 2L * rows.length);
+        sourceOf = Arrays.copyOf(sourceOf, length);
+        rows = Arrays.copyOf(rows, length);
+      }
+      Source source = queue.poll();
+      if (source.gatherId < 0) {
+        source.gatherId = gathered.size();
+        gathered.add(source.batch);
+      }
+      sourceOf[size] = source.gatherId;
+      rows[size] = source.row;
+      ++size;
+      if (source.next()) {
+        queue.add(source);
+      }
+    }
+    return TupleBatch.gather(gathered, sourceOf, rows, size, queue.isEmpty() ? eof : null);
+  }
+
+  private int compare(Source a, Source b) {
+    for (int i = 0; i < fields.length; i++) {
+      int cmp = compare(a.batch, a.columns[i], a.row, b.batch, b.columns[i], b.row);
+      if (cmp != 0) {
+        return descending[i] ? -cmp : cmp;
+      }
+    }
+    return 0;
+  }
+
+  /** Compares like {@link FieldComparator} in ascending order, nulls first. */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compare(TupleBatch a, int aColumn, int aRow, TupleBatch b, int bColumn, int bRow) {
+    boolean aNull = aColumn < 0 || a.isNull(aColumn, aRow);
+    boolean bNull = bColumn < 0 || b.isNull(bColumn, bRow);
+    if (aNull || bNull) {
+      return aNull == bNull ? 0 : aNull ? -1 : 1;
+    }
+    if (a.isLong(aColumn) && b.isLong(bColumn)) {
+      return Long.compare(a.getLong(aColumn, aRow), b.getLong(bColumn, bRow));
+    }
+    if (a.isDouble(aColumn) && b.isDouble(bColumn)) {
+      return Double.compare(a.getDouble(aColumn, aRow), b.getDouble(bColumn, bRow));
+    }
+    return ((Comparable) a.getValue(aColumn, aRow)).compareTo(b.getValue(bColumn, bRow));
+  }
+
+  /** A stream and its current row. */
+  private class Source {
+    final TupleStream stream;
+    TupleBatch batch;
+    int row;
+    // the column of each sort field in the current batch
+    int[] columns;
+    // the index of the current batch among the batches gathered for the next batch
+    int gatherId = -1;
+
+    Source(TupleStream stream) {
+      this.stream = stream;
+    }
+
+    /** Moves to the next row, reading the next batch if needed. Returns false at the end of the stream. */
+    boolean next() throws IOException {
+      if (++row < batch.size()) {
+        return true;
+      }
+      if (batch.getEOF() != null) {
+        return false;
+      }
+      return advance();
+    }
+
+    /** Moves to the first row of the next batch which has rows. Returns false at the end of the stream. */
+    boolean advance() throws IOException {
+      for (;;) {
+        batch = stream.readBatch(READ_SIZE);
+        row = 0;
+        gatherId = -1;
+        if (batch.getEOF() != null) {
+          eofListener.accept(stream, batch.getEOF());
+        }
+        if (batch.size() > 0) {
+          columns = new int[fields.length];
+          for (int i = 0; i < fields.length; i++) {
+            columns[i] = batch.getColumn(fields[i]);
+          }
+          return true;
+        }
+        if (batch.getEOF() != null) {
+          return false;
+        }
+      }
+    }
+  }
+}
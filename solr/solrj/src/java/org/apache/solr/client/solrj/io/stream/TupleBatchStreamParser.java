@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Parses a javabin response whose tuples are written in {@link TupleBatch}es by a {@link TupleBatchWriter}. Tuples
+ * which are not part of a batch, like the EOF tuple, or all tuples if the server does not support batches, are
+ * returned as they are.
+ */
+class TupleBatchStreamParser implements TupleStreamParser {
+
+  private final JavabinTupleStreamParser parser;
+  private TupleBatch batch;
+  private int row;
+  private Map<String, Object> pending;
+  private boolean ended;
+
+  TupleBatchStreamParser(JavabinTupleStreamParser parser) {
+    this.parser = parser;
+  }
+
+  @Override
+  @SuppressWarnings({"unchecked"})
+  public Map<String, Object> next() throws IOException {
+    if (pending != null) {
+      Map<String, Object> fields = pending;
+      pending = null;
+      return fields;
+    }
+    while (batch == null || row >= batch.size()) {
+      batch = null;
+      Object o = ended ? null : parser.nextValue();
+      if (o instanceof byte[]) {
+        batch = TupleBatch.read((byte[]) o);
+        row = 0;
+      } else {
+        ended = o == null;
+        return (Map<String, Object>) o;
+      }
+    }
+    return batch.getFields(row++);
+  }
+
+  /**
+   * Returns the next batch as it was sent, or null if the next tuple is not the first of a batch, in which case the
+   * tuples must be read with {@link #next()}.
+   */
+  @SuppressWarnings({"unchecked"})
+  TupleBatch nextBatch() throws IOException {
+    if (pending != null || ended) {
+      return null;
+    }
+    if (batch != null && row >= batch.size()) {
+      batch = null;
+    }
+    if (batch != null) {
+      if (row > 0) {
+        return null;
+      }
+      TupleBatch current = batch;
+      batch = null;
+      return current;
+    }
+    Object o = parser.nextValue();
+    if (o instanceof byte[]) {
+      return TupleBatch.read((byte[]) o);
+    }
+    pending = (Map<String, Object>) o;
+    // at the end of the stream, next() returns null as well
+    ended = o == null;
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
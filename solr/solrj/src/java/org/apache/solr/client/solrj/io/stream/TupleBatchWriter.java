@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.params.SolrParams;
+
+/**
+ * Writes the tuples, or documents, added to it as serialized {@link TupleBatch}es to the wrapped writer. EOF and
+ * EXCEPTION tuples, and items that are not tuples or documents, end the current batch and are written as they are,
+ * so that they are read the same way as with the per-tuple transport.
+ * <p>
+ * {@link #flush()} must be called once all items were added.
+ */
+public class TupleBatchWriter implements IteratorWriter.ItemWriter {
+
+  /**
+   * Request parameter for <code>/stream</code> and <code>/export</code> requests with <code>wt=javabin</code> which
+   * asks for the tuples to be written in batches of at most this many tuples.
+   */
+  public static final String BATCH_SIZE_PARAM = "tupleBatchSize";
+
+  private final IteratorWriter.ItemWriter writer;
+  private final int batchSize;
+  private TupleBatch.Builder builder = new TupleBatch.Builder();
+
+  public TupleBatchWriter(IteratorWriter.ItemWriter writer, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.writer = writer;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Returns the batch size requested with {@link #BATCH_SIZE_PARAM}, or 0 if tuples should not be batched, which is
+   * also the case if the response is not written as javabin.
+   */
+  public static int getBatchSize(SolrParams params, boolean javabin) {
+    if (!javabin) {
+      return 0;
+    }
+    return Math.max(0, params.getInt(BATCH_SIZE_PARAM, 0));
+  }
+
+  @Override
+  @SuppressWarnings({"rawtypes"})
+  public IteratorWriter.ItemWriter add(Object o) throws IOException {
+    if (o instanceof Tuple) {
+      Tuple tuple = (Tuple) o;
+      if (tuple.EOF || tuple.EXCEPTION) {
+        flush();
+        writer.add(tuple);
+        return this;
+      }
+      builder.add(tuple);
+    } else if (o instanceof MapWriter) {
+      builder.add((MapWriter) o);
+    } else if (o instanceof Map) {
+      builder.add((Map) o);
+    } else {
+      flush();
+      writer.add(o);
+      return this;
+    }
+    if (builder.size() >= batchSize) {
+      flush();
+    }
+    return this;
+  }
+
+  /** Writes the tuples added since the last batch was written, if any. */
+  public void flush() throws IOException {
+    if (builder.size() > 0) {
+      writer.add(builder.build(null).write());
+      builder = new TupleBatch.Builder();
+    }
+  }
+}
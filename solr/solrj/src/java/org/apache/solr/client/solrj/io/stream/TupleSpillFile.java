@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * A temporary file holding tuples in the javabin format, used by streams that move part of their state to disk
+ * when it grows beyond what should be kept on the heap. The tuples are first written, then the file is read back
+ * any number of times in the order the tuples were written. The file is deleted when this is closed.
+ * <p>
+ * Only the fields of the tuples are kept, so EOF tuples must not be written. Instances are not thread safe.
+ */
+class TupleSpillFile implements Closeable {
+
+  private final Path path;
+  private FastOutputStream out;
+  private JavaBinCodec codec;
+  private long tuples;
+  private long bytes;
+
+  /**
+   * @param prefix the prefix of the name of the file, which is created in the default temporary directory
+   */
+  TupleSpillFile(String prefix) throws IOException {
+    this.path = Files.createTempFile(prefix, ".spill");
+    try {
+      this.out = new FastOutputStream(Files.newOutputStream(path));
+      this.codec = new JavaBinCodec();
+      this.codec.init(out);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(path);
+      throw e;
+    }
+  }
+
+  void write(Tuple tuple) throws IOException {
+    if (out == null) {
+      throw new IllegalStateException("Spill file " + path + " was already completed");
+    }
+    codec.writeVal(tuple.fields);
+    ++tuples;
+  }
+
+  /** Flushes and closes the file for writing. Tuples cannot be written anymore, but can be read. */
+  void complete() throws IOException {
+    if (out != null) {
+      out.flushBuffer();
+      bytes = out.size();
+      out.close();
+      out = null;
+      codec = null;
+    }
+  }
+
+  /** The number of tuples written. */
+  long getTupleCount() {
+    return tuples;
+  }
+
+  /** The size of the file, available once it is complete. */
+  long getByteCount() {
+    return bytes;
+  }
+
+  /** Reads the tuples of a completed file in the order they were written. */
+  Reader read() throws IOException {
+    if (out != null) {
+      throw new IllegalStateException("Spill file " + path + " must be completed before it is read");
+    }
+    return new Reader();
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOUtils.closeQuietly(out);
+    out = null;
+    codec = null;
+    Files.deleteIfExists(path);
+  }
+
+  class Reader implements Closeable {
+    private final FastInputStream in;
+    private final JavaBinCodec codec = new JavaBinCodec();
+    private long remaining = tuples;
+
+    private Reader() throws IOException {
+      this.in = FastInputStream.wrap(Files.newInputStream(path));
+    }
+
+    /** Returns the next tuple, or null once all tuples were read. */
+    @SuppressWarnings({"rawtypes"})
+    Tuple next() throws IOException {
+      if (remaining == 0) {
+        return null;
+      }
+      --remaining;
+      return new Tuple((Map) codec.readVal(in));
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -75,10 +75,39 @@ public abstract class TupleStream implements Closeable, Serializable, MapWriter
     return 0;
   }
 
+  /**
+   * Reads the next tuples as a batch. The batch ending the stream holds the EOF tuple, see {@link TupleBatch#getEOF()}.
+   * <p>
+   * Streams which receive their tuples in batches return them as they are, in which case the size of the batch is
+   * chosen by the producer. Other streams read up to <code>maxSize</code> tuples one by one.
+   */
+  public TupleBatch readBatch(int maxSize) throws IOException {
+    return TupleBatch.read(this, maxSize);
+  }
+
+  /**
+   * Whether {@link #readBatch(int)} returns the batches this stream receives or merges, rather than collecting tuples
+   * read one by one. Consumers that can work on the columns of a batch should then read batches. Only known once
+   * the stream is open.
+   */
+  public boolean producesBatches() {
+    return false;
+  }
+
   @Override
   public void writeMap(EntryWriter ew) throws IOException {
+    writeMap(ew, 0);
+  }
+
+  /**
+   * Writes the tuples of this stream like {@link #writeMap(EntryWriter)}, but in {@link TupleBatch}es of
+   * <code>batchSize</code> tuples if it is positive.
+   */
+  public void writeMap(EntryWriter ew, int batchSize) throws IOException {
     open();
-    ew.put("docs", (IteratorWriter) iw -> {
+    ew.put("docs", (IteratorWriter) out -> {
+      TupleBatchWriter batchWriter = batchSize > 0 ? new TupleBatchWriter(out, batchSize) : null;
+      IteratorWriter.ItemWriter iw = batchWriter != null ? batchWriter : out;
       try {
         for ( ; ; ) {
           Tuple tuple = read();
@@ -92,6 +121,9 @@ public abstract class TupleStream implements Closeable, Serializable, MapWriter
             break;
           }
         }
+        if (batchWriter != null) {
+          batchWriter.flush();
+        }
       } catch (Throwable e) {
         close();
         Throwable ex = e;
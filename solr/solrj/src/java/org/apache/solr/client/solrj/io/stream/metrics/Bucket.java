@@ -17,6 +17,7 @@
 package org.apache.solr.client.solrj.io.stream.metrics;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.TupleBatch;
 
 public class Bucket {
 
@@ -38,6 +39,15 @@ public class Bucket {
     }
   }
 
+  public Object getBucketValue(TupleBatch batch, int row) {
+    int column = batch.getColumn(bucketKey);
+    if(column < 0 || batch.isNull(column, row)) {
+      return NULL_VALUE;
+    } else {
+      return batch.getValue(column, row);
+    }
+  }
+
   public String toString() {
     return bucketKey;
   }
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.util.Locale;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -70,6 +71,18 @@ public class CountMetric extends Metric {
     }
   }
 
+  @Override
+  public void update(TupleBatch batch, int row) {
+    if(isAllColumns()) {
+      ++count;
+    } else {
+      int column = batch.getColumn(columnName);
+      if(column >= 0 && !batch.isNull(column, row)) {
+        ++count;
+      }
+    }
+  }
+
   public Long getValue() {
     return count;
   }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.UUID;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
 import org.apache.solr.client.solrj.io.stream.expr.Expressible;
@@ -69,6 +70,15 @@ public abstract class Metric implements Expressible {
   
   public abstract Number getValue();
   public abstract void update(Tuple tuple);
+
+  /**
+   * Updates the metric with the tuple at the given row of a batch. Metrics override this to read the values of typed
+   * columns without creating the tuple.
+   */
+  public void update(TupleBatch batch, int row) {
+    update(batch.getTuple(row));
+  }
+
   public abstract Metric newInstance();
   public abstract String[] getColumns();
 
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.Locale;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -95,6 +96,26 @@ public class MinMetric extends Metric {
     }
   }
 
+  @Override
+  public void update(TupleBatch batch, int row) {
+    int column = batch.getColumn(columnName);
+    if(column < 0 || batch.isNull(column, row)) {
+      update(batch.getTuple(row));
+    } else if(batch.isLong(column)) {
+      long l = batch.getLong(column, row);
+      if(l < longMin) {
+        longMin = l;
+      }
+    } else if(batch.isDouble(column)) {
+      double d = batch.getDouble(column, row);
+      if(d < doubleMin) {
+        doubleMin = d;
+      }
+    } else {
+      update(batch.getTuple(row));
+    }
+  }
+
   public Metric newInstance() {
     return new MinMetric(columnName);
   }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.Locale;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -76,6 +77,20 @@ public class SumMetric extends Metric {
     }
   }
 
+  @Override
+  public void update(TupleBatch batch, int row) {
+    int column = batch.getColumn(columnName);
+    if(column < 0 || batch.isNull(column, row)) {
+      update(batch.getTuple(row));
+    } else if(batch.isLong(column)) {
+      longSum += batch.getLong(column, row);
+    } else if(batch.isDouble(column)) {
+      doubleSum += batch.getDouble(column, row);
+    } else {
+      update(batch.getTuple(row));
+    }
+  }
+
   public Metric newInstance() {
     return new SumMetric(columnName);
   }
@@ -27,5 +27,6 @@ public interface ExpandParams {
   public static final String EXPAND_FIELD = EXPAND + ".field";
   public static final String EXPAND_Q = EXPAND + ".q";
   public static final String EXPAND_FQ = EXPAND + ".fq";
+  public static final String EXPAND_SINGLE_PASS = EXPAND + ".singlePass";
 }
 
@@ -56,6 +56,12 @@ public interface UpdateParams
   /** Select the update processor chain to use.  A RequestHandler may or may not respect this parameter */
   public static final String UPDATE_CHAIN = "update.chain";
 
+  /**
+   * Number of threads to process the documents of a single update request with. Updates to the same document are
+   * still applied in order. Defaults to 1. A RequestHandler may or may not respect this parameter
+   */
+  public static final String UPDATE_THREADS = "update.threads";
+
   /** Override the content type used for UpdateLoader **/
   public static final String ASSUME_CONTENT_TYPE = "update.contentType";
   
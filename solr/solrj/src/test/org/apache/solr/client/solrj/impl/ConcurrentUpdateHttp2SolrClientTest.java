@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -107,6 +108,47 @@ public class ConcurrentUpdateHttp2SolrClientTest extends SolrJettyTestBase {
 
   }
 
+  @Test
+  public void testMaxQueueWaitTime() throws Exception {
+    ConcurrentUpdateSolrClientTest.TestServlet.clear();
+    String serverUrl = jetty.getBaseUrl().toString() + "/cuss/foo";
+    // the runner can only start, and drain the queue, once the blocking task completed
+    ExecutorService executor = ExecutorUtil.newMDCAwareFixedThreadPool(1, new SolrNamedThreadFactory("testMaxQueueWaitTime"));
+    CountDownLatch blocked = new CountDownLatch(1);
+    executor.execute(() -> {
+      try {
+        blocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    try (Http2SolrClient http2Client = new Http2SolrClient.Builder().build()) {
+      ConcurrentUpdateHttp2SolrClient.Builder builder = new ConcurrentUpdateHttp2SolrClient.Builder(serverUrl, http2Client)
+          .withQueueSize(1)
+          .withThreadCount(1)
+          .withExecutorService(executor);
+      expectThrows(IllegalArgumentException.class, () -> builder.withMaxQueueWaitTime(-1));
+      try (ConcurrentUpdateHttp2SolrClient concurrentClient = builder.withMaxQueueWaitTime(100).build()) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("id", "1");
+        concurrentClient.add(doc);
+        assertEquals(1, concurrentClient.getQueueSize());
+
+        long start = System.nanoTime();
+        expectThrows(ConcurrentUpdateHttp2SolrClient.QueueWaitTimeoutException.class, () -> concurrentClient.add(doc));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+
+        blocked.countDown();
+        concurrentClient.blockUntilFinished();
+        assertEquals(0, concurrentClient.getQueueSize());
+        assertEquals(1, ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get());
+      }
+    } finally {
+      blocked.countDown();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
   @Test
   public void testCollectionParameters() throws IOException, SolrServerException {
 
@@ -22,26 +22,39 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.solr.SolrJettyTestBase;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.embedded.JettyConfig;
+import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.request.RequestWriter;
 import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.util.AsyncListener;
+import org.apache.solr.client.solrj.util.Cancellable;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SuppressForbidden;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
@@ -147,12 +160,43 @@ public class Http2SolrClientTest extends SolrJettyTestBase {
     }
   }
 
+  /** Starts a javabin response, then fails it after its headers were sent. */
+  public static class TruncatedResponseServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+      resp.setContentType(BinaryResponseParser.BINARY_CONTENT_TYPE);
+      resp.getOutputStream().write(2); // the javabin version, the response never follows
+      resp.flushBuffer();
+      throw new IOException("Response truncated on purpose");
+    }
+  }
+
+  /** Holds requests until they are released, then responds with an empty javabin response. */
+  public static class BlockingServlet extends HttpServlet {
+    static volatile CountDownLatch release = new CountDownLatch(0);
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+      try {
+        release.await(60, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      resp.setContentType(BinaryResponseParser.BINARY_CONTENT_TYPE);
+      try (JavaBinCodec codec = new JavaBinCodec()) {
+        codec.marshal(new NamedList<>(), resp.getOutputStream());
+      }
+    }
+  }
+
   @BeforeClass
   public static void beforeTest() throws Exception {
     JettyConfig jettyConfig = JettyConfig.builder()
         .withServlet(new ServletHolder(BasicHttpSolrClientTest.RedirectServlet.class), "/redirect/*")
         .withServlet(new ServletHolder(BasicHttpSolrClientTest.SlowServlet.class), "/slow/*")
         .withServlet(new ServletHolder(DebugServlet.class), "/debug/*")
+        .withServlet(new ServletHolder(TruncatedResponseServlet.class), "/truncated/*")
+        .withServlet(new ServletHolder(BlockingServlet.class), "/blocking/*")
         .withSSLConfig(sslConfig.buildServerSSLConfig())
         .build();
     createAndStartJetty(legacyExampleCollection1SolrHome(), jettyConfig);
@@ -218,6 +262,129 @@ public class Http2SolrClientTest extends SolrJettyTestBase {
     }
   }
 
+  @Test
+  public void testAsyncRequest() throws Exception {
+    try (Http2SolrClient client = getHttp2SolrClient(jetty.getBaseUrl().toString() + "/collection1")) {
+      CompletableFuture<NamedList<Object>> future = new CompletableFuture<>();
+      client.asyncRequest(new QueryRequest(new SolrQuery("*:*")), null, listener(future));
+      NamedList<Object> rsp = future.get(30, TimeUnit.SECONDS);
+      assertNotNull(rsp.get("responseHeader"));
+      assertNotNull(rsp.get("response"));
+    }
+  }
+
+  @Test
+  public void testAsyncRequestFailure() throws Exception {
+    final int status = 527;
+    try (Http2SolrClient client = getHttp2SolrClient(jetty.getBaseUrl().toString() + "/debug/foo")) {
+      DebugServlet.setErrorCode(status);
+      CompletableFuture<NamedList<Object>> future = new CompletableFuture<>();
+      client.asyncRequest(new QueryRequest(new SolrQuery("foo")), null, listener(future));
+      ExecutionException e = expectThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof SolrException);
+      assertEquals(status, ((SolrException) e.getCause()).code());
+    } finally {
+      DebugServlet.clear();
+    }
+  }
+
+  @Test
+  public void testManyOutstandingAsyncRequests() throws Exception {
+    // more than the requests of request(SolrRequest, String, OnComplete) which may be outstanding
+    final int numRequests = 1500;
+    BlockingServlet.release = new CountDownLatch(1);
+    List<CompletableFuture<NamedList<Object>>> futures = new ArrayList<>();
+    try (Http2SolrClient client = getHttp2SolrClient(jetty.getBaseUrl().toString() + "/blocking")) {
+      try {
+        // none of the requests can complete while they are sent, so sending must not wait for any of them
+        Thread sender = new Thread(() -> {
+          for (int i = 0; i < numRequests; i++) {
+            CompletableFuture<NamedList<Object>> future = new CompletableFuture<>();
+            futures.add(future);
+            client.asyncRequest(new QueryRequest(new SolrQuery("*:*")), null, listener(future));
+          }
+        });
+        sender.start();
+        sender.join(30000);
+        assertFalse("sending async requests blocked", sender.isAlive());
+      } finally {
+        BlockingServlet.release.countDown();
+      }
+      for (CompletableFuture<NamedList<Object>> future : futures) {
+        assertNotNull(future.get(60, TimeUnit.SECONDS));
+      }
+    }
+    assertEquals(numRequests, futures.size());
+  }
+
+  @Test
+  public void testLBAsyncFailover() throws Exception {
+    String truncatedUrl = jetty.getBaseUrl().toString() + "/truncated";
+    String goodUrl = jetty.getBaseUrl().toString() + "/collection1";
+    AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<LBSolrClient.Rsp> future = new CompletableFuture<>();
+    try (Http2SolrClient client = new Http2SolrClient.Builder().build();
+         LBHttp2SolrClient lbClient = new LBHttp2SolrClient(client)) {
+      LBSolrClient.Req req = new LBSolrClient.Req(new QueryRequest(new SolrQuery("*:*")), Arrays.asList(truncatedUrl, goodUrl));
+      lbClient.asyncReq(req, new AsyncListener<LBSolrClient.Rsp>() {
+        @Override
+        public void onSuccess(LBSolrClient.Rsp rsp) {
+          calls.incrementAndGet();
+          future.complete(rsp);
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          calls.incrementAndGet();
+          future.completeExceptionally(throwable);
+        }
+      });
+      LBSolrClient.Rsp rsp = future.get(30, TimeUnit.SECONDS);
+      assertEquals(goodUrl, rsp.getServer());
+      assertNotNull(rsp.getResponse().get("response"));
+    }
+    // closing the client waited for the truncated response, which must not have completed the request again
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testLBAsyncCancel() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    try (Http2SolrClient client = new Http2SolrClient.Builder().build();
+         LBHttp2SolrClient lbClient = new LBHttp2SolrClient(client)) {
+      LBSolrClient.Req req = new LBSolrClient.Req(new QueryRequest(new SolrQuery("*:*")),
+          Collections.singletonList(jetty.getBaseUrl().toString() + "/slow"));
+      Cancellable cancellable = lbClient.asyncReq(req, new AsyncListener<LBSolrClient.Rsp>() {
+        @Override
+        public void onSuccess(LBSolrClient.Rsp rsp) {
+          calls.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          calls.incrementAndGet();
+        }
+      });
+      cancellable.cancel();
+    }
+    // a cancelled request is neither retried nor completed
+    assertEquals(0, calls.get());
+  }
+
+  private static AsyncListener<NamedList<Object>> listener(CompletableFuture<NamedList<Object>> future) {
+    return new AsyncListener<NamedList<Object>>() {
+      @Override
+      public void onSuccess(NamedList<Object> rsp) {
+        future.complete(rsp);
+      }
+
+      @Override
+      public void onFailure(Throwable throwable) {
+        future.completeExceptionally(throwable);
+      }
+    };
+  }
+
   @Test
   public void testQuery() throws Exception {
     DebugServlet.clear();
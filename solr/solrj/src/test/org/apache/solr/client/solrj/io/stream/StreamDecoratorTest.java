@@ -18,6 +18,7 @@ package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -221,6 +222,48 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
       tuples = getTuples(stream);
       assert (tuples.size() == 6);
       assertOrder(tuples, 0, 5, 1, 2, 3, 4);
+
+      // Spills sorted runs of two tuples and merges them
+      SortStream sortStream = (SortStream) factory.constructStream("sort(search(" + COLLECTIONORALIAS + ", q=*:*, fl=\"id,a_s,a_i,a_f\", sort=\"a_f asc\"), by=\"a_i asc, a_f desc\", spillThreshold=2)");
+      sortStream.setStreamContext(streamContext);
+      tuples = getTuples(sortStream);
+      assertEquals(6, tuples.size());
+      assertOrder(tuples, 0, 5, 1, 2, 3, 4);
+      assertEquals(6, sortStream.getSpilledTupleCount());
+      assertTrue(sortStream.getSpilledBytes() > 0);
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
+  @Test
+  public void testSortStreamMergesRunsInPasses() throws Exception {
+    int numDocs = 3 * SortStream.MAX_MERGE_RUNS + 10;
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < numDocs; i++) {
+      update.add(id, String.valueOf(i), "a_i", String.valueOf(random().nextInt(numDocs)));
+    }
+    update.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    StreamFactory factory = new StreamFactory()
+        .withCollectionZkHost(COLLECTIONORALIAS, cluster.getZkServer().getZkAddress())
+        .withFunctionName("search", CloudSolrStream.class)
+        .withFunctionName("sort", SortStream.class);
+    try {
+      // every tuple is a run, which are merged whenever there are MAX_MERGE_RUNS of them
+      SortStream sortStream = (SortStream) factory.constructStream("sort(search(" + COLLECTIONORALIAS
+          + ", q=*:*, fl=\"id,a_i\", sort=\"id asc\", rows=" + numDocs + "), by=\"a_i asc\", spillThreshold=1)");
+      sortStream.setStreamContext(streamContext);
+      List<Tuple> tuples = getTuples(sortStream);
+      assertEquals(numDocs, tuples.size());
+      for (int i = 1; i < tuples.size(); i++) {
+        assertTrue(tuples.get(i - 1).getLong("a_i") <= tuples.get(i).getLong("a_i"));
+      }
+      // the runs were written again by the intermediate merges
+      assertTrue(sortStream.getSpilledTupleCount() > numDocs);
     } finally {
       solrClientCache.close();
     }
@@ -1383,6 +1426,67 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testHashRollupStreamWithSpill() throws Exception {
+
+    new UpdateRequest()
+        .add(id, "0", "a_s", "hello0", "a_i", "0", "a_f", "1")
+        .add(id, "2", "a_s", "hello0", "a_i", "2", "a_f", "2")
+        .add(id, "3", "a_s", "hello3", "a_i", "3", "a_f", "3")
+        .add(id, "4", "a_s", "hello4", "a_i", "4", "a_f", "4")
+        .add(id, "1", "a_s", "hello0", "a_i", "1", "a_f", "5")
+        .add(id, "5", "a_s", "hello3", "a_i", "10", "a_f", "6")
+        .add(id, "6", "a_s", "hello4", "a_i", "11", "a_f", "7")
+        .add(id, "7", "a_s", "hello3", "a_i", "12", "a_f", "8")
+        .add(id, "8", "a_s", "hello3", "a_i", "13", "a_f", "9")
+        .add(id, "9", "a_s", "hello0", "a_i", "14", "a_f", "10")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamFactory factory = new StreamFactory()
+        .withCollectionZkHost(COLLECTIONORALIAS, cluster.getZkServer().getZkAddress())
+        .withFunctionName("search", CloudSolrStream.class)
+        .withFunctionName("hashRollup", HashRollupStream.class)
+        .withFunctionName("sum", SumMetric.class)
+        .withFunctionName("count", CountMetric.class);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    try {
+      // only the first bucket is kept in memory, the others are rolled up from their partitions
+      HashRollupStream rollupStream = (HashRollupStream) factory.constructStream("hashRollup("
+          + "search(" + COLLECTIONORALIAS + ", q=*:*, fl=\"a_s,a_i,a_f\", sort=\"a_f asc\"),"
+          + "over=\"a_s\","
+          + "sum(a_i),"
+          + "count(*),"
+          + "spillThreshold=1, partitions=2)");
+      TupleStream stream = new SortStream(rollupStream, new FieldComparator("a_s", ComparatorOrder.ASCENDING));
+      stream.setStreamContext(streamContext);
+      List<Tuple> tuples = getTuples(stream);
+
+      assertEquals(3, tuples.size());
+      assertEquals("hello0", tuples.get(0).getString("a_s"));
+      assertEquals(17.0D, tuples.get(0).getDouble("sum(a_i)"), 0.0D);
+      assertEquals(4L, tuples.get(0).getLong("count(*)").longValue());
+      assertEquals("hello3", tuples.get(1).getString("a_s"));
+      assertEquals(38.0D, tuples.get(1).getDouble("sum(a_i)"), 0.0D);
+      assertEquals(4L, tuples.get(1).getLong("count(*)").longValue());
+      assertEquals("hello4", tuples.get(2).getString("a_s"));
+      assertEquals(15.0D, tuples.get(2).getDouble("sum(a_i)"), 0.0D);
+      assertEquals(2L, tuples.get(2).getLong("count(*)").longValue());
+
+      // the tuples of hello3 and hello4 were spilled
+      assertEquals(6, rollupStream.getSpilledTupleCount());
+
+      // every partition is an open file
+      expectThrows(IOException.class, () -> factory.constructStream("hashRollup("
+          + "search(" + COLLECTIONORALIAS + ", q=*:*, fl=\"a_s,a_i,a_f\", sort=\"a_f asc\"),"
+          + "over=\"a_s\", sum(a_i), spillThreshold=1, partitions=" + (HashRollupStream.MAX_PARTITIONS + 1) + ")"));
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
   @Test
   public void testParallelUniqueStream() throws Exception {
 
@@ -1423,6 +1527,21 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
 
       Map<String, Tuple> eofTuples = pstream.getEofTuples();
       assert (eofTuples.size() == 2); //There should be an EOF tuple for each worker.
+
+      // Same with the tuples sent in columnar batches, both by /export and by the workers
+      pstream = (ParallelStream) streamFactory.constructStream("parallel(" + COLLECTIONORALIAS + ", unique(search(collection1, q=*:*, fl=\"id,a_s,a_i,a_f\", sort=\"a_f asc, a_i asc\", partitionKeys=\"a_f\", qt=\"/export\", wt=\"javabin\", tupleBatchSize=\"3\"), over=\"a_f\"), workers=\"2\", zkHost=\"" + zkHost + "\", sort=\"a_f asc\", batchSize=\"2\")");
+      pstream.setStreamContext(streamContext);
+      pstream.open();
+      try {
+        // the batches of the workers are merged without reading their tuples
+        assertTrue(pstream.producesBatches());
+      } finally {
+        pstream.close();
+      }
+      tuples = getTuples(pstream);
+      assertEquals(5, tuples.size());
+      assertOrder(tuples, 0, 1, 3, 4, 6);
+      assertEquals(2, pstream.getEofTuples().size());
     } finally {
       solrClientCache.close();
     }
@@ -2385,6 +2504,91 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testHashJoinStreamWithSpill() throws Exception {
+
+    new UpdateRequest()
+        .add(id, "1", "side_s", "left", "join1_i", "0", "join2_s", "a", "ident_s", "left_1") // 8, 9
+        .add(id, "15", "side_s", "left", "join1_i", "0", "join2_s", "a", "ident_s", "left_1") // 8, 9
+        .add(id, "2", "side_s", "left", "join1_i", "0", "join2_s", "b", "ident_s", "left_2")
+        .add(id, "3", "side_s", "left", "join1_i", "1", "join2_s", "a", "ident_s", "left_3") // 10
+        .add(id, "4", "side_s", "left", "join1_i", "1", "join2_s", "b", "ident_s", "left_4") // 11
+        .add(id, "5", "side_s", "left", "join1_i", "1", "join2_s", "c", "ident_s", "left_5") // 12
+        .add(id, "6", "side_s", "left", "join1_i", "2", "join2_s", "d", "ident_s", "left_6")
+        .add(id, "7", "side_s", "left", "join1_i", "3", "join2_s", "e", "ident_s", "left_7") // 14
+
+        .add(id, "8", "side_s", "right", "join1_i", "0", "join2_s", "a", "ident_s", "right_1", "join3_i", "0") // 1,15
+        .add(id, "9", "side_s", "right", "join1_i", "0", "join2_s", "a", "ident_s", "right_2", "join3_i", "0") // 1,15
+        .add(id, "10", "side_s", "right", "join1_i", "1", "join2_s", "a", "ident_s", "right_3", "join3_i", "1") // 3
+        .add(id, "11", "side_s", "right", "join1_i", "1", "join2_s", "b", "ident_s", "right_4", "join3_i", "1") // 4
+        .add(id, "12", "side_s", "right", "join1_i", "1", "join2_s", "c", "ident_s", "right_5", "join3_i", "1") // 5
+        .add(id, "13", "side_s", "right", "join1_i", "2", "join2_s", "dad", "ident_s", "right_6", "join3_i", "2")
+        .add(id, "14", "side_s", "right", "join1_i", "3", "join2_s", "e", "ident_s", "right_7", "join3_i", "3") // 7
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamExpression expression;
+    HashJoinStream stream;
+    List<Tuple> tuples;
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+
+    StreamFactory factory = new StreamFactory()
+      .withCollectionZkHost(COLLECTIONORALIAS, cluster.getZkServer().getZkAddress())
+      .withFunctionName("search", CloudSolrStream.class)
+      .withFunctionName("hashJoin", HashJoinStream.class)
+      .withFunctionName("outerHashJoin", OuterHashJoinStream.class);
+    try {
+      // Spills after the second hashed tuple, the spilled tuples are not returned in order
+      expression = StreamExpressionParser.parse("hashJoin("
+          + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc, id asc\"),"
+          + "hashed=search(collection1, q=\"side_s:right\", fl=\"join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc\"),"
+          + "on=\"join1_i, join2_s\", spillThreshold=2, partitions=3, threads=2)");
+      stream = new HashJoinStream(expression, factory);
+      stream.setStreamContext(streamContext);
+      assertNull(stream.getStreamSort());
+      tuples = getTuples(stream);
+      assertEquals(8, tuples.size());
+      assertEquals(Arrays.asList(1L, 1L, 3L, 4L, 5L, 7L, 15L, 15L), getSortedIds(tuples));
+      assertTrue(stream.getSpilledTupleCount() > 0);
+      assertTrue(stream.getSpilledBytes() > 0);
+
+      // Same with an outer join
+      expression = StreamExpressionParser.parse("outerHashJoin("
+          + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc, id asc\"),"
+          + "hashed=search(collection1, q=\"side_s:right\", fl=\"join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc\"),"
+          + "on=\"join1_i, join2_s\", spillThreshold=2, partitions=3, threads=2)");
+      stream = new OuterHashJoinStream(expression, factory);
+      stream.setStreamContext(streamContext);
+      tuples = getTuples(stream);
+      assertEquals(10, tuples.size());
+      assertEquals(Arrays.asList(1L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 15L, 15L), getSortedIds(tuples));
+      assertTrue(stream.getSpilledTupleCount() > 0);
+
+      // Does not spill below the threshold
+      expression = StreamExpressionParser.parse("hashJoin("
+          + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc, id asc\"),"
+          + "hashed=search(collection1, q=\"side_s:right\", fl=\"join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc\"),"
+          + "on=\"join1_i, join2_s\", spillThreshold=100)");
+      stream = new HashJoinStream(expression, factory);
+      stream.setStreamContext(streamContext);
+      tuples = getTuples(stream);
+      assertOrder(tuples, 1, 1, 15, 15, 3, 4, 5, 7);
+      assertEquals(0, stream.getSpilledTupleCount());
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
+  private static List<Long> getSortedIds(List<Tuple> tuples) {
+    List<Long> ids = new ArrayList<>();
+    for (Tuple tuple : tuples) {
+      ids.add(tuple.getLong("id"));
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
   @Test
   public void testSelectStream() throws Exception {
 
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.junit.Test;
+
+public class TupleBatchTest extends SolrTestCase {
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    TupleBatch.Builder builder = new TupleBatch.Builder();
+    builder.add(tuple("id", "1", "a_i", 1, "a_f", 1.5f, "a_s", "x", "a_b", true, "a_ss", Arrays.asList("a", "b")));
+    builder.add(tuple("id", "2", "a_i", -2L, "a_f", 2.5d, "a_s", "y", "a_b", false, "a_dt", new Date(0L)));
+    builder.add(tuple("id", "3", "a_s", "x", "mixed", "3"));
+    builder.add(tuple("id", "4", "a_i", Long.MIN_VALUE, "mixed", 4));
+    TupleBatch batch = TupleBatch.read(builder.build(null).write());
+
+    assertEquals(4, batch.size());
+    assertNull(batch.getEOF());
+    assertEquals(Arrays.asList("id", "a_i", "a_f", "a_s", "a_b", "a_ss", "a_dt", "mixed"), batch.getFieldNames());
+
+    int a_i = batch.getColumn("a_i");
+    assertTrue(batch.isLong(a_i));
+    assertEquals(1L, batch.getLong(a_i, 0));
+    assertEquals(-2L, batch.getLong(a_i, 1));
+    assertTrue(batch.isNull(a_i, 2));
+    assertEquals(Long.MIN_VALUE, batch.getLong(a_i, 3));
+
+    int a_f = batch.getColumn("a_f");
+    assertTrue(batch.isDouble(a_f));
+    assertEquals(1.5d, batch.getDouble(a_f, 0), 0d);
+    assertEquals(-1, batch.getColumn("missing"));
+
+    Tuple tuple = batch.getTuple(0);
+    assertEquals("1", tuple.getString("id"));
+    assertEquals(1L, tuple.get("a_i"));
+    assertEquals(1.5d, tuple.get("a_f"));
+    assertEquals("x", tuple.get("a_s"));
+    assertEquals(Boolean.TRUE, tuple.get("a_b"));
+    assertEquals(Arrays.asList("a", "b"), tuple.get("a_ss"));
+    assertFalse(tuple.fields.containsKey("a_dt"));
+
+    tuple = batch.getTuple(1);
+    assertEquals(Boolean.FALSE, tuple.get("a_b"));
+    assertEquals("1970-01-01T00:00:00Z", tuple.get("a_dt"));
+
+    // a column with values of different types keeps each value's type
+    assertEquals("3", batch.getTuple(2).get("mixed"));
+    assertEquals(4L, batch.getTuple(3).get("mixed"));
+    assertEquals(3, batch.getTuple(2).fields.size());
+  }
+
+  @Test
+  public void testReadBatchFallback() throws Exception {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      tuples.add(tuple("id", String.valueOf(i), "a_i", i));
+    }
+    TupleStream stream = new TuplesStream(tuples);
+
+    TupleBatch batch = stream.readBatch(2);
+    assertEquals(2, batch.size());
+    assertNull(batch.getEOF());
+    batch = stream.readBatch(2);
+    assertEquals(2, batch.size());
+    assertEquals(3L, batch.getLong(batch.getColumn("a_i"), 1));
+    batch = stream.readBatch(2);
+    assertEquals(1, batch.size());
+    assertNotNull(batch.getEOF());
+    assertTrue(batch.getEOF().EOF);
+  }
+
+  @Test
+  public void testBatchWriterAndParser() throws Exception {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      tuples.add(tuple("id", String.valueOf(i), "a_i", i, "a_s", "s" + (i % 2)));
+    }
+    TupleStream stream = new TuplesStream(tuples);
+
+    // the shape of a /stream response
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JavaBinCodec codec = new JavaBinCodec()) {
+      codec.marshal((MapWriter) ew -> ew.put("result-set", (MapWriter) rs -> stream.writeMap(rs, 3)), out);
+    }
+
+    TupleBatchStreamParser parser = new TupleBatchStreamParser(
+        new JavabinTupleStreamParser(new ByteArrayInputStream(out.toByteArray()), true));
+    TupleBatch batch = parser.nextBatch();
+    assertEquals(3, batch.size());
+    assertEquals(0L, batch.getLong(batch.getColumn("a_i"), 0));
+
+    // reading the next batch tuple by tuple
+    Map<String, Object> fields = parser.next();
+    assertEquals("3", fields.get("id"));
+    assertEquals(3L, fields.get("a_i"));
+    assertEquals("s1", fields.get("a_s"));
+    assertNull(parser.nextBatch());
+    assertEquals("4", parser.next().get("id"));
+    assertEquals("5", parser.next().get("id"));
+
+    batch = parser.nextBatch();
+    assertEquals(1, batch.size());
+    assertEquals("6", batch.getTuple(0).getString("id"));
+
+    // the EOF tuple is sent as it is
+    assertNull(parser.nextBatch());
+    fields = parser.next();
+    assertEquals(Boolean.TRUE, fields.get("EOF"));
+    assertNull(parser.nextBatch());
+    assertNull(parser.next());
+    parser.close();
+  }
+
+  @Test
+  public void testMergeBatches() throws Exception {
+    List<TupleBatch> batches1 = Arrays.asList(
+        batch(null, tuple("id", "0", "a_i", 0, "a_s", "x"), tuple("id", "3", "a_i", 3, "a_s", "y")),
+        batch(eof(), tuple("id", "4", "a_i", 4, "a_s", "x")));
+    List<TupleBatch> batches2 = Arrays.asList(
+        batch(null, tuple("id", "1", "a_i", 1), tuple("id", "2", "a_i", 2, "a_s", "z")),
+        batch(null),
+        batch(eof(), tuple("id", "5", "a_i", 5L, "a_f", 5.5f)));
+    BatchesStream stream1 = new BatchesStream(batches1);
+    BatchesStream stream2 = new BatchesStream(batches2);
+
+    Map<TupleStream, Tuple> eofTuples = new LinkedHashMap<>();
+    TupleBatchMerger merger = new TupleBatchMerger(Arrays.asList(stream1, stream2),
+        new FieldComparator("a_i", ComparatorOrder.ASCENDING), eofTuples::put);
+    merger.open();
+
+    List<Tuple> merged = new ArrayList<>();
+    TupleBatch batch;
+    do {
+      batch = merger.next(4, eof());
+      assertTrue(batch.size() <= 4);
+      if (batch.size() > 0) {
+        int a_i = batch.getColumn("a_i");
+        assertTrue(batch.isLong(a_i));
+      }
+      for (int row = 0; row < batch.size(); row++) {
+        merged.add(batch.getTuple(row));
+      }
+    } while (batch.getEOF() == null);
+
+    assertEquals(6, merged.size());
+    for (int i = 0; i < merged.size(); i++) {
+      assertEquals(String.valueOf(i), merged.get(i).getString("id"));
+    }
+    assertEquals("x", merged.get(0).get("a_s"));
+    assertNull(merged.get(1).get("a_s"));
+    assertEquals("z", merged.get(2).get("a_s"));
+    assertEquals("y", merged.get(3).get("a_s"));
+    assertEquals(5.5d, merged.get(5).get("a_f"));
+    assertEquals(2, eofTuples.size());
+
+    // the rows were copied column by column, without creating the tuples of the merged streams
+    for (TupleBatch b : batches1) {
+      assertEquals(0, b.getCreatedTupleCount());
+    }
+    for (TupleBatch b : batches2) {
+      assertEquals(0, b.getCreatedTupleCount());
+    }
+
+    // descending on the first field
+    stream1 = new BatchesStream(Arrays.asList(
+        batch(eof(), tuple("a_s", "b", "a_i", 2), tuple("a_s", "b", "a_i", 1), tuple("a_s", "a", "a_i", 9))));
+    stream2 = new BatchesStream(Arrays.asList(
+        batch(eof(), tuple("a_s", "c", "a_i", 0), tuple("a_s", "b", "a_i", 3), tuple("a_i", 7))));
+    StreamComparator comp = new MultipleFieldComparator(
+        new FieldComparator("a_s", ComparatorOrder.DESCENDING), new FieldComparator("a_i", ComparatorOrder.DESCENDING));
+    assertTrue(TupleBatchMerger.canMerge(comp));
+    merger = new TupleBatchMerger(Arrays.asList(stream1, stream2), comp, (s, eof) -> {});
+    merger.open();
+    batch = merger.next(10, eof());
+    assertNotNull(batch.getEOF());
+    int a_i = batch.getColumn("a_i");
+    long[] order = new long[batch.size()];
+    for (int row = 0; row < batch.size(); row++) {
+      order[row] = batch.getLong(a_i, row);
+    }
+    assertArrayEquals(new long[] {0, 3, 2, 1, 9, 7}, order);
+  }
+
+  @Test
+  public void testHashRollupReadsBatchColumns() throws Exception {
+    List<TupleBatch> batches = new ArrayList<>();
+    for (int b = 0; b < 3; b++) {
+      List<Tuple> tuples = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        int n = b * 4 + i;
+        tuples.add(tuple("a_s", "s" + (n % 3), "a_i", n, "a_f", n + 0.5d));
+      }
+      batches.add(batch(b == 2 ? eof() : null, tuples.toArray(new Tuple[0])));
+    }
+    BatchesStream stream = new BatchesStream(batches);
+
+    Metric[] metrics = {new SumMetric("a_i"), new SumMetric("a_f"), new MinMetric("a_i"), new MaxMetric("a_f"),
+        new MeanMetric("a_i"), new CountMetric("*"), new CountMetric("a_i")};
+    HashRollupStream rollup = new HashRollupStream(stream, new Bucket[] {new Bucket("a_s")}, metrics);
+    rollup.open();
+    Map<Object, Tuple> buckets = new LinkedHashMap<>();
+    try {
+      for (Tuple tuple = rollup.read(); !tuple.EOF; tuple = rollup.read()) {
+        buckets.put(tuple.get("a_s"), tuple);
+      }
+    } finally {
+      rollup.close();
+    }
+
+    assertEquals(3, buckets.size());
+    // s1 holds 1, 4, 7 and 10
+    Tuple s1 = buckets.get("s1");
+    assertEquals(22L, s1.get("sum(a_i)"));
+    assertEquals(24d, s1.getDouble("sum(a_f)"), 0d);
+    assertEquals(1L, s1.get("min(a_i)"));
+    assertEquals(10.5d, s1.getDouble("max(a_f)"), 0d);
+    assertEquals(5.5d, s1.getDouble("avg(a_i)"), 0d);
+    assertEquals(4L, s1.get("count(*)"));
+    assertEquals(4L, s1.get("count(a_i)"));
+
+    for (TupleBatch batch : batches) {
+      assertEquals(0, batch.getCreatedTupleCount());
+    }
+  }
+
+  private static Tuple eof() {
+    Tuple eof = new Tuple();
+    eof.EOF = true;
+    eof.put("EOF", true);
+    return eof;
+  }
+
+  /** A batch as it is received from a stream. */
+  private static TupleBatch batch(Tuple eof, Tuple... tuples) throws IOException {
+    TupleBatch.Builder builder = new TupleBatch.Builder();
+    for (Tuple tuple : tuples) {
+      builder.add(tuple);
+    }
+    return TupleBatch.read(builder.build(null).write(), eof);
+  }
+
+  private static Tuple tuple(Object... kvs) {
+    Tuple tuple = new Tuple();
+    // keeps the order of the columns predictable
+    tuple.fields = new LinkedHashMap<>();
+    for (int i = 0; i < kvs.length; i += 2) {
+      tuple.put(kvs[i], kvs[i + 1]);
+    }
+    return tuple;
+  }
+
+  private static class TuplesStream extends TupleStream {
+    private final Iterator<Tuple> it;
+
+    TuplesStream(List<Tuple> tuples) {
+      this.it = tuples.iterator();
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {
+    }
+
+    @Override
+    public List<TupleStream> children() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Tuple read() {
+      if (it.hasNext()) {
+        return it.next();
+      }
+      return eof();
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) throws IOException {
+      return null;
+    }
+  }
+
+  /** Returns its batches, and fails if its tuples are read one by one. */
+  private static class BatchesStream extends TuplesStream {
+    private final Iterator<TupleBatch> batches;
+
+    BatchesStream(List<TupleBatch> batches) {
+      super(Collections.emptyList());
+      this.batches = batches.iterator();
+    }
+
+    @Override
+    public Tuple read() {
+      throw new AssertionError("tuples should be read in batches");
+    }
+
+    @Override
+    public TupleBatch readBatch(int maxSize) {
+      return batches.next();
+    }
+
+    @Override
+    public boolean producesBatches() {
+      return true;
+    }
+  }
+}